@@ -23,6 +23,7 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.search.QueryItem;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
@@ -62,6 +63,21 @@ public interface AttachmentProvider extends WikiProvider {
      */
     InputStream getAttachmentData( Attachment att ) throws ProviderException, IOException;
 
+    /**
+     *  Returns the local file holding the data of an attachment, for providers which keep attachments as plain files. This is an optional
+     *  capability which allows callers to send the data without copying it through the heap, and to serve parts of it. The file must only
+     *  be read, never modified.
+     *
+     *  @param att The attachment
+     *  @return The file with the attachment data, or {@code null} if the provider does not store attachments as local files or the
+     *          attachment does not exist.
+     *  @throws ProviderException If the attachment cannot be looked up
+     *  @since 2.12.8
+     */
+    default File getAttachmentFile( final Attachment att ) throws ProviderException {
+        return null;
+    }
+
     /**
      *  Lists all attachments attached to a page.
      *
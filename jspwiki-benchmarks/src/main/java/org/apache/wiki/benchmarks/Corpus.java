@@ -0,0 +1,149 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+
+/**
+ * Generates a reproducible corpus of wiki pages, so that every benchmark runs against the same input. Pages link to each other,
+ * to a few missing pages and to external sites, and mix the usual block and inline markup.
+ */
+public final class Corpus {
+
+    /** Prefix of every generated page name. */
+    public static final String PAGE_PREFIX = "BenchPage";
+
+    private static final String[] WORDS = { "wiki", "page", "mankind", "search", "index", "render", "parser", "provider", "version",
+                                            "attachment", "reference", "plugin", "filter", "template", "session", "lucene" };
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns the name of the i-th page of the corpus.
+     *
+     * @param i page number.
+     * @return page name.
+     */
+    public static String pageName( final int i ) {
+        return PAGE_PREFIX + i;
+    }
+
+    /**
+     * Generates {@code pages} pages of JSPWiki markup, each about {@code paragraphs} paragraphs long.
+     *
+     * @param pages number of pages.
+     * @param paragraphs number of paragraphs per page.
+     * @return page texts, in page order.
+     */
+    public static List< String > jspwiki( final int pages, final int paragraphs ) {
+        final Random random = new Random( 42L );
+        final List< String > corpus = new ArrayList<>( pages );
+        for( int i = 0; i < pages; i++ ) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append( "!!! Page " ).append( i ).append( "\n\n" );
+            for( int p = 0; p < paragraphs; p++ ) {
+                sentence( sb, random );
+                sb.append( " See [" ).append( pageName( random.nextInt( pages ) ) ).append( "], [Missing" ).append( p )
+                  .append( "] and [the site|https://jspwiki.apache.org]. __" );
+                sentence( sb, random );
+                sb.append( "__ ''" );
+                sentence( sb, random );
+                sb.append( "''\n\n" );
+                if( p % 5 == 0 ) {
+                    sb.append( "* one\n* two\n** nested {{code}}\n\n|| a || b\n| 1 | 2\n\n{{{\npreformatted text\n}}}\n\n" );
+                }
+            }
+            corpus.add( sb.toString() );
+        }
+        return corpus;
+    }
+
+    /**
+     * Generates {@code pages} pages of JSPWiki markup full of CamelCase words and plain URIs, which are only turned into links if
+     * {@code jspwiki.translatorReader.camelCaseLinks} and {@code jspwiki.translatorReader.plainUris} are set.
+     *
+     * @param pages number of pages.
+     * @param paragraphs number of paragraphs per page.
+     * @return page texts, in page order.
+     */
+    public static List< String > camelCase( final int pages, final int paragraphs ) {
+        final Random random = new Random( 42L );
+        final List< String > corpus = new ArrayList<>( pages );
+        for( int i = 0; i < pages; i++ ) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append( "!!! Page " ).append( i ).append( "\n\n" );
+            for( int p = 0; p < paragraphs; p++ ) {
+                sentence( sb, random );
+                sb.append( " See " ).append( pageName( random.nextInt( pages ) ) ).append( ", MissingPage" ).append( p )
+                  .append( ", ~NotALink and https://jspwiki.apache.org/Wiki.jsp?page=" ).append( pageName( p ) ).append( ". " );
+                sentence( sb, random );
+                sb.append( " WikiWords like SearchIndex, RenderingManager and PageProvider." );
+                sb.append( "\n\n" );
+            }
+            corpus.add( sb.toString() );
+        }
+        return corpus;
+    }
+
+    /**
+     * Generates {@code pages} pages of markdown, each about {@code paragraphs} paragraphs long.
+     *
+     * @param pages number of pages.
+     * @param paragraphs number of paragraphs per page.
+     * @return page texts, in page order.
+     */
+    public static List< String > markdown( final int pages, final int paragraphs ) {
+        final Random random = new Random( 42L );
+        final List< String > corpus = new ArrayList<>( pages );
+        for( int i = 0; i < pages; i++ ) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append( "# Page " ).append( i ).append( "\n\n" );
+            for( int p = 0; p < paragraphs; p++ ) {
+                sentence( sb, random );
+                sb.append( " See [" ).append( pageName( random.nextInt( pages ) ) ).append( "](), [Missing" ).append( p )
+                  .append( "]() and [the site](https://jspwiki.apache.org). **" );
+                sentence( sb, random );
+                sb.append( "** *" );
+                sentence( sb, random );
+                sb.append( "*\n\n" );
+                if( p % 5 == 0 ) {
+                    sb.append( "* one\n* two\n  * nested `code`\n\n| a | b |\n|---|---|\n| 1 | 2 |\n\n```\npreformatted text\n```\n\n" );
+                }
+            }
+            corpus.add( sb.toString() );
+        }
+        return corpus;
+    }
+
+    static void sentence( final StringBuilder sb, final Random random ) {
+        final int words = 6 + random.nextInt( 10 );
+        for( int w = 0; w < words; w++ ) {
+            if( w > 0 ) {
+                sb.append( ' ' );
+            }
+            sb.append( WORDS[ random.nextInt( WORDS.length ) ] );
+        }
+        sb.append( '.' );
+    }
+
+}
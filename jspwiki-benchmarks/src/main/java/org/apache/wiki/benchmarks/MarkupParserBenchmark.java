@@ -0,0 +1,117 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.benchmarks;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.parser.JSPWikiMarkupParser;
+import org.apache.wiki.parser.WikiDocument;
+import org.apache.wiki.render.XHTMLRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Parsing and rendering of JSPWiki markup, the work done for every uncached page view.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class MarkupParserBenchmark {
+
+    @Param( { "10", "50" } )
+    int paragraphs;
+
+    /** Parse pages full of CamelCase words and plain URIs, with both kinds of links enabled. */
+    @Param( { "false", "true" } )
+    boolean camelCase;
+
+    TestEngine engine;
+    Context context;
+    List< String > corpus;
+    WikiDocument document;
+    int next;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        if( camelCase ) {
+            engine = TestEngine.build( TestEngine.with( "jspwiki.translatorReader.camelCaseLinks", "true" ),
+                                       TestEngine.with( "jspwiki.translatorReader.plainUris", "true" ) );
+            corpus = Corpus.camelCase( 100, paragraphs );
+        } else {
+            engine = TestEngine.build();
+            corpus = Corpus.jspwiki( 100, paragraphs );
+        }
+        for( int i = 0; i < 20; i++ ) {
+            // some links need to resolve to existing pages
+            engine.saveText( Corpus.pageName( i ), corpus.get( i ) );
+        }
+        final Page page = Wiki.contents().page( engine, "Benchmark" );
+        context = Wiki.context().create( engine, page );
+        document = new JSPWikiMarkupParser( context, new StringReader( corpus.get( 0 ) ) ).parse();
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        engine.stop();
+    }
+
+    String nextPage() {
+        next = ( next + 1 ) % corpus.size();
+        return corpus.get( next );
+    }
+
+    @Benchmark
+    public WikiDocument parse() throws IOException {
+        return new JSPWikiMarkupParser( context, new StringReader( nextPage() ) ).parse();
+    }
+
+    @Benchmark
+    public String render() throws IOException {
+        return new XHTMLRenderer( context, document ).getString();
+    }
+
+    @Benchmark
+    public String parseAndRender() throws IOException {
+        final WikiDocument doc = new JSPWikiMarkupParser( context, new StringReader( nextPage() ) ).parse();
+        return new XHTMLRenderer( context, doc ).getString();
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.benchmarks;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.references.ReferenceManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Link extraction and reference bookkeeping, done on every page save and for every page when the reference database is rebuilt.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ReferenceManagerBenchmark {
+
+    @Param( { "1000" } )
+    int pages;
+
+    TestEngine engine;
+    ReferenceManager references;
+    List< Page > corpusPages;
+    List< String > corpus;
+    List< Collection< String > > links;
+    int next;
+
+    @Setup( Level.Trial )
+    public void setUp() {
+        engine = TestEngine.build();
+        references = engine.getManager( ReferenceManager.class );
+        corpus = Corpus.jspwiki( pages, 10 );
+        corpusPages = new ArrayList<>( pages );
+        links = new ArrayList<>( pages );
+        for( int i = 0; i < pages; i++ ) {
+            final Page page = Wiki.contents().page( engine, Corpus.pageName( i ) );
+            corpusPages.add( page );
+            links.add( references.scanWikiLinks( page, corpus.get( i ) ) );
+            references.updateReferences( page.getName(), links.get( i ) );
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        engine.stop();
+    }
+
+    int nextPage() {
+        next = ( next + 1 ) % pages;
+        return next;
+    }
+
+    @Benchmark
+    public Collection< String > scanWikiLinks() {
+        final int i = nextPage();
+        return references.scanWikiLinks( corpusPages.get( i ), corpus.get( i ) );
+    }
+
+    @Benchmark
+    public void updateReferences() {
+        final int i = nextPage();
+        references.updateReferences( corpusPages.get( i ).getName(), links.get( i ) );
+    }
+
+    @Benchmark
+    public Collection< String > findReferrers() {
+        return references.findReferrers( Corpus.pageName( nextPage() ) );
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.benchmarks;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.ContextEnum;
+import org.apache.wiki.api.search.SearchResult;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.search.LuceneSearchProvider;
+import org.apache.wiki.search.SearchManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Full text search through the Lucene index, including the visibility checks and the search context fragments of every hit.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class SearchBenchmark {
+
+    @Param( { "500" } )
+    int pages;
+
+    @Param( { "mankind", "lucene AND index", "BenchPage1*" } )
+    String query;
+
+    TestEngine engine;
+    SearchManager search;
+    Context context;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( "jspwiki.workDir", props.getProperty( "jspwiki.workDir" ) + System.currentTimeMillis() );
+        props.setProperty( "jspwiki.fileSystemProvider.pageDir", props.getProperty( "jspwiki.fileSystemProvider.pageDir" ) + System.currentTimeMillis() );
+        props.setProperty( SearchManager.PROP_SEARCHPROVIDER, LuceneSearchProvider.class.getName() );
+        props.setProperty( "jspwiki.lucene.initialdelay", "0" );
+        props.setProperty( "jspwiki.lucene.indexdelay", "1" );
+        engine = TestEngine.build( props );
+        search = engine.getManager( SearchManager.class );
+        context = Wiki.context().create( engine, engine.newHttpRequest(), ContextEnum.PAGE_EDIT.getRequestContext() );
+
+        int i = 0;
+        for( final String text : Corpus.jspwiki( pages, 10 ) ) {
+            engine.saveText( Corpus.pageName( i++ ), text );
+        }
+        // wait for the background updater to index the whole corpus
+        final String last = Corpus.pageName( pages - 1 );
+        for( int tries = 0; tries < 600; tries++ ) {
+            if( search.findPages( last, context ).stream().anyMatch( r -> r.getPage().getName().equals( last ) ) ) {
+                return;
+            }
+            Thread.sleep( 100L );
+        }
+        throw new IllegalStateException( "corpus was not indexed in time" );
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Benchmark
+    public Collection< SearchResult > findPages() throws Exception {
+        return search.findPages( query, context );
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.benchmarks;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.providers.AbstractFileProvider;
+import org.apache.wiki.providers.VersioningFileProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Reads from {@link VersioningFileProvider}, without the caching provider in front of it, over pages with a version history. The
+ * old versions are either stored one file per version, or packed with {@link VersioningFileProvider#PROP_PACK_VERSIONS}.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class VersioningFileProviderBenchmark {
+
+    @Param( { "200" } )
+    int pages;
+
+    @Param( { "10", "100" } )
+    int versions;
+
+    @Param( { "false", "true" } )
+    boolean packVersions;
+
+    TestEngine engine;
+    VersioningFileProvider provider;
+    File pageDir;
+    int next;
+
+    @Setup( Level.Trial )
+    public void setUp() throws Exception {
+        engine = TestEngine.build();
+        pageDir = Files.createTempDirectory( "jspwiki-benchmark" ).toFile();
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( AbstractFileProvider.PROP_PAGEDIR, pageDir.getAbsolutePath() );
+        props.setProperty( VersioningFileProvider.PROP_PACK_VERSIONS, String.valueOf( packVersions ) );
+        provider = new VersioningFileProvider();
+        provider.initialize( engine, props );
+
+        final List< String > corpus = Corpus.jspwiki( pages, 10 );
+        for( int v = 0; v < versions; v++ ) {
+            for( int i = 0; i < pages; i++ ) {
+                final Page page = Wiki.contents().page( engine, Corpus.pageName( i ) );
+                page.setAuthor( "Author" + v );
+                provider.putPageText( page, corpus.get( ( i + v ) % pages ) );
+            }
+        }
+    }
+
+    @TearDown( Level.Trial )
+    public void tearDown() {
+        engine.stop();
+        TestEngine.deleteAll( pageDir );
+    }
+
+    String nextPage() {
+        next = ( next + 1 ) % pages;
+        return Corpus.pageName( next );
+    }
+
+    @Benchmark
+    public String getLatestText() throws Exception {
+        return provider.getPageText( nextPage(), VersioningFileProvider.LATEST_VERSION );
+    }
+
+    @Benchmark
+    public String getOldText() throws Exception {
+        return provider.getPageText( nextPage(), 1 );
+    }
+
+    @Benchmark
+    public Page getPageInfo() throws Exception {
+        return provider.getPageInfo( nextPage(), VersioningFileProvider.LATEST_VERSION );
+    }
+
+    @Benchmark
+    public List< Page > getVersionHistory() throws Exception {
+        return provider.getVersionHistory( nextPage() );
+    }
+
+    @Benchmark
+    public Collection< Page > getAllPages() throws Exception {
+        return provider.getAllPages();
+    }
+
+}
@@ -23,6 +23,7 @@ import net.sf.ehcache.event.CacheEventListener;
 import org.apache.wiki.util.CheckedSupplier;
 
 import java.io.Serializable;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -55,7 +56,11 @@ public interface CachingManager {
     /** Name of the page cache. */
     String CACHE_PAGES = "jspwiki.pageCache";
 
-    /** Name of the page text cache. */
+    /**
+     * Name of the page text cache.
+     * This cache is no longer used, page text is cached by the CachingProvider according to its own size limits.
+     */
+    @Deprecated
     String CACHE_PAGES_TEXT = "jspwiki.pageTextCache";
 
     /** Name of the page history cache. */
@@ -114,6 +119,20 @@ public interface CachingManager {
      */
     void put( String cacheName, Serializable key, Object val );
 
+    /**
+     * Puts an item on a cache, tagging it so that it can later be removed together with all the other items sharing one of its tags.
+     * Tags are dropped when the item is removed, evicted or expires. Implementations not supporting tags put the item untagged, and
+     * {@link #removeTagged(String, String)} then removes every item of the cache.
+     *
+     * @param cacheName The cache in which the item will live.
+     * @param key item's identifier.
+     * @param val item to insert in the cache.
+     * @param tags tags of the item, replacing those it may have had before.
+     */
+    default void put( final String cacheName, final Serializable key, final Object val, final Collection< String > tags ) {
+        put( cacheName, key, val );
+    }
+
     /**
      * Removes an item from a cache.
      *
@@ -122,6 +141,20 @@ public interface CachingManager {
      */
     void remove( String cacheName, Serializable key );
 
+    /**
+     * Removes all items from a cache tagged with the given tag. Implementations not supporting tags cannot tell which items carry the
+     * tag, so they remove all items of the cache, rather than leaving stale ones behind.
+     *
+     * @param cacheName The cache in which the items to be removed live.
+     * @param tag tag of the items to remove.
+     * @return the number of removed items.
+     */
+    default int removeTagged( final String cacheName, final String tag ) {
+        final List< Serializable > keys = keys( cacheName );
+        keys.forEach( key -> remove( cacheName, key ) );
+        return keys.size();
+    }
+
     /**
      * Register a listener to a cache
      *
@@ -20,10 +20,12 @@ package org.apache.wiki.cache;
 
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
 import net.sf.ehcache.config.Configuration;
 import net.sf.ehcache.config.ConfigurationFactory;
 import net.sf.ehcache.event.CacheEventListener;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.engine.Initializable;
 import org.apache.wiki.api.exceptions.WikiException;
@@ -34,10 +36,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.Serializable;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -51,6 +57,7 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 
 	final Map<String, Cache> cacheMap = new ConcurrentHashMap<>();
 	private final Map<String, CacheInfo> cacheStats = new ConcurrentHashMap<>();
+	final Map<String, TagIndex> tagIndexes = new ConcurrentHashMap<>();
 	private CacheManager cacheManager;
 
 	/** {@inheritDoc} */
@@ -59,6 +66,7 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 		LOG.info("Shutting down local CacheManager: " + cacheManager);
 		cacheMap.clear();
 		cacheStats.clear();
+		tagIndexes.clear();
 		if (cacheManager != null)  { // in case initialize was not called, e.g. in tests
 			cacheManager.shutdown();
 		}
@@ -85,7 +93,6 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 			registerCache(CACHE_DOCUMENTS);
 			registerCache(CACHE_PAGES);
 			registerCache(CACHE_PAGES_HISTORY);
-			registerCache(CACHE_PAGES_TEXT);
 		}
 	}
 
@@ -99,6 +106,9 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 			cache = new Cache(cacheName, DEFAULT_CACHE_SIZE, false, false, DEFAULT_CACHE_EXPIRY_PERIOD, DEFAULT_CACHE_EXPIRY_PERIOD);
 			cacheManager.addCache(cache);
 		}
+		final TagIndex tagIndex = new TagIndex();
+		cache.getCacheEventNotificationService().registerListener(tagIndex);
+		tagIndexes.put(cacheName, tagIndex);
 		cacheMap.put(cacheName, cache);
 		cacheStats.put(cacheName, new CacheInfo(cacheName, cache.getCacheConfiguration().getMaxEntriesLocalHeap()));
 	}
@@ -161,6 +171,15 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public void put(final String cacheName, final Serializable key, final Object val, final Collection<String> tags) {
+		if (keyAndCacheAreNotNull(cacheName, key)) {
+			tagIndexes.get(cacheName).tag(key, tags);
+			cacheMap.get(cacheName).put(new Element(key, val));
+		}
+	}
+
 	/** {@inheritDoc} */
 	@Override
 	public void remove(final String cacheName, final Serializable key) {
@@ -169,6 +188,23 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 		}
 	}
 
+	/** {@inheritDoc} */
+	@Override
+	public int removeTagged(final String cacheName, final String tag) {
+		if (!enabled(cacheName) || tag == null) {
+			return 0;
+		}
+		final TagIndex tagIndex = tagIndexes.get(cacheName);
+		int removed = 0;
+		for (final Serializable key : tagIndex.keys(tag)) {
+			if (cacheMap.get(cacheName).remove(key)) {
+				removed++;
+			}
+			tagIndex.untag(key); // in case the element had already expired, and thus no removal was notified
+		}
+		return removed;
+	}
+
 	@Override
 	public boolean registerListener(final String cacheName, final CacheEventListener listener) {
 		if (enabled(cacheName)) {
@@ -182,4 +218,71 @@ public class EhcacheCachingManager implements CachingManager, Initializable {
 	boolean keyAndCacheAreNotNull(final String cacheName, final Serializable key) {
 		return enabled(cacheName) && key != null;
 	}
+
+	/**
+	 * Keeps track of the tags of the elements of a cache, forgetting them as soon as the cache drops an element.
+	 */
+	static final class TagIndex extends CacheEventListenerAdapter {
+
+		private final Map<String, Set<Serializable>> keysByTag = new ConcurrentHashMap<>();
+		private final Map<Serializable, Collection<String>> tagsByKey = new ConcurrentHashMap<>();
+
+		void tag(final Serializable key, final Collection<String> tags) {
+			untag(key);
+			if (tags == null || tags.isEmpty()) {
+				return;
+			}
+			final Collection<String> copy = new ArrayList<>(new LinkedHashSet<>(tags));
+			tagsByKey.put(key, copy);
+			for (final String tag : copy) {
+				keysByTag.compute(tag, (t, keys) -> {
+					final Set<Serializable> tagged = keys != null ? keys : ConcurrentHashMap.newKeySet();
+					tagged.add(key);
+					return tagged;
+				});
+			}
+		}
+
+		void untag(final Serializable key) {
+			final Collection<String> tags = tagsByKey.remove(key);
+			if (tags != null) {
+				for (final String tag : tags) {
+					keysByTag.computeIfPresent(tag, (t, keys) -> {
+						keys.remove(key);
+						return keys.isEmpty() ? null : keys;
+					});
+				}
+			}
+		}
+
+		List<Serializable> keys(final String tag) {
+			final Set<Serializable> keys = keysByTag.get(tag);
+			return keys != null ? new ArrayList<>(keys) : Collections.emptyList();
+		}
+
+		int size() {
+			return tagsByKey.size();
+		}
+
+		@Override
+		public void notifyElementRemoved(final Ehcache cache, final Element element) {
+			untag((Serializable) element.getObjectKey());
+		}
+
+		@Override
+		public void notifyElementExpired(final Ehcache cache, final Element element) {
+			untag((Serializable) element.getObjectKey());
+		}
+
+		@Override
+		public void notifyElementEvicted(final Ehcache cache, final Element element) {
+			untag((Serializable) element.getObjectKey());
+		}
+
+		@Override
+		public void notifyRemoveAll(final Ehcache cache) {
+			keysByTag.clear();
+			tagsByKey.clear();
+		}
+	}
 }
@@ -18,10 +18,16 @@
  */
 package org.apache.wiki.cache;
 
+import net.sf.ehcache.event.CacheEventListener;
+import org.apache.wiki.util.CheckedSupplier;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
 
@@ -40,10 +46,10 @@ public class EhcacheCachingManagerTest {
         props.setProperty( CachingManager.PROP_CACHE_CONF_FILE, "ehcache-jspwiki-test.xml" );
         EhcacheCachingManager ecm = new EhcacheCachingManager();
         ecm.initialize( null, props );
-        Assertions.assertEquals( 7, ecm.cacheMap.size() );
+        Assertions.assertEquals( 6, ecm.cacheMap.size() );
 
         ecm.registerCache( "anotherCache" );
-        Assertions.assertEquals( 8, ecm.cacheMap.size() );
+        Assertions.assertEquals( 7, ecm.cacheMap.size() );
 
         ecm.shutdown();
         ecm.shutdown(); // does nothing if already shutdown
@@ -82,4 +88,50 @@ public class EhcacheCachingManagerTest {
         Assertions.assertNull( ecm.get( "trucutru", "key",  () -> retrieveFromBackend ) );
     }
 
+    @Test
+    void testTaggedPutAndRemove() throws Exception {
+        final EhcacheCachingManager ecm = new EhcacheCachingManager(); // own instance, other tests may have shut down the shared one
+        ecm.initialize( null, new Properties() );
+        ecm.put( CachingManager.CACHE_DOCUMENTS, "a", "A", Arrays.asList( "Main", "LeftMenu" ) );
+        ecm.put( CachingManager.CACHE_DOCUMENTS, "b", "B", Collections.singleton( "LeftMenu" ) );
+        ecm.put( CachingManager.CACHE_DOCUMENTS, "c", "C", Collections.singleton( "Other" ) );
+        ecm.put( "trucutru", "a", "A", Collections.singleton( "LeftMenu" ) );
+
+        Assertions.assertEquals( 2, ecm.removeTagged( CachingManager.CACHE_DOCUMENTS, "LeftMenu" ) );
+        Assertions.assertNull( ecm.get( CachingManager.CACHE_DOCUMENTS, "a", () -> null ) );
+        Assertions.assertNull( ecm.get( CachingManager.CACHE_DOCUMENTS, "b", () -> null ) );
+        Assertions.assertEquals( "C", ecm.get( CachingManager.CACHE_DOCUMENTS, "c", () -> null ) );
+        Assertions.assertEquals( 0, ecm.removeTagged( CachingManager.CACHE_DOCUMENTS, "Main" ), "removed items lose all their tags" );
+        Assertions.assertEquals( 0, ecm.removeTagged( "trucutru", "LeftMenu" ) );
+
+        // re-tagging replaces previous tags, plain removal drops them
+        ecm.put( CachingManager.CACHE_DOCUMENTS, "c", "C", Collections.singleton( "Main" ) );
+        Assertions.assertEquals( 0, ecm.removeTagged( CachingManager.CACHE_DOCUMENTS, "Other" ) );
+        ecm.remove( CachingManager.CACHE_DOCUMENTS, "c" );
+        Assertions.assertEquals( 0, ecm.tagIndexes.get( CachingManager.CACHE_DOCUMENTS ).size() );
+    }
+
+    @Test
+    void testTaggedRemoveWithoutTagSupport() throws Exception {
+        final EhcacheCachingManager ecm = new EhcacheCachingManager();
+        ecm.initialize( null, new Properties() );
+        // a CachingManager which only implements the untagged methods
+        final CachingManager untagged = new CachingManager() {
+            @Override public void shutdown() { ecm.shutdown(); }
+            @Override public boolean enabled( final String cacheName ) { return ecm.enabled( cacheName ); }
+            @Override public CacheInfo info( final String cacheName ) { return ecm.info( cacheName ); }
+            @Override @SuppressWarnings( "unchecked" ) public < T extends Serializable > List< T > keys( final String cacheName ) { return ( List< T > )ecm.keys( cacheName ); }
+            @Override public < T, E extends Exception > T get( final String cacheName, final Serializable key, final CheckedSupplier< T, E > supplier ) throws E { return ecm.get( cacheName, key, supplier ); }
+            @Override public void put( final String cacheName, final Serializable key, final Object val ) { ecm.put( cacheName, key, val ); }
+            @Override public void remove( final String cacheName, final Serializable key ) { ecm.remove( cacheName, key ); }
+            @Override public boolean registerListener( final String cacheName, final CacheEventListener listener ) { return ecm.registerListener( cacheName, listener ); }
+        };
+        untagged.put( CachingManager.CACHE_DOCUMENTS, "a", "A", Collections.singleton( "Main" ) );
+        untagged.put( CachingManager.CACHE_DOCUMENTS, "b", "B", Collections.singleton( "Other" ) );
+
+        // tags are lost, so nothing may be left behind which could carry the tag
+        Assertions.assertEquals( 2, untagged.removeTagged( CachingManager.CACHE_DOCUMENTS, "Main" ) );
+        Assertions.assertEquals( 0, untagged.keys( CachingManager.CACHE_DOCUMENTS ).size() );
+    }
+
 }
@@ -22,17 +22,23 @@ package org.apache.wiki.event;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
-import java.util.TreeSet;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  *  A singleton class that manages the addition and removal of WikiEvent listeners to a event source, as well as the firing of events
@@ -120,6 +126,17 @@ import java.util.Vector;
  *  garbage is collected, your object might still be getting events, so if you wish to avoid that, please remove it explicitly as
  *  described above.
  *  </p>
+ *  <h3>Concurrency</h3>
+ *  <p>
+ *  The listeners of a client are kept in a copy-on-write array: firing an event does not take any lock, and neither blocks nor is
+ *  blocked by listeners being added or removed, which matters as every wiki session listens to the group, user and authentication
+ *  managers. Listeners which have been garbage collected are removed as soon as their references are enqueued.
+ *  </p>
+ *  <p>
+ *  Listeners are normally called on the thread which fires the event, before {@link #fireEvent(Object, WikiEvent)} returns. A listener
+ *  which does not need that can be added with {@link #addWikiEventListener(Object, WikiEventListener, boolean)} to receive its events
+ *  on a virtual thread instead, in the order they were fired by the client. Exceptions thrown by such a listener are logged.
+ *  </p>
  * @since 2.4.20
  */
 public final class WikiEventManager {
@@ -132,11 +149,20 @@ public final class WikiEventManager {
     /* Optional listener to be used as all-event monitor. */
     private static WikiEventListener c_monitor;
 
+    /* Key of the client-less delegate preloaded for a null client, as the Map does not take null keys. */
+    private static final Object NULL_CLIENT = new Object();
+
+    /* The queue which the references to garbage collected listeners are put on. */
+    private static final ReferenceQueue< WikiEventListener > c_collected = new ReferenceQueue<>();
+
+    /* Runs the deliveries to asynchronous listeners. */
+    private static final Executor c_asyncExecutor = Executors.newThreadPerTaskExecutor( Thread.ofVirtual().name( "JSPWiki-event-", 0 ).factory() );
+
     /* The Map of client object to WikiEventDelegate. */
-    private final Map< Object, WikiEventDelegate > m_delegates = new HashMap<>();
+    private final Map< Object, WikiEventDelegate > m_delegates = new ConcurrentHashMap<>();
 
-    /* The Vector containing any preloaded WikiEventDelegates. */
-    private final Vector< WikiEventDelegate > m_preloadCache = new Vector<>();
+    /* The List containing any preloaded WikiEventDelegates. */
+    private final List< WikiEventDelegate > m_preloadCache = new CopyOnWriteArrayList<>();
 
     /* Singleton instance of the WikiEventManager. */
     private static WikiEventManager c_instance;
@@ -182,6 +208,22 @@ public final class WikiEventManager {
      * @return true if the listener was added (i.e., it was not already in the list and was added)
      */
     public static boolean addWikiEventListener( final Object client, final WikiEventListener listener ) {
+        return addWikiEventListener( client, listener, false );
+    }
+
+    /**
+     *  Registers a WikiEventListener with a WikiEventDelegate for the provided client object, optionally for asynchronous delivery.
+     *  An asynchronous listener receives the events of the client on a virtual thread, one at a time and in the order they were fired,
+     *  while {@link #fireEvent(Object, WikiEvent)} returns without waiting for it. Only listeners which do not need to see the effect of
+     *  an event before the code firing it goes on, and do not veto anything by throwing, should be asynchronous.
+     *
+     * @param client   the client of the event source
+     * @param listener the event listener
+     * @param async    true, if the listener is to be called asynchronously
+     * @return true if the listener was added (i.e., it was not already in the list and was added)
+     * @since 2.12.8
+     */
+    public static boolean addWikiEventListener( final Object client, final WikiEventListener listener, final boolean async ) {
         if( client == WikiEventManager.class ) {
             if ( c_permitMonitor ) {
                 c_monitor = listener;
@@ -189,7 +231,7 @@ public final class WikiEventManager {
             return c_permitMonitor;
         }
         final WikiEventDelegate delegate = getInstance().getDelegateFor(client);
-        return delegate.addWikiEventListener(listener);
+        return delegate.addWikiEventListener( listener, async );
     }
 
     /**
@@ -239,19 +281,9 @@ public final class WikiEventManager {
      */
     public static boolean removeWikiEventListener( final WikiEventListener listener ) {
         boolean removed = false;
-        // get the Map.entry object for the entire Map, then check match on entry (listener)
-        final WikiEventManager mgr = getInstance();
-        final Map< Object, WikiEventDelegate > sources =  Collections.synchronizedMap( mgr.getDelegates() );
-        synchronized( sources ) {
-            // get an iterator over the Map.Enty objects in the map
-            for( final Map.Entry< Object, WikiEventDelegate > entry : sources.entrySet() ) {
-                // the entry value is the delegate
-                final WikiEventDelegate delegate = entry.getValue();
-
-                // now see if we can remove the listener from the delegate (delegate may be null because this is a weak reference)
-                if( delegate != null && delegate.removeWikiEventListener( listener ) ) {
-                    removed = true; // was removed
-                }
+        for( final WikiEventDelegate delegate : getInstance().getDelegates().values() ) {
+            if( delegate.removeWikiEventListener( listener ) ) {
+                removed = true; // was removed
             }
         }
         return removed;
@@ -260,8 +292,6 @@ public final class WikiEventManager {
     private void removeDelegates() {
         synchronized( m_delegates ) {
             m_delegates.clear();
-        }
-        synchronized( m_preloadCache ) {
             m_preloadCache.clear();
         }
     }
@@ -315,16 +345,23 @@ public final class WikiEventManager {
      * @return the WikiEventDelegate.
      */
     private WikiEventDelegate getDelegateFor( final Object client ) {
+        if( client != null && !( client instanceof Class ) && m_preloadCache.isEmpty() ) {
+            // the common case, firing an event from a client which already has a delegate, without taking a lock
+            final WikiEventDelegate delegate = m_delegates.get( client );
+            if( delegate != null ) {
+                return delegate;
+            }
+        }
         synchronized( m_delegates ) {
             if( client == null || client instanceof Class ) { // then preload the cache
                 final WikiEventDelegate delegate = new WikiEventDelegate( client );
                 m_preloadCache.add( delegate );
-                m_delegates.put( client, delegate );
+                m_delegates.put( client == null ? NULL_CLIENT : client, delegate );
                 return delegate;
             } else if( !m_preloadCache.isEmpty() ) {
                 // then see if any of the cached delegates match the class of the incoming client
                 for( int i = m_preloadCache.size()-1 ; i >= 0 ; i-- ) { // start with most-recently added
-                    final WikiEventDelegate delegate = m_preloadCache.elementAt( i );
+                    final WikiEventDelegate delegate = m_preloadCache.get( i );
                     if( delegate.getClientClass() == null || delegate.getClientClass().equals( client.getClass() ) ) {
                         // we have a hit, so use it, but only on a client we haven't seen before
                         if( !m_delegates.containsKey( client ) ) {
@@ -348,6 +385,70 @@ public final class WikiEventManager {
 
     // .........................................................................
 
+    /**
+     *  Removes the listeners which have been garbage collected from their delegates.
+     */
+    private static void expungeCollectedListeners() {
+        Reference< ? extends WikiEventListener > collected;
+        while( ( collected = c_collected.poll() ) != null ) {
+            final ListenerReference reference = ( ListenerReference )collected;
+            reference.m_delegate.removeReference( reference );
+        }
+    }
+
+    /**
+     *  A weak reference to a listener, which knows the delegate to remove it from once the listener has been garbage collected.
+     */
+    private static final class ListenerReference extends WeakReference< WikiEventListener > {
+
+        private final WikiEventDelegate m_delegate;
+
+        /* The queue of events not yet delivered to an asynchronous listener, null for a synchronous one. */
+        private final Queue< WikiEvent > m_pending;
+        private final AtomicBoolean m_draining;
+
+        ListenerReference( final WikiEventListener listener, final WikiEventDelegate delegate, final boolean async ) {
+            super( listener, c_collected );
+            m_delegate = delegate;
+            m_pending = async ? new ConcurrentLinkedQueue<>() : null;
+            m_draining = async ? new AtomicBoolean() : null;
+        }
+
+        void deliver( final WikiEventListener listener, final WikiEvent event ) {
+            if( m_pending == null ) {
+                listener.actionPerformed( event );
+                return;
+            }
+            m_pending.add( event );
+            if( m_draining.compareAndSet( false, true ) ) {
+                c_asyncExecutor.execute( this::drain );
+            }
+        }
+
+        /**
+         *  Delivers the pending events one after the other, so that there is never more than one thread delivering to the listener.
+         */
+        private void drain() {
+            do {
+                WikiEvent event;
+                while( ( event = m_pending.poll() ) != null ) {
+                    final WikiEventListener listener = get();
+                    if( listener == null ) {
+                        m_pending.clear();
+                        break;
+                    }
+                    try {
+                        listener.actionPerformed( event );
+                    } catch( final RuntimeException e ) {
+                        LOG.error( "Asynchronous listener {} failed on event {}", listener, event, e );
+                    }
+                }
+                m_draining.set( false );
+                // an event added after the queue was found empty but before the flag was cleared has nobody to deliver it otherwise
+            } while( !m_pending.isEmpty() && m_draining.compareAndSet( false, true ) );
+        }
+    }
+
     /**
      *  Inner delegating class that manages event listener addition and removal. Classes that generate events can obtain an instance of
      *  this class from the WikiEventManager and delegate responsibility to it. Interaction with this delegating class is done via the
@@ -357,8 +458,10 @@ public final class WikiEventManager {
      */
     private static final class WikiEventDelegate {
 
-        /* A list of event listeners for this instance. */
-        private final ArrayList< WeakReference< WikiEventListener > > m_listenerList = new ArrayList<>();
+        private static final ListenerReference[] NO_LISTENERS = new ListenerReference[ 0 ];
+
+        /* The event listeners for this instance, replaced as a whole whenever one is added or removed. */
+        private final AtomicReference< ListenerReference[] > m_listeners = new AtomicReference<>( NO_LISTENERS );
         private Class< ? >  m_class;
 
         /**
@@ -386,35 +489,38 @@ public final class WikiEventManager {
          * @throws java.lang.UnsupportedOperationException  if any attempt is made to modify the Set
          */
         public Set< WikiEventListener > getWikiEventListeners() {
-            synchronized( m_listenerList ) {
-                final TreeSet< WikiEventListener > set = new TreeSet<>( new WikiEventListenerComparator() );
-                for( final WeakReference< WikiEventListener > wikiEventListenerWeakReference : m_listenerList ) {
-                    final WikiEventListener l = wikiEventListenerWeakReference.get();
-                    if( l != null ) {
-                        set.add( l );
-                    }
+            final Set< WikiEventListener > set = new LinkedHashSet<>();
+            for( final ListenerReference reference : m_listeners.get() ) {
+                final WikiEventListener l = reference.get();
+                if( l != null ) {
+                    set.add( l );
                 }
-
-                return Collections.unmodifiableSet( set );
             }
+            return Collections.unmodifiableSet( set );
         }
 
         /**
          *  Adds <tt>listener</tt> as a listener for events fired by the WikiEventDelegate.
          *
          * @param listener the WikiEventListener to be added
+         * @param async true, if the listener is to be called asynchronously
          * @return true if the listener was added (i.e., it was not already in the list and was added)
          */
-        public boolean addWikiEventListener( final WikiEventListener listener ) {
-            synchronized( m_listenerList ) {
-                final boolean listenerAlreadyContained = m_listenerList.stream()
-                                                                       .map( WeakReference::get )
-                                                                       .anyMatch( ref -> ref == listener );
-                if( !listenerAlreadyContained ) {
-                    return m_listenerList.add( new WeakReference<>( listener ) );
+        public boolean addWikiEventListener( final WikiEventListener listener, final boolean async ) {
+            expungeCollectedListeners();
+            final ListenerReference added = new ListenerReference( listener, this, async );
+            while( true ) {
+                final ListenerReference[] current = m_listeners.get();
+                if( indexOf( current, listener ) >= 0 ) {
+                    added.clear();
+                    return false;
+                }
+                final ListenerReference[] updated = Arrays.copyOf( current, current.length + 1 );
+                updated[ current.length ] = added;
+                if( m_listeners.compareAndSet( current, updated ) ) {
+                    return true;
                 }
             }
-            return false;
         }
 
         /**
@@ -424,72 +530,73 @@ public final class WikiEventManager {
          * @return true if the listener was removed (i.e., it was actually in the list and was removed)
          */
         public boolean removeWikiEventListener( final WikiEventListener listener ) {
-            synchronized( m_listenerList ) {
-                for( final Iterator< WeakReference< WikiEventListener > > i = m_listenerList.iterator(); i.hasNext(); ) {
-                    final WikiEventListener l = i.next().get();
-                    if( l == listener ) {
-                        i.remove();
-                        return true;
+            while( true ) {
+                final ListenerReference[] current = m_listeners.get();
+                final int index = indexOf( current, listener );
+                if( index < 0 ) {
+                    return false;
+                }
+                if( m_listeners.compareAndSet( current, without( current, index ) ) ) {
+                    return true;
+                }
+            }
+        }
+
+        void removeReference( final ListenerReference reference ) {
+            while( true ) {
+                final ListenerReference[] current = m_listeners.get();
+                int index = -1;
+                for( int i = 0; i < current.length; i++ ) {
+                    if( current[ i ] == reference ) {
+                        index = i;
+                        break;
                     }
                 }
+                if( index < 0 || m_listeners.compareAndSet( current, without( current, index ) ) ) {
+                    return;
+                }
             }
+        }
 
-            return false;
+        private static int indexOf( final ListenerReference[] references, final WikiEventListener listener ) {
+            for( int i = 0; i < references.length; i++ ) {
+                if( references[ i ].get() == listener ) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private static ListenerReference[] without( final ListenerReference[] references, final int index ) {
+            if( references.length == 1 ) {
+                return NO_LISTENERS;
+            }
+            final ListenerReference[] updated = new ListenerReference[ references.length - 1 ];
+            System.arraycopy( references, 0, updated, 0, index );
+            System.arraycopy( references, index + 1, updated, index, references.length - index - 1 );
+            return updated;
         }
 
         /**
          *  Returns true if there are one or more listeners registered with this instance.
          */
         public boolean isListening() {
-            synchronized( m_listenerList ) {
-                return !m_listenerList.isEmpty();
-            }
+            expungeCollectedListeners();
+            return m_listeners.get().length > 0;
         }
 
         /**
          *  Notify all listeners having a registered interest in change events of the supplied WikiEvent.
          */
         public void fireEvent( final WikiEvent event ) {
-            boolean needsCleanup = false;
-            try {
-                synchronized( m_listenerList ) {
-                    for( final WeakReference< WikiEventListener > wikiEventListenerWeakReference : new ArrayList<>(m_listenerList) ) {
-                        final WikiEventListener listener = wikiEventListenerWeakReference.get();
-                        if( listener != null ) {
-                            listener.actionPerformed( event );
-                        } else {
-                            needsCleanup = true;
-                        }
-                    }
-
-                    //  Remove all such listeners which have expired
-                    if( needsCleanup ) {
-                        for( int i = 0; i < m_listenerList.size(); i++ ) {
-                            final WeakReference< WikiEventListener > w = m_listenerList.get( i );
-                            if( w.get() == null ) {
-                                m_listenerList.remove(i--);
-                            }
-                        }
-                    }
-
+            expungeCollectedListeners();
+            for( final ListenerReference reference : m_listeners.get() ) {
+                final WikiEventListener listener = reference.get();
+                if( listener != null ) {
+                    reference.deliver( listener, event );
                 }
-            } catch( final ConcurrentModificationException e ) {
-                //  We don't die, we just don't do notifications in that case.
-                LOG.info( "Concurrent modification of event list; please report this.", e );
             }
         }
     }
 
-    private static class WikiEventListenerComparator implements Comparator< WikiEventListener > {
-        // TODO: This method is a critical performance bottleneck
-        @Override
-        public int compare( final WikiEventListener w0, final WikiEventListener w1 ) {
-            if( w1 == w0 || w0.equals( w1 ) ) {
-                return 0;
-            }
-
-            return w1.hashCode() - w0.hashCode();
-        }
-    }
-
 }
@@ -110,6 +110,10 @@ public final class WikiSecurityEvent extends WikiEvent {
     
     /** When a user profile name changes. */
     public static final int   PROFILE_NAME_CHANGED     = 54;
+
+    /** When the ACL of a page is set, the target being the page name.
+     *  @since 2.12.8 */
+    public static final int   ACL_CHANGED              = 55;
     
     /** The security logging service. */
     private static final Logger LOG = LoggerFactory.getLogger( "SecurityLog" );
@@ -226,6 +230,7 @@ public final class WikiSecurityEvent extends WikiEvent {
             case ACCESS_DENIED:             return "ACCESS_DENIED";
             case PROFILE_NAME_CHANGED:      return "PROFILE_NAME_CHANGED";
             case PROFILE_SAVE:              return "PROFILE_SAVE";
+            case ACL_CHANGED:               return "ACL_CHANGED";
             default:                        return super.eventName();
         }
     }
@@ -252,6 +257,7 @@ public final class WikiSecurityEvent extends WikiEvent {
             case ACCESS_DENIED:             return "access denied";
             case PROFILE_NAME_CHANGED:      return "user profile name changed";
             case PROFILE_SAVE:              return "user profile saved";
+            case ACL_CHANGED:               return "page ACL changed";
             default:                        return super.getTypeDescription();
         }
     }
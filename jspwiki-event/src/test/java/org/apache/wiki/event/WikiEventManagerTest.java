@@ -21,6 +21,13 @@ package org.apache.wiki.event;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 
 public class WikiEventManagerTest {
 
@@ -68,4 +75,60 @@ public class WikiEventManagerTest {
         WikiEventManager.removeWikiEventListener( listener ); // dispose listener; if not done, listener would still be attached to test4 on other tests
     }
 
+    @Test
+    public void shouldDeliverAsynchronousEventsInOrderOffTheFiringThread() throws Exception {
+        final String client = "test5";
+        final int events = 1000;
+        final Thread firing = Thread.currentThread();
+        final List< String > received = Collections.synchronizedList( new ArrayList<>() );
+        final AtomicBoolean onFiringThread = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch( events );
+        final WikiEventListener listener = event -> {
+            onFiringThread.compareAndSet( false, Thread.currentThread() == firing );
+            received.add( ( ( WikiPageEvent )event ).getPageName() );
+            done.countDown();
+            if( received.size() == 1 ) {
+                throw new IllegalStateException( "logged, and does not stop the deliveries" );
+            }
+        };
+        WikiEventManager.addWikiEventListener( client, listener, true );
+        final List< String > fired = new ArrayList<>();
+        for( int i = 0; i < events; i++ ) {
+            fired.add( "page" + i );
+            WikiEventManager.fireEvent( client, new WikiPageEvent( "object which fires the event", WikiPageEvent.PAGE_REQUESTED, "page" + i ) );
+        }
+
+        Assertions.assertTrue( done.await( 10, TimeUnit.SECONDS ) );
+        Assertions.assertEquals( fired, received );
+        Assertions.assertFalse( onFiringThread.get() );
+        WikiEventManager.removeWikiEventListener( listener );
+    }
+
+    @Test
+    public void shouldFireWhileListenersAreAddedAndRemoved() throws Exception {
+        final String client = "test6";
+        final TestWikiEventListener listener = new TestWikiEventListener();
+        WikiEventManager.addWikiEventListener( client, listener );
+        final AtomicBoolean stop = new AtomicBoolean();
+        final Thread churn = new Thread( () -> {
+            while( !stop.get() ) {
+                final TestWikiEventListener other = new TestWikiEventListener();
+                WikiEventManager.addWikiEventListener( client, other );
+                WikiEventManager.removeWikiEventListener( client, other );
+            }
+        } );
+        churn.start();
+        try {
+            for( int i = 0; i < 10_000; i++ ) {
+                WikiEventManager.fireEvent( client, new WikiPageEvent( "object which fires the event", WikiPageEvent.PAGE_REQUESTED, "page" ) );
+            }
+        } finally {
+            stop.set( true );
+            churn.join();
+        }
+        Assertions.assertEquals( 10_000, listener.getInvoked() );
+        Assertions.assertEquals( 1, WikiEventManager.getWikiEventListeners( client ).size() );
+        WikiEventManager.removeWikiEventListener( listener );
+    }
+
 }
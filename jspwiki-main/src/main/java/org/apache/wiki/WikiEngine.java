@@ -76,6 +76,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
 import java.util.List;
@@ -138,9 +139,18 @@ public class WikiEngine implements Engine {
     /** Stores wikiengine attributes. */
     private final Map< String, Object > m_attributes = new ConcurrentHashMap<>();
 
-    /** Stores WikiEngine's associated managers. */
+    /** Stores WikiEngine's associated managers. Register new ones through {@code initComponent}, so the lookup caches get invalidated. */
     protected final Map< Class< ? >, Object > managers = new ConcurrentHashMap<>();
 
+    /** Marks a type without a matching manager in {@link #m_managerCache}. */
+    private static final Object NO_MANAGER = new Object();
+
+    /** Memoized {@link #getManager(Class)} results, keyed by requested type. Replaced as a whole whenever a manager is registered. */
+    private volatile Map< Class< ? >, Object > m_managerCache = new ConcurrentHashMap<>();
+
+    /** Memoized {@link #getManagers(Class)} results, keyed by requested type. Replaced as a whole whenever a manager is registered. */
+    private volatile Map< Class< ? >, List< ? > > m_managersCache = new ConcurrentHashMap<>();
+
     /**
      *  Gets a WikiEngine related to this servlet.  Since this method is only called from JSP pages (and JspInit()) to be specific,
      *  we throw a RuntimeException if things don't work.
@@ -412,6 +422,8 @@ public class WikiEngine implements Engine {
             component = ClassUtil.getMappedObject( componentInitClass, initArgs );
         }
         managers.put( componentClass, component );
+        m_managerCache = new ConcurrentHashMap<>();
+        m_managersCache = new ConcurrentHashMap<>();
         if( Initializable.class.isAssignableFrom( component.getClass() ) ) {
             ( ( Initializable )component ).initialize( this, m_properties );
         }
@@ -421,20 +433,31 @@ public class WikiEngine implements Engine {
     @Override
     @SuppressWarnings( "unchecked" )
     public < T > T getManager( final Class< T > manager ) {
-        return ( T )managers.entrySet().stream()
-                                       .filter( e -> manager.isAssignableFrom( e.getKey() ) )
-                                       .map( Map.Entry::getValue )
-                                       .findFirst().orElse( null );
+        // read the cache reference once: if a manager gets registered meanwhile, the result lands in the discarded cache
+        final Map< Class< ? >, Object > cache = m_managerCache;
+        Object component = cache.get( manager );
+        if( component == null ) {
+            component = managers.get( manager );
+            if( component == null ) {
+                component = managers.entrySet().stream()
+                                               .filter( e -> manager.isAssignableFrom( e.getKey() ) )
+                                               .map( Map.Entry::getValue )
+                                               .findFirst().orElse( NO_MANAGER );
+            }
+            cache.put( manager, component );
+        }
+        return component == NO_MANAGER ? null : ( T )component;
     }
 
     /** {@inheritDoc} */
     @Override
     @SuppressWarnings( "unchecked" )
     public < T > List< T > getManagers( final Class< T > manager ) {
-        return ( List< T > )managers.entrySet().stream()
-                                               .filter( e -> manager.isAssignableFrom( e.getKey() ) )
-                                               .map( Map.Entry::getValue )
-                                               .collect( Collectors.toList() );
+        final Map< Class< ? >, List< ? > > cache = m_managersCache;
+        return ( List< T > )cache.computeIfAbsent( manager, k -> Collections.unmodifiableList( managers.entrySet().stream()
+                                                                                                .filter( e -> manager.isAssignableFrom( e.getKey() ) )
+                                                                                                .map( Map.Entry::getValue )
+                                                                                                .collect( Collectors.toList() ) ) );
     }
 
     /** {@inheritDoc} */
@@ -236,8 +236,8 @@ public class WikiSession implements Session {
     }
 
     /**
-     * Listens for WikiEvents generated by source objects such as the GroupManager, UserManager or AuthenticationManager. This method adds
-     * Principals to the private Subject managed by the WikiSession.
+     * Listens for WikiEvents generated by source objects such as the GroupManager, UserManager or AuthenticationManager, as routed to
+     * this session by the {@link SessionMonitor}. This method adds Principals to the private Subject managed by the WikiSession.
      *
      * @see org.apache.wiki.event.WikiEventListener#actionPerformed(WikiEvent)
      */
@@ -474,8 +474,8 @@ public class WikiSession implements Session {
      * This method is guaranteed to always return a Session, although the authentication status is unpredictable until the user
      * attempts to log in. If the servlet request parameter is <code>null</code>, a synthetic {@link #guestSession(Engine)} is
      * returned.</p>
-     * <p>When a session is created, this method attaches a WikiEventListener to the GroupManager, UserManager and AuthenticationManager,
-     * so that changes to users, groups, logins, etc. are detected automatically.</p>
+     * <p>When a session is created, it is registered with the {@link SessionMonitor}, which delivers the events of the GroupManager,
+     * UserManager and AuthenticationManager concerning it, so that changes to users, groups, logins, etc. are detected automatically.</p>
      *
      * @param engine the engine
      * @param request the servlet request object
@@ -501,7 +501,8 @@ public class WikiSession implements Session {
     /**
      * Static factory method that creates a new "guest" session containing a single user Principal
      * {@link org.apache.wiki.auth.WikiPrincipal#GUEST}, plus the role principals {@link Role#ALL} and {@link Role#ANONYMOUS}. This
-     * method also adds the session as a listener for GroupManager, AuthenticationManager and UserManager events.
+     * method also registers the session with the {@link SessionMonitor}, which delivers the GroupManager, AuthenticationManager and
+     * UserManager events concerning it.
      *
      * @param engine the wiki engine
      * @return the guest wiki session
@@ -512,13 +513,8 @@ public class WikiSession implements Session {
         session.invalidate();
         session.antiCsrfToken = UUID.randomUUID().toString();
 
-        // Add the session as listener for GroupManager, AuthManager, UserManager events
-        final GroupManager groupMgr = engine.getManager( GroupManager.class );
-        final AuthenticationManager authMgr = engine.getManager( AuthenticationManager.class );
-        final UserManager userMgr = engine.getManager( UserManager.class );
-        groupMgr.addWikiEventListener( session );
-        authMgr.addWikiEventListener( session );
-        userMgr.addWikiEventListener( session );
+        // Receive the GroupManager, AuthManager, UserManager events concerning the session
+        SessionMonitor.getInstance( engine ).register( session );
 
         return session;
     }
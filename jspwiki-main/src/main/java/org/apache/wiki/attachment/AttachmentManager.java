@@ -189,6 +189,19 @@ public interface AttachmentManager {
      */
     InputStream getAttachmentStream( Context ctx, Attachment att ) throws ProviderException, IOException;
 
+    /**
+     *  Returns the local file holding the data of a (real) attachment, if the attachment provider keeps attachments as plain files.
+     *
+     *  @param att The Attachment to find
+     *  @return The file, or {@code null} if attachments are disabled, the attachment is dynamic or the provider does not store local files.
+     *  @throws ProviderException If the backend fails due to some reason
+     *  @see AttachmentProvider#getAttachmentFile(Attachment)
+     *  @since 2.12.8
+     */
+    default File getAttachmentFile( final Attachment att ) throws ProviderException {
+        return null;
+    }
+
     /**
      *  Stores a dynamic attachment.  Unlike storeAttachment(), this just stores the attachment in the memory.
      *
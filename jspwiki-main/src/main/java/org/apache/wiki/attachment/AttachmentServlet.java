@@ -18,17 +18,22 @@
  */
 package org.apache.wiki.attachment;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.SocketException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
 import java.security.Permission;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.UUID;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
@@ -88,6 +93,12 @@ public class AttachmentServlet extends HttpServlet {
 
     private static final String HDR_VERSION = "version";
 
+    /** Request attribute by which Tomcat announces its sendfile support. Value is {@value}. */
+    static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     /** The maximum size that an attachment can be. */
     private int m_maxSize = Integer.MAX_VALUE;
 
@@ -170,7 +181,11 @@ public class AttachmentServlet extends HttpServlet {
     /**
      *  Serves a GET with two parameters: 'wikiname' specifying the wikiname
      *  of the attachment, 'version' specifying the version indicator.
-     *
+     *  <p>
+     *  Supports conditional requests through {@code If-None-Match} and {@code If-Modified-Since}, and partial
+     *  requests for single or multiple byte ranges through {@code Range} and {@code If-Range}. If the attachment
+     *  provider keeps attachments as local files and the container offers sendfile support, as Tomcat does, the whole
+     *  attachment or a single range is handed over to the container, which sends it without copying it through the JVM.
      */
     // FIXME: Messages would need to be localized somehow.
     @Override
@@ -211,9 +226,11 @@ public class AttachmentServlet extends HttpServlet {
                 //
                 //  Check if the client already has a version of this attachment.
                 //
-                if( HttpUtil.checkFor304( req, att.getName(), att.getLastModified() ) ) {
+                final String etag = getETag( att );
+                res.setHeader( "ETag", etag );
+                if( isNotModified( req, att, etag ) ) {
                     LOG.debug( "Client has latest version already, sending 304..." );
-                    res.sendError( HttpServletResponse.SC_NOT_MODIFIED );
+                    res.setStatus( HttpServletResponse.SC_NOT_MODIFIED );
                     return;
                 }
 
@@ -229,19 +246,52 @@ public class AttachmentServlet extends HttpServlet {
                     res.addHeader( "Cache-control", "no-cache" );
                 }
 
-                // If a size is provided by the provider, report it.
-                if( att.getSize() >= 0 ) {
-                    // LOG.info("size:"+att.getSize());
-                    res.setContentLength( (int)att.getSize() );
+                // If a size is provided by the provider, report it and allow partial requests.
+                final long size = att.getSize();
+                List< ByteRange > ranges = null;
+                if( size >= 0 ) {
+                    res.setHeader( "Accept-Ranges", "bytes" );
+                    if( isRangeApplicable( req, att, etag ) ) {
+                        ranges = ByteRange.parse( req.getHeader( "Range" ), size );
+                    }
                 }
 
-                try( final InputStream  in = mgr.getAttachmentStream( context, att ) ) {
-                    int read;
-                    final byte[] buffer = new byte[ BUFFER_SIZE ];
-
-                    while( ( read = in.read( buffer ) ) > -1 ) {
-                        out.write( buffer, 0, read );
+                final File file = mgr.getAttachmentFile( att );
+                if( ranges == null ) {
+                    if( size >= 0 ) {
+                        res.setContentLengthLong( size );
+                    }
+                    if( file != null ) {
+                        if( !sendfile( req, res, file, 0, file.length() ) ) {
+                            transfer( file, 0, file.length(), out );
+                        }
+                    } else {
+                        try( final InputStream in = mgr.getAttachmentStream( context, att ) ) {
+                            copy( in, Long.MAX_VALUE, out );
+                        }
                     }
+                } else if( ranges.isEmpty() ) {
+                    res.setHeader( "Content-Range", "bytes */" + size );
+                    res.sendError( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE );
+                    return;
+                } else if( ranges.size() == 1 ) {
+                    final ByteRange range = ranges.get( 0 );
+                    res.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+                    res.setHeader( "Content-Range", range.contentRange( size ) );
+                    res.setContentLengthLong( range.length() );
+                    if( file == null || !sendfile( req, res, file, range.start, range.length() ) ) {
+                        sendRange( context, att, file, range, out );
+                    }
+                } else {
+                    final String boundary = UUID.randomUUID().toString().replace( "-", "" );
+                    res.setStatus( HttpServletResponse.SC_PARTIAL_CONTENT );
+                    res.setContentType( "multipart/byteranges; boundary=" + boundary );
+                    for( final ByteRange range : ranges ) {
+                        out.write( ( "\r\n--" + boundary + "\r\nContent-Type: " + mimetype
+                                   + "\r\nContent-Range: " + range.contentRange( size ) + "\r\n\r\n" ).getBytes( StandardCharsets.ISO_8859_1 ) );
+                        sendRange( context, att, file, range, out );
+                    }
+                    out.write( ( "\r\n--" + boundary + "--\r\n" ).getBytes( StandardCharsets.ISO_8859_1 ) );
                 }
                 LOG.debug( "Attachment {} sent to {} on {}", att.getFileName(), req.getRemoteUser(), HttpUtil.getRemoteAddress(req) );
                 if( nextPage != null ) {
@@ -285,6 +335,123 @@ public class AttachmentServlet extends HttpServlet {
         }
     }
 
+    /**
+     *  Returns a strong entity tag for an attachment version. Attachment versions are never modified, so version and size identify the
+     *  content; the modification time tells apart attachments that were deleted and uploaded again.
+     */
+    static String getETag( final Attachment att ) {
+        final long lastModified = att.getLastModified() != null ? att.getLastModified().getTime() : 0L;
+        return "\"" + att.getVersion() + "-" + att.getSize() + "-" + Long.toHexString( lastModified ) + "\"";
+    }
+
+    /**
+     *  Checks the conditional request headers. {@code If-None-Match} takes precedence, {@code If-Modified-Since} is only evaluated
+     *  if it is absent.
+     */
+    static boolean isNotModified( final HttpServletRequest req, final Attachment att, final String etag ) {
+        final String ifNoneMatch = req.getHeader( "If-None-Match" );
+        if( ifNoneMatch != null ) {
+            for( final String candidate : ifNoneMatch.split( "," ) ) {
+                final String tag = candidate.trim();
+                // weak comparison, as required for If-None-Match
+                if( "*".equals( tag ) || etag.equals( tag.startsWith( "W/" ) ? tag.substring( 2 ) : tag ) ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return HttpUtil.checkFor304( req, att.getName(), att.getLastModified() );
+    }
+
+    /**
+     *  Checks {@code If-Range}: a partial response is only sent if the validator still matches the attachment, otherwise the whole
+     *  attachment is sent.
+     */
+    static boolean isRangeApplicable( final HttpServletRequest req, final Attachment att, final String etag ) {
+        final String ifRange = req.getHeader( "If-Range" );
+        if( ifRange == null ) {
+            return true;
+        }
+        if( ifRange.startsWith( "\"" ) || ifRange.startsWith( "W/" ) ) {
+            // strong comparison, a weak tag never matches
+            return etag.equals( ifRange.trim() );
+        }
+        try {
+            final long date = req.getDateHeader( "If-Range" );
+            return att.getLastModified() != null && att.getLastModified().getTime() / 1000 == date / 1000;
+        } catch( final IllegalArgumentException e ) {
+            return false;
+        }
+    }
+
+    private void sendRange( final Context context, final Attachment att, final File file, final ByteRange range, final OutputStream out )
+            throws IOException, ProviderException {
+        if( file != null ) {
+            transfer( file, range.start, range.length(), out );
+        } else {
+            try( final InputStream in = m_engine.getManager( AttachmentManager.class ).getAttachmentStream( context, att ) ) {
+                long skip = range.start;
+                while( skip > 0 ) {
+                    final long skipped = in.skip( skip );
+                    if( skipped <= 0 ) {
+                        if( in.read() < 0 ) {
+                            throw new EOFException( "Attachment " + att.getName() + " is shorter than its reported size" );
+                        }
+                        skip--;
+                    } else {
+                        skip -= skipped;
+                    }
+                }
+                copy( in, range.length(), out );
+            }
+        }
+    }
+
+    /**
+     *  Hands a part of a file over to the sendfile support of the container, if it announces one through the
+     *  {@value #SENDFILE_SUPPORT} request attribute, as Tomcat does. The container then sends the data itself once the
+     *  response is committed, so nothing may be written to the response after this.
+     *
+     *  @return true, if the container sends the data, false if it has to be written to the response.
+     */
+    static boolean sendfile( final HttpServletRequest req, final HttpServletResponse res, final File file, final long start, final long length )
+            throws IOException {
+        if( !Boolean.TRUE.equals( req.getAttribute( SENDFILE_SUPPORT ) ) ) {
+            return false;
+        }
+        res.setContentLengthLong( length );
+        req.setAttribute( SENDFILE_FILENAME, file.getCanonicalPath() );
+        req.setAttribute( SENDFILE_START, start );
+        req.setAttribute( SENDFILE_END, start + length );
+        return true;
+    }
+
+    /**
+     *  Writes a part of a file to the response.
+     */
+    static void transfer( final File file, final long start, final long length, final OutputStream out ) throws IOException {
+        try( final FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            channel.position( start );
+            if( copy( Channels.newInputStream( channel ), length, out ) < length ) {
+                throw new EOFException( "File " + file + " is shorter than expected" );
+            }
+        }
+    }
+
+    private static long copy( final InputStream in, final long length, final OutputStream out ) throws IOException {
+        final byte[] buffer = new byte[ BUFFER_SIZE ];
+        long remaining = length;
+        while( remaining > 0 ) {
+            final int read = in.read( buffer, 0, ( int )Math.min( buffer.length, remaining ) );
+            if( read < 0 ) {
+                break;
+            }
+            out.write( buffer, 0, read );
+            remaining -= read;
+        }
+        return length - remaining;
+    }
+
     String getContentDisposition( final Attachment att ) {
         // We use 'inline' instead of 'attachment' so that user agents can try to automatically open the file,
         // except those cases in which we want to enforce the file download.
@@ -0,0 +1,128 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.attachment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ *  A single byte range of an HTTP {@code Range} request, as defined in RFC 7233.
+ *
+ *  @since 2.12.8
+ */
+final class ByteRange {
+
+    /** Requests with more ranges than this are answered with the whole content. */
+    static final int MAX_RANGES = 16;
+
+    private static final String BYTES_UNIT = "bytes=";
+
+    /** First byte of the range, inclusive. */
+    final long start;
+
+    /** Last byte of the range, inclusive. */
+    final long end;
+
+    ByteRange( final long start, final long end ) {
+        this.start = start;
+        this.end = end;
+    }
+
+    /**
+     *  Returns the number of bytes in this range.
+     *
+     *  @return the range length.
+     */
+    long length() {
+        return end - start + 1;
+    }
+
+    /**
+     *  Returns the value of the {@code Content-Range} header for this range.
+     *
+     *  @param size total size of the content.
+     *  @return the header value.
+     */
+    String contentRange( final long size ) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    /**
+     *  Parses the value of a {@code Range} header.
+     *
+     *  @param header the header value, may be {@code null}.
+     *  @param size total size of the content.
+     *  @return {@code null} if the header is missing, malformed or asks for too many ranges, in which case the whole content should be
+     *          sent. An empty list if none of the ranges can be satisfied. Otherwise the satisfiable ranges, in request order.
+     */
+    static List< ByteRange > parse( final String header, final long size ) {
+        if( header == null || !header.regionMatches( true, 0, BYTES_UNIT, 0, BYTES_UNIT.length() ) ) {
+            return null;
+        }
+        final String[] specs = header.substring( BYTES_UNIT.length() ).split( "," );
+        if( specs.length > MAX_RANGES ) {
+            return null;
+        }
+
+        final List< ByteRange > ranges = new ArrayList<>( specs.length );
+        for( final String rawSpec : specs ) {
+            final String spec = rawSpec.trim();
+            final int dash = spec.indexOf( '-' );
+            if( dash < 0 ) {
+                return null;
+            }
+            try {
+                final long start;
+                final long end;
+                if( dash == 0 ) {
+                    // suffix range, the last n bytes
+                    final long suffix = Long.parseLong( spec.substring( 1 ) );
+                    if( suffix <= 0 ) {
+                        continue;
+                    }
+                    start = Math.max( 0, size - suffix );
+                    end = size - 1;
+                } else {
+                    start = Long.parseLong( spec.substring( 0, dash ) );
+                    final String last = spec.substring( dash + 1 );
+                    if( last.isEmpty() ) {
+                        end = size - 1;
+                    } else {
+                        final long requestedEnd = Long.parseLong( last );
+                        if( requestedEnd < start ) {
+                            return null;
+                        }
+                        end = Math.min( requestedEnd, size - 1 );
+                    }
+                }
+                if( start < 0 ) {
+                    return null;
+                }
+                if( start < size ) {
+                    ranges.add( new ByteRange( start, end ) );
+                }
+            } catch( final NumberFormatException e ) {
+                return null;
+            }
+        }
+        return ranges;
+    }
+
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.wiki.attachment;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -266,6 +267,18 @@ public class DefaultAttachmentManager implements AttachmentManager {
 		return m_provider.getAttachmentData(att);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getAttachmentFile(final Attachment att) throws ProviderException {
+		if (m_provider == null || att instanceof DynamicAttachment) {
+			return null;
+		}
+
+		return m_provider.getAttachmentFile(att);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -37,13 +37,20 @@ import org.apache.wiki.auth.permissions.AllPermission;
 import org.apache.wiki.auth.permissions.PagePermission;
 import org.apache.wiki.auth.user.UserDatabase;
 import org.apache.wiki.auth.user.UserProfile;
+import org.apache.wiki.content.PageRenamer;
+import org.apache.wiki.event.WikiEngineEvent;
+import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
 import org.apache.wiki.event.WikiSecurityEvent;
+import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.i18n.InternationalizationManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.preferences.Preferences;
 import org.apache.wiki.util.ClassUtil;
+import org.apache.wiki.util.TextUtil;
 import org.freshcookies.security.policy.LocalPolicy;
 
 import javax.servlet.http.HttpServletResponse;
@@ -72,15 +79,29 @@ import java.util.WeakHashMap;
  *
  * <p>See the {@link #checkPermission(Session, Permission)} and {@link #hasRoleOrPrincipal(Session, Principal)} methods for more
  * information on the authorization logic.</p>
+ * <p>Once the engine has been initialized, the decisions are cached, keyed by the principals of the session and the permission, see
+ * {@link #PROP_DECISION_CACHE_SIZE}. Decisions which depend on a page are dropped when the page is saved, deleted or renamed, or its
+ * ACL is set; all decisions are dropped when a group or a user profile changes.</p>
  * @since 2.3
  * @see AuthenticationManager
  */
-public class DefaultAuthorizationManager implements AuthorizationManager {
+public class DefaultAuthorizationManager implements AuthorizationManager, WikiEventListener {
 
     private static final Logger LOG = LoggerFactory.getLogger( DefaultAuthorizationManager.class );
 
+    /** Property for the maximum number of cached permission decisions; 0 disables the cache. */
+    public static final String PROP_DECISION_CACHE_SIZE = "jspwiki.authorizationManager.decisionCacheSize";
+
+    /** Default maximum number of cached permission decisions. */
+    public static final int DEFAULT_DECISION_CACHE_SIZE = 10_000;
+
     private Authorizer m_authorizer;
 
+    private int m_decisionCacheSize;
+
+    /** The cached decisions, null until the engine has been initialized or if the cache is disabled. */
+    private volatile PermissionDecisionCache m_decisions;
+
     /** Cache for storing ProtectionDomains used to evaluate the local policy. */
     private final Map< Principal, ProtectionDomain > m_cachedPds = new WeakHashMap<>();
 
@@ -105,36 +126,58 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
         }
 
         final Principal user = session.getLoginPrincipal();
+        final PermissionDecisionCache decisions = m_decisions;
+        final boolean allowed;
+        if( decisions != null ) {
+            final PermissionDecisionCache.Key key = new PermissionDecisionCache.Key( session, permission );
+            final Boolean cached = decisions.get( key );
+            allowed = cached != null ? cached : decide( session, permission, key, decisions.stamp() );
+        } else {
+            allowed = decide( session, permission, null, 0L );
+        }
+        fireEvent( allowed ? WikiSecurityEvent.ACCESS_ALLOWED : WikiSecurityEvent.ACCESS_DENIED, user, permission );
+        return allowed;
+    }
 
+    /**
+     * Checks a permission, and caches the decision if the key is not null.
+     *
+     * @param session the session.
+     * @param permission the permission.
+     * @param key the key of the decision in the cache, or null.
+     * @param stamp the stamp of the cache, read before checking.
+     * @return true, if the permission is granted.
+     */
+    private boolean decide( final Session session, final Permission permission, final PermissionDecisionCache.Key key, final long stamp ) {
         // Always allow the action if user has AllPermission
         final Permission allPermission = new AllPermission( m_engine.getApplicationName() );
         final boolean hasAllPermission = checkStaticPermission( session, allPermission );
         if( hasAllPermission ) {
-            fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
-            return true;
+            return remember( key, true, stamp );
         }
 
         // If the user doesn't have *at least* the permission granted by policy, return false.
         final boolean hasPolicyPermission = checkStaticPermission( session, permission );
         if( !hasPolicyPermission ) {
-            fireEvent( WikiSecurityEvent.ACCESS_DENIED, user, permission );
-            return false;
+            return remember( key, false, stamp );
         }
 
         // If this isn't a PagePermission, it's allowed
         if( !( permission instanceof PagePermission ) ) {
-            fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
-            return true;
+            return remember( key, true, stamp );
         }
 
-        // If the page or ACL is null, it's allowed.
+        // If the page or ACL is null, it's allowed. A page which does not exist yet is not cached, as attachments are created without
+        // an event to drop the decision.
         final String pageName = ((PagePermission)permission).getPage();
         final Page page = m_engine.getManager( PageManager.class ).getPage( pageName );
-        final Acl acl = ( page == null) ? null : m_engine.getManager( AclManager.class ).getPermissions( page );
-        if( page == null ||  acl == null || acl.isEmpty() ) {
-            fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
+        if( page == null ) {
             return true;
         }
+        final Acl acl = m_engine.getManager( AclManager.class ).getPermissions( page );
+        if( acl == null || acl.isEmpty() ) {
+            return remember( key, true, stamp );
+        }
 
         // Next, iterate through the Principal objects assigned this permission. If the context's subject possesses
         // any of these, the action is allowed.
@@ -156,12 +199,17 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
             }
 
             if ( hasRoleOrPrincipal( session, aclPrincipal ) ) {
-                fireEvent( WikiSecurityEvent.ACCESS_ALLOWED, user, permission );
-                return true;
+                return remember( key, true, stamp );
             }
         }
-        fireEvent( WikiSecurityEvent.ACCESS_DENIED, user, permission );
-        return false;
+        return remember( key, false, stamp );
+    }
+
+    private boolean remember( final PermissionDecisionCache.Key key, final boolean allowed, final long stamp ) {
+        if( key != null ) {
+            m_decisions.put( key, allowed, stamp );
+        }
+        return allowed;
     }
 
     /** {@inheritDoc} */
@@ -230,6 +278,11 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
     @Override
     public void initialize( final Engine engine, final Properties properties ) throws WikiException {
         m_engine = engine;
+        m_decisionCacheSize = TextUtil.getIntegerProperty( properties, PROP_DECISION_CACHE_SIZE, DEFAULT_DECISION_CACHE_SIZE );
+        if( m_decisionCacheSize > 0 ) {
+            // the managers whose events drop cached decisions are not there yet
+            engine.addWikiEventListener( this );
+        }
 
         //  JAAS authorization continues
         m_authorizer = getAuthorizerImplementation( properties );
@@ -378,8 +431,110 @@ public class DefaultAuthorizationManager implements AuthorizationManager {
     }
 
 
+    /**
+     * Drops all cached permission decisions, for instance after the security policy or the ACL of a page has been changed by other means
+     * than the wiki.
+     */
+    public void clearDecisionCache() {
+        final PermissionDecisionCache decisions = m_decisions;
+        if( decisions != null ) {
+            decisions.clear();
+        }
+    }
+
+    /**
+     * Returns the number of permission checks answered from the cache.
+     *
+     * @return the number of cache hits.
+     */
+    public long getDecisionCacheHits() {
+        final PermissionDecisionCache decisions = m_decisions;
+        return decisions != null ? decisions.getHits() : 0L;
+    }
+
+    /**
+     * Returns the number of permission checks not answered from the cache.
+     *
+     * @return the number of cache misses.
+     */
+    public long getDecisionCacheMisses() {
+        final PermissionDecisionCache decisions = m_decisions;
+        return decisions != null ? decisions.getMisses() : 0L;
+    }
+
+    /**
+     * Returns the number of cached permission decisions.
+     *
+     * @return the size of the cache.
+     */
+    public int getDecisionCacheSize() {
+        final PermissionDecisionCache decisions = m_decisions;
+        return decisions != null ? decisions.size() : 0;
+    }
+
+
     // events processing .......................................................
 
+    /**
+     * Starts caching permission decisions once the engine has been initialized, and drops cached decisions when pages, page ACLs, groups
+     * or user profiles change.
+     *
+     * @param event {@inheritDoc}
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiEngineEvent ) {
+            if( event.getType() == WikiEngineEvent.INITIALIZED ) {
+                startDecisionCache();
+            } else if( event.getType() == WikiEngineEvent.SHUTDOWN && m_decisions != null ) {
+                LOG.info( m_decisions.toString() );
+            }
+            return;
+        }
+        final PermissionDecisionCache decisions = m_decisions;
+        if( decisions == null ) {
+            return;
+        }
+        if( event instanceof WikiSecurityEvent ) {
+            switch( event.getType() ) {
+            case WikiSecurityEvent.GROUP_ADD:
+            case WikiSecurityEvent.GROUP_REMOVE:
+            case WikiSecurityEvent.GROUP_CLEAR_GROUPS:
+            case WikiSecurityEvent.PROFILE_SAVE:
+            case WikiSecurityEvent.PROFILE_NAME_CHANGED:
+                decisions.clear();
+                break;
+            case WikiSecurityEvent.ACL_CHANGED:
+                decisions.removePage( ( String )( ( WikiSecurityEvent )event ).getTarget() );
+                break;
+            default:
+                break;
+            }
+        } else if( event instanceof WikiPageRenameEvent ) {
+            decisions.removePage( ( ( WikiPageRenameEvent )event ).getOldPageName() );
+            decisions.removePage( ( ( WikiPageRenameEvent )event ).getNewPageName() );
+        } else if( event instanceof WikiPageEvent
+                   && ( event.getType() == WikiPageEvent.POST_SAVE_END || event.getType() == WikiPageEvent.PAGE_DELETED ) ) {
+            decisions.removePage( ( ( WikiPageEvent )event ).getPageName() );
+        }
+    }
+
+    private synchronized void startDecisionCache() {
+        if( m_decisions != null ) {
+            return;
+        }
+        for( final Object source : new Object[] { m_engine.getManager( GroupManager.class ), m_engine.getManager( UserManager.class ),
+                                                  m_engine.getManager( PageManager.class ), m_engine.getManager( FilterManager.class ),
+                                                  m_engine.getManager( AclManager.class ), m_engine.getManager( PageRenamer.class ) } ) {
+            if( source != null ) {
+                WikiEventManager.addWikiEventListener( source, this );
+            }
+        }
+        m_decisions = new PermissionDecisionCache( m_decisionCacheSize );
+        LOG.debug( "Caching up to {} permission decisions", m_decisionCacheSize );
+    }
+
+
     /** {@inheritDoc} */
     @Override
     public synchronized void addWikiEventListener( final WikiEventListener listener ) {
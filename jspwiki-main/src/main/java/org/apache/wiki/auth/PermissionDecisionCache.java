@@ -0,0 +1,236 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth;
+
+import org.apache.wiki.api.core.Session;
+import org.apache.wiki.auth.permissions.PagePermission;
+
+import java.security.Permission;
+import java.security.Principal;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ *  The permission decisions of the {@link DefaultAuthorizationManager}, keyed by the principals of the session and the permission checked.
+ *  <p>
+ *  A decision only depends on the principals of the Subject of the session, the security policy, the groups and users the ACL principals
+ *  resolve to and the ACL of the page, so the principals are the key, not the session: sessions of the same user share their decisions,
+ *  and a session whose principals change, for instance at login or when it is added to a group, simply uses other decisions. Decisions
+ *  which depend on a page are dropped when the page changes, all decisions are dropped when a group or a user profile changes.
+ *  <p>
+ *  Checking a permission and putting the decision into the cache is not atomic, so {@link #put(Key, boolean, long)} takes the
+ *  {@link #stamp()} read before checking and drops the decision if anything has been removed since then, as it might be stale.
+ *  <p>
+ *  Once the cache is full, the least recently used tenth of the decisions is dropped, so that the decisions of the active users stay
+ *  cached and the eviction, which has to look at all decisions, only runs once in a while.
+ *
+ *  @since 2.12.8
+ */
+final class PermissionDecisionCache {
+
+    /** The principals of a session together with a permission. */
+    static final class Key {
+
+        private final Set< Principal > principals;
+        private final Permission permission;
+        private final int hash;
+
+        /**
+         *  Creates the key for a permission checked for a session, taking a snapshot of the principals of the session.
+         *
+         *  @param session the session.
+         *  @param permission the permission.
+         */
+        Key( final Session session, final Permission permission ) {
+            // isAuthenticated() may add the authenticated role, so ask it before taking the snapshot
+            session.isAuthenticated();
+            this.principals = Set.copyOf( session.getSubject().getPrincipals() );
+            this.permission = permission;
+            // PagePermission#hashCode() leaves out the page name
+            this.hash = 31 * ( 31 * principals.hashCode() + permission.hashCode() ) + permission.getName().hashCode();
+        }
+
+        boolean isPage( final String pageName ) {
+            if( !( permission instanceof PagePermission ) ) {
+                return false;
+            }
+            final String page = ( ( PagePermission )permission ).getPage();
+            return page.equals( pageName ) || ( page.startsWith( pageName ) && page.startsWith( "/", pageName.length() ) );
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals( final Object obj ) {
+            if( !( obj instanceof Key ) ) {
+                return false;
+            }
+            final Key other = ( Key )obj;
+            return hash == other.hash && permission.equals( other.permission ) && permission.getName().equals( other.permission.getName() )
+                   && principals.equals( other.principals );
+        }
+    }
+
+    /** A cached decision, together with the time it was last used. */
+    private static final class Decision {
+
+        private final boolean allowed;
+        private volatile long lastUsed;
+
+        Decision( final boolean allowed, final long lastUsed ) {
+            this.allowed = allowed;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private final int maxSize;
+    private final Map< Key, Decision > decisions = new ConcurrentHashMap<>();
+    private final AtomicLong removals = new AtomicLong();
+
+    /** Advances with every decision put, good enough to tell which decisions have not been used for a while. */
+    private final AtomicLong clock = new AtomicLong();
+    private final ReentrantLock eviction = new ReentrantLock();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     *  Creates a cache.
+     *
+     *  @param maxSize the maximum number of decisions; once it is reached, the least recently used ones are dropped.
+     */
+    PermissionDecisionCache( final int maxSize ) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     *  Returns a cached decision.
+     *
+     *  @param key the principals and the permission.
+     *  @return the decision, or null if it is not cached.
+     */
+    Boolean get( final Key key ) {
+        final Decision decision = decisions.get( key );
+        if( decision == null ) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        decision.lastUsed = clock.get();
+        return decision.allowed;
+    }
+
+    /**
+     *  Returns a stamp to pass to {@link #put(Key, boolean, long)}, which has to be read before the permission is checked.
+     *
+     *  @return the stamp.
+     */
+    long stamp() {
+        return removals.get();
+    }
+
+    /**
+     *  Caches a decision, unless anything has been removed from the cache since the stamp was read.
+     *
+     *  @param key the principals and the permission.
+     *  @param decision the decision.
+     *  @param stamp the {@link #stamp()} read before the permission was checked.
+     */
+    void put( final Key key, final boolean decision, final long stamp ) {
+        if( decisions.size() >= maxSize ) {
+            evict();
+        }
+        decisions.put( key, new Decision( decision, clock.incrementAndGet() ) );
+        if( stamp != removals.get() ) {
+            decisions.remove( key );
+        }
+    }
+
+    /**
+     *  Drops the least recently used tenth of the decisions. Threads finding another one evicting go on without waiting, the cache may
+     *  exceed its size by a few decisions meanwhile.
+     */
+    private void evict() {
+        if( !eviction.tryLock() ) {
+            return;
+        }
+        try {
+            if( decisions.size() < maxSize ) {
+                return;
+            }
+            final long[] used = decisions.values().stream().mapToLong( d -> d.lastUsed ).sorted().toArray();
+            if( used.length > 0 ) {
+                final long threshold = used[ Math.max( 0, used.length / 10 - 1 ) ];
+                decisions.values().removeIf( d -> d.lastUsed <= threshold );
+            }
+        } finally {
+            eviction.unlock();
+        }
+    }
+
+    /**
+     *  Removes the decisions for a page and its attachments.
+     *
+     *  @param pageName the page name.
+     */
+    void removePage( final String pageName ) {
+        removals.incrementAndGet();
+        decisions.keySet().removeIf( key -> key.isPage( pageName ) );
+    }
+
+    /** Removes all decisions. */
+    void clear() {
+        removals.incrementAndGet();
+        decisions.clear();
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    int size() {
+        return decisions.size();
+    }
+
+    /**
+     *  Returns the statistics of this cache.
+     *
+     *  @return hits, misses and size.
+     */
+    @Override
+    public String toString() {
+        final long h = hits.get();
+        final long m = misses.get();
+        return "Permission decision cache hits: " + h + ". Permission decision cache misses: " + m +
+               ". Permission decision cache hit rate: " + ( h + m > 0 ? 100 * h / ( h + m ) : 0 ) + "%" +
+               ". Permission decision cache size: " + decisions.size() + " of " + maxSize;
+    }
+
+}
@@ -23,6 +23,9 @@ import org.slf4j.Logger;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Session;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.auth.authorize.Group;
+import org.apache.wiki.auth.authorize.GroupManager;
+import org.apache.wiki.event.WikiEvent;
 import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiSecurityEvent;
@@ -33,9 +36,15 @@ import javax.servlet.http.HttpSession;
 import javax.servlet.http.HttpSessionEvent;
 import javax.servlet.http.HttpSessionListener;
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -44,8 +53,13 @@ import java.util.stream.Collectors;
  *  <p>Manages Sessions for different Engines.</p>
  *  <p>The Sessions are stored both in the remote user HttpSession and in the SessionMonitor for the Engine.
  *  This class must be configured as a session listener in the web.xml for the wiki web application.</p>
+ *  <p>The SessionMonitor of an Engine also routes the security events of the GroupManager, AuthenticationManager and UserManager
+ *  to the Sessions they concern, instead of every Session listening to every event. It keeps an index from the names of the
+ *  principals of each Session to the Sessions, which is updated whenever a Session has handled an event, as logging in and
+ *  injecting group principals always happen in response to an event. A group change is then only delivered to the Sessions
+ *  holding a principal named like one of its members, or like the group itself.</p>
  */
-public class SessionMonitor implements HttpSessionListener {
+public class SessionMonitor implements HttpSessionListener, WikiEventListener {
 
     private static final Logger LOG = LoggerFactory.getLogger( SessionMonitor.class );
 
@@ -55,6 +69,14 @@ public class SessionMonitor implements HttpSessionListener {
     /** Weak hashmap with HttpSessions as keys, and WikiSessions as values. */
     private final Map< String, Session > m_sessions = new WeakHashMap<>();
 
+    /** Weak hashmap with the Sessions receiving security events as keys, and the principal names they are indexed under as values. */
+    private final Map< Session, Set< String > > m_indexed = new WeakHashMap<>();
+
+    /** Principal names as keys, and weak sets of the Sessions holding a principal of that name as values. Guarded by m_indexed. */
+    private final Map< String, Set< Session > > m_principalIndex = new HashMap<>();
+
+    private volatile boolean m_listening;
+
     private Engine m_engine;
 
     private final PrincipalComparator m_comparator = new PrincipalComparator();
@@ -196,8 +218,172 @@ public class SessionMonitor implements HttpSessionListener {
         if( session == null ) {
             throw new IllegalArgumentException( "Session cannot be null." );
         }
+        final Session wikiSession;
         synchronized( m_sessions ) {
-            m_sessions.remove( session.getId() );
+            wikiSession = m_sessions.remove( session.getId() );
+        }
+        if( wikiSession != null ) {
+            unindex( wikiSession );
+        }
+    }
+
+    /**
+     * Adds a wiki session to the sessions which receive the security events of this wiki. The first session added makes this monitor
+     * listen to the GroupManager, AuthenticationManager and UserManager. The session is held weakly.
+     *
+     * @param session the wiki session
+     * @since 2.12.8
+     */
+    public final void register( final Session session ) {
+        if( !m_listening ) {
+            synchronized( m_indexed ) {
+                if( !m_listening ) {
+                    m_engine.getManager( GroupManager.class ).addWikiEventListener( this );
+                    m_engine.getManager( AuthenticationManager.class ).addWikiEventListener( this );
+                    m_engine.getManager( UserManager.class ).addWikiEventListener( this );
+                    m_listening = true;
+                }
+            }
+        }
+        index( session );
+    }
+
+    /**
+     * Indexes a session under the names of its current principals, replacing the names it was indexed under before.
+     *
+     * @param session the wiki session
+     */
+    private void index( final Session session ) {
+        final Set< String > names = Arrays.stream( session.getSubject().getPrincipals().toArray( new Principal[ 0 ] ) )
+                                          .map( Principal::getName )
+                                          .collect( Collectors.toSet() );
+        synchronized( m_indexed ) {
+            final Set< String > previous = m_indexed.put( session, names );
+            if( previous != null ) {
+                for( final String name : previous ) {
+                    if( !names.contains( name ) ) {
+                        removeFromIndex( name, session );
+                    }
+                }
+            }
+            for( final String name : names ) {
+                m_principalIndex.computeIfAbsent( name, k -> Collections.newSetFromMap( new WeakHashMap<>() ) ).add( session );
+            }
+        }
+    }
+
+    /**
+     * Removes a session from the index, so that it no longer receives security events unless they are targeted at it.
+     *
+     * @param session the wiki session
+     */
+    private void unindex( final Session session ) {
+        synchronized( m_indexed ) {
+            final Set< String > names = m_indexed.remove( session );
+            if( names != null ) {
+                for( final String name : names ) {
+                    removeFromIndex( name, session );
+                }
+            }
+        }
+    }
+
+    private void removeFromIndex( final String name, final Session session ) {
+        final Set< Session > sessions = m_principalIndex.get( name );
+        if( sessions != null ) {
+            sessions.remove( session );
+            if( sessions.isEmpty() ) {
+                m_principalIndex.remove( name );
+            }
+        }
+    }
+
+    /**
+     * Returns the sessions indexed under any of the given principal names.
+     *
+     * @param names the principal names
+     * @return the sessions, each one once
+     */
+    private Collection< Session > indexedSessions( final Collection< String > names ) {
+        final Set< Session > found = Collections.newSetFromMap( new IdentityHashMap<>() );
+        synchronized( m_indexed ) {
+            for( final String name : names ) {
+                final Set< Session > sessions = m_principalIndex.get( name );
+                if( sessions != null ) {
+                    found.addAll( sessions );
+                    if( sessions.isEmpty() ) {
+                        // all of them have been garbage collected
+                        m_principalIndex.remove( name );
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Delivers a security event of the GroupManager, AuthenticationManager or UserManager to the wiki sessions it concerns:
+     * <ul>
+     *   <li>login events and {@link WikiSecurityEvent#PRINCIPAL_ADD} to the session which is their target,</li>
+     *   <li>profile events to the session which is their source,</li>
+     *   <li>{@link WikiSecurityEvent#GROUP_ADD} to the sessions holding a principal named like a member of the group,</li>
+     *   <li>{@link WikiSecurityEvent#GROUP_REMOVE} to the sessions holding the principal of the group,</li>
+     *   <li>{@link WikiSecurityEvent#GROUP_CLEAR_GROUPS} to all sessions.</li>
+     * </ul>
+     * Each session still checks whether the event concerns it, so a session indexed under names it no longer holds only gets an
+     * event it ignores. Every session is indexed again after it has handled the event.
+     *
+     * @param event the event
+     * @since 2.12.8
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( !( event instanceof WikiSecurityEvent ) ) {
+            return;
+        }
+        final WikiSecurityEvent e = ( WikiSecurityEvent )event;
+        final Collection< Session > sessions;
+        switch( e.getType() ) {
+        case WikiSecurityEvent.GROUP_ADD:
+            final Group groupAdd = ( Group )e.getTarget();
+            final List< String > members = new ArrayList<>();
+            for( final Principal member : groupAdd.members() ) {
+                members.add( member.getName() );
+            }
+            sessions = indexedSessions( members );
+            break;
+        case WikiSecurityEvent.GROUP_REMOVE:
+            sessions = indexedSessions( Collections.singleton( ( ( Group )e.getTarget() ).getPrincipal().getName() ) );
+            break;
+        case WikiSecurityEvent.GROUP_CLEAR_GROUPS:
+            synchronized( m_indexed ) {
+                sessions = new ArrayList<>( m_indexed.keySet() );
+            }
+            break;
+        case WikiSecurityEvent.LOGIN_ANONYMOUS:
+        case WikiSecurityEvent.LOGIN_ASSERTED:
+        case WikiSecurityEvent.LOGIN_AUTHENTICATED:
+        case WikiSecurityEvent.PRINCIPAL_ADD:
+            sessions = e.getTarget() instanceof Session ? Collections.singleton( ( Session )e.getTarget() ) : Collections.emptySet();
+            break;
+        case WikiSecurityEvent.PROFILE_SAVE:
+        case WikiSecurityEvent.PROFILE_NAME_CHANGED:
+            final Object source = e.getSrc();
+            sessions = source instanceof Session ? Collections.singleton( ( Session )source ) : Collections.emptySet();
+            break;
+        case WikiSecurityEvent.LOGOUT:
+            // the session has already been invalidated, index it under its guest principals
+            if( e.getPrincipal() != null ) {
+                indexedSessions( Collections.singleton( ( ( Principal )e.getPrincipal() ).getName() ) ).forEach( this::index );
+            }
+            return;
+        default:
+            return;
+        }
+
+        for( final Session session : sessions ) {
+            session.actionPerformed( e );
+            index( session );
         }
     }
 
@@ -0,0 +1,243 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth.acl;
+
+import org.apache.wiki.api.core.Page;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ *  The access rules of every page, as written in its markup, so that the {@link DefaultAclManager} does not have to render a page
+ *  to find out about its ACL.
+ *  <p>
+ *  Every entry remembers the version and the last modified time of the page it was scanned from, and is only used for a page with the
+ *  same version and last modified time, so a page changed by other means than the wiki is simply scanned again. The index is kept in a
+ *  file in the work directory between restarts.
+ *  <p>
+ *  The rules are kept as the text of the access rule, for instance {@code ALLOW edit Charlie, Herman}, and not as an {@link
+ *  org.apache.wiki.api.core.Acl}, as the principals they name have to be resolved when they are used.
+ *
+ *  @since 2.12.8
+ */
+final class AclIndex {
+
+    private static final int MAGIC = 0x4A535041; // "JSPA"
+    private static final int FORMAT = 1;
+
+    /** The rules of a single page. */
+    static final class Entry {
+
+        final int version;
+        final long lastModified;
+        final List< String > rules;
+
+        Entry( final int version, final long lastModified, final List< String > rules ) {
+            this.version = version;
+            this.lastModified = lastModified;
+            this.rules = rules;
+        }
+    }
+
+    private final File file;
+    private final Map< String, Entry > entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     *  Creates an empty index.
+     *
+     *  @param file the file to keep the index in.
+     */
+    AclIndex( final File file ) {
+        this.file = file;
+    }
+
+    /**
+     *  Returns the access rules of a page.
+     *
+     *  @param page the page.
+     *  @return the rules, or null if the page is not in the index, or has changed since it was scanned.
+     */
+    List< String > get( final Page page ) {
+        final Entry entry = entries.get( page.getName() );
+        if( entry == null || page.getLastModified() == null || entry.version != page.getVersion()
+            || entry.lastModified != page.getLastModified().getTime() ) {
+            return null;
+        }
+        return entry.rules;
+    }
+
+    /**
+     *  Puts the access rules of a page into the index. Pages without a last modified time are not indexed.
+     *
+     *  @param page the page.
+     *  @param rules the rules, as returned by {@link #scan(String)}.
+     */
+    void put( final Page page, final List< String > rules ) {
+        if( page.getLastModified() == null ) {
+            return;
+        }
+        entries.put( page.getName(), new Entry( page.getVersion(), page.getLastModified().getTime(), rules ) );
+        dirty = true;
+    }
+
+    /**
+     *  Removes a page from the index.
+     *
+     *  @param pageName the page name.
+     */
+    void remove( final String pageName ) {
+        if( entries.remove( pageName ) != null ) {
+            dirty = true;
+        }
+    }
+
+    /**
+     *  Removes all pages but the given ones from the index.
+     *
+     *  @param pageNames the names of the pages to keep.
+     */
+    void retain( final Collection< String > pageNames ) {
+        if( entries.keySet().retainAll( pageNames ) ) {
+            dirty = true;
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     *  Reads the index from its file, if there is one.
+     *
+     *  @throws IOException if the file cannot be read.
+     */
+    void load() throws IOException {
+        if( !file.exists() ) {
+            return;
+        }
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( file.toPath() ) ) ) ) {
+            if( in.readInt() != MAGIC || in.readInt() != FORMAT ) {
+                throw new IOException( "Not an ACL index: " + file.getAbsolutePath() );
+            }
+            final int count = in.readInt();
+            for( int i = 0; i < count; i++ ) {
+                final String name = in.readUTF();
+                final int version = in.readInt();
+                final long lastModified = in.readLong();
+                final int n = in.readInt();
+                final List< String > rules = n == 0 ? Collections.emptyList() : new ArrayList<>( n );
+                for( int r = 0; r < n; r++ ) {
+                    rules.add( in.readUTF() );
+                }
+                entries.put( name, new Entry( version, lastModified, rules ) );
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     *  Writes the index to its file, if it has changed since it was read or last written.
+     *
+     *  @throws IOException if the file cannot be written.
+     */
+    synchronized void save() throws IOException {
+        if( !dirty ) {
+            return;
+        }
+        dirty = false;
+        final File tmp = new File( file.getParentFile(), file.getName() + ".tmp" );
+        try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( tmp.toPath() ) ) ) ) {
+            final List< Map.Entry< String, Entry > > snapshot = new ArrayList<>( entries.entrySet() );
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT );
+            out.writeInt( snapshot.size() );
+            for( final Map.Entry< String, Entry > e : snapshot ) {
+                out.writeUTF( e.getKey() );
+                out.writeInt( e.getValue().version );
+                out.writeLong( e.getValue().lastModified );
+                out.writeInt( e.getValue().rules.size() );
+                for( final String rule : e.getValue().rules ) {
+                    out.writeUTF( rule );
+                }
+            }
+        } catch( final IOException e ) {
+            dirty = true;
+            throw e;
+        }
+        Files.move( tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     *  Finds the access rules in wiki markup, the way the markup parser does: {@code [{ALLOW ...}]} and {@code [{DENY ...}]}, except
+     *  within {@code {{{ }}}} blocks, after a {@code ~} and after an escaped {@code [[}. Unlike rendering the page, this does not look at
+     *  anything else in the markup.
+     *
+     *  @param text the wiki markup.
+     *  @return the text of each access rule without its brackets, in the order they appear in.
+     */
+    static List< String > scan( final String text ) {
+        List< String > rules = Collections.emptyList();
+        final int length = text.length();
+        int i = 0;
+        while( i < length ) {
+            final char ch = text.charAt( i );
+            if( ch == '~' ) {
+                i += 2;
+            } else if( ch == '{' && text.startsWith( "{{{", i ) ) {
+                final int end = text.indexOf( "}}}", i + 3 );
+                if( end < 0 ) {
+                    break;
+                }
+                i = end + 3;
+            } else if( ch == '[' && i + 1 < length && text.charAt( i + 1 ) == '[' ) {
+                while( i < length && text.charAt( i ) == '[' ) {
+                    i++;
+                }
+            } else if( ch == '[' && ( text.startsWith( "[{ALLOW", i ) || text.startsWith( "[{DENY", i ) ) ) {
+                final int end = text.indexOf( "}]", i );
+                if( end < 0 ) {
+                    break;
+                }
+                if( rules.isEmpty() ) {
+                    rules = new ArrayList<>( 2 );
+                }
+                rules.add( text.substring( i + 2, end ) );
+                i = end + 2;
+            } else {
+                i++;
+            }
+        }
+        return rules;
+    }
+
+}
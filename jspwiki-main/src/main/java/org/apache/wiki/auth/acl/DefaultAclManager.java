@@ -32,19 +32,36 @@ import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.WikiSecurityException;
 import org.apache.wiki.auth.permissions.PagePermission;
 import org.apache.wiki.auth.permissions.PermissionFactory;
+import org.apache.wiki.content.PageRenamer;
+import org.apache.wiki.event.WikiEngineEvent;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.event.WikiPageRenameEvent;
+import org.apache.wiki.event.WikiSecurityEvent;
+import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.pages.PageLock;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.parser.JSPWikiMarkupParser;
+import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.comparators.PrincipalComparator;
 
+import java.io.File;
+import java.io.IOException;
 import java.security.Permission;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.regex.Matcher;
@@ -52,15 +69,29 @@ import java.util.regex.Pattern;
 
 /**
  * Default implementation that parses Acls from wiki page markup.
+ * <p>
+ * The access rules of the pages are kept in an index, so that a page without a cached Acl need not be rendered to find its rules. The
+ * index is brought up to date once the engine has been initialized, kept up to date when pages are saved, deleted or renamed, and
+ * kept in the file {@value #INDEX_FILE} in the work directory between restarts. A page which is not in the index, or has changed
+ * since it was indexed, has its markup scanned for access rules only, or, unless it is JSPWiki markup, parsed for access rules only
+ * by its markup parser.
  *
  * @since 2.3
  */
-public class DefaultAclManager implements AclManager {
+public class DefaultAclManager implements AclManager, WikiEventListener {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultAclManager.class);
 
+    /** Name of the file in the work directory which holds the index of the access rules of all pages. */
+    public static final String INDEX_FILE = "aclindex.dat";
+
     private AuthorizationManager m_auth;
     private Engine m_engine;
+    private AclIndex m_index;
+
+    /** Whether the wiki is written in JSPWiki markup, whose access rules are found without parsing the pages. */
+    private boolean m_jspwikiMarkup = true;
+
     private static final String PERM_REGEX = "("
                                               + PagePermission.COMMENT_ACTION + "|"
                                               + PagePermission.DELETE_ACTION  + "|"
@@ -84,6 +115,10 @@ public class DefaultAclManager implements AclManager {
     public void initialize( final Engine engine, final Properties props ) {
         m_auth = engine.getManager( AuthorizationManager.class );
         m_engine = engine;
+        m_index = new AclIndex( new File( engine.getWorkDir(), INDEX_FILE ) );
+        m_jspwikiMarkup = isJSPWikiMarkup( props.getProperty( RenderingManager.PROP_PARSER, JSPWikiMarkupParser.class.getName() ) );
+        // the pages cannot be listed before the engine has been initialized
+        engine.addWikiEventListener( this );
     }
 
     /** {@inheritDoc} */
@@ -143,19 +178,161 @@ public class DefaultAclManager implements AclManager {
                 final Page parent = m_engine.getManager( PageManager.class ).getPage( ( ( Attachment ) page ).getParentName() );
                 acl = getPermissions(parent);
             } else {
-                //  Or, try parsing the page
-                final Context ctx = Wiki.context().create( m_engine, page );
-                ctx.setVariable( Context.VAR_EXECUTE_PLUGINS, Boolean.FALSE );
-                m_engine.getManager( RenderingManager.class ).getHTML(ctx, page);
+                //  Or, parse the access rules of the page
+                acl = parsePermissions( page );
+            }
+        }
+
+        return acl;
+    }
 
-                if (page.getAcl() == null) {
+    private Acl parsePermissions( final Page page ) {
+        // parseAcl() adds to the Acl of the page, so do not let two threads build it at the same time
+        synchronized( page ) {
+            if( page.getAcl() == null ) {
+                for( final String rule : accessRules( page ) ) {
+                    try {
+                        parseAcl( page, rule );
+                    } catch( final WikiSecurityException e ) {
+                        // the rule is shown as an error when the page is rendered
+                        LOG.debug( "Ignoring access rule of page {}: {}", page.getName(), e.getMessage() );
+                    }
+                }
+                if( page.getAcl() == null ) {
                     page.setAcl( Wiki.acls().acl() );
                 }
-                acl = page.getAcl();
             }
+            return page.getAcl();
         }
+    }
 
-        return acl;
+    private List< String > accessRules( final Page page ) {
+        final List< String > indexed = m_index.get( page );
+        if( indexed != null ) {
+            return indexed;
+        }
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
+        final List< String > rules = scan( page, pageManager.getPureText( page.getName(), page.getVersion() ) );
+        final Page latest = pageManager.getPage( page.getName() );
+        if( latest != null && latest.getVersion() == page.getVersion() ) {
+            m_index.put( page, rules );
+        }
+        return rules;
+    }
+
+    /**
+     * Finds the access rules in the markup of a page. JSPWiki markup is scanned for the access rules only, any other markup, which may
+     * well have other rules as to where access rules apply, is parsed by the markup parser of the page looking for access rules only.
+     */
+    private List< String > scan( final Page page, final String text ) {
+        if( m_jspwikiMarkup ) {
+            return AclIndex.scan( text );
+        }
+        final Context context = Wiki.context().create( m_engine, page );
+        context.setVariable( Context.VAR_EXECUTE_PLUGINS, Boolean.FALSE );
+        try {
+            return m_engine.getManager( RenderingManager.class ).getParser( context, text ).findAccessRules();
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to parse the access rules of page {}: {}", page.getName(), e.getMessage() );
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Tells whether the wiki is written in JSPWiki markup, that is whether the {@link RenderingManager} ends up with the
+     * {@link JSPWikiMarkupParser} for the configured parser class, falling back to it if the class is missing or no parser.
+     */
+    static boolean isJSPWikiMarkup( final String parserClass ) {
+        try {
+            final Class< ? > parser = ClassUtil.getMappedClass( parserClass );
+            return parser == JSPWikiMarkupParser.class || !MarkupParser.class.isAssignableFrom( parser );
+        } catch( final ClassNotFoundException e ) {
+            return true;
+        }
+    }
+
+    /**
+     * Brings the index of the access rules up to date with all pages, scanning the pages which are not in the index or have changed
+     * since they were indexed.
+     */
+    private void indexPages() {
+        final long start = System.currentTimeMillis();
+        try {
+            m_index.load();
+        } catch( final IOException e ) {
+            LOG.info( "Unable to read the ACL index, rebuilding it: {}", e.getMessage() );
+        }
+
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
+        final Set< String > names = new HashSet<>();
+        int scanned = 0;
+        try {
+            for( final Page page : pageManager.getAllPages() ) {
+                if( page instanceof Attachment ) {
+                    continue;
+                }
+                names.add( page.getName() );
+                if( m_index.get( page ) == null ) {
+                    m_index.put( page, scan( page, pageManager.getPureText( page.getName(), page.getVersion() ) ) );
+                    scanned++;
+                }
+            }
+        } catch( final ProviderException e ) {
+            LOG.warn( "Unable to list the pages, the ACL index is built as pages are used: {}", e.getMessage() );
+            return;
+        }
+        m_index.retain( names );
+        saveIndex();
+        LOG.info( "ACL index of {} pages ready, scanned {} pages in {} ms", m_index.size(), scanned, System.currentTimeMillis() - start );
+    }
+
+    private void saveIndex() {
+        try {
+            m_index.save();
+        } catch( final IOException e ) {
+            LOG.warn( "Unable to write the ACL index: {}", e.getMessage() );
+        }
+    }
+
+    /**
+     * Indexes all pages once the engine has been initialized, keeps the index up to date when pages are saved, deleted or renamed, and
+     * writes it when the engine shuts down.
+     *
+     * @param event {@inheritDoc}
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiEngineEvent ) {
+            if( event.getType() == WikiEngineEvent.INITIALIZED ) {
+                for( final Object source : new Object[] { m_engine.getManager( PageManager.class ), m_engine.getManager( FilterManager.class ),
+                                                          m_engine.getManager( PageRenamer.class ) } ) {
+                    if( source != null ) {
+                        WikiEventManager.addWikiEventListener( source, this );
+                    }
+                }
+                indexPages();
+            } else if( event.getType() == WikiEngineEvent.SHUTDOWN ) {
+                saveIndex();
+            }
+        } else if( event instanceof WikiPageRenameEvent ) {
+            m_index.remove( ( ( WikiPageRenameEvent )event ).getOldPageName() );
+            m_index.remove( ( ( WikiPageRenameEvent )event ).getNewPageName() );
+        } else if( event instanceof WikiPageEvent ) {
+            final String pageName = ( ( WikiPageEvent )event ).getPageName();
+            if( event.getType() == WikiPageEvent.PAGE_DELETED ) {
+                m_index.remove( pageName );
+            } else if( event.getType() == WikiPageEvent.POST_SAVE_END ) {
+                indexPage( pageName );
+            }
+        }
+    }
+
+    private void indexPage( final String pageName ) {
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
+        final Page page = pageManager.getPage( pageName );
+        if( page != null && !( page instanceof Attachment ) ) {
+            m_index.put( page, scan( page, pageManager.getPureText( pageName, page.getVersion() ) ) );
+        }
     }
 
     /** {@inheritDoc} */
@@ -179,6 +356,12 @@ public class DefaultAclManager implements AclManager {
         } catch( final ProviderException e ) {
             throw new WikiSecurityException( "Could not set Acl. Reason: ProviderExcpetion " + e.getMessage(), e );
         }
+
+        indexPage( page.getName() );
+
+        if( WikiEventManager.isListening( this ) ) {
+            WikiEventManager.fireEvent( this, new WikiSecurityEvent( this, WikiSecurityEvent.ACL_CHANGED, page.getName() ) );
+        }
     }
 
     /**
@@ -0,0 +1,138 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ *  Counts events per key over a sliding window, for instance the page changes per IP address during the last minute, as used by the
+ *  {@link SpamFilter}.
+ *  <p>
+ *  Every key has a ring of buckets, one per second of the window, so counting and adding take constant time whatever the number of
+ *  events, and only lock the key concerned. A key none of whose events is within the window any more is dropped by a sweep, which
+ *  runs at most once per window.
+ *
+ *  @since 2.12.8
+ */
+final class SlidingWindowCounter< K > {
+
+    private static final long BUCKET = 1_000L;
+
+    /** The buckets of a single key. */
+    private static final class Window {
+
+        /** For every bucket, the second its count belongs to. */
+        private final long[] seconds;
+        private final int[] counts;
+        private long last;
+
+        Window( final int size ) {
+            seconds = new long[ size ];
+            counts = new int[ size ];
+        }
+
+        synchronized void add( final long second ) {
+            final int i = ( int )( second % counts.length );
+            if( seconds[ i ] != second ) {
+                seconds[ i ] = second;
+                counts[ i ] = 0;
+            }
+            counts[ i ]++;
+            last = Math.max( last, second );
+        }
+
+        synchronized int count( final long second ) {
+            int count = 0;
+            for( int i = 0; i < counts.length; i++ ) {
+                if( seconds[ i ] > second - counts.length && seconds[ i ] <= second ) {
+                    count += counts[ i ];
+                }
+            }
+            return count;
+        }
+
+        synchronized boolean isExpired( final long second ) {
+            return last <= second - counts.length;
+        }
+    }
+
+    private final int size;
+    private final Map< K, Window > windows = new ConcurrentHashMap<>();
+    private final AtomicLong lastSweep = new AtomicLong();
+
+    /**
+     *  Creates a counter.
+     *
+     *  @param window the length of the window in milliseconds, rounded up to whole seconds.
+     */
+    SlidingWindowCounter( final long window ) {
+        this.size = ( int )Math.max( 1, ( window + BUCKET - 1 ) / BUCKET );
+    }
+
+    /**
+     *  Returns the number of events of a key within the window ending now.
+     *
+     *  @param key the key.
+     *  @param now the current time in milliseconds.
+     *  @return the number of events.
+     */
+    int count( final K key, final long now ) {
+        sweep( now );
+        final Window window = windows.get( key );
+        return window != null ? window.count( now / BUCKET ) : 0;
+    }
+
+    /**
+     *  Adds an event of a key.
+     *
+     *  @param key the key.
+     *  @param now the current time in milliseconds.
+     */
+    void add( final K key, final long now ) {
+        // compute() rather than computeIfAbsent(), so that a sweep cannot drop the window between getting and adding to it
+        windows.compute( key, ( k, window ) -> {
+            final Window w = window != null ? window : new Window( size );
+            w.add( now / BUCKET );
+            return w;
+        } );
+    }
+
+    /**
+     *  Returns the number of keys, including the ones whose events have expired but which have not been swept yet.
+     *
+     *  @return the number of keys.
+     */
+    int size() {
+        return windows.size();
+    }
+
+    private void sweep( final long now ) {
+        final long last = lastSweep.get();
+        if( now - last >= size * BUCKET && lastSweep.compareAndSet( last, now ) ) {
+            final long second = now / BUCKET;
+            for( final K key : windows.keySet() ) {
+                windows.computeIfPresent( key, ( k, window ) -> window.isExpired( second ) ? null : window );
+            }
+        }
+    }
+
+}
@@ -23,13 +23,6 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
-import org.apache.oro.text.regex.MalformedPatternException;
-import org.apache.oro.text.regex.MatchResult;
-import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.PatternCompiler;
-import org.apache.oro.text.regex.PatternMatcher;
-import org.apache.oro.text.regex.Perl5Compiler;
-import org.apache.oro.text.regex.Perl5Matcher;
 import org.apache.wiki.InternalWikiException;
 import org.apache.wiki.api.core.Attachment;
 import org.apache.wiki.api.core.Context;
@@ -66,17 +59,24 @@ import java.io.InputStreamReader;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Date;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
 import java.util.StringTokenizer;
-import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 
 /**
@@ -130,6 +130,9 @@ public class SpamFilter extends BasePageFilter {
 
     private static final Random RANDOM = ThreadLocalRandom.current();
 
+    /** The time over which page changes are counted, in milliseconds. */
+    private static final long MODIFICATION_WINDOW = 60 * 1000L; // 1 minute
+
     /** The filter property name for specifying the page which contains the list of spamwords. Value is <tt>{@value}</tt>. */
     public static final String  PROP_WORDLIST              = "wordlist";
 
@@ -180,7 +183,7 @@ public class SpamFilter extends BasePageFilter {
     /** The string specifying the "score" strategy. Value is <tt>{@value}</tt>. */
     public static final String  STRATEGY_SCORE             = "score";
 
-    private static final String URL_REGEXP = "(http://|https://|mailto:)([A-Za-z0-9_/\\.\\+\\?\\#\\-\\@=&;]+)";
+    private static final Pattern URL_PATTERN = Pattern.compile( "(http://|https://|mailto:)([A-Za-z0-9_/\\.\\+\\?\\#\\-\\@=&;]+)" );
 
     private String          m_forbiddenWordsPage = "SpamFilterWordList";
     private String          m_forbiddenIPsPage   = "SpamFilterIPList";
@@ -188,9 +191,6 @@ public class SpamFilter extends BasePageFilter {
     private String          m_errorPage          = "RejectedMessage";
     private String          m_blacklist          = "SpamFilterWordList/blacklist.txt";
 
-    private final PatternMatcher  m_matcher = new Perl5Matcher();
-    private final PatternCompiler m_compiler = new Perl5Compiler();
-
     private Collection<Pattern> m_spamPatterns;
     private Collection<Pattern> m_IPPatterns;
 
@@ -199,11 +199,18 @@ public class SpamFilter extends BasePageFilter {
     private static final Logger C_SPAMLOG = LoggerFactory.getLogger( "SpamLog" );
     private static final Logger LOG = LoggerFactory.getLogger( SpamFilter.class );
 
-    private final Vector<Host>    m_temporaryBanList = new Vector<>();
+    /** The banned IP addresses, with the time their ban is released. */
+    private final Map< String, Long > m_temporaryBanList = new ConcurrentHashMap<>();
+
+    private final AtomicLong m_lastBanListCleaning = new AtomicLong();
 
     private int             m_banTime = 60; // minutes
 
-    private final Vector<Host>    m_lastModifications = new Vector<>();
+    /** The modifications of the last minute, per IP address. */
+    private final SlidingWindowCounter< String > m_modificationsByHost = new SlidingWindowCounter<>( MODIFICATION_WINDOW );
+
+    /** The modifications of the last minute, per hash of the change. */
+    private final SlidingWindowCounter< String > m_modificationsByChange = new SlidingWindowCounter<>( MODIFICATION_WINDOW );
 
     /** How many times a single IP address can change a page per minute? */
     private int             m_limitSinglePageChanges = 5;
@@ -214,7 +221,6 @@ public class SpamFilter extends BasePageFilter {
     /** How many URLs can be added at maximum. */
     private int             m_maxUrls = 10;
 
-    private Pattern         m_urlPattern;
     private Akismet         m_akismet;
 
     private String          m_akismetAPIKey;
@@ -265,13 +271,6 @@ public class SpamFilter extends BasePageFilter {
 
         m_useCaptcha = properties.getProperty( PROP_CAPTCHA, "" ).equals("asirra");
 
-        try {
-            m_urlPattern = m_compiler.compile( URL_REGEXP );
-        } catch( final MalformedPatternException e ) {
-			LOG.error( "Internal error: Someone put in a faulty pattern.", e );
-            throw new InternalWikiException( "Faulty pattern." , e);
-        }
-
         m_akismetAPIKey = TextUtil.getStringProperty( properties, PROP_AKISMET_API_KEY, m_akismetAPIKey );
         m_stopAtFirstMatch = TextUtil.getStringProperty( properties, PROP_FILTERSTRATEGY, STRATEGY_EAGER ).equals( STRATEGY_EAGER );
 
@@ -381,8 +380,8 @@ public class SpamFilter extends BasePageFilter {
                 final String pattern = tok.nextToken();
 
                 try {
-                    compiledpatterns.add( m_compiler.compile( pattern ) );
-                } catch( final MalformedPatternException e ) {
+                    compiledpatterns.add( Pattern.compile( pattern ) );
+                } catch( final PatternSyntaxException e ) {
                     LOG.debug( "Malformed spam filter pattern " + pattern );
                     source.setAttribute("error", "Malformed spam filter pattern " + pattern);
                 }
@@ -415,8 +414,8 @@ public class SpamFilter extends BasePageFilter {
                     if( ws != -1 ) line = line.substring( 0, ws );
 
                     try {
-                        compiledpatterns.add( m_compiler.compile( line ) );
-                    } catch( final MalformedPatternException e ) {
+                        compiledpatterns.add( Pattern.compile( line ) );
+                    } catch( final PatternSyntaxException e ) {
                         LOG.debug( "Malformed spam filter pattern " + line );
                     }
                 }
@@ -435,44 +434,24 @@ public class SpamFilter extends BasePageFilter {
      * @param change page change
      * @throws RedirectException spam filter rejects the page change.
      */
-    private synchronized void checkSinglePageChange(final Context context, final Change change )
+    private void checkSinglePageChange(final Context context, final Change change )
     		throws RedirectException {
         final HttpServletRequest req = context.getHttpRequest();
 
         if( req != null ) {
             final String addr = HttpUtil.getRemoteAddress( req );
-            int hostCounter = 0;
-            int changeCounter = 0;
+            final String changeHash = change.hash();
+            final long now = System.currentTimeMillis();
 
             LOG.debug( "Change is " + change.m_change );
 
-            final long time = System.currentTimeMillis() - 60*1000L; // 1 minute
-
-            for( final Iterator< Host > i = m_lastModifications.iterator(); i.hasNext(); ) {
-                final Host host = i.next();
-
-                //  Check if this item is invalid
-                if( host.getAddedTime() < time ) {
-                    LOG.debug( "Removed host " + host.getAddress() + " from modification queue (expired)" );
-                    i.remove();
-                    continue;
-                }
-
-                // Check if this IP address has been seen before
-                if( host.getAddress().equals( addr ) ) {
-                    hostCounter++;
-                }
-
-                //  Check, if this change has been seen before
-                if( host.getChange() != null && host.getChange().equals( change ) ) {
-                    changeCounter++;
-                }
-            }
+            // How many times has this IP address been seen, and this change, during the last minute?
+            final int hostCounter = m_modificationsByHost.count( addr, now );
+            final int changeCounter = changeHash != null ? m_modificationsByChange.count( changeHash, now ) : 0;
 
             //  Now, let's check against the limits.
             if( hostCounter >= m_limitSinglePageChanges ) {
-                final Host host = new Host( addr, null );
-                m_temporaryBanList.add( host );
+                ban( addr );
 
                 final String uid = log( context, REJECT, REASON_TOO_MANY_MODIFICATIONS, change.m_change );
                 LOG.info( "SPAM:TooManyModifications (" + uid + "). Added host " + addr + " to temporary ban list for doing too many modifications/minute" );
@@ -480,8 +459,7 @@ public class SpamFilter extends BasePageFilter {
             }
 
             if( changeCounter >= m_limitSimilarChanges ) {
-                final Host host = new Host( addr, null );
-                m_temporaryBanList.add( host );
+                ban( addr );
 
                 final String uid = log( context, REJECT, REASON_SIMILAR_MODIFICATIONS, change.m_change );
                 LOG.info( "SPAM:SimilarModifications (" + uid + "). Added host " + addr + " to temporary ban list for doing too many similar modifications" );
@@ -489,17 +467,14 @@ public class SpamFilter extends BasePageFilter {
             }
 
             //  Calculate the number of links in the addition.
-            String tstChange  = change.toString();
+            final Matcher urls = URL_PATTERN.matcher( change.toString() );
             int urlCounter = 0;
-            while( m_matcher.contains( tstChange,m_urlPattern ) ) {
-                final MatchResult m = m_matcher.getMatch();
-                tstChange = tstChange.substring( m.endOffset(0) );
+            while( urls.find() ) {
                 urlCounter++;
             }
 
             if( urlCounter > m_maxUrls ) {
-                final Host host = new Host( addr, null );
-                m_temporaryBanList.add( host );
+                ban( addr );
 
                 final String uid = log( context, REJECT, REASON_TOO_MANY_URLS, change.toString() );
                 LOG.info( "SPAM:TooManyUrls (" + uid + "). Added host " + addr + " to temporary ban list for adding too many URLs" );
@@ -515,11 +490,13 @@ public class SpamFilter extends BasePageFilter {
             //  Do Akismet check.  This is good to be the last, because this is the most expensive operation.
             checkAkismet( context, change );
 
-            m_lastModifications.add( new Host( addr, change ) );
+            m_modificationsByHost.add( addr, now );
+            if( changeHash != null ) {
+                m_modificationsByChange.add( changeHash, now );
+            }
         }
     }
 
-
     /**
      *  Checks against the akismet system.
      *
@@ -528,17 +505,7 @@ public class SpamFilter extends BasePageFilter {
      */
     private void checkAkismet( final Context context, final Change change ) throws RedirectException {
         if( m_akismetAPIKey != null ) {
-            if( m_akismet == null ) {
-                LOG.info( "Initializing Akismet spam protection." );
-                m_akismet = new Akismet( m_akismetAPIKey, context.getEngine().getBaseURL() );
-
-                if( !m_akismet.verifyAPIKey() ) {
-                    LOG.error( "Akismet API key cannot be verified.  Please check your config." );
-                    m_akismetAPIKey = null;
-                    m_akismet = null;
-                }
-            }
-
+            final Akismet akismet = getAkismet( context );
             final HttpServletRequest req = context.getHttpRequest();
 
             //  Akismet will mark all empty statements as spam, so we'll just ignore them.
@@ -546,7 +513,7 @@ public class SpamFilter extends BasePageFilter {
                 return;
             }
             
-            if( req != null && m_akismet != null ) {
+            if( req != null && akismet != null ) {
                 LOG.debug( "Calling Akismet to check for spam..." );
 
                 final StopWatch sw = new StopWatch();
@@ -561,23 +528,25 @@ public class SpamFilter extends BasePageFilter {
                 final String commentAuthorEmail = null;
                 final String commentAuthorURL   = null;
 
-                final boolean isSpam = m_akismet.commentCheck( ipAddress,
-                                                               userAgent,
-                                                               referrer,
-                                                               permalink,
-                                                               commentType,
-                                                               commentAuthor,
-                                                               commentAuthorEmail,
-                                                               commentAuthorURL,
-                                                               change.toString(),
-                                                               null );
+                final boolean isSpam;
+                synchronized( akismet ) {
+                    isSpam = akismet.commentCheck( ipAddress,
+                                                   userAgent,
+                                                   referrer,
+                                                   permalink,
+                                                   commentType,
+                                                   commentAuthor,
+                                                   commentAuthorEmail,
+                                                   commentAuthorURL,
+                                                   change.toString(),
+                                                   null );
+                }
 
                 sw.stop();
                 LOG.debug( "Akismet request done in: " + sw );
 
                 if( isSpam ) {
-                    // Host host = new Host( ipAddress, null );
-                    // m_temporaryBanList.add( host );
+                    // ban( ipAddress );
 
                     final String uid = log( context, REJECT, REASON_AKISMET, change.toString() );
                     LOG.info( "SPAM:Akismet (" + uid + "). Akismet thinks this change is spam; added host to temporary ban list." );
@@ -587,6 +556,26 @@ public class SpamFilter extends BasePageFilter {
         }
     }
 
+    /**
+     *  Returns the Akismet client, creating it on first use.
+     *
+     * @param context page Context
+     * @return the client, or null if the Akismet API key is not set or cannot be verified.
+     */
+    private synchronized Akismet getAkismet( final Context context ) {
+        if( m_akismet == null && m_akismetAPIKey != null ) {
+            LOG.info( "Initializing Akismet spam protection." );
+            m_akismet = new Akismet( m_akismetAPIKey, context.getEngine().getBaseURL() );
+
+            if( !m_akismet.verifyAPIKey() ) {
+                LOG.error( "Akismet API key cannot be verified.  Please check your config." );
+                m_akismetAPIKey = null;
+                m_akismet = null;
+            }
+        }
+        return m_akismet;
+    }
+
     /**
      * Returns a static string which can be used to detect spambots which just wildly fill in all the fields.
      *
@@ -629,15 +618,25 @@ public class SpamFilter extends BasePageFilter {
         }
     }
 
-    /** Goes through the ban list and cleans away any host which has expired from it. */
-    private synchronized void cleanBanList() {
-        final long now = System.currentTimeMillis();
-        for( final Iterator< Host > i = m_temporaryBanList.iterator(); i.hasNext(); ) {
-            final Host host = i.next();
+    /**
+     *  Adds an IP address to the temporary ban list, or extends its ban.
+     *
+     *  @param addr the IP address
+     */
+    private void ban( final String addr ) {
+        m_temporaryBanList.merge( addr, System.currentTimeMillis() + m_banTime * 60 * 1000L, Math::max );
+    }
 
-            if( host.getReleaseTime() < now ) {
-                LOG.debug( "Removed host " + host.getAddress() + " from temporary ban list (expired)" );
-                i.remove();
+    /** Goes through the ban list and cleans away any host which has expired from it, at most once a minute. */
+    private void cleanBanList() {
+        final long now = System.currentTimeMillis();
+        final long last = m_lastBanListCleaning.get();
+        if( now - last < MODIFICATION_WINDOW || !m_lastBanListCleaning.compareAndSet( last, now ) ) {
+            return;
+        }
+        for( final Map.Entry< String, Long > host : m_temporaryBanList.entrySet() ) {
+            if( host.getValue() < now && m_temporaryBanList.remove( host.getKey(), host.getValue() ) ) {
+                LOG.debug( "Removed host " + host.getKey() + " from temporary ban list (expired)" );
             }
         }
     }
@@ -654,15 +653,14 @@ public class SpamFilter extends BasePageFilter {
         if( req != null ) {
             final String remote = HttpUtil.getRemoteAddress(req);
             final long now = System.currentTimeMillis();
+            final Long releaseTime = m_temporaryBanList.get( remote );
 
-            for( final Host host : m_temporaryBanList ) {
-                if( host.getAddress().equals( remote ) ) {
-                    final long timeleft = ( host.getReleaseTime() - now ) / 1000L;
+            if( releaseTime != null && releaseTime >= now ) {
+                final long timeleft = ( releaseTime - now ) / 1000L;
 
-                    log( context, REJECT, REASON_IP_BANNED_TEMPORARILY, change.m_change );
-                    checkStrategy( context,
-                            "You have been temporarily banned from modifying this wiki. (" + timeleft + " seconds of ban left)" );
-                }
+                log( context, REJECT, REASON_IP_BANNED_TEMPORARILY, change.m_change );
+                checkStrategy( context,
+                        "You have been temporarily banned from modifying this wiki. (" + timeleft + " seconds of ban left)" );
             }
         }
     }
@@ -743,14 +741,14 @@ public class SpamFilter extends BasePageFilter {
         }
 
         for( final Pattern p : m_spamPatterns ) {
-            // LOG.debug("Attempting to match page contents with "+p.getPattern());
+            // LOG.debug("Attempting to match page contents with "+p.pattern());
 
-            if( m_matcher.contains( ch, p ) ) {
+            if( p.matcher( ch ).find() ) {
                 //  Spam filter has a match.
-                final String uid = log( context, REJECT, REASON_REGEXP + "(" + p.getPattern() + ")", ch );
+                final String uid = log( context, REJECT, REASON_REGEXP + "(" + p.pattern() + ")", ch );
 
-                LOG.info( "SPAM:Regexp (" + uid + "). Content matches the spam filter '" + p.getPattern() + "'" );
-                checkStrategy( context, "Herb says '" + p.getPattern() + "' is a bad spam word and I trust Herb! (Incident code " + uid + ")" );
+                LOG.info( "SPAM:Regexp (" + uid + "). Content matches the spam filter '" + p.pattern() + "'" );
+                checkStrategy( context, "Herb says '" + p.pattern() + "' is a bad spam word and I trust Herb! (Incident code " + uid + ")" );
             }
         }
     }
@@ -772,16 +770,16 @@ public class SpamFilter extends BasePageFilter {
         LOG.info("Attempting to match remoteIP " + remoteIP + " against " + m_IPPatterns.size() + " patterns");
 
         for( final Pattern p : m_IPPatterns ) {
-             LOG.debug("Attempting to match remoteIP with " + p.getPattern());
+             LOG.debug("Attempting to match remoteIP with " + p.pattern());
 
-            if( m_matcher.contains( remoteIP, p ) ) {
+            if( p.matcher( remoteIP ).find() ) {
 
                 //  IP filter has a match.
                 //
-                final String uid = log( context, REJECT, REASON_IP_BANNED_PERMANENTLY + "(" + p.getPattern() + ")", remoteIP );
+                final String uid = log( context, REJECT, REASON_IP_BANNED_PERMANENTLY + "(" + p.pattern() + ")", remoteIP );
 
-                LOG.info( "SPAM:IPBanList (" + uid + "). remoteIP matches the IP filter '" + p.getPattern() + "'" );
-                checkStrategy( context, "Herb says '" + p.getPattern() + "' is a banned IP and I trust Herb! (Incident code " + uid + ")" );
+                LOG.info( "SPAM:IPBanList (" + uid + "). remoteIP matches the IP filter '" + p.pattern() + "'" );
+                checkStrategy( context, "Herb says '" + p.pattern() + "' is a banned IP and I trust Herb! (Incident code " + uid + ")" );
             }
         }
     }
@@ -1022,40 +1020,6 @@ public class SpamFilter extends BasePageFilter {
         return sb.toString();
     }
     
-    /**
-     *  A local class for storing host information.
-     */
-    private class Host {
-
-        private final long m_addedTime = System.currentTimeMillis();
-        private final long m_releaseTime;
-        private final String m_address;
-        private final Change m_change;
-
-        public String getAddress() {
-            return m_address;
-        }
-
-        public long getReleaseTime() {
-            return m_releaseTime;
-        }
-
-        public long getAddedTime() {
-            return m_addedTime;
-        }
-
-        public Change getChange() {
-            return m_change;
-        }
-
-        public Host( final String ipaddress, final Change change ) {
-            m_address = ipaddress;
-            m_change = change;
-            m_releaseTime = System.currentTimeMillis() + m_banTime * 60 * 1000L;
-        }
-        
-    }
-    
     private static class Change {
     	
         public String m_change;
@@ -1079,6 +1043,24 @@ public class SpamFilter extends BasePageFilter {
         public int hashCode() {
             return m_change.hashCode() + 17;
         }
+
+        /**
+         *  Returns a digest of the change, which stands in for it when counting similar changes.
+         *
+         *  @return the SHA-256 of the change, or null if nothing has changed.
+         */
+        String hash() {
+            if( m_change == null ) {
+                return null;
+            }
+            try {
+                final byte[] digest = MessageDigest.getInstance( "SHA-256" ).digest( m_change.getBytes( StandardCharsets.UTF_8 ) );
+                return Base64.getEncoder().encodeToString( digest );
+            } catch( final NoSuchAlgorithmException e ) {
+                // every Java platform has SHA-256
+                throw new InternalWikiException( "SHA-256 not available", e );
+            }
+        }
         
     }
 
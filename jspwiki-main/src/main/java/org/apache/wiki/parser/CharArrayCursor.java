@@ -0,0 +1,348 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+
+/**
+ *  A cursor over the whole text of a document, held in a single character array. Page text is in memory anyway, so instead of
+ *  streaming it through a {@link java.io.PushbackReader} the source is read in full on first access, after which reading a
+ *  character, pushing it back, marking and resetting a position and extracting a substring are all constant time array operations.
+ *  <p>
+ *  Unlike the readers of {@code java.io}, this class is not synchronized: a cursor belongs to the single parser reading it. The
+ *  array is kept when the cursor is pointed at another source, so a reused parser does not allocate a new one for every document.
+ *
+ *  @since 2.12.8
+ */
+public class CharArrayCursor extends Reader {
+
+    /** Arrays larger than this are dropped instead of being kept around for the next document. */
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;
+
+    private char[] m_buf;
+    private int m_count;
+    private int m_pos;
+    private int m_mark;
+    private Reader m_source;
+
+    /**
+     *  Creates a cursor over the given reader, which is read in full on first access and closed afterwards.
+     *
+     *  @param source the text to read. If null, the cursor is empty.
+     */
+    public CharArrayCursor( final Reader source ) {
+        m_buf = new char[ 0 ];
+        setSource( source );
+    }
+
+    /**
+     *  Creates a cursor over the given text.
+     *
+     *  @param text the text to read.
+     */
+    public CharArrayCursor( final String text ) {
+        m_buf = text.toCharArray();
+        m_count = m_buf.length;
+    }
+
+    /**
+     *  Points this cursor at another source, keeping the array if it is not too large.
+     *
+     *  @param source the text to read. If null, the cursor is empty.
+     */
+    public void setSource( final Reader source ) {
+        if( m_buf.length > MAX_RETAINED_SIZE ) {
+            m_buf = new char[ 0 ];
+        }
+        m_source = source;
+        m_count = 0;
+        m_pos = 0;
+        m_mark = 0;
+    }
+
+    /**
+     *  Reads the whole source into the array, if it has not been read yet.
+     *
+     *  @throws IOException if the source cannot be read.
+     */
+    private void load() throws IOException {
+        if( m_source == null ) {
+            return;
+        }
+        try( final Reader source = m_source ) {
+            m_source = null;
+            while( true ) {
+                if( m_count == m_buf.length ) {
+                    m_buf = Arrays.copyOf( m_buf, Math.max( 256, m_buf.length * 2 ) );
+                }
+                final int n = source.read( m_buf, m_count, m_buf.length - m_count );
+                if( n == -1 ) {
+                    break;
+                }
+                m_count += n;
+            }
+        }
+    }
+
+    /**
+     *  Reads a single character. Unlike {@link Reader#read()}, this method does not lock anything.
+     *
+     *  @return the character read, or -1 at the end of the text.
+     *  @throws IOException if the source cannot be read.
+     */
+    @Override
+    public int read() throws IOException {
+        if( m_pos < m_count ) {
+            return m_buf[ m_pos++ ];
+        }
+        if( m_source != null ) {
+            load();
+            return read();
+        }
+        return -1;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int read( final char[] cbuf, final int off, final int len ) throws IOException {
+        load();
+        if( len == 0 ) {
+            return 0;
+        }
+        final int n = Math.min( len, m_count - m_pos );
+        if( n <= 0 ) {
+            return -1;
+        }
+        System.arraycopy( m_buf, m_pos, cbuf, off, n );
+        m_pos += n;
+        return n;
+    }
+
+    /**
+     *  Pushes back a single character, so that it is the next one read. Pushing back the character which has just been read only
+     *  moves the cursor, anything else overwrites the text before the cursor.
+     *
+     *  @param c the character to push back.
+     *  @throws IOException if the source cannot be read.
+     */
+    public void unread( final int c ) throws IOException {
+        if( m_pos == 0 ) {
+            load();
+            // pushing back more than has been read, make room in front of the text
+            final char[] buf = new char[ m_count + 16 ];
+            System.arraycopy( m_buf, 0, buf, 16, m_count );
+            m_buf = buf;
+            m_count += 16;
+            m_pos = 16;
+            m_mark += 16;
+        }
+        m_pos--;
+        if( m_buf[ m_pos ] != c ) {
+            m_buf[ m_pos ] = ( char )c;
+        }
+    }
+
+    /**
+     *  Returns the current position, which is the number of characters read so far minus the ones pushed back.
+     *
+     *  @return the current position.
+     */
+    public int getPosition() {
+        return m_pos;
+    }
+
+    /**
+     *  Moves the cursor to a position returned earlier by {@link #getPosition()}.
+     *
+     *  @param pos the position to move to.
+     */
+    public void setPosition( final int pos ) {
+        if( pos < 0 || pos > m_count ) {
+            throw new IndexOutOfBoundsException( "Position " + pos + " outside of [0, " + m_count + "]" );
+        }
+        m_pos = pos;
+    }
+
+    /**
+     *  Returns the text between two positions.
+     *
+     *  @param start the first position, inclusive.
+     *  @param end the last position, exclusive.
+     *  @return the text between the two positions.
+     */
+    public String substring( final int start, final int end ) {
+        return new String( m_buf, start, end - start );
+    }
+
+    /**
+     *  Reads characters as long as they are one of the given ones.
+     *
+     *  @param chars the characters to read.
+     *  @return the characters read, which may be an empty string.
+     *  @throws IOException if the source cannot be read.
+     */
+    public String readWhile( final String chars ) throws IOException {
+        load();
+        final int start = m_pos;
+        while( m_pos < m_count && chars.indexOf( m_buf[ m_pos ] ) != -1 ) {
+            m_pos++;
+        }
+        return substring( start, m_pos );
+    }
+
+    /**
+     *  Reads characters until one of the given ones or the end of the text, which is left unread. A backslash escapes the
+     *  following character, which is read even if it is one of the given ones; the backslash itself is dropped.
+     *
+     *  @param endChars the characters to stop at.
+     *  @return the characters read, which may be an empty string.
+     *  @throws IOException if the source cannot be read.
+     */
+    public String readUntil( final String endChars ) throws IOException {
+        load();
+        final int start = m_pos;
+        while( m_pos < m_count ) {
+            final char c = m_buf[ m_pos ];
+            if( c == '\\' ) {
+                return readEscapedUntil( start, endChars );
+            }
+            if( endChars.indexOf( c ) != -1 ) {
+                break;
+            }
+            m_pos++;
+        }
+        return substring( start, m_pos );
+    }
+
+    private String readEscapedUntil( final int start, final String endChars ) {
+        final StringBuilder sb = new StringBuilder( m_pos - start + 80 ).append( m_buf, start, m_pos - start );
+        while( m_pos < m_count ) {
+            char c = m_buf[ m_pos ];
+            if( c == '\\' ) {
+                if( ++m_pos == m_count ) {
+                    break;
+                }
+                c = m_buf[ m_pos ];
+            } else if( endChars.indexOf( c ) != -1 ) {
+                break;
+            }
+            sb.append( c );
+            m_pos++;
+        }
+        return sb.toString();
+    }
+
+    /**
+     *  Reads the rest of the current line, including the line feed ending it.
+     *
+     *  @return the characters read, which is an empty string at the end of the text.
+     *  @throws IOException if the source cannot be read.
+     */
+    public String readLine() throws IOException {
+        load();
+        final int start = m_pos;
+        while( m_pos < m_count ) {
+            if( m_buf[ m_pos++ ] == '\n' ) {
+                break;
+            }
+        }
+        return substring( start, m_pos );
+    }
+
+    /**
+     *  Tells whether there is anything left to read.
+     *
+     *  @return true, if the end of the text has not been reached.
+     *  @throws IOException if the source cannot be read.
+     */
+    public boolean hasMore() throws IOException {
+        load();
+        return m_pos < m_count;
+    }
+
+    /**
+     *  Reads the next token, the way a {@link java.util.StringTokenizer} returning its delimiters does: either a single delimiter,
+     *  or all characters up to the next delimiter.
+     *
+     *  @param delimiters the delimiting characters.
+     *  @return the token read.
+     *  @throws IOException if the source cannot be read.
+     *  @throws NoSuchElementException if there is nothing left to read.
+     */
+    public String nextToken( final String delimiters ) throws IOException {
+        if( !hasMore() ) {
+            throw new NoSuchElementException();
+        }
+        final int start = m_pos;
+        if( delimiters.indexOf( m_buf[ m_pos++ ] ) == -1 ) {
+            while( m_pos < m_count && delimiters.indexOf( m_buf[ m_pos ] ) == -1 ) {
+                m_pos++;
+            }
+        }
+        return substring( start, m_pos );
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long skip( final long n ) throws IOException {
+        load();
+        final int skipped = ( int )Math.max( 0, Math.min( n, m_count - m_pos ) );
+        m_pos += skipped;
+        return skipped;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean ready() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void mark( final int readAheadLimit ) {
+        m_mark = m_pos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void reset() {
+        m_pos = m_mark;
+    }
+
+    /** Drops the text, leaving the cursor empty. */
+    @Override
+    public void close() throws IOException {
+        final Reader source = m_source;
+        setSource( null );
+        if( source != null ) {
+            source.close();
+        }
+    }
+
+}
@@ -33,18 +33,13 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.Stack;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.xml.transform.Result;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.text.StringEscapeUtils;
-import org.apache.oro.text.regex.MalformedPatternException;
-import org.apache.oro.text.regex.MatchResult;
-import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.PatternCompiler;
-import org.apache.oro.text.regex.PatternMatcher;
-import org.apache.oro.text.regex.Perl5Compiler;
-import org.apache.oro.text.regex.Perl5Matcher;
 import org.apache.wiki.InternalWikiException;
 import org.apache.wiki.StringTransmutator;
 import org.apache.wiki.api.core.Acl;
@@ -163,19 +158,21 @@ public class JSPWikiMarkupParser extends MarkupParser {
 
 	protected boolean m_useRelNofollow;
 
-	private final PatternCompiler m_compiler = new Perl5Compiler();
+	/**
+	 * Matches CamelCase words and plain URIs.  The classes are the Unicode aware ones, like the POSIX classes of the Perl5 regular
+	 * expression this used to be.
+	 */
+	static final String WIKIWORD_REGEX = "(^|\\P{javaLetterOrDigit}+)(\\p{javaUpperCase}+\\p{javaLowerCase}+\\p{javaUpperCase}+\\p{javaLetterOrDigit}*|(http://|https://|mailto:)([A-Za-z0-9_/\\.\\+\\?\\#\\-\\@=&;~%]+))";
 
-	static final String WIKIWORD_REGEX = "(^|[[:^alnum:]]+)([[:upper:]]+[[:lower:]]+[[:upper:]]+[[:alnum:]]*|(http://|https://|mailto:)([A-Za-z0-9_/\\.\\+\\?\\#\\-\\@=&;~%]+))";
+	/** Compiled once, since compiled patterns are immutable and can be shared by all parsers. */
+	private static final Pattern WIKIWORD_PATTERN = Pattern.compile(WIKIWORD_REGEX);
 
-	protected final PatternMatcher m_camelCaseMatcher = new Perl5Matcher();
-	protected Pattern m_camelCasePattern;
+	protected Pattern m_camelCasePattern = WIKIWORD_PATTERN;
 
 	private int m_rowNum = 1;
 
 	private Heading m_lastHeading;
 
-	private static final String CAMELCASE_PATTERN = "JSPWikiMarkupParser.camelCasePattern";
-
 	/**
 	 * Creates a markup parser.
 	 *
@@ -192,22 +189,9 @@ public class JSPWikiMarkupParser extends MarkupParser {
 		initialize();
 	}
 
-	// FIXME: parsers should be pooled for better performance.
 	private void initialize() {
 		initInlineImagePatterns();
 
-		m_camelCasePattern = m_engine.getAttribute(CAMELCASE_PATTERN);
-		if (m_camelCasePattern == null) {
-			try {
-				m_camelCasePattern = m_compiler.compile(WIKIWORD_REGEX, Perl5Compiler.DEFAULT_MASK | Perl5Compiler.READ_ONLY_MASK);
-			}
-			catch (final MalformedPatternException e) {
-				LOG.error("Internal error: Someone put in a faulty pattern.", e);
-				throw new InternalWikiException("Faulty camelcasepattern in TranslatorReader", e);
-			}
-			m_engine.setAttribute(CAMELCASE_PATTERN, m_camelCasePattern);
-		}
-
 		//  Set the properties.
 		final Properties props = m_engine.getWikiProperties();
 		final String cclinks = m_context.getPage().getAttribute(PROP_CAMELCASELINKS);
@@ -427,21 +411,10 @@ public class JSPWikiMarkupParser extends MarkupParser {
 	 *
 	 * @return The string from the current position to the end of line.
 	 */
-	// FIXME: Always returns an empty line, even if the stream is full.
 	private String peekAheadLine() throws IOException {
-		final String s = readUntilEOL().toString();
-		if (s.length() > PUSHBACK_BUFFER_SIZE) {
-			LOG.warn("Line is longer than maximum allowed size (" + PUSHBACK_BUFFER_SIZE + " characters.  Attempting to recover...");
-			pushBack(s.substring(0, PUSHBACK_BUFFER_SIZE - 1));
-		}
-		else {
-			try {
-				pushBack(s);
-			}
-			catch (final IOException e) {
-				LOG.warn("Pushback failed: the line is probably too long.  Attempting to recover.");
-			}
-		}
+		final int mark = m_in.getPosition();
+		final String s = m_in.readLine();
+		m_in.setPosition(mark);
 		return s;
 	}
 
@@ -462,9 +435,11 @@ public class JSPWikiMarkupParser extends MarkupParser {
 				// This is the heaviest part of parsing, and therefore we can do some optimization here.
 				// 1) Only when the length of the buffer is big enough, we try to do the match
 				if (m_camelCaseLinks && !m_isEscaping && buf.length() > 3) {
-					while (m_camelCaseMatcher.contains(buf, m_camelCasePattern)) {
-						final MatchResult result = m_camelCaseMatcher.getMatch();
-						final String firstPart = buf.substring(0, result.beginOffset(0));
+					// the region is moved past every match, so that ^ matches where the previous match ended
+					final Matcher result = m_camelCasePattern.matcher(buf);
+					int start = 0;
+					while (result.region(start, buf.length()).find()) {
+						final String firstPart = buf.substring(start, result.start());
 						String prefix = result.group(1);
 						if (prefix == null) {
 							prefix = "";
@@ -473,7 +448,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 						final String camelCase = result.group(2);
 						final String protocol = result.group(3);
 						String uri = protocol + result.group(4);
-						buf = buf.substring(result.endOffset(0));
+						start = result.end();
 
 						m_currentElement.addContent(firstPart);
 						//  Check if the user does not wish to do URL or WikiWord expansion
@@ -498,7 +473,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 							final char c = uri.charAt(uri.length() - 1);
 							if (c == '.' || c == ',') {
 								uri = uri.substring(0, uri.length() - 1);
-								buf = c + buf;
+								start--;
 							}
 							// System.out.println("URI match "+uri);
 							m_currentElement.addContent(prefix);
@@ -512,7 +487,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 							makeCamelCaseLink(camelCase);
 						}
 					}
-					m_currentElement.addContent(buf);
+					m_currentElement.addContent(buf.substring(start));
 				}
 				else {
 					//  No camelcase asked for, just add the elements
@@ -640,26 +615,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 	 * character will be left in the stream.
 	 */
 	private String readUntil(final String endChars) throws IOException {
-		final StringBuilder sb = new StringBuilder(80);
-		int ch = nextToken();
-		while (ch != -1) {
-			if (ch == '\\') {
-				ch = nextToken();
-				if (ch == -1) {
-					break;
-				}
-			}
-			else {
-				if (endChars.indexOf((char) ch) != -1) {
-					pushBack(ch);
-					break;
-				}
-			}
-			sb.append((char) ch);
-			ch = nextToken();
-		}
-
-		return sb.toString();
+		return m_in.readUntil(endChars);
 	}
 
 	/**
@@ -667,18 +623,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 	 * in the stream, returning then the result as a String.
 	 */
 	private String readWhile(final String endChars) throws IOException {
-		final StringBuilder sb = new StringBuilder(80);
-		int ch = nextToken();
-		while (ch != -1) {
-			if (endChars.indexOf((char) ch) == -1) {
-				pushBack(ch);
-				break;
-			}
-			sb.append((char) ch);
-			ch = nextToken();
-		}
-
-		return sb.toString();
+		return m_in.readWhile(endChars);
 	}
 
 	private JSPWikiMarkupParser m_cleanTranslator;
@@ -731,7 +676,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 		title = title.trim();
 		try {
 			final JSPWikiMarkupParser dtr = getCleanTranslator();
-			dtr.setInputReader(new StringReader(title));
+			dtr.resetInputReader(new StringReader(title));
 			final WikiDocument doc = dtr.parse();
 			doc.setContext(m_context);
 
@@ -888,7 +833,7 @@ public class JSPWikiMarkupParser extends MarkupParser {
 		if (m_wysiwygEditorMode) {
 			m_currentElement.addContent("[" + ruleLine + "]");
 		}
-		if (!m_parseAccessRules) {
+		if (!m_parseAccessRules && m_accessRules == null) {
 			return m_currentElement;
 		}
 		final Page page = m_context.getRealPage();
@@ -902,6 +847,11 @@ public class JSPWikiMarkupParser extends MarkupParser {
 			ruleLine = ruleLine.substring(0, ruleLine.length() - 1);
 		}
 
+		if (m_accessRules != null) {
+			m_accessRules.add(ruleLine);
+			return m_currentElement;
+		}
+
 		LOG.debug("page={}, ACL = {}", page.getName(), ruleLine);
 
 		try {
@@ -1120,17 +1070,6 @@ public class JSPWikiMarkupParser extends MarkupParser {
 		return m_currentElement;
 	}
 
-	/**
-	 * Pushes back any string that has been read.  It will obviously be pushed back in a reverse order.
-	 *
-	 * @since 2.1.77
-	 */
-	private void pushBack(final String s) throws IOException {
-		for (int i = s.length() - 1; i >= 0; i--) {
-			pushBack(s.charAt(i));
-		}
-	}
-
 	private Element handleBackslash() throws IOException {
 		final int ch = nextToken();
 		if (ch == '\\') {
@@ -1298,25 +1237,6 @@ public class JSPWikiMarkupParser extends MarkupParser {
 		return el;
 	}
 
-	/**
-	 * Reads the stream until the next EOL or EOF.  Note that it will also read the EOL from the stream.
-	 */
-	private StringBuilder readUntilEOL() throws IOException {
-		int ch;
-		final StringBuilder buf = new StringBuilder(256);
-		while (true) {
-			ch = nextToken();
-			if (ch == -1) {
-				break;
-			}
-			buf.append((char) ch);
-			if (ch == '\n') {
-				break;
-			}
-		}
-		return buf;
-	}
-
 	/**
 	 * Controls whether italic is restarted after a paragraph shift
 	 */
@@ -1808,17 +1728,14 @@ public class JSPWikiMarkupParser extends MarkupParser {
 					m_plainTextBuf.append("&amp;");
 				}
 				else if (ch == '~') {
-					String braces = readWhile("}");
-					if (braces.length() >= 3) {
+					final int mark = m_in.getPosition();
+					if (readWhile("}").length() >= 3) {
 						m_plainTextBuf.append("}}}");
-						braces = braces.substring(3);
+						m_in.setPosition(mark + 3);
 					}
 					else {
 						m_plainTextBuf.append((char) ch);
-					}
-
-					for (int i = braces.length() - 1; i >= 0; i--) {
-						pushBack(braces.charAt(i));
+						m_in.setPosition(mark);
 					}
 				}
 				else {
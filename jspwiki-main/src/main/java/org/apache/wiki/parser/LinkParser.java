@@ -19,12 +19,12 @@
 
 package org.apache.wiki.parser;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.StringTokenizer;
 import java.util.stream.IntStream;
 
 import org.slf4j.LoggerFactory;
@@ -237,12 +237,12 @@ public class LinkParser
             {
                 try
                 {
-                    final StringTokenizer tok = new StringTokenizer(attribs,DELIMS,true);
-                    while ( tok.hasMoreTokens() )
+                    final CharArrayCursor tok = new CharArrayCursor(attribs);
+                    while ( tok.hasMore() )
                     {
                         // get attribute name token
                         String token = tok.nextToken(DELIMS).trim();
-                        while ( isSpace(token) && tok.hasMoreTokens() )
+                        while ( isSpace(token) && tok.hasMore() )
                         {
                             // remove all whitespace
                             token = tok.nextToken(DELIMS).trim();
@@ -315,8 +315,8 @@ public class LinkParser
     }
 
 
-    private String require(final StringTokenizer tok, final String required )
-            throws ParseException, NoSuchElementException
+    private String require(final CharArrayCursor tok, final String required )
+            throws IOException, ParseException, NoSuchElementException
     {
         final String s = tok.nextToken(required);
         if( !s.equals(required) )
@@ -20,14 +20,14 @@ package org.apache.wiki.parser;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
-import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.Perl5Matcher;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.exceptions.ProviderException;
 
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 
 /**
@@ -38,6 +38,12 @@ import java.util.List;
 public class LinkParsingOperations {
 
 	private static final Logger LOG = LoggerFactory.getLogger( LinkParsingOperations.class );
+
+	/**
+	 *  Name of the context variable holding a {@code Set< String >} to which every page name whose existence is checked gets added,
+	 *  so the rendering cache knows which pages a parsed document depends on. Value is {@value}.
+	 */
+	public static final String VAR_LINK_DEPENDENCIES = "_LinkParsingOperations.dependencies";
 	protected final Context wikiContext;
 
 	/**
@@ -149,7 +155,7 @@ public class LinkParsingOperations {
 		if( isImageInlining ) {
 			link = link.toLowerCase();
 			for( final Pattern p : inlineImagePatterns ) {
-				if( new Perl5Matcher().matches( link, p ) ) {
+				if( p.matcher( link ).matches() ) {
 					return true;
 				}
 			}
@@ -168,8 +174,9 @@ public class LinkParsingOperations {
 		if( page == null || page.isEmpty() ) {
 			return false;
 		}
+		addDependency( page );
 		try {
-			return wikiContext.getEngine().getFinalPageName( page ) != null;
+			return addDependency( wikiContext.getEngine().getFinalPageName( page ) ) != null;
 		} catch( final ProviderException e ) {
 			LOG.warn( "TranslatorReader got a faulty page name [" + page + "]!", e );
 			return false;
@@ -187,14 +194,32 @@ public class LinkParsingOperations {
 		if( page == null || page.isEmpty() ) {
 			return null;
 		}
+		addDependency( page );
 		try {
-			return wikiContext.getEngine().getFinalPageName( page );
+			return addDependency( wikiContext.getEngine().getFinalPageName( page ) );
 		} catch( final ProviderException e ) {
 			LOG.warn( "TranslatorReader got a faulty page name [" + page + "]!", e );
 			return null;
 		}
 	}
 
+	/**
+	 * Records a page the rendered document depends on, both under the link text and under the name it resolves to, so that
+	 * saving the page flushes documents linking to it by a plural, another case or an alias.
+	 *
+	 * @param page link text or resolved page name, may be null.
+	 * @return the given page.
+	 */
+	String addDependency( final String page ) {
+		if( wikiContext != null && page != null ) {
+			final Set< String > dependencies = wikiContext.getVariable( VAR_LINK_DEPENDENCIES );
+			if( dependencies != null ) {
+				dependencies.add( page );
+			}
+		}
+		return page;
+	}
+
 	/**
 	 * Compares two Strings, and if one starts with the other, then returns 0. Otherwise just like the normal Comparator for strings.
 	 */
@@ -20,24 +20,21 @@ package org.apache.wiki.parser;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
-import org.apache.oro.text.GlobCompiler;
-import org.apache.oro.text.regex.MalformedPatternException;
-import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.PatternCompiler;
 import org.apache.wiki.StringTransmutator;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.util.RegexUtil;
 import org.apache.wiki.util.TextUtil;
 import org.jdom2.Element;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.PushbackReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 /**
  *   Provides an abstract class for the parser instances.
@@ -46,10 +43,14 @@ import java.util.List;
  */
 public abstract class MarkupParser {
 
-    /** Allow this many characters to be pushed back in the stream.  In effect, this limits the size of a single line.  */
+    /**
+     *  Allow this many characters to be pushed back in the stream.
+     *
+     *  @deprecated the whole document is held by {@link #m_in}, so there is no longer a limit to what can be pushed back.
+     */
+    @Deprecated
     protected static final int PUSHBACK_BUFFER_SIZE = 10*1024;
-    protected PushbackReader m_in;
-    private int m_pos = -1; // current position in reader stream
+    protected CharArrayCursor m_in;
 
     protected final Engine m_engine;
     protected final Context m_context;
@@ -63,6 +64,8 @@ public abstract class MarkupParser {
 
     protected boolean m_inlineImages = true;
     protected boolean m_parseAccessRules = true;
+    /** Collects the access rules while {@link #findAccessRules() looking for access rules only}, null otherwise. */
+    protected List< String > m_accessRules;
     /** Keeps image regexp Patterns */
     protected List< Pattern > m_inlineImagePatterns;
     protected final LinkParsingOperations m_linkParsingOperations;
@@ -150,20 +153,37 @@ public abstract class MarkupParser {
     }
 
     /**
-     *  Replaces the current input character stream with a new one.
+     *  Replaces the current input character stream with a new one. A {@link CharArrayCursor} is read directly, so that its character
+     *  array can be handed on to the next parser once this one is done with it; it must not be used elsewhere meanwhile.
      *
      *  @param in New source for input.  If null, this method does nothing.
      *  @return the old stream
      */
     public Reader setInputReader( final Reader in ) {
         final Reader old = m_in;
-        if( in != null ) {
-            m_in = new PushbackReader( new BufferedReader( in ), PUSHBACK_BUFFER_SIZE );
+        if( in instanceof CharArrayCursor ) {
+            m_in = ( CharArrayCursor )in;
+        } else if( in != null ) {
+            m_in = new CharArrayCursor( in );
         }
 
         return old;
     }
 
+    /**
+     *  Replaces the current input character stream with a new one, reusing the character array of the current stream. Unlike
+     *  {@link #setInputReader(Reader)}, the current stream is pointed at the new source, so it must not be used elsewhere.
+     *
+     *  @param in New source for input.  If null, the current stream is emptied.
+     */
+    protected void resetInputReader( final Reader in ) {
+        if( m_in != null ) {
+            m_in.setSource( in );
+        } else {
+            m_in = new CharArrayCursor( in );
+        }
+    }
+
     /**
      *  Adds a hook for processing link texts.  This hook is called when the link text is written into the output stream, and
      *  you may use it to modify the text.  It does not affect the actual link, only the user-visible text.
@@ -231,6 +251,35 @@ public abstract class MarkupParser {
         return m_parseAccessRules;
     }
 
+    /**
+     *  Parses the markup for its access rules only. The rules are neither applied to the page nor checked, and whatever else the
+     *  markup contains may be skipped, so the parser must not be used to {@link #parse()} the same markup afterwards.
+     *
+     *  @return the text of each access rule without its brackets, for instance {@code ALLOW edit Charlie, Herman}, in the order
+     *          they appear in.
+     *  @throws IOException If the parsing fails.
+     *  @since 2.12.8
+     */
+    public List< String > findAccessRules() throws IOException {
+        m_accessRules = new ArrayList<>();
+        try {
+            parse();
+            return m_accessRules;
+        } finally {
+            m_accessRules = null;
+        }
+    }
+
+    /**
+     *  Tells whether the parser is looking for the access rules of the markup only, see {@link #findAccessRules()}.
+     *
+     *  @return true while looking for access rules only.
+     *  @since 2.12.8
+     */
+    public boolean isFindingAccessRules() {
+        return m_accessRules != null;
+    }
+
     /**
      *  Use this to turn on or off image inlining.
      *
@@ -249,8 +298,6 @@ public abstract class MarkupParser {
     }
 
     protected final void initInlineImagePatterns() {
-		final PatternCompiler compiler = new GlobCompiler();
-
         //  We cache compiled patterns in the engine, since their creation is really expensive
         List< Pattern > compiledpatterns = m_engine.getAttribute( INLINE_IMAGE_PATTERNS );
 
@@ -261,8 +308,8 @@ public abstract class MarkupParser {
             //  Make them into Regexp Patterns.  Unknown patterns are ignored.
             for( final String pattern : ptrns ) {
                 try {
-                    compiledpatterns.add( compiler.compile( pattern, GlobCompiler.DEFAULT_MASK | GlobCompiler.READ_ONLY_MASK ) );
-                } catch( final MalformedPatternException e ) {
+                    compiledpatterns.add( RegexUtil.compileGlob( pattern ) );
+                } catch( final PatternSyntaxException e ) {
                     LOG.error( "Malformed pattern [" + pattern + "] in properties: ", e );
                 }
             }
@@ -295,7 +342,7 @@ public abstract class MarkupParser {
      */
     public int getPosition()
     {
-        return m_pos;
+        return m_in.getPosition() - 1;
     }
 
     /**
@@ -306,8 +353,6 @@ public abstract class MarkupParser {
      * @throws NullPointerException If you have not yet created an input document.
      */
     protected final int nextToken() throws IOException, NullPointerException {
-        // if( m_in == null ) return -1;
-        m_pos++;
         return m_in.read();
     }
 
@@ -319,7 +364,6 @@ public abstract class MarkupParser {
      */
     protected void pushBack( final int c ) throws IOException {
         if( c != -1 && m_in != null ) {
-            m_pos--;
             m_in.unread( c );
         }
     }
@@ -20,9 +20,6 @@ package org.apache.wiki.parser;
 
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
-import org.apache.oro.text.regex.MatchResult;
-import org.apache.oro.text.regex.PatternMatcher;
-import org.apache.oro.text.regex.Perl5Matcher;
 import org.apache.wiki.InternalWikiException;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
@@ -41,6 +38,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.ResourceBundle;
+import java.util.regex.Matcher;
 
 
 /**
@@ -213,14 +211,12 @@ public class PluginContent extends Text implements PluginElement {
      * @since 2.10.0
      */
     public static PluginContent parsePluginLine( final Context context, final String commandline, final int pos ) throws PluginException {
-        final PatternMatcher matcher = new Perl5Matcher();
-
         try {
             final PluginManager pm = context.getEngine().getManager( PluginManager.class );
-            if( matcher.contains( commandline, pm.getPluginPattern() ) ) {
-                final MatchResult res = matcher.getMatch();
+            final Matcher res = pm.getPluginPattern().matcher( commandline );
+            if( res.find() ) {
                 final String plugin = res.group( 2 );
-                final String args = commandline.substring( res.endOffset( 0 ),
+                final String args = commandline.substring( res.end(),
                                                            commandline.length() - ( commandline.charAt( commandline.length() - 1 ) == '}' ? 1 : 0 ) );
                 final Map< String, String > arglist = pm.parseArgs( args );
 
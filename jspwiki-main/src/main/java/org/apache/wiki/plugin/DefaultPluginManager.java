@@ -23,14 +23,6 @@ import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
-import org.apache.oro.text.regex.MalformedPatternException;
-import org.apache.oro.text.regex.MatchResult;
-import org.apache.oro.text.regex.Pattern;
-import org.apache.oro.text.regex.PatternCompiler;
-import org.apache.oro.text.regex.PatternMatcher;
-import org.apache.oro.text.regex.Perl5Compiler;
-import org.apache.oro.text.regex.Perl5Matcher;
-import org.apache.wiki.InternalWikiException;
 import org.apache.wiki.ajax.WikiAjaxDispatcherServlet;
 import org.apache.wiki.ajax.WikiAjaxServlet;
 import org.apache.wiki.api.core.Context;
@@ -65,6 +57,8 @@ import java.util.NoSuchElementException;
 import java.util.Properties;
 import java.util.ResourceBundle;
 import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  *  Manages plugin classes.  There exists a single instance of PluginManager
@@ -159,13 +153,13 @@ import java.util.StringTokenizer;
  */
 public class DefaultPluginManager extends BaseModuleManager implements PluginManager {
 
-    private static final String PLUGIN_INSERT_PATTERN = "\\{?(INSERT)?\\s*([\\w\\._]+)[ \\t]*(WHERE)?[ \\t]*";
+    /** Unicode aware, as the Perl5 regular expression used to be; \\w included letters and digits of any script. */
+    private static final Pattern PLUGIN_INSERT_PATTERN = Pattern.compile( "\\{?(INSERT)?\\p{javaWhitespace}*([\\p{javaLetterOrDigit}._]+)[ \\t]*(WHERE)?[ \\t]*" );
     private static final Logger LOG = LoggerFactory.getLogger( DefaultPluginManager.class );
     private static final String DEFAULT_FORMS_PACKAGE = "org.apache.wiki.forms";
 
     private final ArrayList< String > m_searchPath = new ArrayList<>();
     private final ArrayList< String > m_externalJars = new ArrayList<>();
-    private final Pattern m_pluginPattern;
     private boolean m_pluginsEnabled = true;
 
     /** Keeps a list of all known plugin classes. */
@@ -200,14 +194,6 @@ public class DefaultPluginManager extends BaseModuleManager implements PluginMan
         //  The default packages are always added.
         m_searchPath.add( DEFAULT_PACKAGE );
         m_searchPath.add( DEFAULT_FORMS_PACKAGE );
-
-        final PatternCompiler compiler = new Perl5Compiler();
-        try {
-            m_pluginPattern = compiler.compile( PLUGIN_INSERT_PATTERN );
-        } catch( final MalformedPatternException e ) {
-			LOG.error( "Internal error: someone messed with pluginmanager patterns.", e );
-            throw new InternalWikiException( "PluginManager patterns are broken" , e );
-        }
     }
 
     /** {@inheritDoc} */
@@ -225,7 +211,7 @@ public class DefaultPluginManager extends BaseModuleManager implements PluginMan
     /** {@inheritDoc} */
     @Override
     public Pattern getPluginPattern() {
-		return m_pluginPattern;
+		return PLUGIN_INSERT_PATTERN;
 	}
 
 	/**
@@ -384,14 +370,13 @@ public class DefaultPluginManager extends BaseModuleManager implements PluginMan
         }
 
         final ResourceBundle rb = Preferences.getBundle( context, Plugin.CORE_PLUGINS_RESOURCEBUNDLE );
-        final PatternMatcher matcher = new Perl5Matcher();
+        final Matcher res = PLUGIN_INSERT_PATTERN.matcher( commandline );
 
         try {
-            if( matcher.contains( commandline, m_pluginPattern ) ) {
-                final MatchResult res = matcher.getMatch();
+            if( res.find() ) {
                 final String plugin = res.group( 2 );
                 final int endIndex = commandline.length() - ( commandline.charAt( commandline.length() - 1 ) == '}' ? 1 : 0 );
-                final String args = commandline.substring( res.endOffset( 0 ), endIndex );
+                final String args = commandline.substring( res.end(), endIndex );
                 final Map< String, String > arglist = parseArgs( args );
                 return execute( context, plugin, arglist );
             }
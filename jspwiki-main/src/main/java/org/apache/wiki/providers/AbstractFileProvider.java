@@ -102,6 +102,12 @@ public abstract class AbstractFileProvider implements PageProvider {
 	 */
 	public static final String PROP_PAGEDIR = "jspwiki.fileSystemProvider.pageDir";
 
+	/**
+	 * Name of the property which, if true, makes the provider watch the page directory for page files changed by other
+	 * programs, so that the page list picks up changes to existing files, too. Defaults to false.
+	 */
+	public static final String PROP_WATCH_PAGEDIR = "jspwiki.fileSystemProvider.watchPageDir";
+
 	/**
 	 * All files should have this extension to be recognized as JSPWiki files. We default to .txt, because that is
 	 * probably easiest for
@@ -116,6 +122,8 @@ public abstract class AbstractFileProvider implements PageProvider {
 
 	private boolean m_windowsHackNeeded;
 
+	private volatile PageDirectoryIndex m_pageIndex;
+
 	/**
 	 * {@inheritDoc}
 	 *
@@ -154,9 +162,52 @@ public abstract class AbstractFileProvider implements PageProvider {
 		MAX_PROPKEYLENGTH = TextUtil.getIntegerProperty(properties, PROP_CUSTOMPROP_MAXKEYLENGTH, DEFAULT_MAX_PROPKEYLENGTH);
 		MAX_PROPVALUELENGTH = TextUtil.getIntegerProperty(properties, PROP_CUSTOMPROP_MAXVALUELENGTH, DEFAULT_MAX_PROPVALUELENGTH);
 
+		if (TextUtil.getBooleanProperty(properties, PROP_WATCH_PAGEDIR, false)) {
+			try {
+				pageIndex().watch(engine);
+			}
+			catch (final IOException | UnsupportedOperationException e) {
+				LOG.warn("Unable to watch page directory '" + m_pageDirectory + "', external changes to existing pages will not be noticed", e);
+			}
+		}
+
 		LOG.info("Wikipages are read from '" + m_pageDirectory + "'");
 	}
 
+	/**
+	 * Returns the index of the page files in the page directory.
+	 */
+	PageDirectoryIndex pageIndex() {
+		final File dir = new File(m_pageDirectory);
+		PageDirectoryIndex index = m_pageIndex;
+		if (index == null || !index.getDirectory().equals(dir)) {
+			synchronized (this) {
+				index = m_pageIndex;
+				if (index == null || !index.getDirectory().equals(dir)) {
+					if (index != null) {
+						index.close();
+					}
+					index = new PageDirectoryIndex(dir, this::unmangleName);
+					m_pageIndex = index;
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Tells the page index that a page file has been written, deleted or moved away. Subclasses which change page files
+	 * themselves should call this afterwards.
+	 *
+	 * @param file the page file.
+	 */
+	protected void pageFileChanged(final File file) {
+		final PageDirectoryIndex index = m_pageIndex;
+		if (index != null) {
+			index.update(file);
+		}
+	}
+
 	public static String get_m_pageDirectory(Properties properties) {
 		return TextUtil.getCanonicalFilePathProperty(properties, PROP_PAGEDIR,
 				System.getProperty("user.home") + File.separator + "jspwiki-files");
@@ -300,6 +351,7 @@ public abstract class AbstractFileProvider implements PageProvider {
 		catch (final IOException e) {
 			LOG.error("Saving failed", e);
 		}
+		pageFileChanged(file);
 	}
 
 	/**
@@ -308,23 +360,20 @@ public abstract class AbstractFileProvider implements PageProvider {
 	@Override
 	public Collection<Page> getAllPages() throws ProviderException {
 		LOG.debug("Getting all pages...");
-		final ArrayList<Page> set = new ArrayList<>();
-		final File wikipagedir = new File(m_pageDirectory);
-		final File[] wikipages = wikipagedir.listFiles(new WikiFileFilter());
+		final Collection<PageDirectoryIndex.Entry> wikipages = pageIndex().entries();
 
 		if (wikipages == null) {
 			LOG.error("Wikipages directory '" + m_pageDirectory + "' does not exist! Please check " + PROP_PAGEDIR + " in jspwiki.properties.");
 			throw new ProviderException("Page directory does not exist");
 		}
 
-		for (final File wikipage : wikipages) {
-			final String wikiname = wikipage.getName();
-			final int cutpoint = wikiname.lastIndexOf(FILE_EXT);
-			final Page page = getPageInfo(unmangleName(wikiname.substring(0, cutpoint)), PageProvider.LATEST_VERSION);
+		final ArrayList<Page> set = new ArrayList<>(wikipages.size());
+		for (final PageDirectoryIndex.Entry wikipage : wikipages) {
+			final Page page = getPageInfo(wikipage.pageName, PageProvider.LATEST_VERSION);
 			if (page == null) {
 				// This should not really happen.
 				// FIXME: Should we throw an exception here?
-				LOG.error("Page " + wikiname + " was found in directory listing, but could not be located individually.");
+				LOG.error("Page " + wikipage.file.getName() + " was found in directory listing, but could not be located individually.");
 				continue;
 			}
 
@@ -350,9 +399,7 @@ public abstract class AbstractFileProvider implements PageProvider {
 	 */
 	@Override
 	public int getPageCount() {
-		final File wikipagedir = new File(m_pageDirectory);
-		final File[] wikipages = wikipagedir.listFiles(new WikiFileFilter());
-		return wikipages != null ? wikipages.length : 0;
+		return pageIndex().size();
 	}
 
 	/**
@@ -363,17 +410,15 @@ public abstract class AbstractFileProvider implements PageProvider {
 	 */
 	@Override
 	public Collection<SearchResult> findPages(final QueryItem[] query) {
-		final File wikipagedir = new File(m_pageDirectory);
 		final TreeSet<SearchResult> res = new TreeSet<>(new SearchResultComparator());
 		final SearchMatcher matcher = new SearchMatcher(m_engine, query);
-		final File[] wikipages = wikipagedir.listFiles(new WikiFileFilter());
+		final Collection<PageDirectoryIndex.Entry> wikipages = pageIndex().entries();
 
 		if (wikipages != null) {
-			for (final File wikipage : wikipages) {
-				final String filename = wikipage.getName();
-				final int cutpoint = filename.lastIndexOf(FILE_EXT);
-				final String wikiname = unmangleName(filename.substring(0, cutpoint));
-				try (final InputStream input = Files.newInputStream(wikipage.toPath())) {
+			for (final PageDirectoryIndex.Entry wikipage : wikipages) {
+				final String filename = wikipage.file.getName();
+				final String wikiname = wikipage.pageName;
+				try (final InputStream input = Files.newInputStream(wikipage.file.toPath())) {
 					final String pagetext = FileUtil.readContents(input, m_encoding);
 					final SearchResult comparison = matcher.matchPageContent(wikiname, pagetext);
 					if (comparison != null) {
@@ -437,6 +482,7 @@ public abstract class AbstractFileProvider implements PageProvider {
 		if (version == WikiProvider.LATEST_VERSION) {
 			final File f = findPage(page.getName());
 			f.delete();
+			pageFileChanged(f);
 		}
 	}
 
@@ -454,6 +500,9 @@ public abstract class AbstractFileProvider implements PageProvider {
 		catch (IOException e) {
 			throw new ProviderException(e.getMessage(), e);
 		}
+		finally {
+			pageFileChanged(f);
+		}
 	}
 
 	/**
@@ -42,7 +42,9 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.DateTimeException;
 import java.time.Instant;
 import java.time.ZoneId;
@@ -51,8 +53,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -86,6 +90,12 @@ import java.util.regex.Pattern;
  * <UL>
  * <LI>1.author = author name for version 1 (etc)
  * </UL>
+ * <p>
+ * Locking is two-level: operations on a single attachment hold the read lock of {@link #attachmentLock} plus the
+ * lock of the stripe the attachment hashes to, so unrelated attachments never wait for each other. Operations
+ * that restructure whole page directories take the write lock of {@link #attachmentLock}. Uploads are streamed
+ * into a temporary file in the {@value #UPLOADDIR} directory before any lock is taken, only the version allocation
+ * and the property update are done while holding the stripe.
  */
 public class BasicAttachmentProvider implements AttachmentProvider {
 
@@ -118,6 +128,12 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 	 */
 	public static final String ATTDIR_EXTENSION = "-dir";
 
+	/**
+	 * The directory under the storage root uploads are streamed into before they are moved into their attachment
+	 * directory. Whatever is left in there, e.g. after a crash, is removed on startup.
+	 */
+	public static final String UPLOADDIR = "UPLOAD";
+
 	/**
 	 * Flag, stored in the shared {@link VersioningFileProvider#VERSIONING_PROPERTIES_FILE versioning.properties}
 	 * file, that documents that the one-time attachment creation-date batch has run for all attachments. It uses a
@@ -127,8 +143,22 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 
 	private static final Logger LOG = LoggerFactory.getLogger(BasicAttachmentProvider.class);
 
+	/** Number of lock stripes for single attachments. */
+	private static final int LOCK_STRIPES = 64;
+
+	/**
+	 * Guards the page directory structure. Read-locked by everything that works on existing page directories,
+	 * write-locked when whole page directories are moved.
+	 */
 	protected final ReentrantReadWriteLock attachmentLock = new ReentrantReadWriteLock();
 
+	private final ReentrantReadWriteLock[] m_attachmentStripes = new ReentrantReadWriteLock[LOCK_STRIPES];
+	{
+		for (int i = 0; i < LOCK_STRIPES; i++) {
+			m_attachmentStripes[i] = new ReentrantReadWriteLock();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -162,6 +192,15 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			throw new IOException("Your attachment storage points to a file, not a directory: '" + m_storageDir + "'");
 		}
 
+		// remove uploads interrupted by a crash or a shutdown
+		final File uploadDir = new File(f, UPLOADDIR);
+		if (uploadDir.exists()) {
+			FileUtils.cleanDirectory(uploadDir);
+		}
+		else if (!uploadDir.mkdirs()) {
+			throw new IOException("Could not create the upload directory '" + uploadDir + "'");
+		}
+
 		// Persist creation dates for all attachments, synchronously and before the CachingAttachmentProvider on
 		// top of us serves (and caches) anything - same reasoning as for pages in VersioningFileProvider: the
 		// batch writes attachment.properties directly on disk, which the cache could not pick up afterwards.
@@ -334,52 +373,117 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 		return new File(findAttachmentDir(att), PROPERTY_FILE);
 	}
 
+	/**
+	 * Returns the lock stripe of an attachment. Names are compared case-insensitively, as attachment directories
+	 * are also looked up case-insensitively.
+	 */
+	private ReentrantReadWriteLock stripe(final String parentName, final String fileName) {
+		final int hash = (parentName + '/' + fileName).toLowerCase(Locale.ROOT).hashCode();
+		return m_attachmentStripes[Math.floorMod(hash ^ (hash >>> 16), LOCK_STRIPES)];
+	}
+
+	/**
+	 * Locks a single attachment for reading. Release with {@link #unlock(Lock)}.
+	 *
+	 * @return the acquired stripe lock.
+	 */
+	protected Lock lockForReading(final String parentName, final String fileName) {
+		attachmentLock.readLock().lock();
+		final Lock lock = stripe(parentName, fileName).readLock();
+		lock.lock();
+		return lock;
+	}
+
+	/**
+	 * Locks a single attachment for writing. Release with {@link #unlock(Lock)}.
+	 *
+	 * @return the acquired stripe lock.
+	 */
+	protected Lock lockForWriting(final String parentName, final String fileName) {
+		attachmentLock.readLock().lock();
+		final Lock lock = stripe(parentName, fileName).writeLock();
+		lock.lock();
+		return lock;
+	}
+
+	/**
+	 * Releases a lock acquired by {@link #lockForReading(String, String)} or {@link #lockForWriting(String, String)}.
+	 */
+	protected void unlock(final Lock lock) {
+		lock.unlock();
+		attachmentLock.readLock().unlock();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void putAttachmentData(final Attachment att, final InputStream data) throws ProviderException, IOException {
-		attachmentLock.writeLock().lock();
+		// stream the upload without holding any lock, so a slow upload does not block other attachments
+		final File upload = Files.createTempFile(new File(m_storageDir, UPLOADDIR).toPath(), "upload-", ".tmp").toFile();
 		try {
-			final File attDir = findAttachmentDir(att);
-
-			if (!attDir.exists()) {
-				attDir.mkdirs();
-			}
-			final int latestVersion = findLatestVersion(att);
-			final int versionNumber = latestVersion + 1;
-			final String[] pages = attDir.list(new AttachmentVersionFilter());
-			// make sure to use the right extension in the correct case, independent of file system case-sensitivity settings
-			String extension = pages == null || pages.length == 0 ? getFileExtension(att.getFileName()) : getFileExtension(pages[pages.length - 1]);
-			final File newfile = new File(attDir, versionNumber + "." + extension);
-			try (final OutputStream out = Files.newOutputStream(newfile.toPath())) {
-				LOG.debug("Uploading attachment " + att.getFileName() + " to page " + att.getParentName());
-				LOG.debug("Saving attachment contents to " + newfile.getAbsolutePath());
+			LOG.debug("Uploading attachment " + att.getFileName() + " to page " + att.getParentName());
+			try (final OutputStream out = Files.newOutputStream(upload.toPath())) {
 				FileUtil.copyContents(data, out);
+			}
+			catch (final IOException e) {
+				LOG.error("Could not save attachment data: ", e);
+				throw (IOException) e.fillInStackTrace();
+			}
 
-				final Properties props = getPageProperties(att);
+			final Lock lock = lockForWriting(att.getParentName(), att.getFileName());
+			try {
+				final File attDir = findAttachmentDir(att);
 
-				String author = att.getAuthor();
-				if (author == null) {
-					author = "unknown"; // FIXME: Should be localized, but cannot due to missing WikiContext
+				if (!attDir.exists()) {
+					attDir.mkdirs();
 				}
-				props.setProperty(authorKey(versionNumber), author);
-				addVersionDate(ZonedDateTime.now(), versionNumber, props);
+				final int latestVersion = findLatestVersion(att);
+				final int versionNumber = latestVersion + 1;
+				final String[] pages = attDir.list(new AttachmentVersionFilter());
+				// make sure to use the right extension in the correct case, independent of file system case-sensitivity settings
+				String extension = pages == null || pages.length == 0 ? getFileExtension(att.getFileName()) : getFileExtension(pages[pages.length - 1]);
+				final File newfile = new File(attDir, versionNumber + "." + extension);
+				try {
+					LOG.debug("Saving attachment contents to " + newfile.getAbsolutePath());
+					moveFile(upload, newfile);
 
-				final String changeNote = att.getAttribute(Page.CHANGENOTE);
-				if (changeNote != null) {
-					props.setProperty(changeNoteKey(versionNumber), changeNote);
-				}
+					final Properties props = getPageProperties(att);
+
+					String author = att.getAuthor();
+					if (author == null) {
+						author = "unknown"; // FIXME: Should be localized, but cannot due to missing WikiContext
+					}
+					props.setProperty(authorKey(versionNumber), author);
+					addVersionDate(ZonedDateTime.now(), versionNumber, props);
+
+					final String changeNote = att.getAttribute(Page.CHANGENOTE);
+					if (changeNote != null) {
+						props.setProperty(changeNoteKey(versionNumber), changeNote);
+					}
 
-				putPageProperties(att, props);
+					putPageProperties(att, props);
+				}
+				catch (final IOException e) {
+					LOG.error("Could not save attachment data: ", e);
+					throw (IOException) e.fillInStackTrace();
+				}
 			}
-			catch (final IOException e) {
-				LOG.error("Could not save attachment data: ", e);
-				throw (IOException) e.fillInStackTrace();
+			finally {
+				unlock(lock);
 			}
 		}
 		finally {
-			attachmentLock.writeLock().unlock();
+			Files.deleteIfExists(upload.toPath());
+		}
+	}
+
+	private static void moveFile(final File from, final File to) throws IOException {
+		try {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch (final AtomicMoveNotSupportedException e) {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
 		}
 	}
 
@@ -587,7 +691,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 	 */
 	@Override
 	public InputStream getAttachmentData(final Attachment att) throws IOException, ProviderException {
-		attachmentLock.readLock().lock();
+		final Lock lock = lockForReading(att.getParentName(), att.getFileName());
 		try {
 			final File attDir = findAttachmentDir(att);
 			try {
@@ -600,7 +704,24 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			}
 		}
 		finally {
-			attachmentLock.readLock().unlock();
+			unlock(lock);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public File getAttachmentFile(final Attachment att) throws ProviderException {
+		final Lock lock = lockForReading(att.getParentName(), att.getFileName());
+		try {
+			return findFile(findAttachmentDir(att), att);
+		}
+		catch (final FileNotFoundException e) {
+			return null;
+		}
+		finally {
+			unlock(lock);
 		}
 	}
 
@@ -619,25 +740,19 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 				for (final String attachment : attachments) {
 					final File f = new File(dir, attachment);
 					if (f.isDirectory()) {
-						final File[] files = f.listFiles();
-						if (files == null || files.length == 0 || (files.length == 1 && PROPERTY_FILE.equals(files[0].getName()))) {
-							// can happen with git synced wiki contents, just clean up
-							LOG.warn("Cleaning up empty attachment folder: {}", f.getPath());
-							try {
-								FileUtils.deleteDirectory(f);
-							} catch (IOException e) {
-								LOG.error("Failed to delete attachment directory: {}", f.getPath(), e);
-							}
-							continue;
-						}
 						String attachmentName = unmangleName(attachment);
 
 						//  Is it a new-stylea attachment directory?  If yes, we'll just deduce the name.  If not, however,
 						//  we'll check if there's a suitable property file in the directory.
-						if (attachmentName.endsWith(ATTDIR_EXTENSION)) {
+						final boolean newStyle = attachmentName.endsWith(ATTDIR_EXTENSION);
+						if (newStyle) {
 							attachmentName = attachmentName.substring(0, attachmentName.length() - ATTDIR_EXTENSION.length());
 						}
-						else {
+						if (isEmpty(f)) {
+							// can happen with git synced wiki contents, cleaned up when the attachment or its page changes
+							continue;
+						}
+						if (!newStyle) {
 							final File propFile = new File(f, PROPERTY_FILE);
 							if (!propFile.exists()) {
 								//  This is not obviously a JSPWiki attachment, so let's just skip it.
@@ -664,6 +779,29 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 		}
 	}
 
+	/**
+	 * Tells whether an attachment directory has no versions in it, which can happen with git synced wiki contents.
+	 */
+	private static boolean isEmpty(final File dir) {
+		final File[] files = dir.listFiles();
+		return files == null || files.length == 0 || (files.length == 1 && PROPERTY_FILE.equals(files[0].getName()));
+	}
+
+	/**
+	 * Removes an attachment directory without any versions in it. The caller holds the write lock of the
+	 * attachment, or of all attachments.
+	 */
+	private static void deleteIfEmpty(final File dir) {
+		if (dir.isDirectory() && isEmpty(dir)) {
+			LOG.warn("Cleaning up empty attachment folder: {}", dir.getPath());
+			try {
+				FileUtils.deleteDirectory(dir);
+			} catch (IOException e) {
+				LOG.error("Failed to delete attachment directory: {}", dir.getPath(), e);
+			}
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -716,7 +854,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 	 */
 	@Override
 	public Attachment getAttachmentInfo(final Page page, final String name, int version) throws ProviderException {
-		attachmentLock.readLock().lock();
+		final Lock lock = lockForReading(page.getName(), name);
 		try {
 			final Attachment att = new org.apache.wiki.attachment.Attachment(m_engine, page.getName(), name);
 			final File dir = findAttachmentDir(att);
@@ -766,7 +904,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			return att;
 		}
 		finally {
-			attachmentLock.readLock().unlock();
+			unlock(lock);
 		}
 	}
 
@@ -797,7 +935,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 	 */
 	@Override
 	public List<Attachment> getVersionHistory(final Attachment att) {
-		attachmentLock.readLock().lock();
+		final Lock lock = lockForReading(att.getParentName(), att.getFileName());
 		try {
 			final ArrayList<Attachment> list = new ArrayList<>();
 			try {
@@ -818,7 +956,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			return list;
 		}
 		finally {
-			attachmentLock.readLock().unlock();
+			unlock(lock);
 		}
 	}
 
@@ -827,7 +965,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 	 */
 	@Override
 	public void deleteVersion(final Attachment att) throws ProviderException {
-		attachmentLock.writeLock().lock();
+		final Lock lock = lockForWriting(att.getParentName(), att.getFileName());
 		try {
 			File attDir = findAttachmentDir(att);
 
@@ -849,9 +987,10 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			catch (IOException e) {
 				throw new ProviderException("Could not delete attachment: " + att.getName() + ", version: " + att.getVersion(), e);
 			}
+			deleteIfEmpty(attDir);
 		}
 		finally {
-			attachmentLock.writeLock().unlock();
+			unlock(lock);
 		}
 	}
 
@@ -860,7 +999,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 	 */
 	@Override
 	public void deleteAttachment(final Attachment att) throws ProviderException {
-		attachmentLock.writeLock().lock();
+		final Lock lock = lockForWriting(att.getParentName(), att.getFileName());
 		try {
 			File dir = findAttachmentDir(att);
 			String[] files = dir.list();
@@ -876,7 +1015,7 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			}
 		}
 		finally {
-			attachmentLock.writeLock().unlock();
+			unlock(lock);
 		}
 	}
 
@@ -925,6 +1064,12 @@ public class BasicAttachmentProvider implements AttachmentProvider {
 			else {
 				// destDir.getParentFile().mkdir();
 				srcDir.renameTo(destDir);
+				final File[] attDirs = destDir.listFiles(File::isDirectory);
+				if (attDirs != null) {
+					for (final File attDir : attDirs) {
+						deleteIfEmpty(attDir);
+					}
+				}
 			}
 		}
 		finally {
@@ -38,6 +38,7 @@ import org.apache.wiki.cache.CachingManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -117,6 +118,14 @@ public class CachingAttachmentProvider implements AttachmentProvider {
         return provider.getAttachmentData( att );
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public File getAttachmentFile( final Attachment att ) throws ProviderException {
+        return provider.getAttachmentFile( att );
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -18,9 +18,6 @@
  */
 package org.apache.wiki.providers;
 
-import net.sf.ehcache.Ehcache;
-import net.sf.ehcache.Element;
-import net.sf.ehcache.event.CacheEventListenerAdapter;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
@@ -43,11 +40,20 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 
 /**
@@ -59,6 +65,16 @@ import java.util.concurrent.atomic.AtomicLong;
  *  Heavily based on ideas by Chris Brooking.
  *  <p>
  *  Since 2.10 uses the Ehcache library.
+ *  <p>
+ *  Since 2.12.8 the latest version of every page known is kept in an index, so that listing all pages needs the real provider only once
+ *  every {@value #PROP_PAGE_INDEX_TTL} seconds, after which pages are only looked up one by one if they are not in the index or their
+ *  entry has expired. A page found changed when its entry is looked up again is dropped from the page text cache. Page text is kept in
+ *  a {@link PageTextCache}, which is bounded by the size of the text: {@value #PROP_TEXT_CACHE_SIZE} kilobytes on the heap, plus
+ *  optionally {@value #PROP_COMPRESSED_TEXT_CACHE_SIZE} kilobytes of compressed text outside of the heap.
+ *  <p>
+ *  Changes to a page lock the stripe its name hashes to, so that the caches of a page are refreshed in the order its changes are
+ *  made, while changes to other pages go ahead. Listing all pages from the real provider for the first time waits for the changes
+ *  under way, so none of them is lost between the listing and filling the index.
  *
  *  @since 1.6.4
  */
@@ -66,12 +82,48 @@ public class CachingProvider implements PageProvider {
 
 	private static final Logger LOG = LoggerFactory.getLogger( CachingProvider.class );
 
+    /** Maximum size of the page text kept on the heap, in kilobytes. Value is {@value}. */
+    public static final String PROP_TEXT_CACHE_SIZE = "jspwiki.cachingProvider.textCacheSizeKB";
+
+    /** Maximum size of the compressed page text kept outside of the heap, in kilobytes; 0 disables it. Value is {@value}. */
+    public static final String PROP_COMPRESSED_TEXT_CACHE_SIZE = "jspwiki.cachingProvider.compressedTextCacheSizeKB";
+
+    /** Seconds until the index entry of a page, and the listing of all pages, is looked up again; 0 never expires them. Value is {@value}. */
+    public static final String PROP_PAGE_INDEX_TTL = "jspwiki.cachingProvider.pageIndexTTL";
+
+    private static final int DEFAULT_TEXT_CACHE_SIZE = 32 * 1024;
+    private static final int DEFAULT_PAGE_INDEX_TTL = 60 * 60;
+    private static final int LOCK_STRIPES = 64;
+
     private CachingManager cachingManager;
     private PageProvider provider;
     private Engine engine;
+    private PageTextCache textCache;
+    private long pageIndexTTL;
+
+    /** The latest version of a page, together with the time it has been looked up. */
+    private static final class Indexed {
+
+        private final Page page;
+        private final long indexed;
+
+        Indexed( final Page page ) {
+            this.page = page;
+            this.indexed = System.currentTimeMillis();
+        }
+    }
 
+    /** The latest version of every page known, by name. */
+    private final ConcurrentMap< String, Indexed > pageIndex = new ConcurrentHashMap<>();
+    /** Whether {@link #pageIndex} holds all pages of the real provider. */
     private volatile boolean allRequested;
-    private final AtomicLong pages = new AtomicLong( 0L );
+    /** When all pages have been listed for {@link #pageIndex}. */
+    private volatile long allRequestedAt;
+    private final AtomicLong indexHits = new AtomicLong();
+    private final AtomicLong indexMisses = new AtomicLong();
+    /** Shared by page changes, held exclusively while filling {@link #pageIndex} with all pages. */
+    private final ReentrantReadWriteLock changes = new ReentrantReadWriteLock();
+    private final ReentrantLock[] pageStripes = newStripes();
 
     /**
      *  {@inheritDoc}
@@ -83,12 +135,10 @@ public class CachingProvider implements PageProvider {
         // engine is used for getting the search engine
         this.engine = engine;
         cachingManager = this.engine.getManager( CachingManager.class );
-        cachingManager.registerListener(  CachingManager.CACHE_PAGES, new CacheEventListenerAdapter() {
-            @Override
-            public void notifyElementExpired(Ehcache cache, Element element) {
-                allRequested = false; // signal that the cache no longer contains all elements...
-            }
-        });
+        textCache = new PageTextCache( 1024L * TextUtil.getIntegerProperty( properties, PROP_TEXT_CACHE_SIZE, DEFAULT_TEXT_CACHE_SIZE ),
+                                       1024L * TextUtil.getIntegerProperty( properties, PROP_COMPRESSED_TEXT_CACHE_SIZE, 0 ) );
+        pageIndexTTL = 1000L * TextUtil.getIntegerProperty( properties, PROP_PAGE_INDEX_TTL, DEFAULT_PAGE_INDEX_TTL );
+        pageIndex.clear();
         allRequested = false;
 
         //  Find and initialize real provider.
@@ -114,7 +164,51 @@ public class CachingProvider implements PageProvider {
         if( name == null ) {
             return null;
         }
-        return cachingManager.get( CachingManager.CACHE_PAGES, name, () -> provider.getPageInfo( name, PageProvider.LATEST_VERSION ) );
+        final Indexed cached = pageIndex.get( name );
+        if( cached != null && !isExpired( cached.indexed ) ) {
+            indexHits.incrementAndGet();
+            return cached.page;
+        }
+        indexMisses.incrementAndGet();
+        final Page page = provider.getPageInfo( name, PageProvider.LATEST_VERSION );
+        if( cached != null ) {
+            // revalidate the expired entry, unless a change of the page has refreshed it meanwhile
+            if( page == null ? pageIndex.remove( name, cached ) : pageIndex.replace( name, cached, new Indexed( page ) ) ) {
+                if( page == null || isChanged( cached.page, page ) ) {
+                    textCache.remove( name );
+                }
+                return page;
+            }
+            return getPageInfoFromCache( name );
+        }
+        if( page == null ) {
+            return null;
+        }
+        final Indexed raced = pageIndex.putIfAbsent( name, new Indexed( page ) );
+        return raced != null ? raced.page : page;
+    }
+
+    private boolean isExpired( final long indexed ) {
+        return pageIndexTTL > 0 && System.currentTimeMillis() - indexed > pageIndexTTL;
+    }
+
+    private static boolean isChanged( final Page cached, final Page page ) {
+        return cached.getVersion() != page.getVersion() || !Objects.equals( cached.getLastModified(), page.getLastModified() );
+    }
+
+    /** Whether {@link #pageIndex} holds all pages of the real provider, listed not longer ago than the index entries expire. */
+    private boolean isAllRequested() {
+        return allRequested && !isExpired( allRequestedAt );
+    }
+
+    /** Reloads the latest version of a page into the index, or removes it if the page no longer exists. */
+    private void refreshIndex( final String name ) throws ProviderException {
+        final Page page = provider.getPageInfo( name, PageProvider.LATEST_VERSION );
+        if( page != null ) {
+            pageIndex.put( name, new Indexed( page ) );
+        } else {
+            pageIndex.remove( name );
+        }
     }
 
 
@@ -162,28 +256,13 @@ public class CachingProvider implements PageProvider {
             return false;
         }
 
-        final Page p;
+        //  If not in the index, either it does not exist, or it has been added behind our back.
         try {
-            p = getPageInfoFromCache( pageName );
+            return getPageInfoFromCache( pageName ) != null;
         } catch( final ProviderException e ) {
             LOG.info( "Provider failed while trying to check if page exists: {}", pageName );
             return false;
         }
-
-        //  A null item means that the page either does not exist, or has not yet been cached; a non-null means that the page does exist.
-        if( p != null ) {
-            return true;
-        }
-
-        //  If we have a list of all pages in memory, then any page not in the cache must be non-existent.
-        if( pages.get() < cachingManager.info( CachingManager.CACHE_PAGES ).getMaxElementsAllowed() ) {
-            return false;
-        }
-
-        //  We could add the page to the cache here as well, but in order to understand whether that is a good thing or not we would
-        //  need to analyze the JSPWiki calling patterns extensively.  Presumably it would be a good thing if pageExists() is called
-        //  many times before the first getPageText() is called, and the whole page is cached.
-        return provider.pageExists( pageName );
     }
 
     /**
@@ -217,12 +296,21 @@ public class CachingProvider implements PageProvider {
             return null;
         }
 
-        return cachingManager.get( CachingManager.CACHE_PAGES_TEXT, pageName, () -> {
-            if( pageExists( pageName ) ) {
-                return provider.getPageText( pageName, PageProvider.LATEST_VERSION );
-            }
+        // looking the page up first drops its text if it is found changed
+        if( getPageInfoFromCache( pageName ) == null ) {
             return null;
-        } );
+        }
+        final String cached = textCache.get( pageName );
+        if( cached != null ) {
+            return cached;
+        }
+
+        final long stamp = textCache.stamp();
+        final String text = provider.getPageText( pageName, PageProvider.LATEST_VERSION );
+        if( text != null ) {
+            textCache.put( pageName, text, stamp );
+        }
+        return text;
     }
 
     /**
@@ -230,18 +318,18 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public void putPageText( final Page page, final String text ) throws ProviderException {
-        synchronized( this ) {
+        final Lock lock = lockForChange( page.getName() );
+        try {
             provider.putPageText( page, text );
             page.setLastModified( new Date() );
 
             // Refresh caches properly
-            cachingManager.remove( CachingManager.CACHE_PAGES, page.getName() );
-            cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, page.getName() );
+            textCache.remove( page.getName() );
             cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, page.getName() );
-
-            getPageInfoFromCache( page.getName() );
+            refreshIndex( page.getName() );
+        } finally {
+            unlock( lock );
         }
-        pages.incrementAndGet();
     }
 
     /**
@@ -249,37 +337,40 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public Collection< Page > getAllPages() throws ProviderException {
-        final Collection< Page > all;
-        if ( !allRequested ) {
-            all = provider.getAllPages();
-            // Make sure that all pages are in the cache.
-            synchronized( this ) {
-                for( final Page p : all ) {
-                    cachingManager.put( CachingManager.CACHE_PAGES,  p.getName(), p );
-                }
-                allRequested = true;
-            }
-            pages.set( all.size() );
-        } else {
-            final List< String > keys = cachingManager.keys( CachingManager.CACHE_PAGES );
-            all = new TreeSet<>();
-            for( final String key : keys ) {
-                final Page cachedPage = cachingManager.get( CachingManager.CACHE_PAGES, key, () -> null );
-                if( cachedPage != null ) {
-                    all.add( cachedPage );
+        if( !isAllRequested() && changes.getReadHoldCount() > 0 ) {
+            // listed while changing a page, which cannot wait for the changes under way
+            return new TreeSet<>( provider.getAllPages() );
+        }
+        if( !isAllRequested() ) {
+            // Make sure that all pages are in the index, and only those. Changes go through this provider while sharing the changes
+            // lock, so none of them can get lost between the listing and filling the index.
+            changes.writeLock().lock();
+            try {
+                if( !isAllRequested() ) {
+                    final long listed = System.currentTimeMillis();
+                    final Set< String > names = new HashSet<>();
+                    for( final Page p : provider.getAllPages() ) {
+                        names.add( p.getName() );
+                        final Indexed cached = pageIndex.put( p.getName(), new Indexed( p ) );
+                        if( cached != null && isChanged( cached.page, p ) ) {
+                            textCache.remove( p.getName() );
+                        }
+                    }
+                    for( final String name : pageIndex.keySet() ) {
+                        if( !names.contains( name ) && pageIndex.remove( name ) != null ) {
+                            textCache.remove( name );
+                        }
+                    }
+                    allRequestedAt = listed;
+                    allRequested = true;
                 }
+            } finally {
+                changes.writeLock().unlock();
             }
         }
-
-        if( cachingManager.enabled( CachingManager.CACHE_PAGES )
-                && pages.get() >= cachingManager.info( CachingManager.CACHE_PAGES ).getMaxElementsAllowed() ) {
-            LOG.warn( "seems {} can't hold all pages from your page repository, " +
-                    "so we're delegating on the underlying provider instead. Please consider increasing " +
-                    "your cache sizes on the ehcache configuration file to avoid this behaviour", CachingManager.CACHE_PAGES );
-            return provider.getAllPages();
-        }
-
-        return all;
+        final Collection< Page > pages = new TreeSet<>();
+        pageIndex.values().forEach( indexed -> pages.add( indexed.page ) );
+        return pages;
     }
 
     /**
@@ -295,6 +386,9 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public int getPageCount() throws ProviderException {
+        if( isAllRequested() ) {
+            return pageIndex.size();
+        }
         return provider.getPageCount();
     }
 
@@ -354,19 +448,21 @@ public class CachingProvider implements PageProvider {
     }
 
     /**
-     * Gets the provider class name, and cache statistics (misscount and hitcount of page cache and history cache).
+     * Gets the provider class name, and cache statistics (misscount and hitcount of page index, page text cache and history cache,
+     * bytes evicted from and size of the page text cache).
      *
      * @return A plain string with all the above-mentioned values.
      */
     @Override
-    public synchronized String getProviderInfo() {
-        final CacheInfo pageCacheInfo = cachingManager.info( CachingManager.CACHE_PAGES );
+    public String getProviderInfo() {
         final CacheInfo pageHistoryCacheInfo = cachingManager.info( CachingManager.CACHE_PAGES_HISTORY );
         return "Real provider: " + provider.getClass().getName()+
-                ". Page cache hits: " + pageCacheInfo.getHits() +
-                ". Page cache misses: " + pageCacheInfo.getMisses() +
-                ". History cache hits: " + pageHistoryCacheInfo.getHits() +
-                ". History cache misses: " + pageHistoryCacheInfo.getMisses();
+                ". Page cache hits: " + indexHits.get() +
+                ". Page cache misses: " + indexMisses.get() +
+                ". Page cache size: " + pageIndex.size() + ( isAllRequested() ? " (all pages)" : "" ) +
+                ". " + textCache +
+                ( pageHistoryCacheInfo != null ? ". History cache hits: " + pageHistoryCacheInfo.getHits() +
+                                                 ". History cache misses: " + pageHistoryCacheInfo.getMisses() : "" );
     }
 
     /**
@@ -374,22 +470,24 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public void deleteVersion(final Page page, final int version ) throws ProviderException {
-        //  Luckily, this is such a rare operation it is okay to synchronize against the whole thing.
-        synchronized( this ) {
+        final Lock lock = lockForChange( page.getName() );
+        try {
             final Page cached = getPageInfoFromCache(page.getName());
             final int latestcached = ( cached != null ) ? cached.getVersion() : Integer.MIN_VALUE;
 
             //  If we have this version cached, remove from cache.
-            if( version == PageProvider.LATEST_VERSION || version == latestcached ) {
-                cachingManager.remove( CachingManager.CACHE_PAGES, page.getName() );
-                cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, page.getName() );
+            final boolean latest = version == PageProvider.LATEST_VERSION || version == latestcached;
+            if( latest ) {
+                textCache.remove( page.getName() );
             }
 
             provider.deleteVersion( page, version );
             cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, page.getName() );
-        }
-        if( version == PageProvider.LATEST_VERSION ) {
-            pages.decrementAndGet();
+            if( latest ) {
+                refreshIndex( page.getName() );
+            }
+        } finally {
+            unlock( lock );
         }
     }
 
@@ -399,14 +497,15 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public void deletePage( final Page page) throws ProviderException {
-        //  See note in deleteVersion().
-        synchronized( this ) {
-            cachingManager.put( CachingManager.CACHE_PAGES, page.getName(), null );
-            cachingManager.put( CachingManager.CACHE_PAGES_TEXT, page.getName(), null );
-            cachingManager.put( CachingManager.CACHE_PAGES_HISTORY, page.getName(), null );
+        final Lock lock = lockForChange( page.getName() );
+        try {
             provider.deletePage( page );
+            pageIndex.remove( page.getName() );
+            textCache.remove( page.getName() );
+            cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, page.getName() );
+        } finally {
+            unlock( lock );
         }
-        pages.decrementAndGet();
     }
 
     /**
@@ -414,17 +513,71 @@ public class CachingProvider implements PageProvider {
      */
     @Override
     public void movePage( final Page from, final String to ) throws ProviderException {
-        provider.movePage( from, to );
-        synchronized( this ) {
+        final Lock[] locks = lockForChange( from.getName(), to );
+        try {
+            provider.movePage( from, to );
+
             // Clear any cached version of the old page and new page
-            cachingManager.remove( CachingManager.CACHE_PAGES, from.getName() );
-            cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, from.getName() );
+            pageIndex.remove( from.getName() );
+            textCache.remove( from.getName() );
             cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, from.getName() );
             LOG.debug( "Removing to page {} from cache", to );
-            cachingManager.remove( CachingManager.CACHE_PAGES, to );
-            cachingManager.remove( CachingManager.CACHE_PAGES_TEXT, to );
+            textCache.remove( to );
             cachingManager.remove( CachingManager.CACHE_PAGES_HISTORY, to );
+            refreshIndex( to );
+        } finally {
+            for( int i = locks.length - 1; i >= 0; i-- ) {
+                unlock( locks[ i ] );
+            }
+        }
+    }
+
+    private static ReentrantLock[] newStripes() {
+        final ReentrantLock[] stripes = new ReentrantLock[ LOCK_STRIPES ];
+        for( int i = 0; i < stripes.length; i++ ) {
+            stripes[ i ] = new ReentrantLock();
+        }
+        return stripes;
+    }
+
+    /** Names are compared case-insensitively, as the real provider may look pages up case-insensitively. */
+    private int stripeIndex( final String page ) {
+        final int hash = page.toLowerCase( Locale.ROOT ).hashCode();
+        return Math.floorMod( hash ^ ( hash >>> 16 ), pageStripes.length );
+    }
+
+    /**
+     *  Locks a page for changing it. Release with {@link #unlock(Lock)}.
+     *
+     *  @return the acquired stripe lock.
+     */
+    private Lock lockForChange( final String page ) {
+        changes.readLock().lock();
+        final Lock lock = pageStripes[ stripeIndex( page ) ];
+        lock.lock();
+        return lock;
+    }
+
+    /**
+     *  Locks two pages for changing them, in stripe order so that two threads moving pages cannot deadlock. Release each lock
+     *  with {@link #unlock(Lock)}.
+     *
+     *  @return the acquired stripe locks, one lock if both pages share a stripe.
+     */
+    private Lock[] lockForChange( final String page1, final String page2 ) {
+        final int first = Math.min( stripeIndex( page1 ), stripeIndex( page2 ) );
+        final int second = Math.max( stripeIndex( page1 ), stripeIndex( page2 ) );
+        final Lock[] locks = first == second ? new Lock[] { pageStripes[ first ] } : new Lock[] { pageStripes[ first ], pageStripes[ second ] };
+        for( final Lock lock : locks ) {
+            changes.readLock().lock();
+            lock.lock();
         }
+        return locks;
+    }
+
+    private void unlock( final Lock lock ) {
+        lock.unlock();
+        changes.readLock().unlock();
     }
 
     /**
@@ -154,6 +154,8 @@ public class FileSystemProvider extends AbstractFileProvider {
         final File fromPage = findPage( from.getName() );
         final File toPage = findPage( to );
         fromPage.renameTo( toPage );
+        pageFileChanged( fromPage );
+        pageFileChanged( toPage );
     }
 
 }
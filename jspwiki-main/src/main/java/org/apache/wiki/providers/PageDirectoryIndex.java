@@ -0,0 +1,281 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.event.WikiEngineEvent;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * An in-memory index of the page files in the page directory of an {@link AbstractFileProvider}, so that listing and
+ * counting the pages does not list the directory every time.
+ * <p>
+ * The index is built on first use, stating the files in parallel. It is kept current in three ways:
+ * <ul>
+ * <li>the provider reports every page file it writes, deletes or moves with {@link #update(File)};</li>
+ * <li>every use compares the last modified time of the directory with the one seen by the last scan, which catches
+ * page files added, deleted or renamed by anybody else, and scans the directory again if it has changed;</li>
+ * <li>optionally, a {@link WatchService} also catches page files changed in place by anybody else.</li>
+ * </ul>
+ * A directory modified less than {@link #SETTLE_TIME} before it was scanned may be modified again within the
+ * resolution of the file system clock without its last modified time changing, so it is scanned again on the next use
+ * until it has settled.
+ */
+final class PageDirectoryIndex implements WikiEventListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PageDirectoryIndex.class);
+
+	/** Time in milliseconds after which the last modified time of a changed directory is trusted. */
+	static final long SETTLE_TIME = 2_000L;
+
+	/** What the index knows about a single page file. */
+	static final class Entry {
+
+		final String pageName;
+		final File file;
+		final long size;
+		final long lastModified;
+
+		Entry(final String pageName, final File file, final long size, final long lastModified) {
+			this.pageName = pageName;
+			this.file = file;
+			this.size = size;
+			this.lastModified = lastModified;
+		}
+	}
+
+	private final File dir;
+	private final UnaryOperator<String> unmangler;
+
+	private volatile Map<String, Entry> entries;
+	private volatile long scannedModified;
+	private volatile boolean settled;
+	private WatchService watcher;
+
+	/**
+	 * Creates an index, which is empty until it is used.
+	 *
+	 * @param dir the page directory.
+	 * @param unmangler turns the name of a page file, without its extension, into the page name.
+	 */
+	PageDirectoryIndex(final File dir, final UnaryOperator<String> unmangler) {
+		this.dir = dir;
+		this.unmangler = unmangler;
+	}
+
+	/**
+	 * Returns the page directory of this index.
+	 *
+	 * @return the page directory.
+	 */
+	File getDirectory() {
+		return dir;
+	}
+
+	/**
+	 * Returns all page files, scanning the directory if it has changed since the last scan.
+	 *
+	 * @return all page files, in no particular order, or null if the page directory does not exist.
+	 */
+	Collection<Entry> entries() {
+		final Map<String, Entry> current = current();
+		return current != null ? Collections.unmodifiableCollection(current.values()) : null;
+	}
+
+	/**
+	 * Returns the number of page files, scanning the directory if it has changed since the last scan.
+	 *
+	 * @return the number of page files.
+	 */
+	int size() {
+		final Map<String, Entry> current = current();
+		return current != null ? current.size() : 0;
+	}
+
+	private Map<String, Entry> current() {
+		final Map<String, Entry> current = entries;
+		if (current != null && !changed()) {
+			return current;
+		}
+		synchronized (this) {
+			if (entries == null || changed()) {
+				scan();
+			}
+			return entries;
+		}
+	}
+
+	private boolean changed() {
+		return !settled || dir.lastModified() != scannedModified;
+	}
+
+	/**
+	 * Lists the page directory and states the page files in parallel.
+	 */
+	private synchronized void scan() {
+		final long started = System.currentTimeMillis();
+		final long modified = dir.lastModified();
+		final List<Path> files = new ArrayList<>();
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath(), "*" + AbstractFileProvider.FILE_EXT)) {
+			for (final Path file : stream) {
+				files.add(file);
+			}
+		}
+		catch (final IOException e) {
+			LOG.error("Unable to list page directory " + dir.getAbsolutePath(), e);
+			entries = null;
+			settled = false;
+			return;
+		}
+
+		final Map<String, Entry> scanned = new ConcurrentHashMap<>(files.size() * 4 / 3 + 16);
+		files.parallelStream().map(Path::toFile).map(this::entry).forEach(entry -> scanned.put(entry.file.getName(), entry));
+		entries = scanned;
+		scannedModified = modified;
+		settled = started - modified > SETTLE_TIME;
+		LOG.debug("Indexed {} page files in {} in {} ms", scanned.size(), dir.getAbsolutePath(), System.currentTimeMillis() - started);
+	}
+
+	private Entry entry(final File file) {
+		final String fileName = file.getName();
+		final String pageName = unmangler.apply(fileName.substring(0, fileName.length() - AbstractFileProvider.FILE_EXT.length()));
+		return new Entry(pageName, file, file.length(), file.lastModified());
+	}
+
+	/**
+	 * Updates the index after a page file has been written, deleted, or moved away.
+	 *
+	 * @param file the page file.
+	 */
+	void update(final File file) {
+		final Map<String, Entry> current = entries;
+		if (current == null || !dir.equals(file.getParentFile()) || !file.getName().endsWith(AbstractFileProvider.FILE_EXT)) {
+			return;
+		}
+		if (file.exists()) {
+			current.put(file.getName(), entry(file));
+		}
+		else {
+			current.remove(file.getName());
+		}
+	}
+
+	/**
+	 * Starts a daemon thread which updates the index whenever a page file is changed by anybody else, until the engine is
+	 * shut down.
+	 *
+	 * @param engine the engine whose shutdown stops the thread.
+	 * @throws IOException if the page directory cannot be watched.
+	 */
+	synchronized void watch(final Engine engine) throws IOException {
+		if (watcher != null) {
+			return;
+		}
+		watcher = FileSystems.getDefault().newWatchService();
+		dir.toPath().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+		engine.addWikiEventListener(this);
+
+		final WatchService service = watcher;
+		final Thread thread = new Thread(() -> watchLoop(service), "JSPWiki page directory watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void watchLoop(final WatchService service) {
+		try {
+			while (true) {
+				final WatchKey key = service.take();
+				for (final WatchEvent<?> event : key.pollEvents()) {
+					if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+						invalidate();
+					}
+					else {
+						update(new File(dir, event.context().toString()));
+					}
+				}
+				if (!key.reset()) {
+					LOG.warn("Page directory " + dir.getAbsolutePath() + " can no longer be watched");
+					return;
+				}
+			}
+		}
+		catch (final InterruptedException | ClosedWatchServiceException e) {
+			// stopped
+		}
+	}
+
+	/**
+	 * Drops the index, which is built again on next use.
+	 */
+	synchronized void invalidate() {
+		entries = null;
+		settled = false;
+	}
+
+	/**
+	 * Stops watching the page directory.
+	 */
+	synchronized void close() {
+		if (watcher != null) {
+			try {
+				watcher.close();
+			}
+			catch (final IOException e) {
+				LOG.warn("Unable to stop watching page directory " + dir.getAbsolutePath(), e);
+			}
+			watcher = null;
+		}
+	}
+
+	/**
+	 * Stops watching the page directory when the engine shuts down.
+	 *
+	 * @param event {@inheritDoc}
+	 */
+	@Override
+	public void actionPerformed(final WikiEvent event) {
+		if (event instanceof WikiEngineEvent && event.getType() == WikiEngineEvent.SHUTDOWN) {
+			close();
+		}
+	}
+
+}
@@ -0,0 +1,386 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+
+/**
+ *  The page text cache of the {@link CachingProvider}, bounded by the size of the cached text rather than by the number of pages, so
+ *  that a few huge pages cannot push out thousands of small ones.
+ *  <p>
+ *  Texts live in an in-heap tier first. The least recently used ones are evicted from it once it holds more than its maximum size,
+ *  which is counted as two bytes per character. If a compressed tier is configured, evicted texts are deflated into direct buffers
+ *  outside of the heap, again up to a maximum size, and moved back into the in-heap tier when they are read again.
+ *  <p>
+ *  Reading a text does not lock anything. Changes to the text of a page are serialized per page, changes to different pages go ahead
+ *  concurrently, and only one thread at a time looks for texts to evict while the others go on.
+ *  <p>
+ *  Loading a text and putting it into the cache is not atomic, so {@link #put(String, String, long)} takes the {@link #stamp()} read
+ *  before loading and drops the text if the same page has been {@link #remove(String) removed} since then, as it might be stale.
+ */
+final class PageTextCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger( PageTextCache.class );
+
+    /** Number of removal stamps kept, once there are more they are forgotten and puts older than all of them are dropped. */
+    private static final int MAX_REMOVALS = 4096;
+
+    /** A cached text, plain or compressed, together with the time it was last used. */
+    private static final class Entry< T > {
+
+        private final T value;
+        private final long weight;
+        private volatile long lastUsed;
+        /** Snapshot of {@link #lastUsed} to sort by while evicting. */
+        private long evictionOrder;
+
+        Entry( final T value, final long weight, final long lastUsed ) {
+            this.value = value;
+            this.weight = weight;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /** One tier of the cache, bounded by the weight of its entries. */
+    private final class Tier< T > {
+
+        private final long maxBytes;
+        private final Map< String, Entry< T > > entries = new ConcurrentHashMap<>();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong evictedBytes = new AtomicLong();
+        private final ReentrantLock eviction = new ReentrantLock();
+
+        Tier( final long maxBytes ) {
+            this.maxBytes = maxBytes;
+        }
+
+        T get( final String name ) {
+            final Entry< T > entry = entries.get( name );
+            if( entry == null ) {
+                return null;
+            }
+            entry.lastUsed = clock.incrementAndGet();
+            return entry.value;
+        }
+
+        boolean contains( final String name ) {
+            return entries.containsKey( name );
+        }
+
+        void put( final String name, final T value, final long weight ) {
+            final Entry< T > old = entries.put( name, new Entry<>( value, weight, clock.incrementAndGet() ) );
+            bytes.addAndGet( old != null ? weight - old.weight : weight );
+        }
+
+        void remove( final String name ) {
+            final Entry< T > old = entries.remove( name );
+            if( old != null ) {
+                bytes.addAndGet( -old.weight );
+            }
+        }
+
+        /**
+         *  Drops the least recently used entries until the tier is within its maximum size. Threads finding another one evicting go on
+         *  without waiting, the tier may exceed its size by a few entries meanwhile.
+         *
+         *  @return the names and values of the dropped entries.
+         */
+        List< Map.Entry< String, T > > evict() {
+            if( bytes.get() <= maxBytes || !eviction.tryLock() ) {
+                return List.of();
+            }
+            try {
+                final List< Map.Entry< String, Entry< T > > > candidates = new ArrayList<>( entries.size() );
+                for( final Map.Entry< String, Entry< T > > e : entries.entrySet() ) {
+                    e.getValue().evictionOrder = e.getValue().lastUsed;
+                    candidates.add( Map.entry( e.getKey(), e.getValue() ) );
+                }
+                candidates.sort( Comparator.comparingLong( e -> e.getValue().evictionOrder ) );
+
+                final List< Map.Entry< String, T > > evicted = new ArrayList<>();
+                for( int i = 0; i < candidates.size() && bytes.get() > maxBytes; i++ ) {
+                    final Map.Entry< String, Entry< T > > eldest = candidates.get( i );
+                    if( entries.remove( eldest.getKey(), eldest.getValue() ) ) {
+                        bytes.addAndGet( -eldest.getValue().weight );
+                        evictedBytes.addAndGet( eldest.getValue().weight );
+                        evicted.add( Map.entry( eldest.getKey(), eldest.getValue().value ) );
+                    }
+                }
+                return evicted;
+            } finally {
+                eviction.unlock();
+            }
+        }
+    }
+
+    private final Tier< String > texts;
+    private final Tier< ByteBuffer > compressed;
+
+    /** Advances with every text used, to tell which texts have not been used for a while. */
+    private final AtomicLong clock = new AtomicLong();
+    /** The stamp of the latest removal of a page, by name. Changes to the text of a page are serialized by computing its entry. */
+    private final Map< String, Long > removals = new ConcurrentHashMap<>();
+    private final AtomicLong removalClock = new AtomicLong();
+    /** Puts of pages without a removal stamp are dropped if they are older than this, as their removal may have been forgotten. */
+    private volatile long forgottenRemovals;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong compressedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     *  Creates a cache.
+     *
+     *  @param maxBytes the maximum size of the in-heap tier, in bytes.
+     *  @param maxCompressedBytes the maximum size of the compressed tier, in bytes; 0 disables the compressed tier.
+     */
+    PageTextCache( final long maxBytes, final long maxCompressedBytes ) {
+        this.texts = new Tier<>( maxBytes );
+        this.compressed = new Tier<>( maxCompressedBytes );
+    }
+
+    static long weight( final String text ) {
+        return 2L * text.length();
+    }
+
+    /**
+     *  Returns the cached text of a page.
+     *
+     *  @param name the page name.
+     *  @return the text, or null if it is not cached.
+     */
+    String get( final String name ) {
+        final String cached = texts.get( name );
+        if( cached != null ) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        final long stamp = stamp();
+        final ByteBuffer deflated = compressed.get( name );
+        if( deflated == null ) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        compressedHits.incrementAndGet();
+        final String text = inflate( deflated.duplicate() );
+        if( text != null && weight( text ) <= texts.maxBytes ) {
+            put( name, text, stamp );
+        }
+        return text;
+    }
+
+    /**
+     *  Returns a stamp to pass to {@link #put(String, String, long)}, which has to be read before the text to put is loaded.
+     *
+     *  @return the stamp.
+     */
+    long stamp() {
+        return removalClock.get();
+    }
+
+    /** Whether a text loaded after reading the stamp may be cached, has to be called while computing the removal stamp of its page. */
+    private boolean isCurrent( final Long removed, final long stamp ) {
+        return ( removed != null ? removed : forgottenRemovals ) <= stamp;
+    }
+
+    /**
+     *  Caches the text of a page, unless the page has been removed from the cache since the stamp was read.
+     *
+     *  @param name the page name.
+     *  @param text the page text.
+     *  @param stamp the {@link #stamp()} read before the text was loaded.
+     */
+    void put( final String name, final String text, final long stamp ) {
+        // never let a single huge page push out everything else
+        final boolean huge = weight( text ) > texts.maxBytes;
+        final boolean[] stored = new boolean[ 1 ];
+        removals.compute( name, ( k, removed ) -> {
+            if( isCurrent( removed, stamp ) ) {
+                compressed.remove( k );
+                if( huge ) {
+                    texts.remove( k );
+                } else {
+                    texts.put( k, text, weight( text ) );
+                }
+                stored[ 0 ] = true;
+            }
+            return removed;
+        } );
+        if( !stored[ 0 ] ) {
+            return;
+        }
+
+        final List< Map.Entry< String, String > > evicted = new ArrayList<>();
+        if( huge ) {
+            texts.evictedBytes.addAndGet( weight( text ) );
+            evicted.add( Map.entry( name, text ) );
+        }
+        // texts are evicted before any later removal, so they are current as of a stamp read before the eviction
+        final long evictionStamp = stamp();
+        evicted.addAll( texts.evict() );
+        if( compressed.maxBytes > 0 ) {
+            for( final Map.Entry< String, String > e : evicted ) {
+                putCompressed( e.getKey(), deflate( e.getValue() ), huge && e.getKey().equals( name ) ? stamp : evictionStamp );
+            }
+        }
+    }
+
+    private void putCompressed( final String name, final ByteBuffer deflated, final long stamp ) {
+        if( deflated.capacity() > compressed.maxBytes ) {
+            return;
+        }
+        removals.compute( name, ( k, removed ) -> {
+            if( isCurrent( removed, stamp ) && !texts.contains( k ) ) {
+                compressed.put( k, deflated, deflated.capacity() );
+            }
+            return removed;
+        } );
+        compressed.evict();
+    }
+
+    /**
+     *  Removes the text of a page from both tiers.
+     *
+     *  @param name the page name.
+     */
+    void remove( final String name ) {
+        removals.compute( name, ( k, removed ) -> {
+            texts.remove( k );
+            compressed.remove( k );
+            return removalClock.incrementAndGet();
+        } );
+        if( removals.size() > MAX_REMOVALS ) {
+            final long forgotten = removalClock.get();
+            forgottenRemovals = forgotten;
+            removals.values().removeIf( removed -> removed <= forgotten );
+        }
+    }
+
+    static ByteBuffer deflate( final String text ) {
+        final Deflater deflater = new Deflater( Deflater.BEST_SPEED );
+        try {
+            deflater.setInput( text.getBytes( StandardCharsets.UTF_8 ) );
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream( text.length() / 3 + 16 );
+            final byte[] chunk = new byte[ 8192 ];
+            while( !deflater.finished() ) {
+                out.write( chunk, 0, deflater.deflate( chunk ) );
+            }
+            final byte[] data = out.toByteArray();
+            return ByteBuffer.allocateDirect( data.length ).put( data ).flip();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String inflate( final ByteBuffer deflated ) {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput( deflated );
+            final ByteArrayOutputStream out = new ByteArrayOutputStream( deflated.remaining() * 3 );
+            final byte[] chunk = new byte[ 8192 ];
+            while( !inflater.finished() ) {
+                final int n = inflater.inflate( chunk );
+                if( n == 0 && ( inflater.needsInput() || inflater.needsDictionary() ) ) {
+                    LOG.warn( "Truncated compressed page text, dropping it" );
+                    return null;
+                }
+                out.write( chunk, 0, n );
+            }
+            return out.toString( StandardCharsets.UTF_8 );
+        } catch( final DataFormatException e ) {
+            LOG.warn( "Corrupt compressed page text, dropping it", e );
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getCompressedHits() {
+        return compressedHits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    long getEvictedBytes() {
+        return texts.evictedBytes.get();
+    }
+
+    long getCompressedEvictedBytes() {
+        return compressed.evictedBytes.get();
+    }
+
+    long getBytes() {
+        return texts.bytes.get();
+    }
+
+    long getCompressedBytes() {
+        return compressed.bytes.get();
+    }
+
+    int size() {
+        return texts.entries.size();
+    }
+
+    int compressedSize() {
+        return compressed.entries.size();
+    }
+
+    /**
+     *  Returns the statistics of this cache.
+     *
+     *  @return hits, misses, evicted bytes and the size of both tiers.
+     */
+    @Override
+    public String toString() {
+        return "Page text cache hits: " + hits.get() +
+               " (" + compressedHits.get() + " compressed)" +
+               ". Page text cache misses: " + misses.get() +
+               ". Page text cache evicted bytes: " + getEvictedBytes() +
+               ". Page text cache size: " + size() + " pages, " + getBytes() + " of " + texts.maxBytes + " bytes" +
+               ( compressed.maxBytes > 0 ? ". Compressed page text cache evicted bytes: " + getCompressedEvictedBytes() +
+                                           ". Compressed page text cache size: " + compressedSize() + " pages, " + getCompressedBytes() + " of " +
+                                           compressed.maxBytes + " bytes"
+                                         : "" );
+    }
+
+}
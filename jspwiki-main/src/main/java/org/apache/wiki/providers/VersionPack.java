@@ -0,0 +1,543 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * A store for the old versions of a single page, used by the {@link VersioningFileProvider} instead of one
+ * {@code <n>.txt} file per version if {@link VersioningFileProvider#PROP_PACK_VERSIONS} is set. The old versions are kept in
+ * two files in the {@code OLD/<page>} directory of the page:
+ * <ul>
+ * <li>{@value #DATA_FILE} holds the bytes of all versions, one after the other. It is appended to, and rewritten with the
+ * versions left only when versions are deleted, see {@link #compact()}.</li>
+ * <li>{@value #INDEX_FILE} holds a header followed by one fixed-width record per version: version number, length, offset
+ * in the data file, last modified time and a CRC32 of the data. If a version has been stored more than once, the last
+ * record wins. Deleting a version marks its record as deleted.</li>
+ * </ul>
+ * The index is small and read into memory once. The data file is memory mapped in chunks of {@value #CHUNK_SIZE} bytes, so
+ * reading the history of a page does not need one file system call per version. Appending a version never remaps what is
+ * mapped already: the data after the last whole chunk is read through a file channel until it fills a chunk of its own.
+ * Closing the pack drops its mappings, which are released once the garbage collector finds them unreachable; on Windows, the
+ * data file cannot be replaced or deleted until then. The data of a version is forced to disk before its index record is
+ * written, so that a crash never leaves a record pointing to data that is not there. Every pack has a read/write lock of
+ * its own: reads of the same page run in parallel, appending a version only waits for readers of the same page.
+ */
+final class VersionPack {
+
+	private static final Logger LOG = LoggerFactory.getLogger(VersionPack.class);
+
+	/** Name of the data file. */
+	static final String DATA_FILE = "versions.pack";
+
+	/** Name of the index file. */
+	static final String INDEX_FILE = "versions.idx";
+
+	/** Suffix of the files written by {@link #compact()} before they replace the pack. */
+	private static final String COMPACT_SUFFIX = ".tmp";
+
+	private static final int MAGIC = 0x4A535056; // "JSPV"
+	private static final int FORMAT = 1;
+	static final int HEADER_SIZE = 8;
+	static final int RECORD_SIZE = 32;
+	static final int CHUNK_SIZE = 256 * 1024;
+	private static final int DELETED = -1;
+
+	private final File dir;
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// guarded by the write lock, read under the read lock
+	private boolean loaded;
+	/** The index file, without a torn record at its end. */
+	private ByteBuffer index;
+	private int recordCount;
+	/** The whole chunks of the data file, mapped. */
+	private final List<MappedByteBuffer> chunks = new ArrayList<>();
+	/** Reads the data after the last whole chunk, null if the pack has no data file. */
+	private FileChannel tail;
+	private long dataSize;
+	/** For every version number, the number of its last record, or -1. */
+	private int[] records = new int[0];
+
+	/**
+	 * Creates a pack for the given {@code OLD/<page>} directory. Nothing is read or written until the pack is used.
+	 *
+	 * @param dir the directory of the old versions of a page.
+	 */
+	VersionPack(final File dir) {
+		this.dir = dir;
+	}
+
+	/**
+	 * Returns the directory of the pack.
+	 *
+	 * @return the directory of the old versions of the page.
+	 */
+	File getDir() {
+		return dir;
+	}
+
+	/**
+	 * Tells whether the given directory holds a pack.
+	 *
+	 * @param dir the directory of the old versions of a page.
+	 * @return true, if there is an index file.
+	 */
+	static boolean exists(final File dir) {
+		return new File(dir, INDEX_FILE).exists();
+	}
+
+	private interface PackReader<T> {
+		T read() throws IOException;
+	}
+
+	private <T> T read(final PackReader<T> reader) throws IOException {
+		lock.readLock().lock();
+		try {
+			if (loaded) {
+				return reader.read();
+			}
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+
+		lock.writeLock().lock();
+		try {
+			load();
+			// downgrade, so that an append cannot slip in between loading and reading
+			lock.readLock().lock();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		try {
+			return reader.read();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void load() throws IOException {
+		if (loaded) {
+			return;
+		}
+		release();
+		recover();
+		final File indexFile = new File(dir, INDEX_FILE);
+		final File dataFile = new File(dir, DATA_FILE);
+		index = ByteBuffer.allocate(0);
+		recordCount = 0;
+		if (indexFile.exists()) {
+			final byte[] bytes = Files.readAllBytes(indexFile.toPath());
+			if (bytes.length >= HEADER_SIZE) {
+				index = ByteBuffer.wrap(bytes);
+				if (index.getInt(0) != MAGIC || index.getInt(4) != FORMAT) {
+					throw new IOException("Not a version pack index: " + indexFile.getAbsolutePath());
+				}
+				recordCount = (bytes.length - HEADER_SIZE) / RECORD_SIZE;
+			}
+			if (dataFile.exists()) {
+				tail = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ);
+				dataSize = tail.size();
+				mapChunks();
+			}
+			for (int i = 0; i < recordCount; i++) {
+				addRecord(i);
+			}
+		}
+		loaded = true;
+	}
+
+	/**
+	 * Maps the whole chunks of the data file which are not mapped yet.
+	 */
+	private void mapChunks() throws IOException {
+		for (long offset = (long) chunks.size() * CHUNK_SIZE; offset + CHUNK_SIZE <= dataSize; offset += CHUNK_SIZE) {
+			chunks.add(tail.map(FileChannel.MapMode.READ_ONLY, offset, CHUNK_SIZE));
+		}
+	}
+
+	private void addRecord(final int i) {
+		final int version = index.getInt(position(i));
+		final long end = index.getLong(position(i) + 8) + index.getInt(position(i) + 4);
+		if (version <= 0 || end > dataSize) {
+			return; // a torn append, the data never made it to disk
+		}
+		if (version >= records.length) {
+			final int length = records.length;
+			records = Arrays.copyOf(records, Math.max(version + 1, length * 2));
+			Arrays.fill(records, length, records.length, -1);
+		}
+		records[version] = index.getInt(position(i) + 4) == DELETED ? -1 : i;
+	}
+
+	/**
+	 * Finishes or rolls back a {@link #compact()} interrupted by a crash. The data file is replaced first, so if its
+	 * replacement is gone, the index has to be replaced as well.
+	 */
+	private void recover() throws IOException {
+		final File indexTmp = new File(dir, INDEX_FILE + COMPACT_SUFFIX);
+		final File dataTmp = new File(dir, DATA_FILE + COMPACT_SUFFIX);
+		if (dataTmp.exists()) {
+			Files.deleteIfExists(indexTmp.toPath());
+			Files.delete(dataTmp.toPath());
+		}
+		else if (indexTmp.exists()) {
+			replace(indexTmp, new File(dir, INDEX_FILE));
+		}
+	}
+
+	private static int position(final int record) {
+		return HEADER_SIZE + record * RECORD_SIZE;
+	}
+
+	private int record(final int version) {
+		return version > 0 && version < records.length ? records[version] : -1;
+	}
+
+	/**
+	 * Tells whether the pack holds the given version.
+	 *
+	 * @param version the version number.
+	 * @return true, if the version is in the pack.
+	 * @throws IOException if the pack cannot be read.
+	 */
+	boolean contains(final int version) throws IOException {
+		return read(() -> record(version) >= 0);
+	}
+
+	/**
+	 * Returns the time a version was last modified.
+	 *
+	 * @param version the version number.
+	 * @return the time in milliseconds since the epoch, or -1 if the version is not in the pack.
+	 * @throws IOException if the pack cannot be read.
+	 */
+	long lastModified(final int version) throws IOException {
+		return read(() -> {
+			final int record = record(version);
+			return record >= 0 ? index.getLong(position(record) + 16) : -1L;
+		});
+	}
+
+	/**
+	 * Returns the data of a version.
+	 *
+	 * @param version the version number.
+	 * @return the data, or null if the version is not in the pack.
+	 * @throws IOException if the pack cannot be read, or the data does not match its checksum.
+	 */
+	byte[] get(final int version) throws IOException {
+		return read(() -> {
+			final int record = record(version);
+			if (record < 0) {
+				return null;
+			}
+			final byte[] bytes = readData(index.getLong(position(record) + 8), index.getInt(position(record) + 4));
+			final CRC32 crc = new CRC32();
+			crc.update(bytes);
+			if ((int) crc.getValue() != index.getInt(position(record) + 24)) {
+				throw new IOException("Checksum mismatch for version " + version + " in " + new File(dir, DATA_FILE).getAbsolutePath());
+			}
+			return bytes;
+		});
+	}
+
+	/**
+	 * Reads data from the mapped chunks it spans, and the part after the last whole chunk from the file.
+	 */
+	private byte[] readData(final long offset, final int length) throws IOException {
+		final byte[] bytes = new byte[length];
+		int done = 0;
+		final long mappedEnd = (long) chunks.size() * CHUNK_SIZE;
+		while (done < length && offset + done < mappedEnd) {
+			final long position = offset + done;
+			final ByteBuffer chunk = chunks.get((int) (position / CHUNK_SIZE));
+			final int start = (int) (position % CHUNK_SIZE);
+			final int n = Math.min(length - done, CHUNK_SIZE - start);
+			chunk.get(start, bytes, done, n);
+			done += n;
+		}
+		if (done < length) {
+			final ByteBuffer rest = ByteBuffer.wrap(bytes, done, length - done);
+			long position = offset + done;
+			while (rest.hasRemaining()) {
+				final int n = tail.read(rest, position);
+				if (n < 0) {
+					throw new IOException("Unexpected end of " + new File(dir, DATA_FILE).getAbsolutePath());
+				}
+				position += n;
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Returns the numbers of all versions in the pack.
+	 *
+	 * @return the version numbers, in ascending order.
+	 * @throws IOException if the pack cannot be read.
+	 */
+	int[] versions() throws IOException {
+		return read(() -> {
+			int count = 0;
+			final int[] versions = new int[records.length];
+			for (int v = 1; v < records.length; v++) {
+				if (records[v] >= 0) {
+					versions[count++] = v;
+				}
+			}
+			return Arrays.copyOf(versions, count);
+		});
+	}
+
+	/**
+	 * Appends a version, replacing an earlier copy of the same version.
+	 *
+	 * @param version the version number.
+	 * @param bytes the data of the version.
+	 * @param lastModified the time the version was last modified, in milliseconds since the epoch.
+	 * @throws IOException if the pack cannot be written.
+	 */
+	void append(final int version, final byte[] bytes, final long lastModified) throws IOException {
+		if (version <= 0) {
+			throw new IllegalArgumentException("Illegal version " + version);
+		}
+		lock.writeLock().lock();
+		try {
+			if (!dir.exists()) {
+				Files.createDirectories(dir.toPath());
+			}
+			else {
+				load();
+			}
+			final long offset;
+			try (final FileChannel out = FileChannel.open(new File(dir, DATA_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				offset = out.size();
+				writeFully(out, ByteBuffer.wrap(bytes), offset);
+				// the data has to be on disk before the record pointing to it
+				out.force(true);
+			}
+
+			final CRC32 crc = new CRC32();
+			crc.update(bytes);
+			final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+			record.putInt(version).putInt(bytes.length).putLong(offset).putLong(lastModified).putInt((int) crc.getValue()).putInt(0).flip();
+			final boolean created;
+			try (final FileChannel out = FileChannel.open(new File(dir, INDEX_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+				long size = out.size();
+				created = size < HEADER_SIZE;
+				if (created) {
+					writeFully(out, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT).flip(), 0);
+					size = HEADER_SIZE;
+				}
+				// drop what is left of a torn record
+				final long end = size - (size - HEADER_SIZE) % RECORD_SIZE;
+				out.truncate(end);
+				writeFully(out, record.duplicate(), end);
+			}
+			if (loaded && !created && tail != null) {
+				appended(record, offset + bytes.length);
+			}
+			else {
+				release();
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Brings the loaded pack up to date with a record just appended, mapping the data in whole chunks only.
+	 */
+	private void appended(final ByteBuffer record, final long end) throws IOException {
+		if (position(recordCount + 1) > index.capacity()) {
+			final ByteBuffer grown = ByteBuffer.allocate(Math.max(position(recordCount + 1), index.capacity() * 2));
+			grown.put(0, index, 0, position(recordCount));
+			index = grown;
+		}
+		index.put(position(recordCount), record, 0, RECORD_SIZE);
+		dataSize = Math.max(dataSize, end);
+		mapChunks();
+		addRecord(recordCount++);
+	}
+
+	/**
+	 * Deletes a version. Its data stays in the data file until the pack is {@link #compact() compacted}.
+	 *
+	 * @param version the version number.
+	 * @return true, if the version was in the pack.
+	 * @throws IOException if the pack cannot be written.
+	 */
+	boolean delete(final int version) throws IOException {
+		lock.writeLock().lock();
+		try {
+			load();
+			final int record = record(version);
+			if (record < 0) {
+				return false;
+			}
+			try (final FileChannel out = FileChannel.open(new File(dir, INDEX_FILE).toPath(), StandardOpenOption.WRITE)) {
+				writeFully(out, ByteBuffer.allocate(4).putInt(DELETED).flip(), position(record) + 4);
+			}
+			index.putInt(position(record) + 4, DELETED);
+			records[version] = -1;
+			return true;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrites the pack with the versions it holds only, dropping the data of deleted and replaced versions. The pack is
+	 * replaced data file first, so that {@link #recover()} can tell how far an interrupted compaction got. A pack without any
+	 * versions left is deleted.
+	 *
+	 * @return the number of bytes the data file shrank by.
+	 * @throws IOException if the pack cannot be read or written.
+	 */
+	long compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			if (!exists(dir)) {
+				return 0L;
+			}
+			load();
+			final long before = dataSize;
+			final File dataTmp = new File(dir, DATA_FILE + COMPACT_SUFFIX);
+			final File indexTmp = new File(dir, INDEX_FILE + COMPACT_SUFFIX);
+			int live = 0;
+			try (final FileChannel data = FileChannel.open(dataTmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+				 final FileChannel idx = FileChannel.open(indexTmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				writeFully(idx, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT).flip(), 0);
+				long offset = 0;
+				for (int v = 1; v < records.length; v++) {
+					final int record = records[v];
+					if (record < 0) {
+						continue;
+					}
+					final int length = index.getInt(position(record) + 4);
+					writeFully(data, ByteBuffer.wrap(readData(index.getLong(position(record) + 8), length)), offset);
+					final ByteBuffer copy = ByteBuffer.allocate(RECORD_SIZE);
+					copy.put(0, index, position(record), RECORD_SIZE).putLong(8, offset);
+					writeFully(idx, copy, position(live++));
+					offset += length;
+				}
+				data.force(true);
+				idx.force(true);
+			}
+			release();
+			if (live == 0) {
+				Files.delete(dataTmp.toPath());
+				Files.delete(indexTmp.toPath());
+				deleteFiles();
+				return before;
+			}
+			replace(dataTmp, new File(dir, DATA_FILE));
+			replace(indexTmp, new File(dir, INDEX_FILE));
+			return before - new File(dir, DATA_FILE).length();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static void replace(final File from, final File to) throws IOException {
+		Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Deletes the files of the pack.
+	 *
+	 * @return true, if all files could be deleted.
+	 */
+	boolean deleteFiles() {
+		lock.writeLock().lock();
+		try {
+			release();
+			boolean deleted = true;
+			for (final String name : new String[]{ INDEX_FILE, DATA_FILE, INDEX_FILE + COMPACT_SUFFIX, DATA_FILE + COMPACT_SUFFIX }) {
+				final File file = new File(dir, name);
+				deleted &= !file.exists() || file.delete();
+			}
+			return deleted;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Releases the memory mappings and the open data file, which are opened again on the next read.
+	 */
+	void close() {
+		lock.writeLock().lock();
+		try {
+			release();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void release() {
+		loaded = false;
+		index = null;
+		recordCount = 0;
+		records = new int[0];
+		dataSize = 0;
+		// no reader can use the chunks any more, as this runs under the write lock
+		chunks.clear();
+		if (tail != null) {
+			try {
+				tail.close();
+			}
+			catch (final IOException e) {
+				LOG.warn("Unable to close " + new File(dir, DATA_FILE).getAbsolutePath(), e);
+			}
+			tail = null;
+		}
+	}
+
+	private static void writeFully(final FileChannel out, final ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += out.write(buffer, position);
+		}
+	}
+
+}
@@ -0,0 +1,134 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Stand-alone command line tool that moves the old page versions of a {@link VersioningFileProvider} from one
+ * {@code OLD/<page>/<n>.txt} file per version into one {@link VersionPack} per page.
+ * <p>
+ * Every version is appended to the pack with the last modified time of its file, read back and compared, and only then
+ * is its file deleted. Versions which are already in the pack are skipped, so the tool can be run again after it has
+ * been interrupted. The {@code page.properties} files, which hold the authors and dates of the versions, are not touched.
+ * <p>
+ * The wiki must not be running while the tool is. Afterwards, set {@link VersioningFileProvider#PROP_PACK_VERSIONS} so
+ * that new versions are packed as well; old versions are read from packs whether it is set or not.
+ * <p>
+ * Usage: {@code java -cp <jspwiki.jar> org.apache.wiki.providers.VersionPackMigration <pageDir>...}, where each
+ * {@code pageDir} is the page directory of a wiki (or its {@code OLD} directory).
+ */
+public final class VersionPackMigration {
+
+	private VersionPackMigration() {
+	}
+
+	public static void main(final String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: java " + VersionPackMigration.class.getName() + " <pageDir>...");
+			System.exit(2);
+			return;
+		}
+
+		for (final String arg : args) {
+			final File dir = new File(arg);
+			final File oldDir = new File(dir, VersioningFileProvider.PAGEDIR).isDirectory() ? new File(dir, VersioningFileProvider.PAGEDIR) : dir;
+			if (!oldDir.isDirectory()) {
+				System.err.println("Directory not found: " + oldDir.getAbsolutePath());
+				System.exit(2);
+				return;
+			}
+			final int[] counts = migrate(oldDir);
+			System.out.println("Packed " + counts[1] + " version(s) of " + counts[0] + " page(s) in " + oldDir.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Packs the old versions of all pages in an {@code OLD} directory.
+	 *
+	 * @param oldDir the {@code OLD} directory.
+	 * @return the number of pages with versions packed, and the number of versions packed.
+	 * @throws IOException if a version cannot be packed.
+	 */
+	static int[] migrate(final File oldDir) throws IOException {
+		final int[] counts = new int[2];
+		final File[] pageDirs = oldDir.listFiles(File::isDirectory);
+		if (pageDirs == null) {
+			return counts;
+		}
+		Arrays.sort(pageDirs);
+		for (final File pageDir : pageDirs) {
+			final int packed = migratePage(pageDir);
+			if (packed > 0) {
+				counts[0]++;
+				counts[1] += packed;
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Packs the old versions of a single page.
+	 *
+	 * @param pageDir the {@code OLD/<page>} directory of the page.
+	 * @return the number of versions packed.
+	 * @throws IOException if a version cannot be packed.
+	 */
+	static int migratePage(final File pageDir) throws IOException {
+		final Map<Integer, File> files = new TreeMap<>();
+		final File[] candidates = pageDir.listFiles((dir, name) -> name.endsWith(AbstractFileProvider.FILE_EXT));
+		if (candidates == null) {
+			return 0;
+		}
+		for (final File file : candidates) {
+			final String stem = file.getName().substring(0, file.getName().length() - AbstractFileProvider.FILE_EXT.length());
+			try {
+				files.put(Integer.parseInt(stem), file);
+			}
+			catch (final NumberFormatException e) {
+				// not a version, leave it alone
+			}
+		}
+
+		final VersionPack pack = new VersionPack(pageDir);
+		int packed = 0;
+		for (final Map.Entry<Integer, File> e : files.entrySet()) {
+			final int version = e.getKey();
+			final File file = e.getValue();
+			final byte[] bytes = Files.readAllBytes(file.toPath());
+			if (!pack.contains(version)) {
+				pack.append(version, bytes, file.lastModified());
+				packed++;
+			}
+			if (!Arrays.equals(bytes, pack.get(version))) {
+				throw new IOException("Version " + version + " in " + pageDir.getAbsolutePath() + " differs from " + file.getName()
+						+ ", keeping the file");
+			}
+			Files.delete(file.toPath());
+		}
+		pack.close();
+		return packed;
+	}
+
+}
@@ -30,10 +30,12 @@ import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.util.FileUtil;
+import org.apache.wiki.util.TextUtil;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -52,6 +54,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Provides a simple directory based repository for Wiki pages.
@@ -77,6 +84,13 @@ import java.util.Properties;
  * All files have ".txt" appended to make life easier for those
  * who insist on using Windows or other software which makes assumptions
  * on the files contents based on its name.
+ * <p>
+ * If {@value #PROP_PACK_VERSIONS} is set, new old versions are appended to a {@link VersionPack} in the OLD directory of
+ * the page instead of being written as numbered files. Old versions already stored as files stay readable, and can be
+ * moved into packs with the {@link VersionPackMigration} tool.
+ * <p>
+ * Every page is guarded by the read/write lock of the stripe its name hashes to, so only operations on the same page (or
+ * on pages sharing a stripe) wait for each other. The number of stripes can be set with {@value #PROP_LOCK_STRIPES}.
  */
 public class VersioningFileProvider extends AbstractFileProvider {
 
@@ -115,7 +129,26 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 * {@link #ensureCreationDateProperties(Page, Properties)} for how it is applied.
 	 */
 	public static final String RESTORE_CREATION_DATES_FILE = "restore-creation-dates.properties";
+
+	/**
+	 * Property which, if true, makes the provider store old versions in a single {@link VersionPack} per page instead of one
+	 * file per version. Defaults to false. Value is {@value}.
+	 */
+	public static final String PROP_PACK_VERSIONS = "jspwiki.versioningFileProvider.packVersions";
+
+	/**
+	 * Property for the number of lock stripes pages are spread over. Defaults to {@value #DEFAULT_LOCK_STRIPES}. Value is
+	 * {@value}.
+	 */
+	public static final String PROP_LOCK_STRIPES = "jspwiki.versioningFileProvider.lockStripes";
+
+	/** The default number of lock stripes. */
+	public static final int DEFAULT_LOCK_STRIPES = 64;
+
 	private CachedProperties m_cachedProperties;
+	private boolean m_packVersions;
+	private ReentrantReadWriteLock[] m_pageStripes = newStripes(DEFAULT_LOCK_STRIPES);
+	private final ConcurrentMap<File, VersionPack> m_packs = new ConcurrentHashMap<>();
 
 	/**
 	 * {@inheritDoc}
@@ -123,6 +156,11 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	@Override
 	public void initialize(final Engine engine, final Properties properties) throws NoRequiredPropertyException, IOException {
 		super.initialize(engine, properties);
+		m_packVersions = TextUtil.getBooleanProperty(properties, PROP_PACK_VERSIONS, false);
+		final int stripes = TextUtil.getIntegerProperty(properties, PROP_LOCK_STRIPES, DEFAULT_LOCK_STRIPES);
+		if (stripes != m_pageStripes.length) {
+			m_pageStripes = newStripes(Math.max(1, stripes));
+		}
 		// some additional sanity checks :
 		final File oldpages = getOldDir();
 		if (!oldpages.exists()) {
@@ -245,11 +283,12 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 * @param restoredCounter index 0 is incremented for every version whose date was taken from the restore file.
 	 */
 	private boolean ensureCreationDateProperties(final Page page, final Properties restoreDates, final int[] restoredCounter) throws IOException, ProviderException {
-		// Synchronize on the same monitor as putPageText() so this read-modify-write of the page properties
+		// Take the same page lock as putPageText() so this read-modify-write of the page properties
 		// never interleaves with a concurrent edit of the same page. The batch runs during initialize() before
 		// the wiki serves requests, so this is defensive - but it is cheap (uncontended) and keeps the method
 		// correct even if it is ever called concurrently.
-		synchronized (this) {
+		final Lock lock = lockForWriting(page.getName());
+		try {
 			final String pageName = page.getName();
 			final int latest = findLatestVersion(pageName);
 			final Properties props = getPageProperties(pageName);
@@ -304,6 +343,9 @@ public class VersioningFileProvider extends AbstractFileProvider {
 			}
 			return changed;
 		}
+		finally {
+			lock.unlock();
+		}
 	}
 
 	/**
@@ -372,6 +414,97 @@ public class VersioningFileProvider extends AbstractFileProvider {
 		return new File(oldpages, mangleName(page));
 	}
 
+	/**
+	 * Returns the pack of old versions of the given page, or null if the page has none, so that reading pages without a pack
+	 * does not fill {@link #m_packs}.
+	 */
+	private VersionPack findPack(final String page) {
+		final File dir = findOldPageDir(page);
+		final VersionPack pack = m_packs.get(dir);
+		if (pack != null || !VersionPack.exists(dir)) {
+			return pack;
+		}
+		return m_packs.computeIfAbsent(dir, VersionPack::new);
+	}
+
+	/**
+	 * Returns the pack of old versions of the given page, creating it if the page has none yet.
+	 */
+	private VersionPack createPack(final String page) {
+		return m_packs.computeIfAbsent(findOldPageDir(page), VersionPack::new);
+	}
+
+	/**
+	 * Drops the pack of the given page from memory, before its files are moved or deleted.
+	 */
+	private VersionPack closePack(final String page) {
+		final File dir = findOldPageDir(page);
+		final VersionPack pack = m_packs.remove(dir);
+		if (pack != null) {
+			pack.close();
+			return pack;
+		}
+		return new VersionPack(dir);
+	}
+
+	/**
+	 * Returns the time a packed old version was last modified, or -1 if the version is not in the pack.
+	 */
+	private long packedLastModified(final String page, final int version) {
+		try {
+			final VersionPack pack = findPack(page);
+			return pack != null ? pack.lastModified(version) : -1L;
+		}
+		catch (final IOException e) {
+			LOG.error("Unable to read version pack of page " + page, e);
+			return -1L;
+		}
+	}
+
+	private static ReentrantReadWriteLock[] newStripes(final int count) {
+		final ReentrantReadWriteLock[] stripes = new ReentrantReadWriteLock[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new ReentrantReadWriteLock();
+		}
+		return stripes;
+	}
+
+	/**
+	 * Returns the lock stripe of a page. Names are compared case-insensitively, as page files may be looked up
+	 * case-insensitively by the file system.
+	 */
+	private ReentrantReadWriteLock stripe(final String page) {
+		final ReentrantReadWriteLock[] stripes = m_pageStripes;
+		return stripes[stripeIndex(page, stripes.length)];
+	}
+
+	private static int stripeIndex(final String page, final int stripes) {
+		final int hash = page.toLowerCase(Locale.ROOT).hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), stripes);
+	}
+
+	/**
+	 * Locks a single page for reading. Release with {@link Lock#unlock()}.
+	 *
+	 * @return the acquired stripe lock.
+	 */
+	protected Lock lockForReading(final String page) {
+		final Lock lock = stripe(page).readLock();
+		lock.lock();
+		return lock;
+	}
+
+	/**
+	 * Locks a single page for writing. Release with {@link Lock#unlock()}.
+	 *
+	 * @return the acquired stripe lock.
+	 */
+	protected Lock lockForWriting(final String page) {
+		final Lock lock = stripe(page).writeLock();
+		lock.lock();
+		return lock;
+	}
+
 	/**
 	 * Goes through the repository and decides which version is the newest one in that directory.
 	 *
@@ -531,7 +664,17 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public synchronized String getPageText(final String page, int version) throws ProviderException {
+	public String getPageText(final String page, final int version) throws ProviderException {
+		final Lock lock = lockForReading(page);
+		try {
+			return readPageText(page, version);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private String readPageText(final String page, int version) throws ProviderException {
 		final File dir = findOldPageDir(page);
 
 		version = realVersion(page, version);
@@ -540,6 +683,18 @@ public class VersioningFileProvider extends AbstractFileProvider {
 			return super.getPageText(page, PageProvider.LATEST_VERSION);
 		}
 
+		try {
+			final VersionPack pack = findPack(page);
+			final byte[] packed = pack != null ? pack.get(version) : null;
+			if (packed != null) {
+				return FileUtil.readContents(new ByteArrayInputStream(packed), m_encoding);
+			}
+		}
+		catch (final IOException e) {
+			LOG.error("Failed to read", e);
+			throw new ProviderException("I/O error: " + e.getMessage());
+		}
+
 		final File pageFile = new File(dir, "" + version + FILE_EXT);
 		if (!pageFile.exists()) {
 			throw new NoSuchVersionException("Version " + version + "does not exist.");
@@ -591,7 +746,17 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 * {@inheritDoc}
 	 */
 	@Override
-	public synchronized void putPageText(final Page page, final String text) throws ProviderException {
+	public void putPageText(final Page page, final String text) throws ProviderException {
+		final Lock lock = lockForWriting(page.getName());
+		try {
+			writePageText(page, text);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void writePageText(final Page page, final String text) throws ProviderException {
 		// This is a bit complicated.  We'll first need to copy the old file to be the newest file.
 		final int latest = findLatestVersion(page.getName());
 		final File pageDir = findOldPageDir(page.getName());
@@ -609,7 +774,11 @@ public class VersioningFileProvider extends AbstractFileProvider {
 			int versionNumber = (latest > 0) ? latest : 1;
 			final boolean firstUpdate = (versionNumber == 1);
 
-			if (oldFile != null && oldFile.exists()) {
+			if (oldFile != null && oldFile.exists() && m_packVersions) {
+				createPack(page.getName()).append(versionNumber, Files.readAllBytes(oldFile.toPath()), oldFile.lastModified());
+				versionNumber++;
+			}
+			else if (oldFile != null && oldFile.exists()) {
 				final File pageFile = new File(pageDir, versionNumber + FILE_EXT);
 				try (final InputStream in = new BufferedInputStream(Files.newInputStream(oldFile.toPath()));
 					 final OutputStream out = new BufferedOutputStream(Files.newOutputStream(pageFile.toPath()))) {
@@ -679,7 +848,16 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 */
 	@Override
 	public Page getPageInfo(final String page, final int version) throws ProviderException {
-		final int latest = findLatestVersion(page);
+		final Lock lock = lockForReading(page);
+		try {
+			return getPageInfo(page, version, findLatestVersion(page));
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private Page getPageInfo(final String page, final int version, final int latest) throws ProviderException {
 		final int realVersion;
 
 		Page p = null;
@@ -702,17 +880,25 @@ public class VersioningFileProvider extends AbstractFileProvider {
 		else {
 			// The file is not the most recent, so we'll need to find it from the deep trenches of the "OLD" directory structure.
 			realVersion = version;
-			final File dir = findOldPageDir(page);
-			if (!dir.exists() || !dir.isDirectory()) {
-				return null;
+			final long packed = packedLastModified(page, version);
+			if (packed >= 0) {
+				p = Wiki.contents().page(m_engine, page);
+				p.setLastModified(new Date(packed));
+				p.setVersion(version);
 			}
+			else {
+				final File dir = findOldPageDir(page);
+				if (!dir.exists() || !dir.isDirectory()) {
+					return null;
+				}
 
-			final File file = new File(dir, version + FILE_EXT);
-			if (file.exists()) {
-				p = Wiki.contents().page(m_engine, page);
+				final File file = new File(dir, version + FILE_EXT);
+				if (file.exists()) {
+					p = Wiki.contents().page(m_engine, page);
 
-				p.setLastModified(new Date(file.lastModified()));
-				p.setVersion(version);
+					p.setLastModified(new Date(file.lastModified()));
+					p.setVersion(version);
+				}
 			}
 		}
 
@@ -790,6 +976,10 @@ public class VersioningFileProvider extends AbstractFileProvider {
 			return pageExists(pageName);
 		}
 
+		if (packedLastModified(pageName, version) >= 0) {
+			return true;
+		}
+
 		final File dir = findOldPageDir(pageName);
 		if (!dir.exists() || !dir.isDirectory()) {
 			return false;
@@ -805,13 +995,19 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	@Override
 	public List<Page> getVersionHistory(final String page) throws ProviderException {
 		final ArrayList<Page> list = new ArrayList<>();
-		final int latest = findLatestVersion(page);
-		for (int i = latest; i > 0; i--) {
-			final Page info = getPageInfo(page, i);
-			if (info != null) {
-				list.add(info);
+		final Lock lock = lockForReading(page);
+		try {
+			final int latest = findLatestVersion(page);
+			for (int i = latest; i > 0; i--) {
+				final Page info = getPageInfo(page, i, latest);
+				if (info != null) {
+					list.add(info);
+				}
 			}
 		}
+		finally {
+			lock.unlock();
+		}
 
 		return list;
 	}
@@ -864,9 +1060,23 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	// FIXME: Should log errors.
 	@Override
 	public void deletePage(final Page page) throws ProviderException {
+		final Lock lock = lockForWriting(page.getName());
+		try {
+			removePage(page);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void removePage(final Page page) throws ProviderException {
 		super.deletePage(page);
 		boolean hasError = false;
 		final File dir = findOldPageDir(page.getName());
+		if (!closePack(page.getName()).deleteFiles()) {
+			LOG.error("Can't delete version pack in " + dir.getAbsolutePath());
+			hasError = true;
+		}
 		if (dir.exists() && dir.isDirectory()) {
 			final File[] files = dir.listFiles(new WikiFileFilter());
 			for (final File file : Objects.requireNonNull(files)) {
@@ -912,6 +1122,16 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 */
 	@Override
 	public void deleteVersion(final Page page, final int version) throws ProviderException {
+		final Lock lock = lockForWriting(page.getName());
+		try {
+			removeVersion(page, version);
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+
+	private void removeVersion(final Page page, final int version) throws ProviderException {
 		final File dir = findOldPageDir(page.getName());
 		int latest = findLatestVersion(page.getName());
 		if (version == PageProvider.LATEST_VERSION ||
@@ -939,6 +1159,20 @@ public class VersioningFileProvider extends AbstractFileProvider {
 			final File pageDir = findOldPageDir(page.getName());
 			final File previousFile = new File(pageDir, latest + FILE_EXT);
 			final File pageFile = findPage(page.getName());
+			try {
+				final VersionPack pack = findPack(page.getName());
+				final byte[] packed = pack != null ? pack.get(latest) : null;
+				if (packed != null) {
+					Files.write(pageFile.toPath(), packed);
+					pageFile.setLastModified(pack.lastModified(latest));
+					pageFileChanged(pageFile);
+					return;
+				}
+			}
+			catch (final IOException e) {
+				LOG.error("Something wrong with the version pack - you may have just lost data!", e);
+				return;
+			}
 			try (final InputStream in = new BufferedInputStream(Files.newInputStream(previousFile.toPath()));
 				 final OutputStream out = new BufferedOutputStream(Files.newOutputStream(pageFile.toPath()))) {
 				if (previousFile.exists()) {
@@ -950,10 +1184,27 @@ public class VersioningFileProvider extends AbstractFileProvider {
 			catch (final IOException e) {
 				LOG.error("Something wrong with the page directory - you may have just lost data!", e);
 			}
+			pageFileChanged(pageFile);
 
 			return;
 		}
 
+		try {
+			final VersionPack pack = findPack(page.getName());
+			if (pack != null && pack.delete(version)) {
+				// the data of the version is only dropped by rewriting the pack
+				pack.compact();
+				if (!VersionPack.exists(pack.getDir())) {
+					m_packs.remove(pack.getDir(), pack);
+				}
+				return;
+			}
+		}
+		catch (final IOException e) {
+			LOG.error("Unable to modify version pack", e);
+			throw new ProviderException("Could not modify version pack: " + e.getMessage());
+		}
+
 		final File pageFile = new File(dir, "" + version + FILE_EXT);
 		if (pageFile.exists()) {
 			if (!pageFile.delete()) {
@@ -998,12 +1249,34 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 */
 	@Override
 	public void movePage(final Page from, final String to) {
+		// lock both pages, always in stripe order
+		final ReentrantReadWriteLock[] stripes = m_pageStripes;
+		final int fromStripe = stripeIndex(from.getName(), stripes.length);
+		final int toStripe = stripeIndex(to, stripes.length);
+		final Lock lock1 = stripes[Math.min(fromStripe, toStripe)].writeLock();
+		final Lock lock2 = stripes[Math.max(fromStripe, toStripe)].writeLock();
+		lock1.lock();
+		lock2.lock();
+		try {
+			renamePage(from, to);
+		}
+		finally {
+			lock2.unlock();
+			lock1.unlock();
+		}
+	}
+
+	private void renamePage(final Page from, final String to) {
 		// Move the file itself
 		final File fromFile = findPage(from.getName());
 		final File toFile = findPage(to);
 		fromFile.renameTo(toFile);
+		pageFileChanged(fromFile);
+		pageFileChanged(toFile);
 
 		// Move any old versions
+		closePack(from.getName());
+		closePack(to);
 		final File fromOldDir = findOldPageDir(from.getName());
 		final File toOldDir = findOldPageDir(to);
 		fromOldDir.renameTo(toOldDir);
@@ -1018,9 +1291,9 @@ public class VersioningFileProvider extends AbstractFileProvider {
 	 * gain over simply keeping the last one requested.
 	 */
 	private static class CachedProperties {
-		String m_page;
-		Properties m_props;
-		long m_lastModified;
+		final String m_page;
+		final Properties m_props;
+		final long m_lastModified;
 
 		/**
 		 * Because a Constructor is inherently synchronised, there is no need to synchronise the arguments.
@@ -0,0 +1,391 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.wiki.LinkCollector;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.exceptions.ProviderException;
+import org.apache.wiki.api.filters.BasePageFilter;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.providers.WikiProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventManager;
+import org.apache.wiki.event.WikiPageEvent;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.util.TextUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+
+/**
+ *  {@link ReferenceManager} which keeps the references in a compact {@link ReferenceGraph} instead of two maps of {@code TreeSet}s.
+ *  Each page name is stored once and mapped to an int id, and links are stored as primitive int arrays, with a small mutable overlay
+ *  for recent edits. This uses a fraction of the memory of {@link DefaultReferenceManager} on large wikis.
+ *  <p>
+ *  To use it, set {@code jspwiki.refManager = org.apache.wiki.references.CompactReferenceManager} in {@code jspwiki-custom.properties}.
+ *  <p>
+ *  Differences with {@link DefaultReferenceManager}:
+ *  <ul>
+ *  <li>The collections returned by the query methods are snapshots, not live views.</li>
+ *  <li>The graph is persisted to {@code refmgr-graph.ser} in the work directory each time it is compacted, not on each save. On
+ *  startup, pages modified after the snapshot was written are scanned again. Page attributes are not cached on disk.</li>
+ *  <li>{@link #clearPageEntries(String)} only drops the links of the page itself; links from other pages to it are kept.</li>
+ *  </ul>
+ *
+ *  @since 2.12.8
+ */
+public class CompactReferenceManager extends BasePageFilter implements ReferenceManager {
+
+    private static final Logger LOG = LoggerFactory.getLogger( CompactReferenceManager.class );
+    private static final String SERIALIZATION_FILE = "refmgr-graph.ser";
+    private static final String SERIALIZATION_PROPERTY = "jspwiki.referenceManager.serialize";
+    private static final long SERIALIZATION_VERSION = 1L;
+
+    private final ReferenceGraph m_graph;
+    private final boolean m_matchEnglishPlurals;
+
+    /**
+     *  Builds a new ReferenceManager.
+     *
+     *  @param engine The Engine to which this is managing references to.
+     */
+    public CompactReferenceManager( final Engine engine ) {
+        m_engine = engine;
+        m_matchEnglishPlurals = TextUtil.getBooleanProperty( engine.getWikiProperties(), Engine.PROP_MATCHPLURALS, false );
+        m_graph = new ReferenceGraph( m_matchEnglishPlurals );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void initialize( final Collection< Page > pages ) throws ProviderException {
+        LOG.debug( "Initializing new CompactReferenceManager with {} initial pages.", pages.size() );
+        final StopWatch sw = new StopWatch();
+        sw.start();
+        LOG.info( "Starting cross reference scan of WikiPages" );
+
+        long saved;
+        try {
+            saved = unserializeFromDisk();
+        } catch( final IOException e ) {
+            LOG.info( "Unable to unserialize old refmgr information, rebuilding database: {}", e.getMessage() );
+            saved = Long.MIN_VALUE;
+        }
+
+        // forget about pages deleted while we were away, and make sure all existing ones are known
+        final Set< String > names = pages.stream().map( Page::getName ).collect( Collectors.toSet() );
+        for( final String created : m_graph.created() ) {
+            if( !names.contains( created ) ) {
+                m_graph.remove( created );
+            }
+        }
+        for( final Page page : pages ) {
+            if( !m_graph.isCreated( page.getName() ) ) {
+                m_graph.setReferences( page.getName(), Collections.emptySet() );
+            }
+        }
+
+        // we cannot build a reference list from the contents of attachments, so we skip them
+        for( final Page page : pages ) {
+            if( !( page instanceof Attachment ) ) {
+                final Page wp = saved == Long.MIN_VALUE ? page : m_engine.getManager( PageManager.class ).getPage( page.getName() );
+                if( wp.getLastModified() == null ) {
+                    LOG.error( "Provider returns null lastModified.  Please submit a bug report." );
+                } else if( wp.getLastModified().getTime() > saved ) {
+                    updatePageReferences( wp );
+                }
+            }
+        }
+
+        serializeToDisk();
+
+        sw.stop();
+        LOG.info( "Cross reference scan done in {}", sw );
+
+        WikiEventManager.addWikiEventListener( m_engine.getManager( PageManager.class ), this );
+    }
+
+    /**
+     *  Does a full reference update.  Does not sync; assumes that you do it afterwards.
+     */
+    private void updatePageReferences( final Page page ) throws ProviderException {
+        final String content = m_engine.getManager( PageManager.class ).getPageText( page.getName(), PageProvider.LATEST_VERSION );
+        final Collection< String > links = scanWikiLinks( page, content );
+        final TreeSet< String > res = new TreeSet<>( links );
+        final List< Attachment > attachments = m_engine.getManager( AttachmentManager.class ).listAttachments( page );
+        for( final Attachment att : attachments ) {
+            res.add( att.getName() );
+        }
+
+        internalUpdateReferences( page.getName(), res );
+    }
+
+    /**
+     *  Reads the graph from disk. Returns the date when it was written, or {@link Long#MIN_VALUE} if there is nothing to read.
+     */
+    private long unserializeFromDisk() throws IOException {
+        final File f = new File( m_engine.getWorkDir(), SERIALIZATION_FILE );
+        if( !doSerialize() || !f.exists() ) {
+            return Long.MIN_VALUE;
+        }
+
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( f.toPath() ) ) ) ) {
+            final StopWatch sw = new StopWatch();
+            sw.start();
+
+            if( in.readLong() != SERIALIZATION_VERSION ) {
+                throw new IOException( "File format has changed; I need to recalculate references." );
+            }
+            final long saved = in.readLong();
+            m_graph.readFrom( in );
+
+            sw.stop();
+            LOG.debug( "Read serialized data successfully in {}", sw );
+            return saved;
+        }
+    }
+
+    /**
+     *  Compacts the graph and writes it to disk.
+     */
+    private synchronized void serializeToDisk() {
+        if( !doSerialize() ) {
+            m_graph.compact();
+            return;
+        }
+
+        final File f = new File( m_engine.getWorkDir(), SERIALIZATION_FILE );
+        try( final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( Files.newOutputStream( f.toPath() ) ) ) ) {
+            final StopWatch sw = new StopWatch();
+            sw.start();
+
+            out.writeLong( SERIALIZATION_VERSION );
+            out.writeLong( System.currentTimeMillis() ); // Timestamp
+            m_graph.writeTo( out );
+
+            sw.stop();
+            LOG.debug( "serialization done - took {}", sw );
+        } catch( final IOException ioe ) {
+            LOG.error( "Unable to serialize!", ioe );
+        }
+    }
+
+    private boolean doSerialize() {
+        return "true".equals( m_engine.getWikiProperties().getProperty( SERIALIZATION_PROPERTY, "true" ) );
+    }
+
+    /**
+     *  After the page has been saved, updates the reference lists.
+     *
+     *  @param context {@inheritDoc}
+     *  @param content {@inheritDoc}
+     */
+    @Override
+    public void postSave( final Context context, final String content ) {
+        final Page page = context.getPage();
+        updateReferences( page.getName(), scanWikiLinks( page, content ) );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< String > scanWikiLinks( final Page page, final String pagedata ) {
+        final LinkCollector localCollector = new LinkCollector();
+        m_engine.getManager( RenderingManager.class ).textToHTML( Wiki.context().create( m_engine, page ),
+                                                                  pagedata,
+                                                                  localCollector,
+                                                                  null,
+                                                                  localCollector,
+                                                                  false,
+                                                                  true );
+
+        return localCollector.getLinks();
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void pageRemoved( final Page page ) {
+        pageRemoved( page.getName() );
+    }
+
+    private void pageRemoved( final String pageName ) {
+        m_graph.remove( pageName );
+        compactIfNeeded();
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void updateReferences( final Page page ) {
+        final String pageData = m_engine.getManager( PageManager.class ).getPureText( page.getName(), WikiProvider.LATEST_VERSION );
+        updateReferences( page.getName(), scanWikiLinks( page, pageData ) );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void updateReferences( final String page, final Collection< String > references ) {
+        internalUpdateReferences( page, references );
+        compactIfNeeded();
+    }
+
+    private void internalUpdateReferences( final String page, final Collection< String > references ) {
+        final Set< String > cleanedRefs = references.stream().map( this::getFinalPageName ).collect( Collectors.toSet() );
+        m_graph.setReferences( getFinalPageName( page ), cleanedRefs );
+    }
+
+    private void compactIfNeeded() {
+        if( m_graph.needsCompaction() ) {
+            serializeToDisk();
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void clearPageEntries( final String pagename ) {
+        m_graph.remove( getFinalPageName( pagename ) );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< String > findUnreferenced() {
+        return m_graph.unreferenced();
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< String > findUncreated() {
+        final PageManager pageManager = m_engine.getManager( PageManager.class );
+        return m_graph.referenced().stream()
+                                   .filter( name -> !pageManager.wikiPageExists( name ) )
+                                   .collect( Collectors.toCollection( TreeSet::new ) );
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Set< String > findReferrers( final String pagename ) {
+        final Set< String > refs = new TreeSet<>();
+        final Set< String > direct = m_graph.referrersOf( pagename );
+        if( direct != null ) {
+            refs.addAll( direct );
+        }
+        if( m_matchEnglishPlurals ) {
+            final Set< String > plural = m_graph.referrersOf( ReferenceGraph.pluralVariant( pagename ) );
+            if( plural != null ) {
+                refs.addAll( plural );
+            }
+        }
+
+        return refs.isEmpty() ? null : refs;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Set< String > findReferredBy( final String pageName ) {
+        final Set< String > refs = m_graph.referrersOf( getFinalPageName( pageName ) );
+        return refs != null ? Collections.unmodifiableSet( refs ) : null;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Collection< String > findRefersTo( final String pageName ) {
+        final Set< String > refs = m_graph.referencesOf( getFinalPageName( pageName ) );
+        return refs != null ? Collections.unmodifiableSet( refs ) : null;
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public Set< String > findCreated() {
+        return m_graph.created();
+    }
+
+    /**
+     * Returns the underlying reference graph. For profiling.
+     *
+     * @return The reference graph.
+     */
+    ReferenceGraph getGraph() {
+        return m_graph;
+    }
+
+    private String getFinalPageName( final String orig ) {
+        try {
+            final String s = m_engine.getFinalPageName( orig );
+            return s != null ? s : orig;
+        } catch( final ProviderException e ) {
+            LOG.error( "Error while trying to fetch a page name; trying to cope with the situation.", e );
+            return orig;
+        }
+    }
+
+    /**
+     *  {@inheritDoc}
+     */
+    @Override
+    public void actionPerformed( final WikiEvent event ) {
+        if( event instanceof WikiPageEvent && event.getType() == WikiPageEvent.PAGE_DELETED ) {
+            final String pageName = ( ( WikiPageEvent ) event ).getPageName();
+            if( pageName != null ) {
+                pageRemoved( pageName );
+            }
+        }
+    }
+
+}
@@ -33,11 +33,15 @@ import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.providers.WikiProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.event.WikiEngineEvent;
 import org.apache.wiki.event.WikiEvent;
+import org.apache.wiki.event.WikiEventListener;
 import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.ui.progress.ProgressItem;
+import org.apache.wiki.ui.progress.ProgressManager;
 import org.apache.wiki.util.TextUtil;
 
 import java.io.*;
@@ -46,7 +50,13 @@ import java.nio.file.Files;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /*
@@ -100,6 +110,11 @@ import java.util.stream.Collectors;
  *  <P>
  *  The owning class must take responsibility of filling in any pre-existing information, probably by loading each and every WikiPage
  *  and calling this class to update the references when created.
+ *  <P>
+ *  Both maps are persisted as a snapshot ({@code refmgr.ser}) in the work directory. Instead of rewriting the whole snapshot on each
+ *  save, every change is appended as a small delta (page name plus its new outgoing links, or a removal mark) to a journal file
+ *  ({@code refmgr.journal}). Once the journal holds {@code jspwiki.referenceManager.journalCompactionThreshold} entries, it is compacted
+ *  into a fresh snapshot. On startup, the snapshot is read and the journal is replayed on top of it.
  *
  *  @since 1.6.1 (as of 2.11.0, moved to org.apache.wiki.references)
  */
@@ -129,6 +144,47 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
     private static final String SERIALIZATION_FILE = "refmgr.ser";
     private static final String SERIALIZATION_DIR  = "refmgr-attr";
     private static final String SERIALIZATION_PROPERTY  = "jspwiki.referenceManager.serialize";
+    private static final String JOURNAL_FILE = "refmgr.journal";
+
+    /** Number of journal entries after which the journal is compacted into a new snapshot. If set to 0, no journal is kept and
+     *  the full snapshot is written on each change. Default is {@value #DEFAULT_JOURNAL_COMPACTION_THRESHOLD}. */
+    public static final String PROP_JOURNAL_COMPACTION_THRESHOLD = "jspwiki.referenceManager.journalCompactionThreshold";
+    private static final int DEFAULT_JOURNAL_COMPACTION_THRESHOLD = 1000;
+
+    /** Number of threads used to scan pages when the references have to be rebuilt on startup. Default is 1, which scans the
+     *  pages sequentially. */
+    public static final String PROP_SCAN_THREADS = "jspwiki.referenceManager.scanThreads";
+
+    /** Identifier of the startup reference scan in the {@link ProgressManager}. */
+    public static final String PROGRESS_ID = "referencemanager.scan";
+
+    /** Number of scanned pages whose attributes are written to disk in one go. */
+    private static final int ATTR_BATCH_SIZE = 100;
+
+    private static final byte JOURNAL_UPDATE = 1;
+    private static final byte JOURNAL_REMOVE = 2;
+
+    private final int m_journalCompactionThreshold;
+    private final int m_scanThreads;
+
+    /** Open append stream to the journal, lazily created on the first change after the last snapshot. */
+    private transient DataOutputStream m_journal;
+
+    /** Number of entries currently in the journal. */
+    private int m_journalEntries;
+
+    /** Timestamp of the snapshot the journal applies to. */
+    private long m_snapshotTime;
+
+    /**
+     *  Closes the journal when the engine shuts down. Kept apart from this manager, which listens to the page events of the
+     *  PageManager only, as the engine fires page events of its own. Held here, since listeners are only weakly referenced.
+     */
+    private final transient WikiEventListener m_shutdownListener = event -> {
+        if( event instanceof WikiEngineEvent && event.getType() == WikiEngineEvent.SHUTDOWN ) {
+            closeJournal();
+        }
+    };
 
 
     /** We use this also a generic serialization id */
@@ -144,6 +200,10 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         m_referredBy = new ConcurrentHashMap<>();
         m_engine = engine;
         m_matchEnglishPlurals = TextUtil.getBooleanProperty( engine.getWikiProperties(), Engine.PROP_MATCHPLURALS, false );
+        m_journalCompactionThreshold = TextUtil.getIntegerProperty( engine.getWikiProperties(),
+                                                                    PROP_JOURNAL_COMPACTION_THRESHOLD,
+                                                                    DEFAULT_JOURNAL_COMPACTION_THRESHOLD );
+        m_scanThreads = Math.max( 1, TextUtil.getIntegerProperty( engine.getWikiProperties(), PROP_SCAN_THREADS, 1 ) );
 
         //
         //  Create two maps that contain unmutable versions of the two basic maps.
@@ -156,6 +216,13 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
      *  Does a full reference update.  Does not sync; assumes that you do it afterwards.
      */
     private void updatePageReferences( final Page page ) throws ProviderException {
+        internalUpdateReferences( page.getName(), collectPageReferences( page ) );
+    }
+
+    /**
+     *  Scans a page for its links and attachments. Does not touch the reference maps, so it is safe to call concurrently.
+     */
+    private TreeSet< String > collectPageReferences( final Page page ) throws ProviderException {
         final String content = m_engine.getManager( PageManager.class ).getPageText( page.getName(), PageProvider.LATEST_VERSION );
         final Collection< String > links = scanWikiLinks( page, content );
         final TreeSet< String > res = new TreeSet<>( links );
@@ -163,8 +230,99 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         for( final Attachment att : attachments ) {
             res.add( att.getName() );
         }
+        return res;
+    }
 
-        internalUpdateReferences( page.getName(), res );
+    /**
+     *  Updates the references of the given pages, reporting progress to the {@link ProgressManager}. If more than one scan thread
+     *  is configured, pages are parsed on a bounded worker pool, while their links are merged into the reference maps on the
+     *  calling thread. Does not sync the reference maps to disk.
+     *
+     *  @param pages pages to scan, without attachments.
+     *  @param serializeAttrs whether the page attributes should be written to disk.
+     */
+    private void scanPages( final List< Page > pages, final boolean serializeAttrs ) throws ProviderException {
+        final AtomicInteger count = new AtomicInteger();
+        final ProgressItem pi = new ProgressItem() {
+            @Override
+            public int getProgress() {
+                return pages.isEmpty() ? 100 : 100 * count.get() / pages.size();
+            }
+        };
+        final ProgressManager progressManager = m_engine.getManager( ProgressManager.class );
+        if( progressManager != null ) {
+            progressManager.startProgress( pi, PROGRESS_ID );
+        }
+
+        final List< Page > attrBatch = new ArrayList<>( ATTR_BATCH_SIZE );
+        try {
+            if( m_scanThreads == 1 || pages.size() < 2 ) {
+                for( final Page page : pages ) {
+                    updatePageReferences( page );
+                    scanned( page, serializeAttrs, attrBatch, count );
+                }
+            } else {
+                scanPagesInParallel( pages, serializeAttrs, attrBatch, count );
+            }
+            serializeAttrsToDisk( attrBatch );
+        } finally {
+            if( progressManager != null ) {
+                progressManager.stopProgress( PROGRESS_ID );
+            }
+        }
+    }
+
+    private void scanPagesInParallel( final List< Page > pages,
+                                      final boolean serializeAttrs,
+                                      final List< Page > attrBatch,
+                                      final AtomicInteger count ) throws ProviderException {
+        LOG.info( "Scanning {} pages with {} threads", pages.size(), m_scanThreads );
+        final AtomicInteger threadNumber = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool( m_scanThreads, r -> {
+            final Thread t = new Thread( r, "JSPWiki-ReferenceScan-" + threadNumber.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        } );
+        try {
+            // keep a bounded number of pages in flight, so parsed link sets do not pile up if merging falls behind
+            final CompletionService< Map.Entry< Page, TreeSet< String > > > completion = new ExecutorCompletionService<>( executor );
+            final int window = m_scanThreads * 4;
+            final Iterator< Page > it = pages.iterator();
+            int inFlight = 0;
+            while( it.hasNext() || inFlight > 0 ) {
+                while( it.hasNext() && inFlight < window ) {
+                    final Page page = it.next();
+                    completion.submit( () -> new AbstractMap.SimpleImmutableEntry<>( page, collectPageReferences( page ) ) );
+                    inFlight++;
+                }
+
+                final Map.Entry< Page, TreeSet< String > > result = completion.take().get();
+                inFlight--;
+                internalUpdateReferences( result.getKey().getName(), result.getValue() );
+                scanned( result.getKey(), serializeAttrs, attrBatch, count );
+            }
+        } catch( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new ProviderException( "Interrupted while scanning page references" );
+        } catch( final ExecutionException e ) {
+            if( e.getCause() instanceof ProviderException ) {
+                throw ( ProviderException )e.getCause();
+            }
+            throw new InternalWikiException( "Failed to scan page references: " + e.getCause().getMessage(), e.getCause() );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void scanned( final Page page, final boolean serializeAttrs, final List< Page > attrBatch, final AtomicInteger count ) {
+        if( serializeAttrs ) {
+            attrBatch.add( page );
+            if( attrBatch.size() >= ATTR_BATCH_SIZE ) {
+                serializeAttrsToDisk( attrBatch );
+                attrBatch.clear();
+            }
+        }
+        count.incrementAndGet();
     }
 
     /**
@@ -196,6 +354,7 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
 
             //  Now we must check if any of the pages have been changed  while we were in the electronic la-la-land,
             //  and update the references for them.
+            final List< Page > changed = new ArrayList<>();
             for( final Page page : pages ) {
                 if( !( page instanceof Attachment ) ) {
                     // Refresh with the latest copy
@@ -204,23 +363,20 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
                     if( wp.getLastModified() == null ) {
 						LOG.error( "Provider returns null lastModified.  Please submit a bug report." );
                     } else if( wp.getLastModified().getTime() > saved ) {
-                        updatePageReferences( wp );
+                        changed.add( wp );
                     }
                 }
             }
+            scanPages( changed, false );
 
         } catch( final Exception e ) {
             LOG.info( "Unable to unserialize old refmgr information, rebuilding database: {}", e.getMessage() );
             buildKeyLists( pages );
 
             // Scan the existing pages from disk and update references in the manager.
-            for( final Page page : pages ) {
-                // We cannot build a reference list from the contents of attachments, so we skip them.
-                if( !( page instanceof Attachment ) ) {
-                    updatePageReferences( page );
-                    serializeAttrsToDisk( page );
-                }
-            }
+            // We cannot build a reference list from the contents of attachments, so we skip them.
+            final List< Page > scanned = pages.stream().filter( page -> !( page instanceof Attachment ) ).collect( Collectors.toList() );
+            scanPages( scanned, true );
 
             serializeToDisk();
         }
@@ -229,17 +385,19 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         LOG.info( "Cross reference scan done in {}", sw );
 
         WikiEventManager.addWikiEventListener( m_engine.getManager( PageManager.class ), this );
+        WikiEventManager.addWikiEventListener( m_engine, m_shutdownListener );
     }
 
     /**
-     *  Reads the serialized data from the disk back to memory. Returns the date when the data was last written on disk
+     *  Reads the serialized data from the disk back to memory and replays the journal on top of it. Returns the date of the
+     *  last change that was written on disk.
      */
     @SuppressWarnings("unchecked")
     private synchronized long unserializeFromDisk() throws IOException, ClassNotFoundException {
 
         if (!doSerialize()) return Long.MIN_VALUE;
 
-        final long saved;
+        long saved;
 
         final File f = new File( m_engine.getWorkDir(), SERIALIZATION_FILE );
         try( final ObjectInputStream in = new ObjectInputStream( new BufferedInputStream( Files.newInputStream( f.toPath() ) ) ) ) {
@@ -263,11 +421,15 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
             LOG.debug( "Read serialized data successfully in {}", sw );
         }
 
+        m_snapshotTime = saved;
+        saved = replayJournal( saved );
+
         return saved;
     }
 
     /**
-     *  Serializes hashmaps to disk.  The format is private, don't touch it.
+     *  Serializes hashmaps to disk.  The format is private, don't touch it. As the snapshot contains all changes, the journal is
+     *  discarded afterwards.
      */
     private synchronized void serializeToDisk() {
 
@@ -278,10 +440,15 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
             final StopWatch sw = new StopWatch();
             sw.start();
 
+            final long timestamp = System.currentTimeMillis();
             out.writeLong( serialVersionUID );
-            out.writeLong( System.currentTimeMillis() ); // Timestamp
+            out.writeLong( timestamp );
             out.writeObject( m_refersTo );
             out.writeObject( m_referredBy );
+            out.flush();
+
+            m_snapshotTime = timestamp;
+            discardJournal();
 
             sw.stop();
 
@@ -291,6 +458,153 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         }
     }
 
+    /**
+     *  Records a change in the journal, or writes a complete snapshot if the journal is disabled or has grown over the
+     *  compaction threshold. The in-memory maps must already contain the change.
+     *
+     *  @param type {@link #JOURNAL_UPDATE} or {@link #JOURNAL_REMOVE}.
+     *  @param page page name.
+     *  @param references the new references of the page, ignored for removals.
+     */
+    private synchronized void journal( final byte type, final String page, final Collection< String > references ) {
+
+        if (!doSerialize()) return;
+
+        if( m_journalEntries >= m_journalCompactionThreshold ) {
+            serializeToDisk();
+            return;
+        }
+
+        try {
+            if( m_journal == null ) {
+                final File f = new File( m_engine.getWorkDir(), JOURNAL_FILE );
+                final boolean exists = f.exists();
+                m_journal = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( f, true ) ) );
+                if( !exists ) {
+                    m_journal.writeLong( serialVersionUID );
+                    m_journal.writeLong( m_snapshotTime );
+                }
+            }
+
+            // each entry is prefixed by its length, so a partially written entry can be detected on replay
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try( final DataOutputStream entry = new DataOutputStream( bytes ) ) {
+                entry.writeByte( type );
+                entry.writeLong( System.currentTimeMillis() );
+                entry.writeUTF( page );
+                final Collection< String > refs = type == JOURNAL_UPDATE ? references : Collections.emptySet();
+                entry.writeInt( refs.size() );
+                for( final String ref : refs ) {
+                    entry.writeUTF( ref );
+                }
+            }
+            m_journal.writeInt( bytes.size() );
+            bytes.writeTo( m_journal );
+            m_journal.flush();
+            m_journalEntries++;
+        } catch( final IOException e ) {
+            LOG.error( "Unable to write reference journal, writing a full snapshot instead", e );
+            serializeToDisk();
+        }
+    }
+
+    /**
+     *  Applies the journal entries written after the snapshot taken at the given time. A trailing, partially written entry
+     *  is cut off. Returns the time of the last applied entry, or the snapshot time if there are none.
+     */
+    private long replayJournal( final long snapshotTime ) {
+        final File f = new File( m_engine.getWorkDir(), JOURNAL_FILE );
+        if( !f.exists() ) {
+            return snapshotTime;
+        }
+
+        final StopWatch sw = new StopWatch();
+        sw.start();
+        long saved = snapshotTime;
+        long validLength = 0L;
+        int entries = 0;
+        try( final DataInputStream in = new DataInputStream( new BufferedInputStream( Files.newInputStream( f.toPath() ) ) ) ) {
+            if( in.readLong() != serialVersionUID || in.readLong() != snapshotTime ) {
+                LOG.info( "Reference journal does not belong to the current snapshot, discarding it." );
+                discardJournal();
+                return snapshotTime;
+            }
+            validLength = 2 * Long.BYTES;
+
+            while( true ) {
+                final byte[] data;
+                try {
+                    data = new byte[ in.readInt() ];
+                    in.readFully( data );
+                } catch( final EOFException e ) {
+                    break;
+                }
+
+                final DataInputStream entry = new DataInputStream( new ByteArrayInputStream( data ) );
+                final byte type = entry.readByte();
+                final long timestamp = entry.readLong();
+                final String page = entry.readUTF();
+                final int count = entry.readInt();
+                final TreeSet< String > refs = new TreeSet<>();
+                for( int i = 0; i < count; i++ ) {
+                    refs.add( entry.readUTF() );
+                }
+
+                if( type == JOURNAL_UPDATE ) {
+                    internalUpdateReferences( page, refs );
+                } else {
+                    removeReferences( page );
+                }
+                saved = Math.max( saved, timestamp );
+                validLength += Integer.BYTES + data.length;
+                entries++;
+            }
+        } catch( final IOException e ) {
+            LOG.warn( "Reference journal is corrupt after {} entries: {}", entries, e.getMessage() );
+        }
+
+        if( validLength < f.length() ) {
+            try( final RandomAccessFile raf = new RandomAccessFile( f, "rw" ) ) {
+                raf.setLength( validLength );
+            } catch( final IOException e ) {
+                LOG.error( "Unable to truncate reference journal, discarding it", e );
+                discardJournal();
+                return snapshotTime;
+            }
+        }
+        m_journalEntries = entries;
+
+        sw.stop();
+        LOG.debug( "Replayed {} reference journal entries in {}", entries, sw );
+        return saved;
+    }
+
+    /**
+     *  Flushes and closes the journal, which is opened again by the next change.
+     */
+    private synchronized void closeJournal() {
+        if( m_journal != null ) {
+            try {
+                m_journal.close();
+            } catch( final IOException e ) {
+                LOG.warn( "Unable to close reference journal", e );
+            }
+            m_journal = null;
+        }
+    }
+
+    /**
+     *  Closes and deletes the journal.
+     */
+    private synchronized void discardJournal() {
+        closeJournal();
+        final File f = new File( m_engine.getWorkDir(), JOURNAL_FILE );
+        if( f.exists() && !f.delete() ) {
+            LOG.warn( "Unable to delete reference journal {}", f.getAbsolutePath() );
+        }
+        m_journalEntries = 0;
+    }
+
     private String getHashFileName( final String pageName ) {
         if( pageName == null ) {
             return null;
@@ -363,6 +677,15 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         return saved;
     }
 
+    /**
+     *  Serializes the attributes of several pages to disk, holding the monitor only once.
+     */
+    private synchronized void serializeAttrsToDisk( final Collection< Page > pages ) {
+        for( final Page p : pages ) {
+            serializeAttrsToDisk( p );
+        }
+    }
+
     /**
      *  Serializes hashmaps to disk.  The format is private, don't touch it.
      */
@@ -465,6 +788,25 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
     }
 
     private void pageRemoved( final String pageName ) {
+        removeReferences( pageName );
+
+        //  Remove any traces from the disk, too
+        journal( JOURNAL_REMOVE, pageName, null );
+
+        final String hashName = getHashFileName( pageName );
+        if( hashName != null ) {
+        	File f = new File( m_engine.getWorkDir(), SERIALIZATION_DIR );
+            f = new File( f, getHashFileName( pageName ) );
+            if( f.exists() ) {
+                f.delete();
+            }
+        }
+    }
+
+    /**
+     *  Removes the given page from the in-memory reference maps. Does not sync to disk.
+     */
+    private void removeReferences( final String pageName ) {
         final Collection< String > refTo = m_refersTo.get( pageName );
         if( refTo != null ) {
             for( final String referredPageName : refTo ) {
@@ -492,18 +834,6 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         if( refBy == null || refBy.isEmpty() ) {
             m_referredBy.remove( pageName );
         }
-
-        //  Remove any traces from the disk, too
-        serializeToDisk();
-
-        final String hashName = getHashFileName( pageName );
-        if( hashName != null ) {
-        	File f = new File( m_engine.getWorkDir(), SERIALIZATION_DIR );
-            f = new File( f, getHashFileName( pageName ) );
-            if( f.exists() ) {
-                f.delete();
-            }
-        }
     }
 
     /**
@@ -529,8 +859,8 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
      */
     @Override
     public void updateReferences( final String page, final Collection< String > references ) {
-        internalUpdateReferences( page, references );
-        serializeToDisk();
+        final String finalName = internalUpdateReferences( page, references );
+        journal( JOURNAL_UPDATE, finalName, m_refersTo.getOrDefault( finalName, Collections.emptySet() ) );
     }
 
     /**
@@ -541,8 +871,9 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
      *
      *  @param page Name of the page to update.
      *  @param references A Collection of Strings, each one pointing to a page this page references.
+     *  @return the final name of the updated page.
      */
-    private void internalUpdateReferences( String page, final Collection< String > references) {
+    private String internalUpdateReferences( String page, final Collection< String > references) {
         page = getFinalPageName( page );
 
         // Create a new entry in m_refersTo.
@@ -567,6 +898,7 @@ public class DefaultReferenceManager extends BasePageFilter implements Reference
         for( final String referredPageName : cleanedRefs ) {
             updateReferredBy( getFinalPageName( referredPageName ), page );
         }
+        return page;
     }
 
     /**
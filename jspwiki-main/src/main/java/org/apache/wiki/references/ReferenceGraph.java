@@ -0,0 +1,557 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ *  Compact, int-ID based store of the links between wiki pages, used by {@link CompactReferenceManager}.
+ *  <p>
+ *  Every page name is stored exactly once, in a dictionary which maps it to an int id. The links are kept as primitive adjacency
+ *  arrays in compressed sparse row (CSR) layout: the outgoing links of page {@code i} are {@code outTargets[outOffsets[i]]} to
+ *  {@code outTargets[outOffsets[i+1]-1]}, and likewise for incoming links. As these arrays cannot be modified cheaply, pages updated
+ *  after the last compaction are kept in a small overlay, whose entries take precedence over the CSR arrays. Once the overlay grows
+ *  too large, {@link #compact()} folds it back into new CSR arrays, dropping page names which are no longer used.
+ *  <p>
+ *  A page is "created" once its outgoing links have been set, and until it is removed. Pages which are only referenced are known to
+ *  the dictionary, but are not created.
+ *  <p>
+ *  All methods are thread safe.
+ *
+ *  @since 2.12.8
+ */
+final class ReferenceGraph {
+
+    private static final int[] NO_IDS = new int[ 0 ];
+    private static final int MIN_OVERLAY_COMPACTION = 1024;
+
+    private final boolean m_matchEnglishPlurals;
+    private final ReadWriteLock m_lock = new ReentrantReadWriteLock();
+
+    // page dictionary: open addressing hash table of (id + 1) into m_names, 0 meaning empty slot
+    private String[] m_names = new String[ 16 ];
+    private int[] m_slots = new int[ 32 ];
+    private int m_size;
+
+    private BitSet m_created = new BitSet();
+
+    // CSR arrays for ids < m_baseSize
+    private int m_baseSize;
+    private int[] m_outOffsets = new int[ 1 ];
+    private int[] m_outTargets = NO_IDS;
+    private int[] m_inOffsets = new int[ 1 ];
+    private int[] m_inSources = NO_IDS;
+
+    // overlay: new outgoing links of pages changed since the last compaction, and the incoming links they add
+    private final Map< Integer, int[] > m_outOverlay = new HashMap<>();
+    private final Map< Integer, Set< Integer > > m_inOverlay = new HashMap<>();
+
+    /**
+     *  Creates a new, empty graph.
+     *
+     *  @param matchEnglishPlurals if {@code true}, a link from a page to its own plural or singular form does not count as a referrer.
+     */
+    ReferenceGraph( final boolean matchEnglishPlurals ) {
+        m_matchEnglishPlurals = matchEnglishPlurals;
+    }
+
+    /**
+     *  Sets the outgoing links of a page, replacing any previous ones, and marks the page as created.
+     *
+     *  @param page page name.
+     *  @param references names of the pages it links to.
+     */
+    void setReferences( final String page, final Collection< String > references ) {
+        m_lock.writeLock().lock();
+        try {
+            final int id = intern( page );
+            final int[] targets = references.stream().mapToInt( this::intern ).distinct().sorted().toArray();
+            replaceOutgoing( id, targets );
+            m_created.set( id );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Drops the outgoing links of a page and marks it as not created. Links pointing to the page are kept.
+     *
+     *  @param page page name.
+     */
+    void remove( final String page ) {
+        m_lock.writeLock().lock();
+        try {
+            final int id = lookup( page );
+            if( id >= 0 ) {
+                replaceOutgoing( id, NO_IDS );
+                m_created.clear( id );
+            }
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns {@code true} if the page has been created.
+     *
+     *  @param page page name.
+     *  @return {@code true} if the page has been created.
+     */
+    boolean isCreated( final String page ) {
+        m_lock.readLock().lock();
+        try {
+            final int id = lookup( page );
+            return id >= 0 && m_created.get( id );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns the sorted names of the pages the given page links to, or {@code null} if the page has not been created.
+     *
+     *  @param page page name.
+     *  @return the names of the linked pages, or {@code null}.
+     */
+    Set< String > referencesOf( final String page ) {
+        m_lock.readLock().lock();
+        try {
+            final int id = lookup( page );
+            if( id < 0 || !m_created.get( id ) ) {
+                return null;
+            }
+            return toNames( outgoing( id ) );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns the sorted names of the pages linking to the given page, or {@code null} if the page is neither created nor referenced.
+     *
+     *  @param page page name.
+     *  @return the names of the referring pages, or {@code null}.
+     */
+    Set< String > referrersOf( final String page ) {
+        m_lock.readLock().lock();
+        try {
+            final int id = lookup( page );
+            if( id < 0 ) {
+                return null;
+            }
+            final Set< String > referrers = toNames( incoming( id ) );
+            return referrers.isEmpty() && !m_created.get( id ) ? null : referrers;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns the names of all created pages.
+     *
+     *  @return the names of all created pages.
+     */
+    Set< String > created() {
+        m_lock.readLock().lock();
+        try {
+            final Set< String > created = new HashSet<>( m_created.cardinality() * 4 / 3 + 1 );
+            m_created.stream().forEach( id -> created.add( m_names[ id ] ) );
+            return created;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns the names of all created pages which are not linked from any page. If English plurals are matched, links to the plural
+     *  or singular form of a page also count.
+     *
+     *  @return the names of all unreferenced pages.
+     */
+    Set< String > unreferenced() {
+        m_lock.readLock().lock();
+        try {
+            final Set< String > unreferenced = new HashSet<>();
+            m_created.stream().forEach( id -> {
+                if( incoming( id ).length == 0 ) {
+                    final int variant = m_matchEnglishPlurals ? lookup( pluralVariant( m_names[ id ] ) ) : -1;
+                    if( variant < 0 || incoming( variant ).length == 0 ) {
+                        unreferenced.add( m_names[ id ] );
+                    }
+                }
+            } );
+            return unreferenced;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns the names of all pages linked from created pages, each one only once.
+     *
+     *  @return the names of all linked pages.
+     */
+    Set< String > referenced() {
+        m_lock.readLock().lock();
+        try {
+            final BitSet referenced = new BitSet( m_size );
+            m_created.stream().forEach( id -> {
+                for( final int target : outgoing( id ) ) {
+                    referenced.set( target );
+                }
+            } );
+            final Set< String > names = new HashSet<>( referenced.cardinality() * 4 / 3 + 1 );
+            referenced.stream().forEach( id -> names.add( m_names[ id ] ) );
+            return names;
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Returns {@code true} if the overlay has grown large enough to be worth a {@link #compact()}.
+     *
+     *  @return {@code true} if the graph should be compacted.
+     */
+    boolean needsCompaction() {
+        m_lock.readLock().lock();
+        try {
+            return m_outOverlay.size() > Math.max( MIN_OVERLAY_COMPACTION, m_size / 16 );
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Folds the overlay into new CSR arrays. Page names neither created nor referenced anymore are dropped from the dictionary, so
+     *  page ids are not stable across compactions.
+     */
+    void compact() {
+        m_lock.writeLock().lock();
+        try {
+            // collect live pages and their current outgoing links
+            final int[][] out = new int[ m_size ][];
+            final BitSet live = new BitSet( m_size );
+            m_created.stream().forEach( id -> {
+                out[ id ] = outgoing( id );
+                live.set( id );
+                for( final int target : out[ id ] ) {
+                    live.set( target );
+                }
+            } );
+
+            // renumber
+            final int[] newIds = new int[ m_size ];
+            final String[] names = new String[ Math.max( 16, live.cardinality() ) ];
+            final BitSet created = new BitSet( names.length );
+            int count = 0;
+            for( int id = live.nextSetBit( 0 ); id >= 0; id = live.nextSetBit( id + 1 ) ) {
+                newIds[ id ] = count;
+                names[ count ] = m_names[ id ];
+                if( m_created.get( id ) ) {
+                    created.set( count );
+                }
+                count++;
+            }
+
+            final int[][] newOut = new int[ count ][];
+            for( int id = live.nextSetBit( 0 ); id >= 0; id = live.nextSetBit( id + 1 ) ) {
+                final int[] targets = out[ id ] != null ? out[ id ] : NO_IDS;
+                final int[] mapped = new int[ targets.length ];
+                for( int i = 0; i < targets.length; i++ ) {
+                    mapped[ i ] = newIds[ targets[ i ] ];
+                }
+                Arrays.sort( mapped );
+                newOut[ newIds[ id ] ] = mapped;
+            }
+
+            m_names = names;
+            m_size = count;
+            m_created = created;
+            rehash( Math.max( 32, Integer.highestOneBit( Math.max( 1, count ) ) << 2 ) );
+            m_outOverlay.clear();
+            m_inOverlay.clear();
+            buildCsr( newOut );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Writes the compacted graph to the given stream.
+     *
+     *  @param out stream to write to.
+     *  @throws IOException if writing fails.
+     */
+    void writeTo( final DataOutputStream out ) throws IOException {
+        compact();
+        m_lock.readLock().lock();
+        try {
+            out.writeInt( m_size );
+            for( int id = 0; id < m_size; id++ ) {
+                out.writeUTF( m_names[ id ] );
+                out.writeBoolean( m_created.get( id ) );
+                final int from = m_outOffsets[ id ];
+                final int to = m_outOffsets[ id + 1 ];
+                out.writeInt( to - from );
+                for( int i = from; i < to; i++ ) {
+                    out.writeInt( m_outTargets[ i ] );
+                }
+            }
+        } finally {
+            m_lock.readLock().unlock();
+        }
+    }
+
+    /**
+     *  Replaces the contents of this graph with the ones read from the given stream, as written by {@link #writeTo(DataOutputStream)}.
+     *
+     *  @param in stream to read from.
+     *  @throws IOException if reading fails.
+     */
+    void readFrom( final DataInputStream in ) throws IOException {
+        final int count = in.readInt();
+        final String[] names = new String[ Math.max( 16, count ) ];
+        final BitSet created = new BitSet( count );
+        final int[][] out = new int[ count ][];
+        for( int id = 0; id < count; id++ ) {
+            names[ id ] = in.readUTF();
+            if( in.readBoolean() ) {
+                created.set( id );
+            }
+            out[ id ] = new int[ in.readInt() ];
+            for( int i = 0; i < out[ id ].length; i++ ) {
+                out[ id ][ i ] = in.readInt();
+                if( out[ id ][ i ] < 0 || out[ id ][ i ] >= count ) {
+                    throw new IOException( "Invalid page id " + out[ id ][ i ] );
+                }
+            }
+        }
+
+        m_lock.writeLock().lock();
+        try {
+            m_names = names;
+            m_size = count;
+            m_created = created;
+            rehash( Math.max( 32, Integer.highestOneBit( Math.max( 1, count ) ) << 2 ) );
+            m_outOverlay.clear();
+            m_inOverlay.clear();
+            buildCsr( out );
+        } finally {
+            m_lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     *  Outgoing links of a page. Needs the read lock.
+     */
+    private int[] outgoing( final int id ) {
+        final int[] overlay = m_outOverlay.get( id );
+        if( overlay != null ) {
+            return overlay;
+        }
+        if( id >= m_baseSize ) {
+            return NO_IDS;
+        }
+        return Arrays.copyOfRange( m_outTargets, m_outOffsets[ id ], m_outOffsets[ id + 1 ] );
+    }
+
+    /**
+     *  Incoming links of a page: the ones from the CSR arrays whose source has not been changed since, plus the ones from the overlay.
+     *  Needs the read lock.
+     */
+    private int[] incoming( final int id ) {
+        final Set< Integer > overlay = m_inOverlay.get( id );
+        final int from = id < m_baseSize ? m_inOffsets[ id ] : 0;
+        final int to = id < m_baseSize ? m_inOffsets[ id + 1 ] : 0;
+        final int[] sources = new int[ to - from + ( overlay != null ? overlay.size() : 0 ) ];
+        int count = 0;
+        for( int i = from; i < to; i++ ) {
+            if( !m_outOverlay.containsKey( m_inSources[ i ] ) ) {
+                sources[ count++ ] = m_inSources[ i ];
+            }
+        }
+        if( overlay != null ) {
+            for( final int source : overlay ) {
+                sources[ count++ ] = source;
+            }
+        }
+        return count == sources.length ? sources : Arrays.copyOf( sources, count );
+    }
+
+    /**
+     *  Puts new outgoing links for a page into the overlay. Needs the write lock.
+     */
+    private void replaceOutgoing( final int id, final int[] targets ) {
+        final int[] previous = m_outOverlay.put( id, targets );
+        if( previous != null ) {
+            for( final int target : previous ) {
+                final Set< Integer > sources = m_inOverlay.get( target );
+                if( sources != null ) {
+                    sources.remove( id );
+                    if( sources.isEmpty() ) {
+                        m_inOverlay.remove( target );
+                    }
+                }
+            }
+        }
+        for( final int target : targets ) {
+            if( countsAsReferrer( id, target ) ) {
+                m_inOverlay.computeIfAbsent( target, k -> new HashSet<>() ).add( id );
+            }
+        }
+    }
+
+    /**
+     *  Neither are we interested if plural forms refer to each other.
+     */
+    private boolean countsAsReferrer( final int source, final int target ) {
+        if( m_matchEnglishPlurals ) {
+            return !m_names[ source ].equals( pluralVariant( m_names[ target ] ) );
+        }
+        return true;
+    }
+
+    /**
+     *  Returns the singular form of a page name ending in "s", or its plural form otherwise.
+     *
+     *  @param page page name.
+     *  @return the plural or singular form of the page name.
+     */
+    static String pluralVariant( final String page ) {
+        return page.endsWith( "s" ) ? page.substring( 0, page.length() - 1 ) : page + "s";
+    }
+
+    /**
+     *  Rebuilds the CSR arrays from the given outgoing links. Needs the write lock.
+     */
+    private void buildCsr( final int[][] out ) {
+        final int count = out.length;
+        final int[] outOffsets = new int[ count + 1 ];
+        final int[] inDegree = new int[ count ];
+        for( int id = 0; id < count; id++ ) {
+            outOffsets[ id + 1 ] = outOffsets[ id ] + out[ id ].length;
+        }
+        final int[] outTargets = new int[ outOffsets[ count ] ];
+        for( int id = 0; id < count; id++ ) {
+            System.arraycopy( out[ id ], 0, outTargets, outOffsets[ id ], out[ id ].length );
+            for( final int target : out[ id ] ) {
+                if( countsAsReferrer( id, target ) ) {
+                    inDegree[ target ]++;
+                }
+            }
+        }
+
+        final int[] inOffsets = new int[ count + 1 ];
+        for( int id = 0; id < count; id++ ) {
+            inOffsets[ id + 1 ] = inOffsets[ id ] + inDegree[ id ];
+        }
+        final int[] inSources = new int[ inOffsets[ count ] ];
+        final int[] fill = Arrays.copyOf( inOffsets, count );
+        for( int id = 0; id < count; id++ ) {
+            for( final int target : out[ id ] ) {
+                if( countsAsReferrer( id, target ) ) {
+                    inSources[ fill[ target ]++ ] = id;
+                }
+            }
+        }
+
+        m_baseSize = count;
+        m_outOffsets = outOffsets;
+        m_outTargets = outTargets;
+        m_inOffsets = inOffsets;
+        m_inSources = inSources;
+    }
+
+    /**
+     *  Returns the id of a page name, or -1 if it is not in the dictionary. Needs the read lock.
+     */
+    private int lookup( final String name ) {
+        final int mask = m_slots.length - 1;
+        for( int slot = spread( name.hashCode() ) & mask; m_slots[ slot ] != 0; slot = ( slot + 1 ) & mask ) {
+            if( m_names[ m_slots[ slot ] - 1 ].equals( name ) ) {
+                return m_slots[ slot ] - 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     *  Returns the id of a page name, adding it to the dictionary if needed. Needs the write lock.
+     */
+    private int intern( final String name ) {
+        final int existing = lookup( name );
+        if( existing >= 0 ) {
+            return existing;
+        }
+        if( m_size == m_names.length ) {
+            m_names = Arrays.copyOf( m_names, m_names.length * 2 );
+        }
+        final int id = m_size++;
+        m_names[ id ] = name;
+        if( m_size * 2 > m_slots.length ) {
+            rehash( m_slots.length * 2 );
+        } else {
+            insertSlot( id );
+        }
+        return id;
+    }
+
+    private void rehash( final int capacity ) {
+        m_slots = new int[ capacity ];
+        for( int id = 0; id < m_size; id++ ) {
+            insertSlot( id );
+        }
+    }
+
+    private void insertSlot( final int id ) {
+        final int mask = m_slots.length - 1;
+        int slot = spread( m_names[ id ].hashCode() ) & mask;
+        while( m_slots[ slot ] != 0 ) {
+            slot = ( slot + 1 ) & mask;
+        }
+        m_slots[ slot ] = id + 1;
+    }
+
+    private static int spread( final int h ) {
+        return h ^ ( h >>> 16 );
+    }
+
+    private Set< String > toNames( final int[] ids ) {
+        final Set< String > names = new TreeSet<>();
+        for( final int id : ids ) {
+            names.add( m_names[ id ] );
+        }
+        return names;
+    }
+
+}
@@ -30,7 +30,6 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.FilterException;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.exceptions.WikiException;
-import org.apache.wiki.api.providers.PageProvider;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
 import org.apache.wiki.cache.CachingManager;
@@ -40,20 +39,27 @@ import org.apache.wiki.event.WikiEventManager;
 import org.apache.wiki.event.WikiPageEvent;
 import org.apache.wiki.filters.FilterManager;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.parser.CharArrayCursor;
 import org.apache.wiki.parser.JSPWikiMarkupParser;
+import org.apache.wiki.parser.LinkParsingOperations;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
-import org.apache.wiki.references.ReferenceManager;
 import org.apache.wiki.util.ClassUtil;
 import org.apache.wiki.util.TextUtil;
 import org.apache.wiki.variables.VariableManager;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringReader;
 import java.lang.reflect.Constructor;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 
 /**
@@ -61,7 +67,9 @@ import java.util.Properties;
  *  instead of the ones in Engine, if you don't want the different side effects to occur - such as WikiFilters.
  *  <p>
  *  This class also delegates to a rendering cache, i.e. documents are stored between calls. You may control the cache by
- *  tweaking the ehcache configuration file.
+ *  tweaking the ehcache configuration file. Every cached document is tagged with the pages it depends on, that is, the page
+ *  itself and every page whose existence was checked while parsing it, so saving a page only flushes the documents which
+ *  actually depend on it.
  *  <p>
  *
  *  @since  2.4
@@ -88,6 +96,9 @@ public class DefaultRenderingManager implements RenderingManager {
     private Constructor< ? > m_rendererWysiwygConstructor;
     private String m_markupParserClass = DEFAULT_PARSER;
 
+    /** Idle parser inputs, whose character arrays are reused by {@link #getRenderedDocument(Context, String)} and {@link #textToHTML}. */
+    private BlockingQueue< CharArrayCursor > m_inputPool;
+
     /**
      *  {@inheritDoc}
      *
@@ -105,6 +116,9 @@ public class DefaultRenderingManager implements RenderingManager {
         }
         LOG.info( "Using {} as markup parser.", m_markupParserClass );
 
+        final int poolSize = TextUtil.getIntegerProperty( properties, PROP_PARSER_POOL_SIZE, 2 * Runtime.getRuntime().availableProcessors() );
+        m_inputPool = poolSize > 0 ? new ArrayBlockingQueue<>( poolSize ) : null;
+
         m_beautifyTitle  = TextUtil.getBooleanProperty( properties, PROP_BEAUTIFYTITLE, m_beautifyTitle );
         final String renderImplName = properties.getProperty( PROP_RENDERER, DEFAULT_RENDERER );
         final String renderWysiwygImplName = properties.getProperty( PROP_WYSIWYG_RENDERER, DEFAULT_WYSIWYG_RENDERER );
@@ -175,19 +189,43 @@ public class DefaultRenderingManager implements RenderingManager {
      */
     @Override
     public MarkupParser getParser( final Context context, final String pagedata ) {
+        return getParser( context, new StringReader( pagedata ) );
+    }
+
+    private MarkupParser getParser( final Context context, final Reader in ) {
     	try {
-			return ClassUtil.getMappedObject( m_markupParserClass, context, new StringReader( pagedata ) );
+			return ClassUtil.getMappedObject( m_markupParserClass, context, in );
 		} catch( final ReflectiveOperationException | IllegalArgumentException e ) {
 			LOG.error( "unable to get an instance of {} ({}), returning default markup parser.", m_markupParserClass, e.getMessage(), e );
-			return new JSPWikiMarkupParser( context, new StringReader( pagedata ) );
+			return new JSPWikiMarkupParser( context, in );
 		}
     }
 
+    /**
+     *  Returns the input for a document which is parsed and then thrown away right here, reusing the character array of an idle
+     *  input if there is one. The input has to be handed back with {@link #returnInput(CharArrayCursor)} once the document is parsed,
+     *  after which the parser reading it must not be used any more.
+     */
+    CharArrayCursor borrowInput( final String pagedata ) {
+        final CharArrayCursor input = m_inputPool != null ? m_inputPool.poll() : null;
+        if( input != null ) {
+            input.setSource( new StringReader( pagedata ) );
+            return input;
+        }
+        return new CharArrayCursor( new StringReader( pagedata ) );
+    }
+
+    void returnInput( final CharArrayCursor input ) {
+        if( m_inputPool != null ) {
+            input.setSource( null );
+            m_inputPool.offer( input );
+        }
+    }
+
     /**
      *  {@inheritDoc}
      */
     @Override
-    // FIXME: The cache management policy is not very good: deleted/changed pages should be detected better.
     public WikiDocument getRenderedDocument( final Context context, final String pagedata ) {
         final String pageid = context.getRealPage().getName() + VERSION_DELIMITER +
                               context.getRealPage().getVersion() + VERSION_DELIMITER +
@@ -208,16 +246,31 @@ public class DefaultRenderingManager implements RenderingManager {
         }
 
         // Refresh the data content
+        final CharArrayCursor input = borrowInput( pagedata );
         try {
-            final MarkupParser parser = getParser( context, pagedata );
-            final WikiDocument doc = parser.parse();
-            doc.setPageData( pagedata );
+            final MarkupParser parser = getParser( context, input );
             if( useCache( context ) ) {
-                cachingManager.put( CachingManager.CACHE_DOCUMENTS, pageid, doc );
+                final Set< String > dependencies = new HashSet<>();
+                final Object outerDependencies = context.getVariable( LinkParsingOperations.VAR_LINK_DEPENDENCIES );
+                context.setVariable( LinkParsingOperations.VAR_LINK_DEPENDENCIES, dependencies );
+                final WikiDocument doc;
+                try {
+                    doc = parser.parse();
+                } finally {
+                    context.setVariable( LinkParsingOperations.VAR_LINK_DEPENDENCIES, outerDependencies );
+                }
+                doc.setPageData( pagedata );
+                dependencies.add( context.getRealPage().getName() );
+                cachingManager.put( CachingManager.CACHE_DOCUMENTS, pageid, doc, dependencies );
+                return doc;
             }
+            final WikiDocument doc = parser.parse();
+            doc.setPageData( pagedata );
             return doc;
         } catch( final IOException ex ) {
             LOG.error( "Unable to parse", ex );
+        } finally {
+            returnInput( input );
         }
 
         return null;
@@ -330,16 +383,22 @@ public class DefaultRenderingManager implements RenderingManager {
                 pagedata = m_engine.getManager( FilterManager.class ).doPreTranslateFiltering( context, pagedata );
             }
 
-            final MarkupParser mp = getParser( context, pagedata );
-            mp.addLocalLinkHook( localLinkHook );
-            mp.addExternalLinkHook( extLinkHook );
-            mp.addAttachmentLinkHook( attLinkHook );
+            final CharArrayCursor input = borrowInput( pagedata );
+            final WikiDocument doc;
+            try {
+                final MarkupParser mp = getParser( context, input );
+                mp.addLocalLinkHook( localLinkHook );
+                mp.addExternalLinkHook( extLinkHook );
+                mp.addAttachmentLinkHook( attLinkHook );
 
-            if( !parseAccessRules ) {
-                mp.disableAccessRules();
-            }
+                if( !parseAccessRules ) {
+                    mp.disableAccessRules();
+                }
 
-            final WikiDocument doc = mp.parse();
+                doc = mp.parse();
+            } finally {
+                returnInput( input );
+            }
             //  In some cases it's better just to parse, not to render
             if( !justParse ) {
                 result = getHTML( context, doc );
@@ -401,23 +460,22 @@ public class DefaultRenderingManager implements RenderingManager {
         LOG.debug( "event received: {}", event.toString() );
         if( isBeginningAWikiPagePostSaveEventAndDocumentCacheIsEnabled( event ) ) {
             final String pageName = ( ( WikiPageEvent ) event ).getPageName();
-            cachingManager.remove( CachingManager.CACHE_DOCUMENTS, pageName );
-            final Collection< String > referringPages = m_engine.getManager( ReferenceManager.class ).findReferrers( pageName );
-
-            // Flush also those pages that refer to this page (if a nonexistent page
-            // appears, we need to flush the HTML that refers to the now-existent page)
-            if( referringPages != null ) {
-                for( final String page : referringPages ) {
-                    LOG.debug( "Flushing latest version of {}", page );
-                    // as there is a new version of the page expire both plugin and pluginless versions of the old page
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + Boolean.FALSE );
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + Boolean.TRUE );
-                    cachingManager.remove( CachingManager.CACHE_DOCUMENTS, page + VERSION_DELIMITER + PageProvider.LATEST_VERSION  + VERSION_DELIMITER + null );
-                }
+
+            // Flush the page itself and every document which checked whether this page exists (if a nonexistent page
+            // appears, we need to flush the HTML that refers to the now-existent page). Links may use the plural form.
+            int flushed = 0;
+            for( final String dependency : dependencyTags( pageName ) ) {
+                flushed += cachingManager.removeTagged( CachingManager.CACHE_DOCUMENTS, dependency );
             }
+            LOG.debug( "Flushed {} cached documents depending on {}", flushed, pageName );
         }
     }
 
+    static List< String > dependencyTags( final String pageName ) {
+        final String pluralVariant = pageName.endsWith( "s" ) ? pageName.substring( 0, pageName.length() - 1 ) : pageName + "s";
+        return Arrays.asList( pageName, pluralVariant );
+    }
+
     boolean isBeginningAWikiPagePostSaveEventAndDocumentCacheIsEnabled( final WikiEvent event ) {
         return event instanceof WikiPageEvent
                && event.getType() == WikiPageEvent.POST_SAVE_BEGIN
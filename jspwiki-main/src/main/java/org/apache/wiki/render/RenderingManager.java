@@ -56,6 +56,9 @@ public interface RenderingManager extends RenderApi, WikiEventListener, Internal
 
     String PROP_BEAUTIFYTITLE = "jspwiki.breakTitleWithSpaces";
 
+    /** Number of idle markup parser inputs kept for reuse, 0 disables reuse. Defaults to twice the number of processors. */
+    String PROP_PARSER_POOL_SIZE = "jspwiki.renderingManager.parserPoolSize";
+
     /**
      *  Beautifies the title of the page by appending spaces in suitable places, if the user has so decreed in the properties when
      *  constructing this Engine.  However, attachment names are only beautified by the name.
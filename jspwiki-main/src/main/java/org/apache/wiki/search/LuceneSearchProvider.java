@@ -22,14 +22,16 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Executor;
 
@@ -38,13 +40,13 @@ import org.apache.lucene.analysis.classic.ClassicAnalyzer;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
@@ -56,12 +58,12 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.TermQuery;
-import org.apache.lucene.search.highlight.Highlighter;
-import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
-import org.apache.lucene.search.highlight.QueryScorer;
-import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
-import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.Passage;
+import org.apache.lucene.search.uhighlight.PassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.wiki.InternalWikiException;
@@ -91,6 +93,13 @@ import java.util.stream.Collectors;
 
 /**
  * Interface for the search providers that handle searching the Wiki
+ * <p>
+ * A single {@link IndexWriter} is kept open for the lifetime of the provider. Updates are added to it by the background
+ * {@code LuceneUpdater} thread, which commits them in batches and then refreshes a near-real-time {@link SearcherManager}, so
+ * searches never open the index directory themselves.
+ * <p>
+ * Pending updates are coalesced per page name: a later update replaces the text queued earlier, and a removal cancels a pending
+ * update. The queue is drained in batches of {@code jspwiki.lucene.batchsize} pages, each applied as a single writer commit.
  *
  * @since 2.2.21.
  */
@@ -107,6 +116,10 @@ public class LuceneSearchProvider implements SearchProvider {
     public static final String PROP_LUCENE_ANALYZER      = "jspwiki.lucene.analyzer";
     private static final String PROP_LUCENE_INDEXDELAY   = "jspwiki.lucene.indexdelay";
     private static final String PROP_LUCENE_INITIALDELAY = "jspwiki.lucene.initialdelay";
+    /** Maximum number of queued page updates applied in a single commit. Default is 500. */
+    public static final String PROP_LUCENE_BATCHSIZE     = "jspwiki.lucene.batchsize";
+
+    private static final int DEFAULT_BATCHSIZE = 500;
 
     private String m_analyzerClass = ClassicAnalyzer.class.getName();
 
@@ -124,8 +137,24 @@ public class LuceneSearchProvider implements SearchProvider {
     protected static final String LUCENE_PAGE_NAME     = "name";
     protected static final String LUCENE_PAGE_KEYWORDS = "keywords";
 
+    /** Page text is indexed with offsets in the postings, so search contexts are built without re-analyzing the text. */
+    protected static final FieldType CONTENTS_TYPE = new FieldType( TextField.TYPE_STORED );
+    static {
+        CONTENTS_TYPE.setIndexOptions( IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS );
+        CONTENTS_TYPE.freeze();
+    }
+
     protected String m_luceneDirectory;
-    protected final List< Object[] > m_updates = Collections.synchronizedList( new ArrayList<>() );
+
+    /** Shared writer and NRT searcher manager, lazily opened by {@link #getIndexWriter()}. Guarded by {@link #m_indexLock}. */
+    private Directory m_directory;
+    private IndexWriter m_writer;
+    private SearcherManager m_searcherManager;
+    private final Object m_indexLock = new Object();
+
+    /** Pending index updates keyed by page name, oldest first. Guarded by itself. */
+    private final Map< String, PendingUpdate > m_updates = new LinkedHashMap<>();
+    private int m_batchSize = DEFAULT_BATCHSIZE;
 
     /** Maximum number of fragments from search matches. */
     private static final int MAX_FRAGMENTS = 3;
@@ -147,6 +176,7 @@ public class LuceneSearchProvider implements SearchProvider {
         final int indexDelay   = TextUtil.getIntegerProperty( props, PROP_LUCENE_INDEXDELAY, LuceneUpdater.INDEX_DELAY );
 
         m_analyzerClass = TextUtil.getStringProperty( props, PROP_LUCENE_ANALYZER, m_analyzerClass );
+        m_batchSize = Math.max( 1, TextUtil.getIntegerProperty( props, PROP_LUCENE_BATCHSIZE, DEFAULT_BATCHSIZE ) );
         // FIXME: Just to be simple for now, we will do full reindex only if no files are in lucene directory.
 
         final File dir = new File( m_luceneDirectory );
@@ -182,7 +212,8 @@ public class LuceneSearchProvider implements SearchProvider {
 		// bumped v1 -> v2 for the Lucene 6.6.6 -> 10 upgrade: Lucene 10 cannot open a v6 on-disk index
 		// (IndexFormatTooOldException). A new id routes to a fresh directory so the search index is rebuilt
 		// from the wiki pages instead of crashing; the old v6 directory is simply left unused.
-		return "v2";
+		// bumped v2 -> v3 when page contents started to be indexed with offsets, which the highlighter relies on.
+		return "v3";
 	}
 
     /**
@@ -207,50 +238,49 @@ public class LuceneSearchProvider implements SearchProvider {
         }
 
         try {
-            if( filelist.length == 0 ) {
+            final IndexWriter writer = getIndexWriter();
+            if( !DirectoryReader.indexExists( writer.getDirectory() ) ) {
                 //
-                //  No files? Reindex!
+                //  No index committed yet? Reindex!
                 //
                 final Date start = new Date();
 
                 LOG.info( "Starting Lucene reindexing, this can take a couple of minutes..." );
 
-                final Directory luceneDir = FSDirectory.open( dir.toPath() );
-                try( final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-                    long pagesStart = System.currentTimeMillis();
-					long pagesIndexed = 0L;
-                    final Collection< Page > allPages = m_engine.getManager( PageManager.class ).getAllPages();
-                    for( final Page page : allPages ) {
-                        try {
-                            final String text = m_engine.getManager( PageManager.class ).getPageText( page.getName(), WikiProvider.LATEST_VERSION );
-                            luceneIndexPage( page, text, writer );
-                            pagesIndexed++;
-                        } catch( final IOException e ) {
-                            LOG.warn( "Unable to index page {}, continuing to next ", page.getName(), e );
-                        }
+                long pagesStart = System.currentTimeMillis();
+				long pagesIndexed = 0L;
+                final Collection< Page > allPages = m_engine.getManager( PageManager.class ).getAllPages();
+                for( final Page page : allPages ) {
+                    try {
+                        final String text = m_engine.getManager( PageManager.class ).getPageText( page.getName(), WikiProvider.LATEST_VERSION );
+                        luceneIndexPage( page, text, writer );
+                        pagesIndexed++;
+                    } catch( final IOException e ) {
+                        LOG.warn( "Unable to index page {}, continuing to next ", page.getName(), e );
                     }
-                    LOG.info("Indexed {} pages in {}ms", pagesIndexed, System.currentTimeMillis() - pagesStart);
-
-                    long attachmentStart = System.currentTimeMillis();
-
-                    long attachmentsIndexed = 0L;
-                    final Collection< Attachment > allAttachments = m_engine.getManager( AttachmentManager.class ).getAllAttachments();
-                    for( final Attachment att : allAttachments ) {
-                        try {
-                            final String text = getAttachmentContent( att.getName(), WikiProvider.LATEST_VERSION );
-                            luceneIndexPage( att, text, writer );
-                            attachmentsIndexed++;
-                        } catch( final IOException e ) {
-                            LOG.warn( "Unable to index attachment {}, continuing to next", att.getName(), e );
-                        }
+                }
+                LOG.info("Indexed {} pages in {}ms", pagesIndexed, System.currentTimeMillis() - pagesStart);
+
+                long attachmentStart = System.currentTimeMillis();
+
+                long attachmentsIndexed = 0L;
+                final Collection< Attachment > allAttachments = m_engine.getManager( AttachmentManager.class ).getAllAttachments();
+                for( final Attachment att : allAttachments ) {
+                    try {
+                        final String text = getAttachmentContent( att.getName(), WikiProvider.LATEST_VERSION );
+                        luceneIndexPage( att, text, writer );
+                        attachmentsIndexed++;
+                    } catch( final IOException e ) {
+                        LOG.warn( "Unable to index attachment {}, continuing to next", att.getName(), e );
                     }
-                    LOG.info("Indexed {} attachments in {}ms", attachmentsIndexed, System.currentTimeMillis() - attachmentStart);
                 }
+                LOG.info("Indexed {} attachments in {}ms", attachmentsIndexed, System.currentTimeMillis() - attachmentStart);
+                commitAndRefresh();
 
                 final Date end = new Date();
                 LOG.info( "Full Lucene index finished in {} milliseconds.", end.getTime() - start.getTime() );
             } else {
-                LOG.info( "Files found in Lucene directory, not reindexing." );
+                LOG.info( "Index found in Lucene directory, not reindexing." );
             }
         } catch( final IOException e ) {
             LOG.error( "Problem while creating Lucene index - not using Lucene.", e );
@@ -318,14 +348,13 @@ public class LuceneSearchProvider implements SearchProvider {
      * @param page The WikiPage to check
      * @param text The page text to index.
      */
-    protected synchronized void updateLuceneIndex( final Page page, final String text ) {
+    protected void updateLuceneIndex( final Page page, final String text ) {
         LOG.debug( "Updating Lucene index for page '{}'...", page.getName() );
-        pageRemoved( page );
+        removeFromIndex( page.getName() );
 
-        // Now add back the new version.
-        try( final Directory luceneDir = FSDirectory.open( new File( m_luceneDirectory ).toPath() );
-             final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-            luceneIndexPage( page, text, writer );
+        // Now add back the new version. It becomes visible to searches with the next commitAndRefresh().
+        try {
+            luceneIndexPage( page, text, getIndexWriter() );
         } catch( final IOException e ) {
             LOG.error( "Unable to update page '{}' from Lucene index", page.getName(), e );
             // reindexPage( page );
@@ -372,7 +401,7 @@ public class LuceneSearchProvider implements SearchProvider {
         doc.add( field );
 
         // Body text.  It is stored in the doc for search contexts.
-        field = new Field( LUCENE_PAGE_CONTENTS, indexedText, TextField.TYPE_STORED );
+        field = new Field( LUCENE_PAGE_CONTENTS, indexedText, CONTENTS_TYPE );
         doc.add( field );
 
         // Allow searching by page name. Both beautified and raw
@@ -404,24 +433,113 @@ public class LuceneSearchProvider implements SearchProvider {
             field = new Field( LUCENE_PAGE_KEYWORDS, page.getAttribute( "keywords" ).toString(), TextField.TYPE_STORED );
             doc.add( field );
         }
-        synchronized( writer ) {
-            writer.addDocument( doc );
-        }
+        writer.addDocument( doc );
 
         return doc;
     }
 
     /**
-     * {@inheritDoc}
+     * Schedules the removal of the page from the index, cancelling any update still pending for it.
+     *
+     * @param page the removed page.
      */
     @Override
-    public synchronized void pageRemoved( final Page page ) {
-        try( final Directory luceneDir = FSDirectory.open( new File( m_luceneDirectory ).toPath() );
-             final IndexWriter writer = getIndexWriter( luceneDir ) ) {
-            final Query query = new TermQuery( new Term( LUCENE_ID, page.getName() ) );
-            writer.deleteDocuments( query );
+    public void pageRemoved( final Page page ) {
+        enqueue( page, null );
+        LOG.debug( "Scheduling page {} for index removal", page.getName() );
+    }
+
+    private void removeFromIndex( final String pageName ) {
+        try {
+            final Query query = new TermQuery( new Term( LUCENE_ID, pageName ) );
+            getIndexWriter().deleteDocuments( query );
         } catch( final Exception e ) {
-            LOG.error( "Unable to remove page '{}' from Lucene index", page.getName(), e );
+            LOG.error( "Unable to remove page '{}' from Lucene index", pageName, e );
+        }
+    }
+
+    private void enqueue( final Page page, final String text ) {
+        synchronized( m_updates ) {
+            final PendingUpdate previous = m_updates.get( page.getName() );
+            final long queued = previous != null ? previous.m_queued : System.currentTimeMillis();
+            m_updates.put( page.getName(), new PendingUpdate( page, text, queued ) );
+        }
+    }
+
+    /**
+     * Applies all queued updates and removals to the index, committing after every {@code jspwiki.lucene.batchsize} pages so the
+     * changes become visible to searches batch by batch.
+     */
+    void processUpdateQueue() {
+        List< PendingUpdate > batch;
+        while( !( batch = nextBatch() ).isEmpty() ) {
+            for( final PendingUpdate update : batch ) {
+                if( update.m_text == null ) {
+                    removeFromIndex( update.m_page.getName() );
+                } else {
+                    updateLuceneIndex( update.m_page, update.m_text );
+                }
+            }
+            commitAndRefresh();
+            LOG.debug( "Indexed a batch of {} pages, {} still queued", batch.size(), getUpdateQueueDepth() );
+        }
+    }
+
+    private List< PendingUpdate > nextBatch() {
+        synchronized( m_updates ) {
+            final List< PendingUpdate > batch = new ArrayList<>( Math.min( m_batchSize, m_updates.size() ) );
+            final Iterator< PendingUpdate > it = m_updates.values().iterator();
+            while( it.hasNext() && batch.size() < m_batchSize ) {
+                batch.add( it.next() );
+                it.remove();
+            }
+            return batch;
+        }
+    }
+
+    /**
+     * Returns the number of pages waiting to be updated in, or removed from, the index.
+     *
+     * @return the current depth of the update queue.
+     */
+    public int getUpdateQueueDepth() {
+        synchronized( m_updates ) {
+            return m_updates.size();
+        }
+    }
+
+    /**
+     * Returns how long the oldest pending update has been waiting, which is how far the index lags behind the wiki.
+     *
+     * @return the indexing lag in milliseconds, or 0 if the update queue is empty.
+     */
+    public long getIndexingLag() {
+        synchronized( m_updates ) {
+            final Iterator< PendingUpdate > it = m_updates.values().iterator();
+            return it.hasNext() ? System.currentTimeMillis() - it.next().m_queued : 0L;
+        }
+    }
+
+    /**
+     * Returns the shared IndexWriter, opening it together with the NRT {@link SearcherManager} on first use.
+     *
+     * @return the shared IndexWriter.
+     * @throws IOException if the index cannot be opened.
+     * @throws ProviderException if the analyzer cannot be built.
+     */
+    IndexWriter getIndexWriter() throws IOException, ProviderException {
+        synchronized( m_indexLock ) {
+            if( m_writer == null ) {
+                m_directory = FSDirectory.open( new File( m_luceneDirectory ).toPath() );
+                try {
+                    m_writer = getIndexWriter( m_directory );
+                    m_searcherManager = new SearcherManager( m_writer, null );
+                } catch( final IOException | ProviderException | RuntimeException e ) {
+                    closeIndex();
+                    throw e;
+                }
+            }
+            return m_writer;
         }
     }
 
@@ -431,6 +549,53 @@ public class LuceneSearchProvider implements SearchProvider {
         return new IndexWriter( luceneDir, writerConfig );
     }
 
+    private SearcherManager getSearcherManager() throws IOException, ProviderException {
+        synchronized( m_indexLock ) {
+            getIndexWriter();
+            return m_searcherManager;
+        }
+    }
+
+    /**
+     * Commits all pending index changes and makes them visible to searches.
+     */
+    protected void commitAndRefresh() {
+        try {
+            final IndexWriter writer = getIndexWriter();
+            if( writer.hasUncommittedChanges() ) {
+                writer.commit();
+            }
+            getSearcherManager().maybeRefresh();
+        } catch( final Exception e ) {
+            LOG.error( "Unable to commit Lucene index changes", e );
+        }
+    }
+
+    /**
+     * Commits pending changes and closes the shared IndexWriter and searcher manager. They are opened again if needed.
+     */
+    protected void closeIndex() {
+        synchronized( m_indexLock ) {
+            try {
+                if( m_searcherManager != null ) {
+                    m_searcherManager.close();
+                }
+                if( m_writer != null ) {
+                    m_writer.close();
+                }
+                if( m_directory != null ) {
+                    m_directory.close();
+                }
+            } catch( final IOException e ) {
+                LOG.error( "Unable to close Lucene index", e );
+            } finally {
+                m_searcherManager = null;
+                m_writer = null;
+                m_directory = null;
+            }
+        }
+    }
+
     /**
      * Adds a page-text pair to the lucene update queue.  Safe to call always
      *
@@ -449,11 +614,7 @@ public class LuceneSearchProvider implements SearchProvider {
             }
 
             if( text != null ) {
-                // Add work item to m_updates queue.
-                final Object[] pair = new Object[ 2 ];
-                pair[ 0 ] = page;
-                pair[ 1 ] = text;
-                m_updates.add( pair );
+                enqueue( page, text );
                 LOG.debug( "Scheduling page {} for index update", page.getName() );
             }
         }
@@ -478,64 +639,70 @@ public class LuceneSearchProvider implements SearchProvider {
      */
     public Collection< SearchResult > findPages( final String query, final int flags, final Context wikiContext ) throws ProviderException {
         ArrayList< SearchResult > list = null;
-        Highlighter highlighter = null;
 
-        try( final Directory luceneDir = FSDirectory.open( new File( m_luceneDirectory ).toPath() );
-             final IndexReader reader = DirectoryReader.open( luceneDir ) ) {
+        final SearcherManager searcherManager;
+        final IndexSearcher searcher;
+        try {
+            searcherManager = getSearcherManager();
+            searcher = searcherManager.acquire();
+        } catch( final IOException e ) {
+            LOG.error( "Failed during lucene search", e );
+            return null;
+        }
+
+        try {
             final String[] queryfields = { LUCENE_PAGE_CONTENTS, LUCENE_PAGE_NAME, LUCENE_AUTHOR, LUCENE_ATTACHMENTS, LUCENE_PAGE_KEYWORDS };
             final QueryParser qp = new MultiFieldQueryParser( queryfields, getLuceneAnalyzer() );
             qp.setAllowLeadingWildcard(true);
             final Query luceneQuery = qp.parse( query );
-//            final IndexSearcher searcher = new IndexSearcher( reader, searchExecutor );
-            final IndexSearcher searcher = new IndexSearcher( reader );
-
-            if( ( flags & FLAG_CONTEXTS ) != 0 ) {
-                highlighter = new Highlighter( new SimpleHTMLFormatter( "<span class=\"searchmatch\">", "</span>" ),
-                                               new SimpleHTMLEncoder(),
-                                               new QueryScorer( luceneQuery ) );
-            }
 
             final ScoreDoc[] hits = searcher.search( luceneQuery, MAX_SEARCH_HITS ).scoreDocs;
             final AuthorizationManager mgr = m_engine.getManager( AuthorizationManager.class );
 
-            list = new ArrayList<>( hits.length );
+            // first collect the visible hits, so that only those get search contexts
+            final List< Page > pages = new ArrayList<>( hits.length );
+            final List< ScoreDoc > visibleHits = new ArrayList<>( hits.length );
             // lucene-10: IndexSearcher.doc(int) removed -> obtain a StoredFields accessor once and reuse
             final StoredFields storedFields = searcher.storedFields();
             for( final ScoreDoc hit : hits ) {
-                final int docID = hit.doc;
-                final Document doc = storedFields.document( docID );
-                final String pageName = doc.get( LUCENE_ID );
+                final String pageName = storedFields.document( hit.doc, Collections.singleton( LUCENE_ID ) ).get( LUCENE_ID );
                 final Page page = m_engine.getManager( PageManager.class ).getPage( pageName, PageProvider.LATEST_VERSION );
 
                 if( page != null ) {
                     final PagePermission pp = new PagePermission( page, PagePermission.VIEW_ACTION );
                     if( mgr.checkPermission( wikiContext.getWikiSession(), pp ) ) {
-                        final int score = ( int ) ( hit.score * 100 );
-
-                        // Get highlighted search contexts
-                        final String text = doc.get( LUCENE_PAGE_CONTENTS );
-
-                        String[] fragments = new String[ 0 ];
-                        if( text != null && highlighter != null ) {
-                            final TokenStream tokenStream = getLuceneAnalyzer().tokenStream( LUCENE_PAGE_CONTENTS, new StringReader( text ) );
-                            fragments = highlighter.getBestFragments( tokenStream, text, MAX_FRAGMENTS );
-                        }
-
-                        final SearchResult result = new SearchResultImpl( page, score, fragments );
-                        list.add( result );
+                        pages.add( page );
+                        visibleHits.add( hit );
                     }
                 } else {
                     LOG.error( "Lucene found a result page '{}' that could not be loaded, removing from Lucene cache",  pageName );
                     pageRemoved( Wiki.contents().page( m_engine, pageName ) );
                 }
             }
+
+            // Get highlighted search contexts
+            String[][] contexts = null;
+            if( ( flags & FLAG_CONTEXTS ) != 0 && !visibleHits.isEmpty() ) {
+                contexts = new ContextHighlighter( searcher, getLuceneAnalyzer() ).highlight( luceneQuery, visibleHits );
+            }
+
+            list = new ArrayList<>( visibleHits.size() );
+            for( int i = 0; i < visibleHits.size(); i++ ) {
+                final int score = ( int ) ( visibleHits.get( i ).score * 100 );
+                final String[] fragments = contexts != null && contexts[ i ] != null ? contexts[ i ] : new String[ 0 ];
+                list.add( new SearchResultImpl( pages.get( i ), score, fragments ) );
+            }
         } catch( final IOException e ) {
             LOG.error( "Failed during lucene search", e );
         } catch( final ParseException e ) {
             LOG.error( "Broken query; cannot parse query: {}", query, e );
             throw new ProviderException( "You have entered a query Lucene cannot process [" + query + "]: " + e.getMessage() );
-        } catch( final InvalidTokenOffsetsException e ) {
-            LOG.error( "Tokens are incompatible with provided text ", e );
+        } finally {
+            try {
+                searcherManager.release( searcher );
+            } catch( final IOException e ) {
+                LOG.error( "Unable to release Lucene searcher", e );
+            }
         }
 
         return list;
@@ -587,18 +754,69 @@ public class LuceneSearchProvider implements SearchProvider {
         public void backgroundTask() {
             m_watchdog.enterState( "Emptying index queue", 60 );
 
-            synchronized( m_provider.m_updates ) {
-                while(!m_provider.m_updates.isEmpty()) {
-                    final Object[] pair = m_provider.m_updates.remove( 0 );
-                    final Page page = ( Page )pair[ 0 ];
-                    final String text = ( String )pair[ 1 ];
-                    m_provider.updateLuceneIndex( page, text );
-                }
-            }
+            m_provider.processUpdateQueue();
 
             m_watchdog.exitState();
         }
 
+        @Override
+        public void shutdownTask() {
+            m_provider.closeIndex();
+        }
+
+    }
+
+    /**
+     * Builds search contexts from the offsets stored in the postings of the page contents, so that the cost is proportional
+     * to the matched terms rather than to the size of the page.
+     */
+    private static final class ContextHighlighter extends UnifiedHighlighter {
+
+        private ContextHighlighter( final IndexSearcher searcher, final Analyzer analyzer ) {
+            super( builder( searcher, analyzer ).withFormatter( new FragmentFormatter() )
+                                                .withMaxLength( Integer.MAX_VALUE - 1 )
+                                                .withMaxNoHighlightPassages( 0 ) );
+        }
+
+        /** Returns the fragments of each hit, in the order of the given hits; {@code null} where nothing matched the page text. */
+        private String[][] highlight( final Query query, final List< ScoreDoc > hits ) throws IOException {
+            final int[] docIds = hits.stream().mapToInt( hit -> hit.doc ).toArray();
+            final Object[] highlights = highlightFieldsAsObjects( new String[] { LUCENE_PAGE_CONTENTS }, query, docIds, new int[] { MAX_FRAGMENTS } )
+                                                                .get( LUCENE_PAGE_CONTENTS );
+            final String[][] contexts = new String[ docIds.length ][];
+            for( int i = 0; i < docIds.length; i++ ) {
+                contexts[ i ] = ( String[] )highlights[ i ];
+            }
+            return contexts;
+        }
+    }
+
+    /** Formats every passage as a separate, HTML encoded fragment. */
+    private static final class FragmentFormatter extends PassageFormatter {
+
+        private final DefaultPassageFormatter m_formatter = new DefaultPassageFormatter( "<span class=\"searchmatch\">", "</span>", "", true );
+
+        @Override
+        public Object format( final Passage[] passages, final String content ) {
+            final String[] fragments = new String[ passages.length ];
+            for( int i = 0; i < passages.length; i++ ) {
+                fragments[ i ] = m_formatter.format( new Passage[] { passages[ i ] }, content );
+            }
+            return fragments;
+        }
+    }
+
+    /** A queued index update; a {@code null} text means the page is to be removed from the index. */
+    private static final class PendingUpdate {
+        private final Page m_page;
+        private final String m_text;
+        private final long m_queued;
+
+        private PendingUpdate( final Page page, final String text, final long queued ) {
+            m_page = page;
+            m_text = text;
+            m_queued = queued;
+        }
     }
 
     // FIXME: This class is dumb; needs to have a better implementation
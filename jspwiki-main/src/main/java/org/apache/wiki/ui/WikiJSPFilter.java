@@ -149,25 +149,41 @@ public class WikiJSPFilter extends WikiServletFilter {
                 string = insertResources( wikiContext, string, resourceType );
             }
 
-            //  Add HTTP header Resource Requests
-            final String[] headers = TemplateManager.getResourceRequests( wikiContext, TemplateManager.RESOURCE_HTTPHEADER );
-
-            for( final String header : headers ) {
-                String key = header;
-                String value = "";
-                final int split = header.indexOf( ':' );
-                if( split > 0 && split < header.length() - 1 ) {
-                    key = header.substring( 0, split );
-                    value = header.substring( split + 1 );
-                }
-
-                response.addHeader( key.trim(), value.trim() );
-            }
+            addResourceHeaders( wikiContext, response );
         }
 
         return string;
     }
 
+    /**
+     *  Adds the HTTP header resource requests to the response.
+     *
+     *  @param wikiContext The usual processing context
+     *  @param response The response to add the headers to
+     */
+    private void addResourceHeaders( final Context wikiContext, final HttpServletResponse response ) {
+        if( wikiContext == null ) {
+            return;
+        }
+        final String[] headers = TemplateManager.getResourceRequests( wikiContext, TemplateManager.RESOURCE_HTTPHEADER );
+        if( headers.length > 0 && response.isCommitted() ) {
+            LOG.warn( "Response for {} already committed, cannot add requested HTTP headers", wikiContext.getName() );
+            return;
+        }
+
+        for( final String header : headers ) {
+            String key = header;
+            String value = "";
+            final int split = header.indexOf( ':' );
+            if( split > 0 && split < header.length() - 1 ) {
+                key = header.substring( 0, split );
+                value = header.substring( split + 1 );
+            }
+
+            response.addHeader( key.trim(), value.trim() );
+        }
+    }
+
     /**
      *  Inserts whatever resources were requested by any plugins or other components for this particular type.
      *
@@ -189,6 +205,17 @@ public class WikiJSPFilter extends WikiServletFilter {
 
         LOG.debug("...Inserting...");
 
+        return TextUtil.replaceString( string, idx, idx + marker.length(), getResources( wikiContext, type ) );
+    }
+
+    /**
+     *  Concatenates the resources requested for a particular type.
+     *
+     *  @param wikiContext The usual processing context
+     *  @param type Type identifier for insertion
+     *  @return The resources to insert at the marker.
+     */
+    private static String getResources( final Context wikiContext, final String type ) {
         final String[] resources = TemplateManager.getResourceRequests( wikiContext, type );
         final StringBuilder concat = new StringBuilder( resources.length * 40 );
 
@@ -197,7 +224,7 @@ public class WikiJSPFilter extends WikiServletFilter {
             concat.append( resource );
         }
 
-        return TextUtil.replaceString( string, idx, idx + marker.length(), concat.toString() );
+        return concat.toString();
     }
 
     /**
@@ -23,7 +23,9 @@ import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Engine;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.search.LuceneSearchProvider;
 import org.apache.wiki.search.SearchManager;
+import org.apache.wiki.search.SearchProvider;
 import org.apache.wiki.ui.admin.SimpleAdminBean;
 import org.apache.wiki.ui.progress.ProgressItem;
 import org.apache.wiki.ui.progress.ProgressManager;
@@ -40,6 +42,7 @@ import java.util.Collection;
 public class SearchManagerBean extends SimpleAdminBean {
 
     private static final String PROGRESS_ID = "searchmanagerbean.reindexer";
+    private static final String[] ATTRIBUTES = { "updateQueueDepth", "indexingLag" };
     private static final String[] METHODS = { "reload" };
 
     // private static Logger log = LoggerFactory.getLogger( SearchManagerBean.class );
@@ -54,7 +57,35 @@ public class SearchManagerBean extends SimpleAdminBean {
     @Override
     public String[] getAttributeNames()
     {
-        return new String[0];
+        return ATTRIBUTES;
+    }
+
+    /**
+     *  Returns the number of pages waiting to be indexed, if the search provider queues its updates.
+     *
+     *  @return the update queue depth, or 0 for providers without an update queue.
+     */
+    public int getUpdateQueueDepth() {
+        final SearchProvider provider = m_engine.getManager( SearchManager.class ).getSearchEngine();
+        return provider instanceof LuceneSearchProvider ? ( ( LuceneSearchProvider )provider ).getUpdateQueueDepth() : 0;
+    }
+
+    public String getUpdateQueueDepthDescription() {
+        return "The number of pages waiting to be updated in the search index";
+    }
+
+    /**
+     *  Returns how long the oldest pending index update has been waiting, if the search provider queues its updates.
+     *
+     *  @return the indexing lag in milliseconds, or 0 for providers without an update queue.
+     */
+    public long getIndexingLag() {
+        final SearchProvider provider = m_engine.getManager( SearchManager.class ).getSearchEngine();
+        return provider instanceof LuceneSearchProvider ? ( ( LuceneSearchProvider )provider ).getIndexingLag() : 0L;
+    }
+
+    public String getIndexingLagDescription() {
+        return "How many milliseconds the search index lags behind the latest page changes";
     }
 
     @Override
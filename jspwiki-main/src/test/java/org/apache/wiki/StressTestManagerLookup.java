@@ -0,0 +1,91 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki;
+
+import org.apache.wiki.modules.ModuleManager;
+import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.references.ReferenceManager;
+import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.stress.Benchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+
+/**
+ * Measures the per-call cost of {@link WikiEngine#getManager(Class)}, compared to a linear scan over all registered managers, which
+ * was how lookups used to be done. Excluded from the default build, run with {@code mvn test -Dtest=StressTestManagerLookup}.
+ */
+public class StressTestManagerLookup {
+
+    private static final int WARMUP = 1_000_000;
+    private static final int CALLS = 10_000_000;
+    private static final Class< ? >[] TYPES = { PageManager.class, RenderingManager.class, ReferenceManager.class, ModuleManager.class };
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testLookupCost() {
+        for( final Class< ? > type : TYPES ) {
+            Assertions.assertSame( scan( type ), engine.getManager( type ) );
+        }
+
+        measure( "linear scan", this::scan, WARMUP );
+        measure( "getManager", engine::getManager, WARMUP );
+        final double scan = measure( "linear scan", this::scan, CALLS );
+        final double cached = measure( "getManager", engine::getManager, CALLS );
+        System.out.println( "getManager is " + Math.round( scan / cached ) + "x faster than a linear scan" );
+    }
+
+    double measure( final String label, final Lookup lookup, final int calls ) {
+        final Benchmark sw = new Benchmark();
+        int found = 0;
+        sw.start();
+        for( int i = 0; i < calls; i++ ) {
+            if( lookup.find( TYPES[ i & 3 ] ) != null ) {
+                found++;
+            }
+        }
+        sw.stop();
+        final double nanosPerCall = sw.getNanoTime() / ( double )calls;
+        System.out.println( String.format( "%-12s: %,8.1f ns/call (%s calls/second)", label, nanosPerCall, sw.toString( calls ) ) );
+        Assertions.assertEquals( calls, found );
+        return nanosPerCall;
+    }
+
+    Object scan( final Class< ? > manager ) {
+        return engine.managers.entrySet().stream()
+                                         .filter( e -> manager.isAssignableFrom( e.getKey() ) )
+                                         .map( Map.Entry::getValue )
+                                         .findFirst().orElse( null );
+    }
+
+    @FunctionalInterface
+    interface Lookup {
+        Object find( Class< ? > type );
+    }
+
+}
@@ -39,6 +39,7 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Properties;
 
@@ -329,6 +330,18 @@ class WikiEngineTest {
         Assertions.assertEquals( 4, m_engine.getManagers( ModuleManager.class ).size() );
     }
 
+    @Test
+    void testGetManagersAfterRegisteringComponents() {
+        Assertions.assertNull( m_engine.getManager( StringBuilder.class ) );
+        Assertions.assertEquals( 0, m_engine.getManagers( CharSequence.class ).size() );
+
+        m_engine.initExtraComponents( Collections.singletonMap( StringBuilder.class.getName(), StringBuilder.class.getName() ) );
+
+        Assertions.assertNotNull( m_engine.getManager( StringBuilder.class ) );
+        Assertions.assertSame( m_engine.getManager( StringBuilder.class ), m_engine.getManager( CharSequence.class ) );
+        Assertions.assertEquals( 1, m_engine.getManagers( CharSequence.class ).size() );
+    }
+
     @Test
     void testCheckWorkingDirectory() {
         Assertions.assertDoesNotThrow( () -> m_engine.checkWorkingDirectory( false, "boo" ) );
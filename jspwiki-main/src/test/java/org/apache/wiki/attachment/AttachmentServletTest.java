@@ -0,0 +1,171 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.attachment;
+
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import net.sourceforge.stripes.mock.MockHttpServletResponse;
+import net.sourceforge.stripes.mock.MockHttpSession;
+import net.sourceforge.stripes.mock.MockServletConfig;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Attachment;
+import org.apache.wiki.api.spi.Wiki;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+
+public class AttachmentServletTest {
+
+    static final String CONTENTS = "0123456789abcdefghijklmnopqrstuvwxyz";
+
+    TestEngine m_engine = TestEngine.build();
+    AttachmentServlet m_servlet = new AttachmentServlet();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        m_engine.saveText( "TestPage", "Foobar" );
+        final Attachment att = Wiki.contents().attachment( m_engine, "TestPage", "test.txt" );
+        m_engine.getManager( AttachmentManager.class ).storeAttachment( att, new ByteArrayInputStream( CONTENTS.getBytes( StandardCharsets.UTF_8 ) ) );
+
+        final MockServletConfig config = new MockServletConfig();
+        config.setServletContext( m_engine.getServletContext() );
+        m_servlet.init( config );
+    }
+
+    @AfterEach
+    public void tearDown() {
+        m_servlet.destroy();
+        m_engine.stop();
+    }
+
+    MockHttpServletRequest request( final String... headers ) {
+        final MockHttpServletRequest req = new MockHttpServletRequest( "/JSPWiki", "/attach" ) {
+            @Override
+            public long getDateHeader( final String name ) { // stripes mock fails on missing headers
+                return getHeader( name ) == null ? -1 : super.getDateHeader( name );
+            }
+        };
+        req.setSession( new MockHttpSession( m_engine.getServletContext() ) );
+        req.setPathInfo( "/TestPage/test.txt" );
+        for( int i = 0; i < headers.length; i += 2 ) {
+            req.addHeader( headers[ i ], headers[ i + 1 ] );
+        }
+        return req;
+    }
+
+    MockHttpServletResponse get( final String... headers ) throws Exception {
+        final MockHttpServletResponse res = new MockHttpServletResponse();
+        m_servlet.doGet( request( headers ), res );
+        return res;
+    }
+
+    static String header( final MockHttpServletResponse res, final String name ) {
+        final List< Object > values = res.getHeaderMap().get( name );
+        return values == null ? null : String.valueOf( values.get( 0 ) );
+    }
+
+    @Test
+    public void testFullDownload() throws Exception {
+        final MockHttpServletResponse res = get();
+        Assertions.assertEquals( HttpServletResponse.SC_OK, res.getStatus() );
+        Assertions.assertEquals( CONTENTS, res.getOutputString() );
+        Assertions.assertEquals( "bytes", header( res, "Accept-Ranges" ) );
+        Assertions.assertNotNull( header( res, "ETag" ) );
+    }
+
+    @Test
+    public void testSendfile() throws Exception {
+        MockHttpServletRequest req = request();
+        req.setAttribute( AttachmentServlet.SENDFILE_SUPPORT, Boolean.TRUE );
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        m_servlet.doGet( req, res );
+        Assertions.assertEquals( "", res.getOutputString(), "the container sends the file" );
+        Assertions.assertTrue( new File( ( String )req.getAttribute( AttachmentServlet.SENDFILE_FILENAME ) ).isFile() );
+        Assertions.assertEquals( 0L, req.getAttribute( AttachmentServlet.SENDFILE_START ) );
+        Assertions.assertEquals( 36L, req.getAttribute( AttachmentServlet.SENDFILE_END ) );
+
+        req = request( "Range", "bytes=10-15" );
+        req.setAttribute( AttachmentServlet.SENDFILE_SUPPORT, Boolean.TRUE );
+        res = new MockHttpServletResponse();
+        m_servlet.doGet( req, res );
+        Assertions.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, res.getStatus() );
+        Assertions.assertEquals( 10L, req.getAttribute( AttachmentServlet.SENDFILE_START ) );
+        Assertions.assertEquals( 16L, req.getAttribute( AttachmentServlet.SENDFILE_END ) );
+    }
+
+    @Test
+    public void testIfNoneMatch() throws Exception {
+        final String etag = header( get(), "ETag" );
+        Assertions.assertEquals( HttpServletResponse.SC_NOT_MODIFIED, get( "If-None-Match", "\"other\", " + etag ).getStatus() );
+        Assertions.assertEquals( HttpServletResponse.SC_NOT_MODIFIED, get( "If-None-Match", "W/" + etag ).getStatus() );
+
+        final MockHttpServletResponse res = get( "If-None-Match", "\"other\"" );
+        Assertions.assertEquals( HttpServletResponse.SC_OK, res.getStatus() );
+        Assertions.assertEquals( CONTENTS, res.getOutputString() );
+    }
+
+    @Test
+    public void testSingleRange() throws Exception {
+        MockHttpServletResponse res = get( "Range", "bytes=10-15" );
+        Assertions.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, res.getStatus() );
+        Assertions.assertEquals( "bytes 10-15/36", header( res, "Content-Range" ) );
+        Assertions.assertEquals( "abcdef", res.getOutputString() );
+
+        res = get( "Range", "bytes=-4" );
+        Assertions.assertEquals( "wxyz", res.getOutputString() );
+
+        res = get( "Range", "bytes=30-" );
+        Assertions.assertEquals( "uvwxyz", res.getOutputString() );
+    }
+
+    @Test
+    public void testMultipleRanges() throws Exception {
+        final MockHttpServletResponse res = get( "Range", "bytes=0-1, 34-" );
+        Assertions.assertEquals( HttpServletResponse.SC_PARTIAL_CONTENT, res.getStatus() );
+        final String body = res.getOutputString();
+        Assertions.assertTrue( body.contains( "Content-Range: bytes 0-1/36\r\n\r\n01\r\n" ), body );
+        Assertions.assertTrue( body.contains( "Content-Range: bytes 34-35/36\r\n\r\nyz\r\n" ), body );
+        Assertions.assertTrue( body.trim().endsWith( "--" ), body );
+    }
+
+    @Test
+    public void testUnsatisfiableRange() throws Exception {
+        final MockHttpServletResponse res = get( "Range", "bytes=100-200" );
+        Assertions.assertEquals( HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE, res.getStatus() );
+        Assertions.assertEquals( "bytes */36", header( res, "Content-Range" ) );
+    }
+
+    @Test
+    public void testIfRange() throws Exception {
+        final String etag = header( get(), "ETag" );
+        Assertions.assertEquals( "abcdef", get( "Range", "bytes=10-15", "If-Range", etag ).getOutputString() );
+
+        final MockHttpServletResponse res = get( "Range", "bytes=10-15", "If-Range", "\"outdated\"" );
+        Assertions.assertEquals( HttpServletResponse.SC_OK, res.getStatus() );
+        Assertions.assertEquals( CONTENTS, res.getOutputString() );
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.attachment;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+
+public class ByteRangeTest {
+
+    @Test
+    public void testParse() {
+        List< ByteRange > ranges = ByteRange.parse( "bytes=0-9", 100 );
+        Assertions.assertEquals( 1, ranges.size() );
+        Assertions.assertEquals( 0, ranges.get( 0 ).start );
+        Assertions.assertEquals( 10, ranges.get( 0 ).length() );
+
+        ranges = ByteRange.parse( "bytes=90-, -5, 95-200", 100 );
+        Assertions.assertEquals( 3, ranges.size() );
+        Assertions.assertEquals( "bytes 90-99/100", ranges.get( 0 ).contentRange( 100 ) );
+        Assertions.assertEquals( "bytes 95-99/100", ranges.get( 1 ).contentRange( 100 ) );
+        Assertions.assertEquals( "bytes 95-99/100", ranges.get( 2 ).contentRange( 100 ) );
+
+        Assertions.assertEquals( "bytes 0-99/100", ByteRange.parse( "bytes=-500", 100 ).get( 0 ).contentRange( 100 ) );
+    }
+
+    @Test
+    public void testMalformedRangesAreIgnored() {
+        Assertions.assertNull( ByteRange.parse( null, 100 ) );
+        Assertions.assertNull( ByteRange.parse( "items=0-9", 100 ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=9-0", 100 ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=abc", 100 ) );
+        Assertions.assertNull( ByteRange.parse( "bytes=0-x", 100 ) );
+
+        final StringBuilder many = new StringBuilder( "bytes=0-0" );
+        for( int i = 1; i <= ByteRange.MAX_RANGES; i++ ) {
+            many.append( "," ).append( i ).append( "-" ).append( i );
+        }
+        Assertions.assertNull( ByteRange.parse( many.toString(), 100 ) );
+    }
+
+    @Test
+    public void testUnsatisfiable() {
+        Assertions.assertTrue( ByteRange.parse( "bytes=100-", 100 ).isEmpty() );
+        Assertions.assertTrue( ByteRange.parse( "bytes=-0", 100 ).isEmpty() );
+        Assertions.assertTrue( ByteRange.parse( "bytes=0-", 0 ).isEmpty() );
+    }
+
+}
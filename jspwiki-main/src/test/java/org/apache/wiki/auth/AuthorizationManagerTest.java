@@ -21,6 +21,8 @@ package org.apache.wiki.auth;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.WikiSessionTest;
+import org.apache.wiki.api.core.Acl;
+import org.apache.wiki.api.core.AclEntry;
 import org.apache.wiki.api.core.Attachment;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.core.Session;
@@ -28,6 +30,7 @@ import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.exceptions.WikiException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.auth.acl.AclManager;
 import org.apache.wiki.auth.acl.UnresolvedPrincipal;
 import org.apache.wiki.auth.authorize.Group;
 import org.apache.wiki.auth.authorize.GroupManager;
@@ -123,6 +126,55 @@ public class AuthorizationManagerTest
         }
     }
 
+    @Test
+    public void testDecisionCache() throws Exception {
+        final DefaultAuthorizationManager auth = ( DefaultAuthorizationManager )m_auth;
+        m_engine.saveText( "TestCachedPage", "[{ALLOW view Alice}] Foo" );
+        final Page p = m_engine.getManager( PageManager.class ).getPage( "TestCachedPage" );
+        final Permission view = PermissionFactory.getPagePermission( p, "view" );
+        final Session alice = WikiSessionTest.authenticatedSession( m_engine, Users.ALICE, Users.ALICE_PASS );
+        final Session bob = WikiSessionTest.authenticatedSession( m_engine, Users.BOB, Users.BOB_PASS );
+
+        Assertions.assertTrue( m_auth.checkPermission( alice, view ), "Alice view" );
+        Assertions.assertFalse( m_auth.checkPermission( bob, view ), "Bob view" );
+        final long hits = auth.getDecisionCacheHits();
+        Assertions.assertTrue( m_auth.checkPermission( alice, view ), "Alice view again" );
+        Assertions.assertFalse( m_auth.checkPermission( bob, view ), "Bob view again" );
+        Assertions.assertEquals( hits + 2, auth.getDecisionCacheHits() );
+
+        // Another session of the same user shares the decisions
+        final Session bob2 = WikiSessionTest.authenticatedSession( m_engine, Users.BOB, Users.BOB_PASS );
+        Assertions.assertFalse( m_auth.checkPermission( bob2, view ), "Bob's other session view" );
+        Assertions.assertEquals( hits + 3, auth.getDecisionCacheHits() );
+
+        // Saving the page drops its decisions
+        m_engine.saveText( "TestCachedPage", "[{ALLOW view Bob}] Foo" );
+        Assertions.assertFalse( m_auth.checkPermission( alice, view ), "Alice view after save" );
+        Assertions.assertTrue( m_auth.checkPermission( bob, view ), "Bob view after save" );
+
+        // So does setting its ACL
+        final Acl acl = Wiki.acls().acl();
+        final AclEntry entry = Wiki.acls().entry();
+        entry.setPrincipal( new WikiPrincipal( Users.ALICE ) );
+        entry.addPermission( PermissionFactory.getPagePermission( p, "view" ) );
+        acl.addEntry( entry );
+        p.setAcl( acl );
+        m_engine.getManager( AclManager.class ).setPermissions( p, acl );
+        Assertions.assertTrue( m_auth.checkPermission( alice, view ), "Alice view after setting the ACL" );
+        Assertions.assertFalse( m_auth.checkPermission( bob, view ), "Bob view after setting the ACL" );
+
+        // Changing a group drops all decisions
+        m_engine.saveText( "TestCachedPage", "[{ALLOW view Test}] Foo" );
+        Assertions.assertFalse( m_auth.checkPermission( bob, view ), "Bob view before joining the group" );
+        m_groupMgr.setGroup( m_session, m_groupMgr.parseGroup( "Test", "Bob", true ) );
+        Assertions.assertTrue( m_auth.checkPermission( bob, view ), "Bob view after joining the group" );
+        m_groupMgr.setGroup( m_session, m_groupMgr.parseGroup( "Test", "Alice", true ) );
+        Assertions.assertFalse( m_auth.checkPermission( bob, view ), "Bob view after leaving the group" );
+
+        m_groupMgr.removeGroup( "Test" );
+        m_engine.getManager( PageManager.class ).deletePage( "TestCachedPage" );
+    }
+
     @Test
     public void testGetRoles() throws Exception {
         Principal[] principals;
@@ -0,0 +1,73 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.WikiSessionTest;
+import org.apache.wiki.api.core.Session;
+import org.apache.wiki.auth.permissions.PagePermission;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+public class PermissionDecisionCacheTest {
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() throws Exception {
+        final Session session = WikiSessionTest.anonymousSession( engine );
+        final PermissionDecisionCache cache = new PermissionDecisionCache( 20 );
+        final PermissionDecisionCache.Key[] keys = new PermissionDecisionCache.Key[ 21 ];
+        for( int i = 0; i < keys.length; i++ ) {
+            keys[ i ] = new PermissionDecisionCache.Key( session, new PagePermission( "*:Page" + i, "view" ) );
+        }
+        for( int i = 0; i < 20; i++ ) {
+            cache.put( keys[ i ], true, cache.stamp() );
+        }
+        Assertions.assertEquals( Boolean.TRUE, cache.get( keys[ 0 ] ) );
+
+        // the cache is full, the two decisions used longest ago make room
+        cache.put( keys[ 20 ], false, cache.stamp() );
+        Assertions.assertEquals( 19, cache.size() );
+        Assertions.assertEquals( Boolean.TRUE, cache.get( keys[ 0 ] ) );
+        Assertions.assertNull( cache.get( keys[ 1 ] ) );
+        Assertions.assertNull( cache.get( keys[ 2 ] ) );
+        Assertions.assertEquals( Boolean.TRUE, cache.get( keys[ 3 ] ) );
+        Assertions.assertEquals( Boolean.FALSE, cache.get( keys[ 20 ] ) );
+    }
+
+    @Test
+    public void testStaleDecisionsAreNotCached() throws Exception {
+        final Session session = WikiSessionTest.anonymousSession( engine );
+        final PermissionDecisionCache cache = new PermissionDecisionCache( 20 );
+        final PermissionDecisionCache.Key key = new PermissionDecisionCache.Key( session, new PagePermission( "*:Main", "view" ) );
+        final long stamp = cache.stamp();
+        cache.removePage( "Main" );
+        cache.put( key, true, stamp );
+        Assertions.assertNull( cache.get( key ) );
+    }
+
+}
@@ -0,0 +1,104 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.auth;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Session;
+import org.apache.wiki.auth.authorize.Group;
+import org.apache.wiki.auth.authorize.GroupManager;
+import org.apache.wiki.stress.Benchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Measures the latency of saving a group with {@value #NUM_SESSIONS} live wiki sessions, with the {@link SessionMonitor} routing the
+ * group events to the sessions of the members, compared to every session listening to the GroupManager, which was how group events
+ * used to be delivered. Excluded from the default build, run with {@code mvn test -Dtest=StressTestSessionMonitor}.
+ */
+public class StressTestSessionMonitor {
+
+    private static final int NUM_SESSIONS = 10_000;
+    private static final int NUM_AUTHENTICATED = 100;
+    private static final int WARMUP = 50;
+    private static final int SAVES = 500;
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        engine.getManager( GroupManager.class ).removeGroup( "Bench" );
+        engine.stop();
+    }
+
+    @Test
+    public void testGroupSaveLatency() throws Exception {
+        final GroupManager groupMgr = engine.getManager( GroupManager.class );
+        final AuthenticationManager authMgr = engine.getManager( AuthenticationManager.class );
+        final SessionMonitor monitor = SessionMonitor.getInstance( engine );
+        final Session admin = monitor.find( "bench-admin" );
+        authMgr.login( admin, engine.newHttpRequest(), Users.ADMIN, Users.ADMIN_PASS );
+
+        // mostly guests, plus a few authenticated users, one of them in the group
+        final List< Session > sessions = new ArrayList<>( NUM_SESSIONS );
+        final List< Session > alices = new ArrayList<>();
+        for( int i = 0; i < NUM_SESSIONS; i++ ) {
+            final Session session = monitor.find( "bench-" + i );
+            if( i % ( NUM_SESSIONS / NUM_AUTHENTICATED ) == 0 ) {
+                authMgr.login( session, engine.newHttpRequest(), Users.ALICE, Users.ALICE_PASS );
+                alices.add( session );
+            } else if( i % ( NUM_SESSIONS / NUM_AUTHENTICATED ) == 1 ) {
+                authMgr.login( session, engine.newHttpRequest(), Users.BOB, Users.BOB_PASS );
+            }
+            sessions.add( session );
+        }
+
+        measure( "routed", groupMgr, admin, WARMUP );
+        final double routed = measure( "routed", groupMgr, admin, SAVES );
+        alices.forEach( alice -> Assertions.assertTrue( alice.getSubject().getPrincipals().contains( new GroupPrincipal( "Bench" ) ) ) );
+
+        sessions.forEach( groupMgr::addWikiEventListener );
+        try {
+            measure( "broadcast", groupMgr, admin, WARMUP );
+            final double broadcast = measure( "broadcast", groupMgr, admin, SAVES );
+            System.out.println( "Routing group events is " + Math.round( broadcast / routed ) + "x faster than broadcasting them to "
+                                + NUM_SESSIONS + " sessions" );
+        } finally {
+            sessions.forEach( groupMgr::removeWikiEventListener );
+        }
+    }
+
+    double measure( final String label, final GroupManager groupMgr, final Session admin, final int saves ) throws Exception {
+        final Benchmark sw = new Benchmark();
+        sw.start();
+        for( int i = 0; i < saves; i++ ) {
+            final Group group = groupMgr.parseGroup( "Bench", ( i & 1 ) == 0 ? "Alice" : "Alice \n Charlie", true );
+            groupMgr.setGroup( admin, group );
+        }
+        sw.stop();
+        final double micros = sw.getNanoTime() / 1_000.0 / saves;
+        System.out.println( String.format( "%-10s: %,10.1f us/save (%s saves/second)", label, micros, sw.toString( saves ) ) );
+        return micros;
+    }
+
+}
@@ -22,18 +22,24 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Acl;
 import org.apache.wiki.api.core.AclEntry;
+import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.ProviderException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.auth.WikiPrincipal;
 import org.apache.wiki.auth.permissions.PermissionFactory;
+import org.apache.wiki.event.WikiEngineEvent;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.render.RenderingManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.regex.Matcher;
 
 public class DefaultAclManagerTest
@@ -99,6 +105,55 @@ public class DefaultAclManagerTest
         Assertions.assertEquals( 0, p.length );
     }
 
+    @Test
+    public void testScanAccessRules()
+    {
+        Assertions.assertEquals( Collections.emptyList(), AclIndex.scan( "Foo" ) );
+        Assertions.assertEquals( Arrays.asList( "ALLOW edit Charlie, Herman" ), AclIndex.scan( "Bar. [{ALLOW edit Charlie, Herman}] " ) );
+        Assertions.assertEquals( Arrays.asList( "ALLOW view Alice", "DENY edit Bob" ),
+                                 AclIndex.scan( "[{ALLOW view Alice}]\n[Link] [{Plugin}] [{DENY edit Bob}]" ) );
+        Assertions.assertEquals( Arrays.asList( "ALLOW edit Charlie" ),
+                                 AclIndex.scan( "{{{ [{ALLOW view Bob}] }}} ~[{ALLOW view Fred}] [[{ALLOW view Devin}] [{ALLOW edit Charlie}]" ) );
+        Assertions.assertEquals( Collections.emptyList(), AclIndex.scan( "{{{ [{ALLOW view Bob}]" ) );
+    }
+
+    @Test
+    public void testGetPermissionsAsRendered() throws Exception
+    {
+        final String[] texts = { "Foo", "[{ALLOW view Alice}] [{ALLOW edit Charlie, Herman}]",
+                                 "{{{ [{ALLOW view Bob}] }}} ~[{ALLOW view Fred}] [[{ALLOW view Devin}] [{ALLOW edit Charlie}]" };
+        for( final String text : texts ) {
+            m_engine.saveText( "TestScannedPage", text );
+            final Page page = m_engine.getManager( PageManager.class ).getPage( "TestScannedPage" );
+            page.setAcl( null );
+            final String scanned = DefaultAclManager.printAcl( m_engine.getManager( AclManager.class ).getPermissions( page ) );
+
+            page.setAcl( null );
+            final Context ctx = Wiki.context().create( m_engine, page );
+            ctx.setVariable( Context.VAR_EXECUTE_PLUGINS, Boolean.FALSE );
+            m_engine.getManager( RenderingManager.class ).getHTML( ctx, page );
+            final String rendered = page.getAcl() == null ? "" : DefaultAclManager.printAcl( page.getAcl() );
+            Assertions.assertEquals( rendered, scanned, text );
+        }
+        m_engine.getManager( PageManager.class ).deletePage( "TestScannedPage" );
+    }
+
+    @Test
+    public void testIndexIsKept() throws Exception
+    {
+        final Page page = m_engine.getManager( PageManager.class ).getPage( "TestAclPage" );
+        ( ( DefaultAclManager )m_engine.getManager( AclManager.class ) ).actionPerformed( new WikiEngineEvent( m_engine, WikiEngineEvent.SHUTDOWN ) );
+
+        final AclIndex index = new AclIndex( new File( m_engine.getWorkDir(), DefaultAclManager.INDEX_FILE ) );
+        index.load();
+        Assertions.assertEquals( Arrays.asList( "ALLOW edit Charlie, Herman" ), index.get( page ) );
+
+        final Page other = Wiki.contents().page( m_engine, "TestAclPage" );
+        other.setVersion( page.getVersion() + 1 );
+        other.setLastModified( page.getLastModified() );
+        Assertions.assertNull( index.get( other ), "a changed page is scanned again" );
+    }
+
     @Test
     public void testAclRegex()
     {
@@ -187,4 +242,12 @@ public class DefaultAclManagerTest
         Assertions.assertEquals( expectedValue, DefaultAclManager.printAcl( acl ) );
     }
 
+    @Test
+    public void testIsJSPWikiMarkup() {
+        Assertions.assertTrue( DefaultAclManager.isJSPWikiMarkup( "org.apache.wiki.parser.JSPWikiMarkupParser" ) );
+        // the RenderingManager falls back to the JSPWikiMarkupParser
+        Assertions.assertTrue( DefaultAclManager.isJSPWikiMarkup( "org.apache.wiki.parser.NoSuchParser" ) );
+        Assertions.assertTrue( DefaultAclManager.isJSPWikiMarkup( "java.lang.String" ) );
+    }
+
 }
@@ -206,4 +206,27 @@ public class GroupManagerTest
         m_groupMgr.removeGroup( "Events" );
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testGroupEventsReachMemberSessions() throws Exception
+    {
+        final Session alice = WikiSessionTest.authenticatedSession( m_engine, Users.ALICE, Users.ALICE_PASS );
+        final Session biff = WikiSessionTest.authenticatedSession( m_engine, Users.BIFF, Users.BIFF_PASS );
+        final GroupPrincipal routed = new GroupPrincipal( "Routed" );
+
+        // Only Alice is a member, so only her session gets the group principal
+        m_groupMgr.setGroup( m_session, m_groupMgr.parseGroup( "Routed", "Alice", true ) );
+        Assertions.assertTrue( alice.getSubject().getPrincipals().contains( routed ) );
+        Assertions.assertFalse( biff.getSubject().getPrincipals().contains( routed ) );
+
+        // Adding Biff reaches his session as well
+        m_groupMgr.setGroup( m_session, m_groupMgr.parseGroup( "Routed", "Alice \n Biff", true ) );
+        Assertions.assertTrue( alice.getSubject().getPrincipals().contains( routed ) );
+        Assertions.assertTrue( biff.getSubject().getPrincipals().contains( routed ) );
+
+        // Removing the group takes the principal away from both
+        m_groupMgr.removeGroup( "Routed" );
+        Assertions.assertFalse( alice.getSubject().getPrincipals().contains( routed ) );
+        Assertions.assertFalse( biff.getSubject().getPrincipals().contains( routed ) );
+    }
+
+}
@@ -0,0 +1,71 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+public class SlidingWindowCounterTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    @Test
+    public void testCountsPerKey() {
+        final SlidingWindowCounter< String > counter = new SlidingWindowCounter<>( 60_000L );
+        counter.add( "10.0.0.1", START );
+        counter.add( "10.0.0.1", START + 500L );
+        counter.add( "10.0.0.2", START + 1_000L );
+
+        Assertions.assertEquals( 2, counter.count( "10.0.0.1", START + 1_000L ) );
+        Assertions.assertEquals( 1, counter.count( "10.0.0.2", START + 1_000L ) );
+        Assertions.assertEquals( 0, counter.count( "10.0.0.3", START + 1_000L ) );
+    }
+
+    @Test
+    public void testWindowSlides() {
+        final SlidingWindowCounter< String > counter = new SlidingWindowCounter<>( 60_000L );
+        counter.add( "host", START );
+        counter.add( "host", START + 30_000L );
+        counter.add( "host", START + 59_000L );
+        Assertions.assertEquals( 3, counter.count( "host", START + 59_000L ) );
+
+        // the first event leaves the window, then the second one
+        Assertions.assertEquals( 2, counter.count( "host", START + 60_000L ) );
+        Assertions.assertEquals( 1, counter.count( "host", START + 90_000L ) );
+
+        // the same bucket a minute later starts over
+        counter.add( "host", START + 120_000L );
+        Assertions.assertEquals( 1, counter.count( "host", START + 120_000L ) );
+    }
+
+    @Test
+    public void testExpiredKeysAreSwept() {
+        final SlidingWindowCounter< String > counter = new SlidingWindowCounter<>( 60_000L );
+        for( int i = 0; i < 100; i++ ) {
+            counter.add( "10.0.0." + i, START );
+        }
+        counter.add( "recent", START + 100_000L );
+        Assertions.assertEquals( 101, counter.size() );
+
+        Assertions.assertEquals( 1, counter.count( "recent", START + 120_000L ) );
+        Assertions.assertEquals( 1, counter.size() );
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.filters;
+
+import net.sourceforge.stripes.mock.MockHttpServletRequest;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.exceptions.RedirectException;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.stress.Benchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Measures the throughput of {@link SpamFilter#preSave(Context, String)} during a simulated spam flood: {@value #NUM_HOSTS} hosts
+ * saving {@value #SAVES_PER_HOST} times each from {@value #THREADS} threads, half of them posting the same text over and over, the
+ * other half a different text every time. Excluded from the default build, run with {@code mvn test -Dtest=StressTestSpamFilter}.
+ */
+public class StressTestSpamFilter {
+
+    private static final int NUM_HOSTS = 2_000;
+    private static final int SAVES_PER_HOST = 20;
+    private static final int THREADS = 8;
+    private static final String PAGE = "FloodedPage";
+    private static final String TEXT = "Some text which is about to be spammed.\r\n";
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testFloodThroughput() throws Exception {
+        engine.saveText( PAGE, TEXT );
+        final SpamFilter filter = new SpamFilter();
+        filter.initialize( engine, new Properties() );
+
+        final List< Context > contexts = new ArrayList<>( NUM_HOSTS );
+        for( int h = 0; h < NUM_HOSTS; h++ ) {
+            final MockHttpServletRequest request = engine.newHttpRequest();
+            request.addHeader( "X-Forwarded-For", "10." + ( h >> 16 & 0xff ) + "." + ( h >> 8 & 0xff ) + "." + ( h & 0xff ) );
+            contexts.add( Wiki.context().create( engine, request, Wiki.contents().page( engine, PAGE ) ) );
+        }
+
+        final AtomicInteger accepted = new AtomicInteger();
+        final AtomicInteger rejected = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool( THREADS );
+        final Benchmark sw = new Benchmark();
+        sw.start();
+        final List< Future< ? > > futures = new ArrayList<>();
+        for( int t = 0; t < THREADS; t++ ) {
+            final int thread = t;
+            futures.add( executor.submit( () -> {
+                for( int s = 0; s < SAVES_PER_HOST; s++ ) {
+                    for( int h = thread; h < NUM_HOSTS; h += THREADS ) {
+                        final String spam = h % 2 == 0 ? "Buy cheap pills now" : "Buy cheap pills from host " + h + ", offer " + s;
+                        try {
+                            filter.preSave( contexts.get( h ), TEXT + spam + "\r\n" );
+                            accepted.incrementAndGet();
+                        } catch( final RedirectException e ) {
+                            rejected.incrementAndGet();
+                        }
+                    }
+                }
+                return null;
+            } ) );
+        }
+        for( final Future< ? > future : futures ) {
+            future.get();
+        }
+        sw.stop();
+        executor.shutdown();
+        executor.awaitTermination( 1, TimeUnit.MINUTES );
+
+        final int saves = NUM_HOSTS * SAVES_PER_HOST;
+        System.out.println( "Flood of " + saves + " saves from " + NUM_HOSTS + " hosts: " + sw.toString( saves ) + " saves/second, "
+                            + accepted.get() + " accepted, " + rejected.get() + " rejected" );
+        Assertions.assertEquals( saves, accepted.get() + rejected.get() );
+
+        // every host is banned after at most five changes a minute, the identical ones after the first few
+        Assertions.assertTrue( accepted.get() <= NUM_HOSTS / 2 * 5 + THREADS * 2, "accepted " + accepted.get() );
+    }
+
+}
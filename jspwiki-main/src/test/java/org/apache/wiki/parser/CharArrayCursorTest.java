@@ -0,0 +1,105 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.parser;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.NoSuchElementException;
+import java.util.StringTokenizer;
+
+
+public class CharArrayCursorTest {
+
+    @Test
+    public void testReadAndUnread() throws Exception {
+        final CharArrayCursor in = new CharArrayCursor( new StringReader( "ab" ) );
+        Assertions.assertEquals( 0, in.getPosition() );
+        Assertions.assertEquals( 'a', in.read() );
+        in.unread( 'a' );
+        Assertions.assertEquals( 0, in.getPosition() );
+        Assertions.assertEquals( 'a', in.read() );
+        in.unread( 'x' );
+        Assertions.assertEquals( 'x', in.read() );
+        Assertions.assertEquals( 'b', in.read() );
+        Assertions.assertEquals( -1, in.read() );
+        Assertions.assertEquals( 2, in.getPosition() );
+
+        in.unread( 'b' );
+        in.unread( 'x' );
+        in.unread( 'y' ); // more than has been read
+        Assertions.assertEquals( 'y', in.read() );
+        Assertions.assertEquals( 'x', in.read() );
+        Assertions.assertEquals( 'b', in.read() );
+        Assertions.assertEquals( -1, in.read() );
+    }
+
+    @Test
+    public void testMarkAndSubstring() throws Exception {
+        final CharArrayCursor in = new CharArrayCursor( new StringReader( "first line\nsecond line" ) );
+        final int mark = in.getPosition();
+        Assertions.assertEquals( "first line\n", in.readLine() );
+        Assertions.assertEquals( "first", in.substring( mark, mark + 5 ) );
+        in.setPosition( mark );
+        Assertions.assertEquals( 'f', in.read() );
+
+        in.setPosition( 11 );
+        Assertions.assertEquals( "second line", in.readLine() );
+        Assertions.assertEquals( "", in.readLine() );
+        Assertions.assertThrows( IndexOutOfBoundsException.class, () -> in.setPosition( 23 ) );
+    }
+
+    @Test
+    public void testReadWhileAndUntil() throws Exception {
+        final CharArrayCursor in = new CharArrayCursor( "**# item\\) (x\\" );
+        Assertions.assertEquals( "**#", in.readWhile( "*#" ) );
+        Assertions.assertEquals( "", in.readWhile( "*#" ) );
+        Assertions.assertEquals( " item) ", in.readUntil( "(" ) );
+        Assertions.assertEquals( '(', in.read() );
+        Assertions.assertEquals( "x", in.readUntil( "(" ), "a trailing backslash is dropped" );
+        Assertions.assertFalse( in.hasMore() );
+    }
+
+    @Test
+    public void testNextTokenLikeStringTokenizer() throws Exception {
+        final String text = " id='foo'  rel='Next' ";
+        final CharArrayCursor in = new CharArrayCursor( text );
+        final StringTokenizer tok = new StringTokenizer( text, " =", true );
+        final String[] delimiters = { " =", "'", "=", " =", "'" };
+        for( int i = 0; tok.hasMoreTokens(); i++ ) {
+            Assertions.assertTrue( in.hasMore() );
+            Assertions.assertEquals( tok.nextToken( delimiters[ i % delimiters.length ] ), in.nextToken( delimiters[ i % delimiters.length ] ) );
+        }
+        Assertions.assertFalse( in.hasMore() );
+        Assertions.assertThrows( NoSuchElementException.class, () -> in.nextToken( "'" ) );
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        final CharArrayCursor in = new CharArrayCursor( new StringReader( "one" ) );
+        Assertions.assertEquals( "one", in.readLine() );
+        in.setSource( new StringReader( "two" ) );
+        Assertions.assertEquals( 0, in.getPosition() );
+        Assertions.assertEquals( "two", in.readLine() );
+        in.setSource( null );
+        Assertions.assertEquals( -1, in.read() );
+    }
+
+}
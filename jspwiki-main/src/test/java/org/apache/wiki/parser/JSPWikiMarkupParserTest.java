@@ -95,6 +95,25 @@ public class JSPWikiMarkupParserTest {
         return conv.getString();
     }
 
+    @Test
+    public void testReusedInput() throws Exception {
+        newPage( "HyperLink" );
+        final String first = "!Heading\n__unclosed ''styles\n* list\n|table|cell\n{{{unclosed pre";
+        final String second = "!Heading\n!Heading\nThis should be a [HyperLink] and [http://www.example.com/]\n* list";
+
+        final CharArrayCursor input = new CharArrayCursor( new StringReader( first ) );
+        final WikiContext context = new WikiContext( testEngine, testEngine.newHttpRequest(), Wiki.contents().page( testEngine, PAGE_NAME ) );
+        final JSPWikiMarkupParser parser = new JSPWikiMarkupParser( context, input );
+        parser.disableAccessRules();
+        parser.parse();
+
+        input.setSource( new StringReader( second ) );
+        final WikiContext other = new WikiContext( testEngine, testEngine.newHttpRequest(), Wiki.contents().page( testEngine, "OtherPage" ) );
+        final String reused = new XHTMLRenderer( other, new JSPWikiMarkupParser( other, input ).parse() ).getString();
+
+        Assertions.assertEquals( translate( Wiki.contents().page( testEngine, "OtherPage" ), second ), reused );
+    }
+
     @Test
     public void testHyperlinks2() throws Exception {
         newPage( "Hyperlink" );
@@ -0,0 +1,264 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.parser;
+
+import org.apache.oro.text.regex.MatchResult;
+import org.apache.oro.text.regex.Pattern;
+import org.apache.oro.text.regex.Perl5Compiler;
+import org.apache.oro.text.regex.Perl5Matcher;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.render.XHTMLRenderer;
+import org.apache.wiki.stress.Benchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+
+
+/**
+ * Compares parsing every page with a new {@link JSPWikiMarkupParser} reading a new input against reusing a single {@link CharArrayCursor}
+ * input for every page, as the pooled inputs of the rendering manager are: time and bytes allocated per page. Parses the default wiki pages. Also compares the CamelCase
+ * matching of the parser with the Jakarta ORO matching it replaced, on CamelCase heavy text, and the {@link CharArrayCursor} input of the
+ * parser with the {@link PushbackReader} it replaced, reading the pages the way the parser does. Not run by default, run with
+ * {@code mvn test -Dtest=StressTestJSPWikiMarkupParser}.
+ */
+public class StressTestJSPWikiMarkupParser {
+
+    private static final File CORPUS = new File( "../jspwiki-wikipages/en/src/main/resources" );
+    private static final int ROUNDS = 50;
+    private static final java.util.regex.Pattern WIKIWORD = java.util.regex.Pattern.compile( JSPWikiMarkupParser.WIKIWORD_REGEX );
+
+    TestEngine engine = TestEngine.build();
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testParseAllocation() throws Exception {
+        final List< String > corpus = corpus();
+        Assertions.assertFalse( corpus.isEmpty(), "no pages found in " + CORPUS.getCanonicalPath() );
+
+        final CharArrayCursor reused = new CharArrayCursor( ( Reader )null );
+        for( int i = 0; i < corpus.size(); i++ ) {
+            if( corpus.get( i ).contains( "[{$" ) ) {
+                continue; // variables such as the uptime or the number of sessions change between the renderings
+            }
+            final Context context = context( i );
+            final String fresh = new XHTMLRenderer( context, new JSPWikiMarkupParser( context, new StringReader( corpus.get( i ) ) ).parse() ).getString();
+            final Context other = context( i ); // plugins such as the table of contents keep state in the context
+            reused.setSource( new StringReader( corpus.get( i ) ) );
+            Assertions.assertEquals( fresh, new XHTMLRenderer( other, new JSPWikiMarkupParser( other, reused ).parse() ).getString(), "page " + i );
+        }
+
+        measure( corpus, null );
+        measure( corpus, reused );
+        measure( corpus, null );
+        measure( corpus, reused );
+    }
+
+    void measure( final List< String > corpus, final CharArrayCursor reused ) throws IOException {
+        final com.sun.management.ThreadMXBean threads = ( com.sun.management.ThreadMXBean )ManagementFactory.getThreadMXBean();
+        final long thread = Thread.currentThread().threadId();
+        final List< Context > contexts = new ArrayList<>();
+        for( int i = 0; i < corpus.size(); i++ ) {
+            contexts.add( context( i ) );
+        }
+
+        final Benchmark sw = new Benchmark();
+        final long before = threads.getThreadAllocatedBytes( thread );
+        sw.start();
+        for( int round = 0; round < ROUNDS; round++ ) {
+            for( int i = 0; i < corpus.size(); i++ ) {
+                final Reader input;
+                if( reused == null ) {
+                    input = new StringReader( corpus.get( i ) );
+                } else {
+                    reused.setSource( new StringReader( corpus.get( i ) ) );
+                    input = reused;
+                }
+                final MarkupParser parser = new JSPWikiMarkupParser( contexts.get( i ), input );
+                Assertions.assertNotNull( parser.parse() );
+            }
+        }
+        sw.stop();
+        final long allocated = threads.getThreadAllocatedBytes( thread ) - before;
+        final int pages = ROUNDS * corpus.size();
+        System.out.println( String.format( "%-12s: %8s pages/second, %6d KB allocated/page", reused == null ? "new input" : "reused input",
+                                           sw.toString( pages ), allocated / pages / 1024 ) );
+    }
+
+    @Test
+    public void testInputThroughput() throws Exception {
+        final List< String > corpus = corpus();
+        Assertions.assertFalse( corpus.isEmpty(), "no pages found in " + CORPUS.getCanonicalPath() );
+        final CharArrayCursor cursor = new CharArrayCursor( ( Reader )null );
+        for( final String page : corpus ) {
+            cursor.setSource( new StringReader( page ) );
+            Assertions.assertEquals( readPushback( new PushbackReader( new BufferedReader( new StringReader( page ) ), 10 * 1024 ) ),
+                                     readCursor( cursor ) );
+        }
+
+        for( int run = 0; run < 2; run++ ) {
+            final Benchmark sw = new Benchmark();
+            sw.start();
+            for( int round = 0; round < ROUNDS; round++ ) {
+                for( final String page : corpus ) {
+                    readPushback( new PushbackReader( new BufferedReader( new StringReader( page ) ), 10 * 1024 ) );
+                }
+            }
+            sw.stop();
+            System.out.println( String.format( "%-12s: %8s pages/second", "pushback", sw.toString( ROUNDS * corpus.size() ) ) );
+
+            sw.reset();
+            sw.start();
+            for( int round = 0; round < ROUNDS; round++ ) {
+                for( final String page : corpus ) {
+                    cursor.setSource( new StringReader( page ) );
+                    readCursor( cursor );
+                }
+            }
+            sw.stop();
+            System.out.println( String.format( "%-12s: %8s pages/second", "cursor", sw.toString( ROUNDS * corpus.size() ) ) );
+        }
+    }
+
+    /** Reads a page the way the parser used to: a character at a time, peeking at every line and pushing back what was peeked. */
+    static long readPushback( final PushbackReader in ) throws IOException {
+        long sum = 0;
+        int ch;
+        while( ( ch = in.read() ) != -1 ) {
+            sum += ch;
+            if( ch == '\n' ) {
+                final StringBuilder line = new StringBuilder();
+                int c;
+                while( ( c = in.read() ) != -1 ) {
+                    line.append( ( char )c );
+                    if( c == '\n' ) {
+                        break;
+                    }
+                }
+                sum += line.length();
+                for( int i = line.length() - 1; i >= 0; i-- ) {
+                    in.unread( line.charAt( i ) );
+                }
+            }
+        }
+        return sum;
+    }
+
+    static long readCursor( final CharArrayCursor in ) throws IOException {
+        long sum = 0;
+        int ch;
+        while( ( ch = in.read() ) != -1 ) {
+            sum += ch;
+            if( ch == '\n' ) {
+                final int mark = in.getPosition();
+                sum += in.readLine().length();
+                in.setPosition( mark );
+            }
+        }
+        return sum;
+    }
+
+    @Test
+    public void testCamelCaseMatching() throws Exception {
+        final String oroRegex = "(^|[[:^alnum:]]+)([[:upper:]]+[[:lower:]]+[[:upper:]]+[[:alnum:]]*|(http://|https://|mailto:)([A-Za-z0-9_/\\.\\+\\?\\#\\-\\@=&;~%]+))";
+        final Pattern oro = new Perl5Compiler().compile( oroRegex, Perl5Compiler.READ_ONLY_MASK );
+        final StringBuilder sb = new StringBuilder();
+        for( int i = 0; i < 40; i++ ) {
+            sb.append( "Some text about WikiWords like PageProvider" ).append( i ).append( ", ~NotALink, Zoltán's ÄrgerMacher and " )
+              .append( "https://jspwiki.apache.org/Wiki.jsp?page=Main. " );
+        }
+        final String text = sb.toString();
+        Assertions.assertEquals( matchOro( text, oro ), matchJava( text ) );
+
+        for( int run = 0; run < 2; run++ ) {
+            final Benchmark sw = new Benchmark();
+            sw.start();
+            for( int i = 0; i < ROUNDS * 20; i++ ) {
+                matchOro( text, oro );
+            }
+            sw.stop();
+            System.out.println( String.format( "%-12s: %8s paragraphs/second", "ORO", sw.toString( ROUNDS * 20 ) ) );
+
+            sw.reset();
+            sw.start();
+            for( int i = 0; i < ROUNDS * 20; i++ ) {
+                matchJava( text );
+            }
+            sw.stop();
+            System.out.println( String.format( "%-12s: %8s paragraphs/second", "java.util", sw.toString( ROUNDS * 20 ) ) );
+        }
+    }
+
+    /** The matching loop of the parser when it used ORO. */
+    static List< String > matchOro( String buf, final Pattern pattern ) {
+        final List< String > matches = new ArrayList<>();
+        final Perl5Matcher matcher = new Perl5Matcher();
+        while( matcher.contains( buf, pattern ) ) {
+            final MatchResult result = matcher.getMatch();
+            matches.add( result.group( 2 ) );
+            buf = buf.substring( result.endOffset( 0 ) );
+        }
+        return matches;
+    }
+
+    static List< String > matchJava( final String buf ) {
+        final List< String > matches = new ArrayList<>();
+        final Matcher result = WIKIWORD.matcher( buf );
+        int start = 0;
+        while( result.region( start, buf.length() ).find() ) {
+            matches.add( result.group( 2 ) );
+            start = result.end();
+        }
+        return matches;
+    }
+
+    Context context( final int page ) {
+        return Wiki.context().create( engine, engine.newHttpRequest(), Wiki.contents().page( engine, "Benchmark" + page ) );
+    }
+
+    List< String > corpus() throws IOException {
+        final List< String > corpus = new ArrayList<>();
+        final File[] files = CORPUS.listFiles( ( dir, name ) -> name.endsWith( ".txt" ) );
+        if( files != null ) {
+            for( final File file : files ) {
+                corpus.add( new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 ) );
+            }
+        }
+        return corpus;
+    }
+
+}
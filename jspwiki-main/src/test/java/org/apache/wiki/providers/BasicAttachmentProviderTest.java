@@ -30,13 +30,20 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 
 public class BasicAttachmentProviderTest {
@@ -298,4 +305,90 @@ public class BasicAttachmentProviderTest {
         Assertions.assertEquals( att2.getName(), a2.getName(), "a2 name :: " + res );
     }
 
+    @Test
+    public void testSlowUploadDoesNotBlockOtherAttachments() throws Exception {
+        final Attachment other = Wiki.contents().attachment( m_engine, NAME2, "other.txt" );
+        m_provider.putAttachmentData( other, new ByteArrayInputStream( FILE_CONTENTS.getBytes( StandardCharsets.UTF_8 ) ) );
+
+        final CountDownLatch started = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final InputStream slow = new InputStream() {
+            int sent;
+            @Override
+            public int read() throws IOException {
+                if( sent == 0 ) {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch( final InterruptedException e ) {
+                        throw new IOException( e );
+                    }
+                }
+                return sent++ < 10 ? 'x' : -1;
+            }
+        };
+        final Attachment big = Wiki.contents().attachment( m_engine, NAME1, "big.bin" );
+        final CompletableFuture< Void > upload = CompletableFuture.runAsync( () -> {
+            try {
+                m_provider.putAttachmentData( big, slow );
+            } catch( final Exception e ) {
+                throw new RuntimeException( e );
+            }
+        } );
+        try {
+            Assertions.assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+            final CompletableFuture< List< Attachment > > listing = CompletableFuture.supplyAsync( () -> {
+                try {
+                    return m_provider.listAllChanged( new Date( 0L ) );
+                } catch( final ProviderException e ) {
+                    throw new RuntimeException( e );
+                }
+            } );
+            final List< Attachment > res = listing.get( 10, TimeUnit.SECONDS );
+            Assertions.assertEquals( 1, res.size(), "upload in progress must not be visible" );
+            Assertions.assertEquals( other.getName(), res.get( 0 ).getName() );
+            try( final InputStream in = m_provider.getAttachmentData( other ) ) {
+                Assertions.assertEquals( FILE_CONTENTS, FileUtil.readContents( in, StandardCharsets.UTF_8.name() ) );
+            }
+        } finally {
+            release.countDown();
+        }
+        upload.get( 10, TimeUnit.SECONDS );
+
+        final Attachment saved = m_provider.getAttachmentInfo( Wiki.contents().page( m_engine, NAME1 ), "big.bin", -1 );
+        Assertions.assertEquals( 1, saved.getVersion() );
+        Assertions.assertEquals( 10L, saved.getSize() );
+        final File[] leftovers = new File( m_provider.m_storageDir, BasicAttachmentProvider.UPLOADDIR ).listFiles();
+        Assertions.assertEquals( 0, leftovers == null ? 0 : leftovers.length, "temporary upload file must be removed" );
+    }
+
+    @Test
+    public void testInterruptedUploadsAreRemovedOnStartup() throws Exception {
+        final File uploadDir = new File( m_provider.m_storageDir, BasicAttachmentProvider.UPLOADDIR );
+        final File leftover = makeExtraFile( uploadDir, "upload-1234.tmp" );
+
+        new BasicAttachmentProvider().initialize( m_engine, m_engine.getWikiProperties() );
+
+        Assertions.assertFalse( leftover.exists() );
+        Assertions.assertTrue( uploadDir.isDirectory() );
+        Assertions.assertEquals( 0, m_provider.listAllChanged( new Date( 0L ) ).size() );
+    }
+
+    @Test
+    public void testEmptyAttachmentDirIsSkippedAndRemovedOnDelete() throws Exception {
+        final Attachment att = Wiki.contents().attachment( m_engine, NAME1, "test1.txt" );
+        m_provider.putAttachmentData( att, new ByteArrayInputStream( FILE_CONTENTS.getBytes( StandardCharsets.UTF_8 ) ) );
+        final File attDir = new File( new File( m_provider.m_storageDir, NAME1 + "-att" ), "test1.txt-dir" );
+        final File version = new File( attDir, "1.txt" );
+        Assertions.assertTrue( version.delete() );
+
+        // listing skips the empty directory without removing it
+        Assertions.assertEquals( 0, m_provider.listAttachments( Wiki.contents().page( m_engine, NAME1 ) ).size() );
+        Assertions.assertTrue( attDir.exists() );
+
+        att.setVersion( 1 );
+        m_provider.deleteVersion( att );
+        Assertions.assertFalse( attDir.exists() );
+    }
+
 }
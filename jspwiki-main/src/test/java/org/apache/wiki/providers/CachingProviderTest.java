@@ -22,6 +22,8 @@ package org.apache.wiki.providers;
 import net.sf.ehcache.CacheManager;
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.cache.CachingManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.util.FileUtil;
@@ -91,6 +93,62 @@ class CachingProviderTest {
         Assertions.assertEquals( "[fuufaa]", text, "text" );
     }
 
+    @Test
+    void testPageIndexNeedsNoRescan() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( CachingManager.PROP_CACHE_ENABLE, "true" );
+        props.setProperty( "jspwiki.pageProvider", "org.apache.wiki.providers.CounterProvider" );
+        props.setProperty( "jspwiki.cache.config-file", "ehcache-jspwiki-small.xml" );
+
+        engine = TestEngine.build( props );
+        final CachingProvider cp = ( CachingProvider )engine.getManager( PageManager.class ).getProvider();
+        final CounterProvider p = ( CounterProvider )cp.getRealProvider();
+        Assertions.assertEquals( 4, cp.getAllPages().size() );
+        Assertions.assertEquals( 4, cp.getAllPages().size() );
+        Assertions.assertEquals( 1, p.m_getAllPagesCalls, "getAllPages" );
+
+        final int getPageCalls = p.m_getPageCalls;
+        Assertions.assertTrue( cp.pageExists( "Blat" ) );
+        Assertions.assertEquals( getPageCalls, p.m_getPageCalls, "getPageInfo" );
+        Assertions.assertFalse( cp.pageExists( "NoSuchPage" ) );
+        Assertions.assertEquals( 0, p.m_pageExistsCalls, "pageExists" );
+        Assertions.assertEquals( 4, cp.getPageCount() );
+
+        final int getPageTextCalls = p.m_getPageTextCalls;
+        Assertions.assertEquals( p.m_defaultText, cp.getPageText( "Foo", PageProvider.LATEST_VERSION ) );
+        Assertions.assertEquals( getPageTextCalls, p.m_getPageTextCalls, "getPageText" );
+        final String info = cp.getProviderInfo();
+        Assertions.assertTrue( info.contains( "Page text cache hits: " ), info );
+        Assertions.assertTrue( info.contains( "Page text cache evicted bytes: 0" ), info );
+    }
+
+    @Test
+    void testPageIndexExpires() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( CachingManager.PROP_CACHE_ENABLE, "true" );
+        props.setProperty( "jspwiki.pageProvider", "org.apache.wiki.providers.CounterProvider" );
+        props.setProperty( CachingProvider.PROP_PAGE_INDEX_TTL, "1" );
+
+        engine = TestEngine.build( props );
+        final CachingProvider cp = ( CachingProvider )engine.getManager( PageManager.class ).getProvider();
+        final CounterProvider p = ( CounterProvider )cp.getRealProvider();
+        Assertions.assertEquals( 4, cp.getAllPages().size() );
+        Assertions.assertEquals( p.m_defaultText, cp.getPageText( "Foo", PageProvider.LATEST_VERSION ) );
+
+        // changed behind our back
+        final Page changed = Wiki.contents().page( engine, "Foo" );
+        changed.setVersion( 2 );
+        final Page added = Wiki.contents().page( engine, "Added" );
+        added.setVersion( 1 );
+        p.m_pages = new Page[] { changed, p.m_pages[ 1 ], p.m_pages[ 2 ], added };
+        p.m_defaultText = "[Bar]";
+
+        Awaitility.await( "testPageIndexExpires" ).until( () -> !cp.pageExists( "Blaa" ) );
+        Assertions.assertEquals( "[Bar]", cp.getPageText( "Foo", PageProvider.LATEST_VERSION ) );
+        Assertions.assertTrue( cp.getAllPages().stream().anyMatch( page -> page.getName().equals( "Added" ) ) );
+        Assertions.assertEquals( 4, cp.getAllPages().size() );
+    }
+
     @Test
     void testGetAllWithCacheTooSmallDelegatesToRealProvider() throws Exception {
         final Properties props = TestEngine.getTestProperties();
@@ -0,0 +1,104 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.pages.PageManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Runs all tests of the {@link VersioningFileProviderTest} with {@link VersioningFileProvider#PROP_PACK_VERSIONS} set.
+ */
+public class PackedVersioningFileProviderTest extends VersioningFileProviderTest {
+
+    @Override
+    protected TestEngine createEngine() {
+        final Properties props = TestEngine.getTestProperties( "/jspwiki-vers-custom.properties" );
+        props.setProperty( VersioningFileProvider.PROP_PACK_VERSIONS, "true" );
+        return TestEngine.build( props );
+    }
+
+    private File oldPageDir( final String page ) {
+        return new File( new File( getWikiPageDirectory(), VersioningFileProvider.PAGEDIR ), page );
+    }
+
+    @Test
+    public void testOldVersionsArePacked() throws Exception {
+        engine.saveText( NAME1, "v1\r\n" );
+        engine.saveText( NAME1, "v2\r\n" );
+        engine.saveText( NAME1, "v3\r\n" );
+
+        final File dir = oldPageDir( NAME1 );
+        Assertions.assertTrue( VersionPack.exists( dir ), "no pack" );
+        Assertions.assertFalse( new File( dir, "1" + AbstractFileProvider.FILE_EXT ).exists(), "version file written" );
+
+        final PageProvider provider = engine.getManager( PageManager.class ).getProvider();
+        final List< Page > history = provider.getVersionHistory( NAME1 );
+        Assertions.assertEquals( 3, history.size() );
+        Assertions.assertEquals( "v1\r\n", provider.getPageText( NAME1, 1 ) );
+        Assertions.assertEquals( "v2\r\n", provider.getPageText( NAME1, 2 ) );
+        Assertions.assertNotNull( provider.getPageInfo( NAME1, 1 ).getLastModified() );
+    }
+
+    @Test
+    public void testDeleteLatestVersionRestoresPackedVersion() throws Exception {
+        engine.saveText( NAME1, "v1\r\n" );
+        engine.saveText( NAME1, "v2\r\n" );
+
+        final PageProvider provider = engine.getManager( PageManager.class ).getProvider();
+        provider.deleteVersion( Wiki.contents().page( engine, NAME1 ), PageProvider.LATEST_VERSION );
+        Assertions.assertEquals( "v1\r\n", provider.getPageText( NAME1, PageProvider.LATEST_VERSION ) );
+
+        engine.saveText( NAME1, "v2 again\r\n" );
+        Assertions.assertEquals( "v1\r\n", provider.getPageText( NAME1, 1 ) );
+        Assertions.assertEquals( "v2 again\r\n", provider.getPageText( NAME1, 2 ) );
+    }
+
+    @Test
+    public void testDeletePageRemovesPack() throws Exception {
+        engine.saveText( NAME1, "v1\r\n" );
+        engine.saveText( NAME1, "v2\r\n" );
+
+        engine.getManager( PageManager.class ).getProvider().deletePage( Wiki.contents().page( engine, NAME1 ) );
+        Assertions.assertFalse( oldPageDir( NAME1 ).exists() );
+    }
+
+    @Test
+    public void testMovePageKeepsPack() throws Exception {
+        engine.saveText( NAME1, "v1\r\n" );
+        engine.saveText( NAME1, "v2\r\n" );
+
+        final PageProvider provider = engine.getManager( PageManager.class ).getProvider();
+        Assertions.assertEquals( "v1\r\n", provider.getPageText( NAME1, 1 ) ); // maps the pack before it is moved
+        provider.movePage( Wiki.contents().page( engine, NAME1 ), "Moved" );
+
+        Assertions.assertTrue( VersionPack.exists( oldPageDir( "Moved" ) ) );
+        Assertions.assertEquals( "v1\r\n", provider.getPageText( "Moved", 1 ) );
+        Assertions.assertEquals( 2, provider.getVersionHistory( "Moved" ).size() );
+    }
+
+}
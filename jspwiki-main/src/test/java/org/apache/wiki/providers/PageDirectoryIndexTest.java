@@ -0,0 +1,141 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+
+public class PageDirectoryIndexTest {
+
+    @TempDir
+    File dir;
+
+    private File write( final String fileName, final String text ) throws Exception {
+        final File file = new File( dir, fileName );
+        Files.write( file.toPath(), text.getBytes( StandardCharsets.ISO_8859_1 ) );
+        return file;
+    }
+
+    /** Pretends that the directory was last changed long ago, as it usually was. */
+    private void settle( final PageDirectoryIndex index ) {
+        Assertions.assertTrue( dir.setLastModified( System.currentTimeMillis() - 10 * PageDirectoryIndex.SETTLE_TIME ) );
+        index.size(); // scans once more, after which the directory is trusted
+    }
+
+    @Test
+    public void testScan() throws Exception {
+        write( "Main.txt", "main" );
+        write( "Main.properties", "author=Janne" );
+        write( "A%2FB.txt", "slash" );
+
+        final PageDirectoryIndex index = new PageDirectoryIndex( dir, name -> name.replace( "%2F", "/" ) );
+        Assertions.assertEquals( 2, index.size() );
+        final Set< String > names = index.entries().stream().map( e -> e.pageName ).collect( Collectors.toSet() );
+        Assertions.assertEquals( Set.of( "Main", "A/B" ), names );
+        final PageDirectoryIndex.Entry main = index.entries().stream().filter( e -> e.pageName.equals( "Main" ) ).findFirst().orElseThrow();
+        Assertions.assertEquals( 4, main.size );
+
+        Assertions.assertNull( new PageDirectoryIndex( new File( dir, "missing" ), name -> name ).entries() );
+    }
+
+    @Test
+    public void testSettledDirectoryIsNotListedAgain() throws Exception {
+        write( "Main.txt", "main" );
+        final PageDirectoryIndex index = new PageDirectoryIndex( dir, name -> name );
+        settle( index );
+        Assertions.assertEquals( 1, index.size() );
+
+        // a file the index has not been told about, in a directory whose last modified time did not change
+        final long modified = dir.lastModified();
+        final File other = write( "Other.txt", "other" );
+        Assertions.assertTrue( dir.setLastModified( modified ) );
+        Assertions.assertEquals( 1, index.size(), "directory listed again" );
+
+        index.update( other );
+        Assertions.assertEquals( 2, index.size() );
+        write( "Other.txt", "changed" );
+        index.update( other );
+        Assertions.assertEquals( 7, index.entries().stream().filter( e -> e.pageName.equals( "Other" ) ).findFirst().orElseThrow().size );
+
+        // anybody else deleting a file changes the last modified time of the directory
+        Assertions.assertTrue( new File( dir, "Main.txt" ).delete() );
+        Assertions.assertTrue( dir.setLastModified( modified + 1000 ) );
+        Assertions.assertEquals( 1, index.size() );
+    }
+
+    @Test
+    public void testWatch() throws Exception {
+        final TestEngine engine = TestEngine.build();
+        try {
+            final File main = write( "Main.txt", "main" );
+            final PageDirectoryIndex index = new PageDirectoryIndex( dir, name -> name );
+            settle( index );
+            index.watch( engine );
+
+            final long modified = dir.lastModified();
+            Files.write( main.toPath(), "changed in place".getBytes( StandardCharsets.ISO_8859_1 ) );
+            Assertions.assertEquals( modified, dir.lastModified() );
+            final long deadline = System.currentTimeMillis() + 10_000L;
+            while( index.entries().iterator().next().size != 16 && System.currentTimeMillis() < deadline ) {
+                Thread.sleep( 20L );
+            }
+            Assertions.assertEquals( 16, index.entries().iterator().next().size );
+            index.close();
+        } finally {
+            engine.stop();
+        }
+    }
+
+    @Test
+    public void testProviderKeepsIndexCurrent() throws Exception {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( AbstractFileProvider.PROP_PAGEDIR, dir.getAbsolutePath() );
+        final TestEngine engine = TestEngine.build();
+        try {
+            final FileSystemProvider provider = new FileSystemProvider();
+            provider.initialize( engine, props );
+            Assertions.assertEquals( 0, provider.getPageCount() );
+
+            provider.putPageText( Wiki.contents().page( engine, "Main" ), "main" );
+            provider.putPageText( Wiki.contents().page( engine, "Other" ), "other" );
+            write( "External.txt", "external" );
+            Assertions.assertEquals( 3, provider.getPageCount() );
+
+            provider.movePage( Wiki.contents().page( engine, "Other" ), "Moved" );
+            provider.deletePage( Wiki.contents().page( engine, "Main" ) );
+            Assertions.assertEquals( Set.of( "Moved", "External" ),
+                                     provider.getAllPages().stream().map( Page::getName ).collect( Collectors.toSet() ) );
+        } finally {
+            engine.stop();
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class PageTextCacheTest {
+
+    static String text( final char c, final int length ) {
+        return String.valueOf( c ).repeat( length );
+    }
+
+    @Test
+    void testEvictsBySize() {
+        final PageTextCache cache = new PageTextCache( 100, 0 );
+        cache.put( "A", text( 'a', 20 ), cache.stamp() );
+        cache.put( "B", text( 'b', 20 ), cache.stamp() );
+        Assertions.assertEquals( 80, cache.getBytes() );
+        Assertions.assertNotNull( cache.get( "A" ) ); // B is now the least recently used one
+
+        cache.put( "C", text( 'c', 20 ), cache.stamp() );
+        Assertions.assertNull( cache.get( "B" ) );
+        Assertions.assertEquals( text( 'a', 20 ), cache.get( "A" ) );
+        Assertions.assertEquals( text( 'c', 20 ), cache.get( "C" ) );
+        Assertions.assertEquals( 80, cache.getBytes() );
+        Assertions.assertEquals( 40, cache.getEvictedBytes() );
+        Assertions.assertEquals( 3, cache.getHits() );
+        Assertions.assertEquals( 1, cache.getMisses() );
+    }
+
+    @Test
+    void testHugePageDoesNotEvictOthers() {
+        final PageTextCache cache = new PageTextCache( 100, 0 );
+        cache.put( "A", text( 'a', 20 ), cache.stamp() );
+        cache.put( "Huge", text( 'h', 1000 ), cache.stamp() );
+        Assertions.assertNull( cache.get( "Huge" ) );
+        Assertions.assertNotNull( cache.get( "A" ) );
+        Assertions.assertEquals( 1, cache.size() );
+    }
+
+    @Test
+    void testCompressedTier() {
+        final PageTextCache cache = new PageTextCache( 100, 10_000 );
+        final String huge = "Some wiki text with [links] and __bold__ text. ".repeat( 100 );
+        cache.put( "A", text( 'a', 20 ), cache.stamp() );
+        cache.put( "B", text( 'b', 20 ), cache.stamp() );
+        cache.put( "Huge", huge, cache.stamp() );
+        Assertions.assertEquals( 1, cache.compressedSize() );
+        Assertions.assertTrue( cache.getCompressedBytes() < huge.length() / 10, "compressed to " + cache.getCompressedBytes() );
+        Assertions.assertEquals( huge, cache.get( "Huge" ) );
+        Assertions.assertEquals( huge, cache.get( "Huge" ), "too large for the heap, so it stays compressed" );
+
+        cache.put( "C", text( 'c', 20 ), cache.stamp() );
+        Assertions.assertEquals( 2, cache.compressedSize() );
+        Assertions.assertEquals( text( 'a', 20 ), cache.get( "A" ), "read back from the compressed tier" );
+        Assertions.assertEquals( 3, cache.getCompressedHits() );
+        Assertions.assertEquals( 2, cache.compressedSize(), "A moved back to the heap, pushing out B" );
+        Assertions.assertEquals( text( 'b', 20 ), cache.get( "B" ) );
+
+        cache.remove( "Huge" );
+        Assertions.assertNull( cache.get( "Huge" ) );
+        Assertions.assertTrue( cache.toString().contains( "Compressed page text cache size: " ), cache.toString() );
+    }
+
+    @Test
+    void testStalePutIsDropped() {
+        final PageTextCache cache = new PageTextCache( 100, 0 );
+        final long stamp = cache.stamp();
+        cache.remove( "A" ); // saved while the old text was being loaded
+        cache.put( "A", "old text", stamp );
+        Assertions.assertNull( cache.get( "A" ) );
+        cache.put( "A", "new text", cache.stamp() );
+        Assertions.assertEquals( "new text", cache.get( "A" ) );
+    }
+
+    @Test
+    void testRemovingOtherPagesKeepsPut() {
+        final PageTextCache cache = new PageTextCache( 100, 0 );
+        final long stamp = cache.stamp();
+        cache.remove( "B" ); // another page saved while A was being loaded
+        cache.put( "A", "text", stamp );
+        Assertions.assertEquals( "text", cache.get( "A" ) );
+    }
+
+}
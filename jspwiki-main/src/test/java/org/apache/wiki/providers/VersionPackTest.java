@@ -0,0 +1,199 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.providers;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+
+public class VersionPackTest {
+
+    @TempDir
+    File dir;
+
+    private static byte[] bytes( final String text ) {
+        return text.getBytes( StandardCharsets.UTF_8 );
+    }
+
+    @Test
+    public void testAppendAndGet() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        Assertions.assertFalse( VersionPack.exists( dir ) );
+        Assertions.assertNull( pack.get( 1 ) );
+        Assertions.assertEquals( -1L, pack.lastModified( 1 ) );
+
+        pack.append( 1, bytes( "first" ), 1000L );
+        pack.append( 2, bytes( "second" ), 2000L );
+        Assertions.assertTrue( VersionPack.exists( dir ) );
+        Assertions.assertArrayEquals( bytes( "first" ), pack.get( 1 ) );
+        Assertions.assertArrayEquals( bytes( "second" ), pack.get( 2 ) );
+        Assertions.assertEquals( 2000L, pack.lastModified( 2 ) );
+        Assertions.assertArrayEquals( new int[] { 1, 2 }, pack.versions() );
+
+        // a new instance reads what the first one wrote
+        final VersionPack reopened = new VersionPack( dir );
+        Assertions.assertArrayEquals( bytes( "second" ), reopened.get( 2 ) );
+        Assertions.assertFalse( reopened.contains( 3 ) );
+    }
+
+    @Test
+    public void testLastRecordWinsAndDelete() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        pack.append( 1, bytes( "first" ), 1000L );
+        pack.append( 1, bytes( "replaced" ), 1500L );
+        Assertions.assertArrayEquals( bytes( "replaced" ), pack.get( 1 ) );
+        Assertions.assertEquals( 1500L, pack.lastModified( 1 ) );
+
+        Assertions.assertTrue( pack.delete( 1 ) );
+        Assertions.assertFalse( pack.delete( 1 ) );
+        Assertions.assertFalse( pack.contains( 1 ) );
+        Assertions.assertFalse( new VersionPack( dir ).contains( 1 ) );
+
+        Assertions.assertTrue( pack.deleteFiles() );
+        Assertions.assertFalse( VersionPack.exists( dir ) );
+    }
+
+    @Test
+    public void testTornAppendIsIgnored() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        pack.append( 1, bytes( "first" ), 1000L );
+        pack.close();
+
+        // half a record, as if the wiki died while appending
+        try( final RandomAccessFile index = new RandomAccessFile( new File( dir, VersionPack.INDEX_FILE ), "rw" ) ) {
+            index.seek( index.length() );
+            index.write( new byte[ VersionPack.RECORD_SIZE / 2 ] );
+        }
+        Assertions.assertArrayEquals( new int[] { 1 }, pack.versions() );
+
+        pack.append( 2, bytes( "second" ), 2000L );
+        Assertions.assertEquals( VersionPack.HEADER_SIZE + 2 * VersionPack.RECORD_SIZE, new File( dir, VersionPack.INDEX_FILE ).length() );
+        Assertions.assertArrayEquals( bytes( "second" ), pack.get( 2 ) );
+    }
+
+    @Test
+    public void testChecksumMismatch() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        pack.append( 1, bytes( "first" ), 1000L );
+        pack.close();
+        Files.write( new File( dir, VersionPack.DATA_FILE ).toPath(), bytes( "fir5t" ) );
+
+        Assertions.assertThrows( IOException.class, () -> pack.get( 1 ) );
+    }
+
+    @Test
+    public void testAppendsAcrossChunks() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        final byte[][] versions = new byte[ 8 ][];
+        for( int v = 1; v < versions.length; v++ ) {
+            // a little over a third of a chunk, so that versions straddle chunk boundaries
+            versions[ v ] = new byte[ VersionPack.CHUNK_SIZE / 3 + v ];
+            Arrays.fill( versions[ v ], ( byte )v );
+            pack.append( v, versions[ v ], v * 1000L );
+            for( int w = 1; w <= v; w++ ) {
+                Assertions.assertArrayEquals( versions[ w ], pack.get( w ), "version " + w + " after appending " + v );
+            }
+        }
+        pack.close();
+        Assertions.assertArrayEquals( versions[ 5 ], pack.get( 5 ) );
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        pack.append( 1, bytes( "first" ), 1000L );
+        pack.append( 2, bytes( "second" ), 2000L );
+        pack.append( 2, bytes( "second, again" ), 2500L );
+        pack.append( 3, bytes( "third" ), 3000L );
+        Assertions.assertTrue( pack.delete( 1 ) );
+
+        final long size = new File( dir, VersionPack.DATA_FILE ).length();
+        Assertions.assertEquals( "first".length() + "second".length(), pack.compact() );
+        Assertions.assertEquals( size - "first".length() - "second".length(), new File( dir, VersionPack.DATA_FILE ).length() );
+        Assertions.assertEquals( 0L, pack.compact() );
+        Assertions.assertEquals( VersionPack.HEADER_SIZE + 2 * VersionPack.RECORD_SIZE, new File( dir, VersionPack.INDEX_FILE ).length() );
+        Assertions.assertArrayEquals( new int[] { 2, 3 }, pack.versions() );
+        Assertions.assertArrayEquals( bytes( "second, again" ), pack.get( 2 ) );
+        Assertions.assertEquals( 3000L, new VersionPack( dir ).lastModified( 3 ) );
+
+        Assertions.assertTrue( pack.delete( 2 ) );
+        Assertions.assertTrue( pack.delete( 3 ) );
+        pack.compact();
+        Assertions.assertFalse( VersionPack.exists( dir ) );
+        Assertions.assertFalse( new File( dir, VersionPack.DATA_FILE ).exists() );
+        Assertions.assertArrayEquals( new int[ 0 ], pack.versions() );
+    }
+
+    @Test
+    public void testInterruptedCompactIsRecovered() throws Exception {
+        final VersionPack pack = new VersionPack( dir );
+        pack.append( 1, bytes( "first" ), 1000L );
+        pack.append( 2, bytes( "second" ), 2000L );
+        pack.close();
+
+        // died before the data file was replaced: the old pack stays
+        Files.write( new File( dir, VersionPack.DATA_FILE + ".tmp" ).toPath(), bytes( "garbage" ) );
+        Files.write( new File( dir, VersionPack.INDEX_FILE + ".tmp" ).toPath(), bytes( "garbage" ) );
+        Assertions.assertArrayEquals( bytes( "second" ), pack.get( 2 ) );
+        Assertions.assertFalse( new File( dir, VersionPack.DATA_FILE + ".tmp" ).exists() );
+        Assertions.assertFalse( new File( dir, VersionPack.INDEX_FILE + ".tmp" ).exists() );
+
+        // died after the data file was replaced: the new index is moved in place
+        Assertions.assertTrue( pack.delete( 1 ) );
+        pack.compact();
+        final File index = new File( dir, VersionPack.INDEX_FILE );
+        Files.move( index.toPath(), new File( dir, VersionPack.INDEX_FILE + ".tmp" ).toPath() );
+        Files.write( index.toPath(), bytes( "stale" ) );
+        final VersionPack reopened = new VersionPack( dir );
+        Assertions.assertArrayEquals( new int[] { 2 }, reopened.versions() );
+        Assertions.assertArrayEquals( bytes( "second" ), reopened.get( 2 ) );
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        final File pageDir = new File( dir, "Main" );
+        Assertions.assertTrue( pageDir.mkdirs() );
+        for( int v = 1; v <= 3; v++ ) {
+            final File file = new File( pageDir, v + AbstractFileProvider.FILE_EXT );
+            Files.write( file.toPath(), bytes( "version " + v ) );
+            Assertions.assertTrue( file.setLastModified( v * 100_000L ) );
+        }
+        Files.write( new File( pageDir, VersioningFileProvider.PROPERTYFILE ).toPath(), bytes( "1.author=Janne\n" ) );
+
+        Assertions.assertArrayEquals( new int[] { 1, 3 }, VersionPackMigration.migrate( dir ) );
+        Assertions.assertFalse( new File( pageDir, "1" + AbstractFileProvider.FILE_EXT ).exists() );
+        Assertions.assertTrue( new File( pageDir, VersioningFileProvider.PROPERTYFILE ).exists() );
+
+        final VersionPack pack = new VersionPack( pageDir );
+        Assertions.assertArrayEquals( new int[] { 1, 2, 3 }, pack.versions() );
+        Assertions.assertArrayEquals( bytes( "version 2" ), pack.get( 2 ) );
+        Assertions.assertEquals( 200_000L, pack.lastModified( 2 ) );
+
+        Assertions.assertArrayEquals( new int[] { 0, 0 }, VersionPackMigration.migrate( dir ) );
+    }
+
+}
@@ -48,7 +48,9 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Properties;
@@ -483,6 +485,39 @@ public class VersioningFileProviderTest {
     }
 
 
+    @Test
+    public void testConcurrentSavesOfDifferentPages() throws Exception {
+        final PageProvider provider = engine.getManager( PageManager.class ).getProvider();
+        final List< Thread > threads = new ArrayList<>();
+        final List< Throwable > failures = Collections.synchronizedList( new ArrayList<>() );
+        for( int t = 0; t < 4; t++ ) {
+            final String name = getPageName1() + "Concurrent" + t;
+            threads.add( new Thread( () -> {
+                try {
+                    for( int v = 1; v <= 10; v++ ) {
+                        final Page page = Wiki.contents().page( engine, name );
+                        page.setAuthor( "Author" + v );
+                        provider.putPageText( page, "v" + v );
+                        Assertions.assertEquals( "v1", provider.getPageText( name, 1 ) );
+                    }
+                } catch( final Throwable e ) {
+                    failures.add( e );
+                }
+            } ) );
+        }
+        threads.forEach( Thread::start );
+        for( final Thread thread : threads ) {
+            thread.join();
+        }
+        Assertions.assertEquals( List.of(), failures );
+        for( int t = 0; t < 4; t++ ) {
+            final String name = getPageName1() + "Concurrent" + t;
+            Assertions.assertEquals( 10, provider.getVersionHistory( name ).size() );
+            Assertions.assertEquals( "v10", provider.getPageText( name, PageProvider.LATEST_VERSION ) );
+            Assertions.assertEquals( "Author7", provider.getPageInfo( name, 7 ).getAuthor() );
+        }
+    }
+
     @Test
     public void testChangeNote() throws Exception {
         final Page p = Wiki.contents().page( engine, NAME1 );
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Engine;
+import org.apache.wiki.pages.PageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.apache.wiki.TestEngine.with;
+
+
+public class CompactReferenceManagerTest {
+
+    TestEngine engine = TestEngine.build( with( "jspwiki.translatorReader.matchEnglishPlurals", "true" ),
+                                          with( Engine.PROP_REF_MANAGER_IMPL, CompactReferenceManager.class.getName() ) );
+    ReferenceManager mgr = engine.getManager( ReferenceManager.class );
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        engine.saveText( "TestPage", "Reference to [Foobar]." );
+        engine.saveText( "Foobar", "Reference to [Foobar2], [Foobars], [Foobar]" );
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testImplementation() {
+        Assertions.assertInstanceOf( CompactReferenceManager.class, mgr );
+    }
+
+    @Test
+    public void testNonExistant() {
+        final Collection< String > c = mgr.findReferrers( "Foobar2" );
+        Assertions.assertNotNull( c, "referrers expected" );
+        Assertions.assertTrue( c.size() == 1 && c.contains( "Foobar" ) );
+        Assertions.assertNull( mgr.findReferrers( "TestBug" ) );
+    }
+
+    @Test
+    public void testRemove() throws Exception {
+        engine.getManager( PageManager.class ).deletePage( "Foobar" );
+        Assertions.assertNull( mgr.findReferrers( "Foobar2" ) );
+        Assertions.assertNull( mgr.findRefersTo( "Foobar" ) );
+
+        engine.saveText( "Foobar", "[Foobar2]" );
+        final Collection< String > c = mgr.findReferrers( "Foobar2" );
+        Assertions.assertNotNull( c, "referrers expected" );
+        Assertions.assertTrue( c.size() == 1 && c.contains( "Foobar" ) );
+    }
+
+    @Test
+    public void testUnreferencedAndUncreated() throws Exception {
+        Assertions.assertTrue( mgr.findUnreferenced().contains( "TestPage" ) );
+        Assertions.assertEquals( Collections.singleton( "Foobar2" ), new HashSet<>( mgr.findUncreated() ) );
+
+        engine.saveText( "Foobar2", "ref to [TestPage]" );
+        Assertions.assertEquals( 0, mgr.findUncreated().size(), "no uncreated" );
+        Assertions.assertEquals( 0, mgr.findUnreferenced().size(), "no unreferenced" );
+    }
+
+    @Test
+    public void testReferrers() {
+        Assertions.assertNull( mgr.findReferrers( "TestPage" ), "TestPage referrers" );
+        Assertions.assertEquals( new HashSet<>( Arrays.asList( "TestPage", "Foobar" ) ), mgr.findReferrers( "Foobar" ) );
+        Assertions.assertEquals( new HashSet<>( Arrays.asList( "TestPage", "Foobar" ) ), mgr.findReferrers( "Foobars" ) );
+        Assertions.assertEquals( Collections.singleton( "Foobar" ), mgr.findReferredBy( "Foobar2" ) );
+        Assertions.assertTrue( mgr.findReferredBy( "TestPage" ).isEmpty() );
+    }
+
+    @Test
+    public void testRefersTo() throws Exception {
+        Assertions.assertEquals( new HashSet<>( Arrays.asList( "Foobar", "Foobar2" ) ), new HashSet<>( mgr.findRefersTo( "Foobar" ) ) );
+
+        engine.saveText( "Foobar", "Reference to [TestPage]" );
+        Assertions.assertEquals( Collections.singleton( "TestPage" ), new HashSet<>( mgr.findRefersTo( "Foobar" ) ) );
+        Assertions.assertNull( mgr.findReferrers( "Foobar2" ) );
+        Assertions.assertEquals( Collections.singleton( "Foobar" ), mgr.findReferrers( "TestPage" ) );
+    }
+
+    @Test
+    public void testCreated() {
+        Assertions.assertTrue( mgr.findCreated().containsAll( Arrays.asList( "TestPage", "Foobar" ) ) );
+        Assertions.assertFalse( mgr.findCreated().contains( "Foobar2" ) );
+    }
+
+    @Test
+    public void testGraphCompaction() {
+        final ReferenceGraph graph = new ReferenceGraph( false );
+        graph.setReferences( "A", Arrays.asList( "B", "C" ) );
+        graph.setReferences( "B", Collections.singleton( "C" ) );
+        graph.compact();
+        graph.setReferences( "A", Collections.singleton( "D" ) );
+        Assertions.assertEquals( Collections.singleton( "B" ), graph.referrersOf( "C" ) );
+        Assertions.assertEquals( Collections.singleton( "A" ), graph.referrersOf( "D" ) );
+
+        graph.remove( "B" );
+        graph.compact();
+        Assertions.assertNull( graph.referrersOf( "C" ), "C is neither created nor referenced anymore" );
+        Assertions.assertEquals( Collections.singleton( "D" ), graph.referencesOf( "A" ) );
+        Assertions.assertEquals( Collections.singleton( "A" ), graph.referrersOf( "D" ) );
+        Assertions.assertNull( graph.referrersOf( "B" ), "B has been removed and is not referenced" );
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        engine.saveText( "BugOne", "Reference to [Foobar2]" );
+        final CompactReferenceManager restored = new CompactReferenceManager( engine );
+        restored.initialize( engine.getManager( PageManager.class ).getAllPages() );
+
+        Assertions.assertEquals( new HashSet<>( Arrays.asList( "Foobar", "BugOne" ) ), restored.findReferrers( "Foobar2" ) );
+    }
+
+}
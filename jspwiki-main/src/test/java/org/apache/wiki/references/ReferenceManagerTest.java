@@ -22,7 +22,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Set;
 
@@ -302,6 +304,63 @@ public class ReferenceManagerTest  {
         Assertions.assertEquals( "BugOne", ref.iterator().next(), "ref");
     }
 
+    @Test
+    public void testJournalReplay() throws Exception {
+        engine.saveText( "BugOne", "Reference to [Foobar2]" );
+        engine.getManager( PageManager.class ).deletePage( "TestPage" );
+        Assertions.assertTrue( new File( engine.getWorkDir(), "refmgr.journal" ).exists(), "journal expected" );
+
+        final DefaultReferenceManager restored = new DefaultReferenceManager( engine );
+        restored.initialize( engine.getManager( PageManager.class ).getAllPages() );
+
+        final Collection< String > c = restored.findReferrers( "Foobar2" );
+        Assertions.assertNotNull( c, "referrers expected" );
+        Assertions.assertEquals( 2, c.size(), "Foobar2 referrers" );
+        Assertions.assertTrue( c.contains( "Foobar" ) && c.contains( "BugOne" ) );
+        Assertions.assertNull( restored.findRefersTo( "TestPage" ), "TestPage has been removed" );
+    }
+
+    @Test
+    public void testParallelRebuild() throws Exception {
+        for( int i = 0; i < 20; i++ ) {
+            engine.saveText( "Scanned" + i, "Reference to [Foobar2] and [Scanned" + ( ( i + 1 ) % 20 ) + "]" );
+        }
+        engine.getWikiProperties().setProperty( DefaultReferenceManager.PROP_SCAN_THREADS, "4" );
+        Assertions.assertTrue( new File( engine.getWorkDir(), "refmgr.ser" ).delete(), "snapshot expected" );
+
+        final DefaultReferenceManager rebuilt = new DefaultReferenceManager( engine );
+        rebuilt.initialize( engine.getManager( PageManager.class ).getAllPages() );
+
+        final Collection< String > c = rebuilt.findReferrers( "Foobar2" );
+        Assertions.assertNotNull( c, "referrers expected" );
+        Assertions.assertEquals( 21, c.size(), "Foobar2 referrers" );
+        for( int i = 0; i < 20; i++ ) {
+            Assertions.assertEquals( Collections.singleton( "Scanned" + ( ( i + 19 ) % 20 ) ), rebuilt.findReferrers( "Scanned" + i ) );
+        }
+        Assertions.assertEquals( mgr.findRefersTo( "TestPage" ), rebuilt.findRefersTo( "TestPage" ) );
+    }
+
+    @Test
+    public void testJournalCompaction() throws Exception {
+        final TestEngine compacting = TestEngine.build( with( DefaultReferenceManager.PROP_JOURNAL_COMPACTION_THRESHOLD, "2" ) );
+        try {
+            final File journal = new File( compacting.getWorkDir(), "refmgr.journal" );
+            compacting.saveText( "PageOne", "[PageTwo]" );
+            compacting.saveText( "PageTwo", "[PageOne]" );
+            Assertions.assertTrue( journal.exists(), "journal expected" );
+            compacting.saveText( "PageThree", "[PageOne]" );
+            Assertions.assertFalse( journal.exists(), "journal should have been compacted" );
+
+            final DefaultReferenceManager restored = new DefaultReferenceManager( compacting );
+            restored.initialize( compacting.getManager( PageManager.class ).getAllPages() );
+            final Collection< String > c = restored.findReferrers( "PageOne" );
+            Assertions.assertNotNull( c, "referrers expected" );
+            Assertions.assertTrue( c.size() == 2 && c.contains( "PageTwo" ) && c.contains( "PageThree" ) );
+        } finally {
+            compacting.stop();
+        }
+    }
+
     @Test
     public void testReadLinks() {
         final String src="Foobar. [Foobar].  Frobozz.  [This is a link].";
@@ -0,0 +1,170 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.references;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.stress.Benchmark;
+import org.github.jamm.MemoryMeter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.apache.wiki.TestEngine.with;
+
+
+/**
+ * Compares memory footprint and latency of {@link DefaultReferenceManager} and {@link CompactReferenceManager} on a synthetic graph
+ * of {@value #NUM_PAGES} pages. Excluded from the default build; memory figures need the jamm java agent, so launch it through the
+ * mem-profiling maven profile: {@code mvn test -Pmem-profiling -Dtest=StressTestReferenceManager}.
+ */
+public class StressTestReferenceManager {
+
+    private static final int NUM_PAGES = 100_000;
+    private static final int NUM_HUBS = 100;
+    private static final int LINKS_PER_PAGE = 10;
+    private static final int NUM_QUERIES = 100_000;
+    private static final int NUM_EDITS = 5_000;
+
+    TestEngine engine = TestEngine.build( with( "jspwiki.referenceManager.serialize", "false" ) );
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testCompareImplementations() {
+        final List< List< String > > links = generateLinks( new Random( 42 ) );
+
+        final DefaultReferenceManager defaultMgr = new DefaultReferenceManager( engine );
+        final long defaultBytes = run( "DefaultReferenceManager", defaultMgr, links );
+        final long defaultDeep = measure( new Object[] { defaultMgr.getRefersTo(), defaultMgr.getReferredBy() } );
+
+        final CompactReferenceManager compactMgr = new CompactReferenceManager( engine );
+        final long compactBytes = run( "CompactReferenceManager", compactMgr, links );
+        final long compactDeep = measure( compactMgr.getGraph() );
+
+        System.out.println( "===========================================================================================" );
+        System.out.println( "Heap growth, DefaultReferenceManager: ........ " + format( defaultBytes ) );
+        System.out.println( "Heap growth, CompactReferenceManager: ........ " + format( compactBytes ) );
+        System.out.println( "Deep size (jamm), DefaultReferenceManager: ... " + format( defaultDeep ) );
+        System.out.println( "Deep size (jamm), CompactReferenceManager: ... " + format( compactDeep ) );
+        System.out.println( "===========================================================================================" );
+
+        for( int i = 0; i < NUM_HUBS; i++ ) {
+            Assertions.assertEquals( defaultMgr.findReferrers( getName( i ) ), compactMgr.findReferrers( getName( i ) ) );
+        }
+        for( int i = 0; i < NUM_PAGES; i += NUM_PAGES / 100 ) {
+            Assertions.assertEquals( defaultMgr.findRefersTo( getName( i ) ), compactMgr.findRefersTo( getName( i ) ) );
+        }
+    }
+
+    long run( final String label, final ReferenceManager mgr, final List< List< String > > links ) {
+        final long before = usedMemory();
+        final Benchmark sw = new Benchmark();
+        sw.start();
+        for( int i = 0; i < NUM_PAGES; i++ ) {
+            mgr.updateReferences( getName( i ), links.get( i ) );
+        }
+        sw.stop();
+        final long bytes = usedMemory() - before;
+        System.out.println( label + ": built graph in " + sw + ", " + sw.toString( NUM_PAGES ) + " updates/second" );
+
+        final Random random = new Random( 7 );
+        sw.reset();
+        sw.start();
+        for( int i = 0; i < NUM_QUERIES; i++ ) {
+            mgr.findReferrers( getName( random.nextInt( NUM_PAGES ) ) );
+        }
+        sw.stop();
+        System.out.println( label + ": findReferrers " + sw.toString( NUM_QUERIES ) + " queries/second" );
+
+        sw.reset();
+        sw.start();
+        for( int i = 0; i < NUM_QUERIES; i++ ) {
+            mgr.findRefersTo( getName( random.nextInt( NUM_PAGES ) ) );
+        }
+        sw.stop();
+        System.out.println( label + ": findRefersTo " + sw.toString( NUM_QUERIES ) + " queries/second" );
+
+        sw.reset();
+        sw.start();
+        for( int i = 0; i < NUM_EDITS; i++ ) {
+            final int page = random.nextInt( NUM_PAGES );
+            mgr.updateReferences( getName( page ), links.get( ( page + 1 ) % NUM_PAGES ) );
+        }
+        sw.stop();
+        System.out.println( label + ": re-saved pages at " + sw.toString( NUM_EDITS ) + " updates/second" );
+
+        sw.reset();
+        sw.start();
+        final int unreferenced = mgr.findUnreferenced().size();
+        sw.stop();
+        System.out.println( label + ": findUnreferenced (" + unreferenced + " pages) in " + sw );
+
+        return bytes;
+    }
+
+    List< List< String > > generateLinks( final Random random ) {
+        final List< List< String > > links = new ArrayList<>( NUM_PAGES );
+        for( int i = 0; i < NUM_PAGES; i++ ) {
+            final List< String > refs = new ArrayList<>( LINKS_PER_PAGE );
+            refs.add( getName( random.nextInt( NUM_HUBS ) ) );
+            refs.add( getName( random.nextInt( NUM_HUBS ) ) );
+            for( int l = 2; l < LINKS_PER_PAGE; l++ ) {
+                refs.add( getName( random.nextInt( NUM_PAGES ) ) );
+            }
+            if( i % 50 == 0 ) {
+                refs.add( "Uncreated" + i );
+            }
+            links.add( refs );
+        }
+        return links;
+    }
+
+    String getName( final int i ) {
+        return String.format( "Page%06d", i );
+    }
+
+    long measure( final Object o ) {
+        try {
+            return MemoryMeter.builder().build().measureDeep( o );
+        } catch( final RuntimeException e ) {
+            System.out.println( "Unable to measure deep size: " + e.getMessage() );
+            return -1L;
+        }
+    }
+
+    long usedMemory() {
+        final Runtime rt = Runtime.getRuntime();
+        for( int i = 0; i < 3; i++ ) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    String format( final long bytes ) {
+        return String.format( "%,14d bytes", bytes );
+    }
+
+}
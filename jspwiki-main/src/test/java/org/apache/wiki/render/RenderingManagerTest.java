@@ -23,7 +23,10 @@ import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.cache.CachingManager;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.parser.CharArrayCursor;
+import org.apache.wiki.parser.JSPWikiMarkupParser;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
 import org.junit.jupiter.api.AfterEach;
@@ -95,6 +98,56 @@ public class RenderingManagerTest {
         Assertions.assertEquals( "<i>Foobar.</i>\n", data );
     }
 
+    String view( final String name ) {
+        final Page page = m_engine.getManager( PageManager.class ).getPage( name );
+        return m_manager.getHTML( Wiki.context().create( m_engine, page ), page );
+    }
+
+    @Test
+    public void testCacheFlushesOnlyDependentDocuments() throws Exception {
+        m_engine.saveText( "Linker", "See [Target]." );
+        m_engine.saveText( "Bystander", "No links here." );
+        Assertions.assertTrue( view( "Linker" ).contains( "createpage" ) );
+        view( "Bystander" );
+
+        final CachingManager cache = m_engine.getManager( CachingManager.class );
+        Assertions.assertEquals( 2, cache.keys( CachingManager.CACHE_DOCUMENTS ).size() );
+
+        m_engine.saveText( "Targets", "Now I exist." );
+        Assertions.assertEquals( 1, cache.keys( CachingManager.CACHE_DOCUMENTS ).size(), "only the document linking to the new page is flushed" );
+        Assertions.assertTrue( view( "Linker" ).contains( "wikipage" ) );
+    }
+
+    @Test
+    public void testCacheFlushesDocumentsLinkingToResolvedName() throws Exception {
+        m_engine.saveText( "TargetPage", "I exist." );
+        m_engine.saveText( "Linker", "See [target pages]." );
+        Assertions.assertTrue( view( "Linker" ).contains( "wikipage" ) );
+
+        final CachingManager cache = m_engine.getManager( CachingManager.class );
+        Assertions.assertEquals( 1, cache.keys( CachingManager.CACHE_DOCUMENTS ).size() );
+        m_engine.saveText( "TargetPage", "I changed." );
+        Assertions.assertEquals( 0, cache.keys( CachingManager.CACHE_DOCUMENTS ).size(), "the link resolved to the saved page" );
+    }
+
+    @Test
+    public void testParserInputsAreReused() throws Exception {
+        final DefaultRenderingManager manager = ( DefaultRenderingManager )m_manager;
+        final Context context = Wiki.context().create( m_engine, Wiki.contents().page( m_engine, "Reused" ) );
+        final CharArrayCursor input = manager.borrowInput( "!Heading\n''Foo" );
+        manager.returnInput( input );
+
+        final CharArrayCursor nested = manager.borrowInput( "!Heading\n__Bar__" );
+        Assertions.assertSame( input, nested );
+        Assertions.assertNotSame( input, manager.borrowInput( "" ), "a borrowed input is not handed out twice" );
+        Assertions.assertEquals( m_manager.getHTML( context, m_manager.getParser( context, "!Heading\n__Bar__" ).parse() ),
+                                 m_manager.getHTML( context, new JSPWikiMarkupParser( context, nested ).parse() ) );
+        manager.returnInput( nested );
+
+        Assertions.assertEquals( "<i>Foo</i>", m_manager.textToHTML( context, "''Foo''" ) );
+        Assertions.assertEquals( "<b>Bar</b>", m_manager.textToHTML( context, "__Bar__" ) );
+    }
+
     /**
      * Tests the relative speed of the DOM cache with respect to page being parsed every single time.
      */
@@ -0,0 +1,130 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.search;
+
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.ContextEnum;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.search.SearchResult;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.pages.PageManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Properties;
+
+
+public class LuceneSearchProviderTest {
+
+    TestEngine m_engine;
+    LuceneSearchProvider m_provider;
+
+    @BeforeEach
+    public void setUp() {
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( "jspwiki.workDir", props.getProperty( "jspwiki.workDir" ) + System.currentTimeMillis() );
+        props.setProperty( "jspwiki.fileSystemProvider.pageDir", props.getProperty( "jspwiki.fileSystemProvider.pageDir" ) + System.currentTimeMillis() );
+        m_engine = TestEngine.build( props );
+
+        // not initialized on purpose, so no background updater drains the queue while the test inspects it
+        m_provider = new LuceneSearchProvider();
+        m_provider.m_engine = m_engine;
+        m_provider.m_luceneDirectory = m_engine.getWorkDir() + File.separator + "lucene-test";
+    }
+
+    @AfterEach
+    public void tearDown() {
+        m_provider.closeIndex();
+        m_engine.stop();
+    }
+
+    Page page( final String name ) {
+        return m_engine.getManager( PageManager.class ).getPage( name, PageProvider.LATEST_VERSION );
+    }
+
+    Collection< SearchResult > find( final String query ) throws Exception {
+        final Context ctx = Wiki.context().create( m_engine, m_engine.newHttpRequest(), ContextEnum.PAGE_EDIT.getRequestContext() );
+        return m_provider.findPages( query, ctx );
+    }
+
+    @Test
+    public void testUpdatesAreCoalesced() throws Exception {
+        m_engine.saveText( "Alpha", "The first draft" );
+        m_provider.reindexPage( page( "Alpha" ) );
+        m_engine.saveText( "Alpha", "The third age of mankind" );
+        m_provider.reindexPage( page( "Alpha" ) );
+        m_engine.saveText( "Beta", "Another age of mankind" );
+        m_provider.reindexPage( page( "Beta" ) );
+        m_provider.pageRemoved( page( "Beta" ) );
+
+        Assertions.assertEquals( 2, m_provider.getUpdateQueueDepth() );
+        Assertions.assertTrue( m_provider.getIndexingLag() >= 0L );
+
+        m_provider.processUpdateQueue();
+        Assertions.assertEquals( 0, m_provider.getUpdateQueueDepth() );
+        Assertions.assertEquals( 0L, m_provider.getIndexingLag() );
+
+        final Collection< SearchResult > res = find( "mankind" );
+        Assertions.assertEquals( 1, res.size() );
+        Assertions.assertEquals( "Alpha", res.iterator().next().getPage().getName() );
+        Assertions.assertTrue( find( "draft" ).isEmpty(), "stale text should not be indexed" );
+    }
+
+    @Test
+    public void testRemovalAfterIndexing() throws Exception {
+        m_engine.saveText( "Alpha", "The third age of mankind" );
+        m_provider.reindexPage( page( "Alpha" ) );
+        m_provider.processUpdateQueue();
+        Assertions.assertEquals( 1, find( "mankind" ).size() );
+
+        m_provider.pageRemoved( page( "Alpha" ) );
+        Assertions.assertEquals( 1, find( "mankind" ).size(), "removal becomes visible once the queue is processed" );
+        m_provider.processUpdateQueue();
+        Assertions.assertTrue( find( "mankind" ).isEmpty() );
+    }
+
+    @Test
+    public void testSearchContexts() throws Exception {
+        final StringBuilder text = new StringBuilder();
+        for( int i = 0; i < 2_000; i++ ) {
+            text.append( "Filler sentence number " ).append( i ).append( ". " );
+        }
+        text.append( "The <b>third</b> age of mankind began. " );
+        m_engine.saveText( "Alpha", text.toString() );
+        m_provider.reindexPage( page( "Alpha" ) );
+        m_provider.processUpdateQueue();
+
+        final Collection< SearchResult > res = find( "mankind" );
+        Assertions.assertEquals( 1, res.size() );
+        final String[] contexts = res.iterator().next().getContexts();
+        Assertions.assertEquals( 1, contexts.length );
+        Assertions.assertTrue( contexts[ 0 ].contains( "<span class=\"searchmatch\">mankind</span>" ), contexts[ 0 ] );
+        Assertions.assertTrue( contexts[ 0 ].contains( "&lt;b&gt;third" ), contexts[ 0 ] );
+        Assertions.assertTrue( contexts[ 0 ].length() < 200, contexts[ 0 ] );
+
+        Assertions.assertEquals( 0, find( "Alpha" ).iterator().next().getContexts().length, "name only matches have no contexts" );
+    }
+
+}
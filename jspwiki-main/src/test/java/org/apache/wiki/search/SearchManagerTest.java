@@ -203,4 +203,16 @@ public class SearchManagerTest {
         m_engine.deleteTestPage("TestPage");
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testDeletedPageDisappearsFromResults() throws Exception {
+        m_engine.saveText( "TestPage", "It was the dawn of the third age of mankind, ten years after the Earth-Minbari War." );
+
+        final Collection< SearchResult > res = new ArrayList<>();
+        Awaitility.await( "testDeletedPageDisappearsFromResults" ).until( findsResultsFor( res, "mankind" ) );
+        Assertions.assertEquals( 1, res.size(), "no pages" );
+
+        m_engine.getManager( PageManager.class ).deletePage( "TestPage" );
+        Awaitility.await( "testDeletedPageDisappearsFromResults" ).until( () -> !findsResultsFor( new ArrayList<>(), "mankind" ).call() );
+    }
+
+}
@@ -20,12 +20,25 @@ package org.apache.wiki.stress;
 
 import org.apache.wiki.TestEngine;
 import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.providers.PageProvider;
+import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.pages.PageManager;
+import org.apache.wiki.providers.AbstractFileProvider;
+import org.apache.wiki.providers.CachingProvider;
+import org.apache.wiki.providers.VersioningFileProvider;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 public class StressTestVersioningProvider {
@@ -109,4 +122,92 @@ public class StressTestVersioningProvider {
         runMassiveFileTest( 10000 );
     }
 
+    @TempDir
+    File pageDir;
+
+    /**
+     * Every thread saves its own page and reads the latest and an old version of it, for a fixed time, on a
+     * {@link VersioningFileProvider} without the caching provider in front of it. A single lock stripe makes all
+     * pages wait for each other, as the provider used to. Not run by default, run with
+     * {@code mvn test -Dtest=StressTestVersioningProvider}.
+     */
+    @Test
+    public void testConcurrentSavesAndReads() throws Exception {
+        for( final int stripes : new int[] { 1, VersioningFileProvider.DEFAULT_LOCK_STRIPES } ) {
+            for( final int threads : new int[] { 1, 2, 4, 8, 16, 32 } ) {
+                runConcurrent( stripes, threads, 1_000L, false );
+            }
+        }
+    }
+
+    /**
+     * Same as {@link #testConcurrentSavesAndReads()}, with the {@link CachingProvider} in front of the versioning provider, as
+     * pages are saved and read by the wiki. Not run by default, run with
+     * {@code mvn test -Dtest=StressTestVersioningProvider#testConcurrentSavesAndReadsCached}.
+     */
+    @Test
+    public void testConcurrentSavesAndReadsCached() throws Exception {
+        for( final int threads : new int[] { 1, 2, 4, 8, 16, 32 } ) {
+            runConcurrent( VersioningFileProvider.DEFAULT_LOCK_STRIPES, threads, 1_000L, true );
+        }
+    }
+
+    private void runConcurrent( final int stripes, final int threads, final long millis, final boolean cached ) throws Exception {
+        final File dir = new File( pageDir, stripes + "-" + threads + ( cached ? "-cached" : "" ) );
+        final Properties props = TestEngine.getTestProperties();
+        props.setProperty( AbstractFileProvider.PROP_PAGEDIR, dir.getAbsolutePath() );
+        props.setProperty( VersioningFileProvider.PROP_LOCK_STRIPES, String.valueOf( stripes ) );
+        props.setProperty( PageManager.PROP_PAGEPROVIDER, VersioningFileProvider.class.getSimpleName() );
+        final PageProvider provider = cached ? new CachingProvider() : new VersioningFileProvider();
+        provider.initialize( engine, props );
+
+        final AtomicInteger saves = new AtomicInteger();
+        final long[][] latencies = new long[ threads ][ 0 ];
+        final List< Throwable > failures = new ArrayList<>();
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List< Thread > workers = new ArrayList<>();
+        for( int t = 0; t < threads; t++ ) {
+            final int index = t;
+            final String name = "Concurrent" + t;
+            workers.add( new Thread( () -> {
+                try {
+                    start.await();
+                    final long end = System.currentTimeMillis() + millis;
+                    final long[] reads = new long[ 1_000_000 ];
+                    int n = 0;
+                    for( int v = 1; System.currentTimeMillis() < end && n + 2 <= reads.length; v++ ) {
+                        final Page page = Wiki.contents().page( engine, name );
+                        page.setAuthor( "Author" );
+                        provider.putPageText( page, "Version " + v + " of " + name );
+                        saves.incrementAndGet();
+
+                        long before = System.nanoTime();
+                        Assertions.assertEquals( "Version " + v + " of " + name, provider.getPageText( name, PageProvider.LATEST_VERSION ) );
+                        reads[ n++ ] = System.nanoTime() - before;
+                        before = System.nanoTime();
+                        Assertions.assertEquals( "Version 1 of " + name, provider.getPageText( name, 1 ) );
+                        reads[ n++ ] = System.nanoTime() - before;
+                    }
+                    latencies[ index ] = Arrays.copyOf( reads, n );
+                } catch( final Throwable e ) {
+                    synchronized( failures ) {
+                        failures.add( e );
+                    }
+                }
+            } ) );
+        }
+        workers.forEach( Thread::start );
+        start.countDown();
+        for( final Thread worker : workers ) {
+            worker.join();
+        }
+        Assertions.assertEquals( List.of(), failures );
+
+        final long[] all = Arrays.stream( latencies ).flatMapToLong( Arrays::stream ).sorted().toArray();
+        System.out.println( String.format( "%2d stripes%s, %2d threads: %7.0f saves/second, read latency %6.1f us average, %7.1f us p99",
+                                           stripes, cached ? " (cached)" : "", threads, saves.get() * 1000.0 / millis,
+                                           Arrays.stream( all ).average().orElse( 0 ) / 1000.0,
+                                           all.length > 0 ? all[ ( int )( all.length * 0.99 ) ] / 1000.0 : 0.0 ) );
+    }
+
 }
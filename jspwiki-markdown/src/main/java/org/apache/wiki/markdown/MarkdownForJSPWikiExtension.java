@@ -20,25 +20,51 @@ package org.apache.wiki.markdown;
 
 import com.vladsch.flexmark.html.HtmlRenderer;
 import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.data.DataKey;
 import com.vladsch.flexmark.util.data.MutableDataHolder;
-import org.apache.oro.text.regex.Pattern;
+import com.vladsch.flexmark.util.data.NullableDataKey;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.markdown.extensions.jspwikilinks.attributeprovider.JSPWikiLinkAttributeProviderFactory;
 import org.apache.wiki.markdown.extensions.jspwikilinks.postprocessor.JSPWikiNodePostProcessorFactory;
 import org.apache.wiki.markdown.renderer.JSPWikiNodeRendererFactory;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 
 /**
  * Flexmark entry point to bootstrap JSPWiki extensions.
+ * <p>
+ * An extension created without a wiki context can be used by a parser shared by several wiki contexts: the context, image
+ * inlining flag and inline image patterns of each parse are then read from the {@link #CONTEXT}, {@link #IMAGE_INLINING} and
+ * {@link #INLINE_IMAGE_PATTERNS} options of the parsed document.
  */
 public class MarkdownForJSPWikiExtension implements Parser.ParserExtension, HtmlRenderer.HtmlRendererExtension {
 
+	/** Wiki context of the parsed document, for parsers shared by several wiki contexts. */
+	public static final NullableDataKey< Context > CONTEXT = new NullableDataKey<>( "JSPWIKI_CONTEXT" );
+
+	/** Whether images are inlined in the parsed document, for parsers shared by several wiki contexts. */
+	public static final DataKey< Boolean > IMAGE_INLINING = new DataKey<>( "JSPWIKI_IMAGE_INLINING", false );
+
+	/** Inline image patterns of the parsed document, for parsers shared by several wiki contexts. */
+	public static final NullableDataKey< List< Pattern > > INLINE_IMAGE_PATTERNS = new NullableDataKey<>( "JSPWIKI_INLINE_IMAGE_PATTERNS" );
+
+	/** Collects the access rules of the parsed document, when the parser looks for access rules only. */
+	public static final NullableDataKey< List< String > > ACCESS_RULES = new NullableDataKey<>( "JSPWIKI_ACCESS_RULES" );
+
 	private final Context context;
 	private final boolean isImageInlining;
 	private final List< Pattern > inlineImagePatterns;
 
+	/**
+	 * Creates an extension for a parser shared by several wiki contexts, which reads the wiki context of each parse from the
+	 * options of the parsed document.
+	 */
+	public MarkdownForJSPWikiExtension() {
+		this( null, false, null );
+	}
+
 	public MarkdownForJSPWikiExtension( final Context context,
 										final boolean isImageInlining,
 										final List< Pattern > inlineImagePatterns ) {
@@ -30,6 +30,8 @@ import org.apache.wiki.auth.acl.AclManager;
 import org.apache.wiki.markdown.nodes.JSPWikiLink;
 import org.apache.wiki.render.RenderingManager;
 
+import java.util.List;
+
 
 /**
  * {@link NodePostProcessorState} which further post processes access rules links.
@@ -39,9 +41,21 @@ public class AccessRuleLinkNodePostProcessorState implements NodePostProcessorSt
     private static final Logger LOG = LoggerFactory.getLogger( AccessRuleLinkNodePostProcessorState.class );
     private final Context wikiContext;
     private final boolean m_wysiwygEditorMode;
+    private final List< String > accessRules;
 
     public AccessRuleLinkNodePostProcessorState( final Context wikiContext ) {
+        this( wikiContext, null );
+    }
+
+    /**
+     * Creates a state which, given a list for the access rules, adds the rules to it instead of applying them to the page.
+     *
+     * @param wikiContext the wiki context of the parsed document.
+     * @param accessRules collects the access rules, null to apply them to the page.
+     */
+    public AccessRuleLinkNodePostProcessorState( final Context wikiContext, final List< String > accessRules ) {
         this.wikiContext = wikiContext;
+        this.accessRules = accessRules;
         final Boolean wysiwygVariable = wikiContext.getVariable( Context.VAR_WYSIWYG_EDITOR_MODE );
         m_wysiwygEditorMode = wysiwygVariable != null ? wysiwygVariable : false;
     }
@@ -54,14 +68,20 @@ public class AccessRuleLinkNodePostProcessorState implements NodePostProcessorSt
     @Override
     public void process( final NodeTracker state, final JSPWikiLink link ) {
         String ruleLine = NodePostProcessorStateCommonOperations.inlineLinkTextOnWysiwyg( state, link, m_wysiwygEditorMode );
+        if( ruleLine.startsWith( "{" ) ) {
+            ruleLine = ruleLine.substring( 1 );
+        }
+        if( ruleLine.endsWith( "}" ) ) {
+            ruleLine = ruleLine.substring( 0, ruleLine.length() - 1 );
+        }
+        if( accessRules != null ) {
+            accessRules.add( ruleLine );
+            link.unlink();
+            state.nodeRemoved( link );
+            return;
+        }
         if( wikiContext.getEngine().getManager( RenderingManager.class ).getParser( wikiContext, link.getUrl().toString() ).isParseAccessRules() ) {
             final Page page = wikiContext.getRealPage();
-            if( ruleLine.startsWith( "{" ) ) {
-                ruleLine = ruleLine.substring( 1 );
-            }
-            if( ruleLine.endsWith( "}" ) ) {
-                ruleLine = ruleLine.substring( 0, ruleLine.length() - 1 );
-            }
             LOG.debug( "page=" + page.getName() + ", ACL = " + ruleLine );
 
             try {
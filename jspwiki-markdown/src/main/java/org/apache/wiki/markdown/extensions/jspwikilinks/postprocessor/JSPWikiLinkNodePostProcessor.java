@@ -25,14 +25,15 @@ import com.vladsch.flexmark.util.ast.Document;
 import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.util.ast.NodeTracker;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.oro.text.regex.Pattern;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.markdown.MarkdownForJSPWikiExtension;
 import org.apache.wiki.markdown.nodes.JSPWikiLink;
 import org.apache.wiki.parser.LinkParsingOperations;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.util.TextUtil;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 
 /**
@@ -48,6 +49,8 @@ public class JSPWikiLinkNodePostProcessor extends NodePostProcessor {
     private final List< Pattern > inlineImagePatterns;
     protected boolean m_useOutlinkImage = true;
     protected final Document document;
+    /** Collects the access rules, when looking for access rules only, null otherwise. */
+    private final List< String > accessRules;
 
     public JSPWikiLinkNodePostProcessor( final Context m_context,
                                          final Document document,
@@ -58,6 +61,7 @@ public class JSPWikiLinkNodePostProcessor extends NodePostProcessor {
         linkOperations = new LinkParsingOperations( m_context );
         this.isImageInlining = isImageInlining;
         this.inlineImagePatterns = inlineImagePatterns;
+        this.accessRules = MarkdownForJSPWikiExtension.ACCESS_RULES.get( document );
         m_useOutlinkImage = m_context.getBooleanWikiProperty( MarkupParser.PROP_USEOUTLINKIMAGE, m_useOutlinkImage );
     }
 
@@ -70,6 +74,13 @@ public class JSPWikiLinkNodePostProcessor extends NodePostProcessor {
     public void process( final NodeTracker state, final Node node ) {
         if( node instanceof Link ) {
             final JSPWikiLink link = replaceLinkWithJSPWikiLink( state, node );
+            if( accessRules != null ) {
+                // looking for access rules only, leave any other link as it is
+                if( linkOperations.isAccessRule( link.getUrl().toString() ) ) {
+                    new AccessRuleLinkNodePostProcessorState( m_context, accessRules ).process( state, link );
+                }
+                return;
+            }
 
             final NodePostProcessorState< JSPWikiLink > linkPostProcessor;
             if( linkOperations.isAccessRule( link.getUrl().toString() ) ) {
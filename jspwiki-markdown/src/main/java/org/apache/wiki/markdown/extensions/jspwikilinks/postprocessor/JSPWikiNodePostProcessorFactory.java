@@ -23,14 +23,18 @@ import com.vladsch.flexmark.parser.block.NodePostProcessor;
 import com.vladsch.flexmark.parser.block.NodePostProcessorFactory;
 import com.vladsch.flexmark.util.ast.Document;
 import com.vladsch.flexmark.util.data.DataHolder;
-import org.apache.oro.text.regex.Pattern;
 import org.apache.wiki.api.core.Context;
+import org.apache.wiki.markdown.MarkdownForJSPWikiExtension;
 
 import java.util.List;
+import java.util.regex.Pattern;
 
 
 /**
  * Simple {@link NodePostProcessorFactory} to instantiate {@link JSPWikiLinkNodePostProcessor}s.
+ * <p>
+ * A factory without a wiki context serves a parser shared by several wiki contexts, and takes the wiki context of each document from
+ * its options. These are set on the parsed text, see {@link #options(Document)}, and copied into the document on each parse.
  */
 public class JSPWikiNodePostProcessorFactory extends NodePostProcessorFactory {
 
@@ -54,7 +58,39 @@ public class JSPWikiNodePostProcessorFactory extends NodePostProcessorFactory {
      */
     @Override
     public NodePostProcessor apply( final Document document ) {
-        return new JSPWikiLinkNodePostProcessor( m_context, document, isImageInlining, inlineImagePatterns );
+        if( m_context != null ) {
+            return new JSPWikiLinkNodePostProcessor( m_context, document, isImageInlining, inlineImagePatterns );
+        }
+        options( document );
+        final Context context = MarkdownForJSPWikiExtension.CONTEXT.get( document );
+        if( context == null ) {
+            throw new IllegalStateException( "No wiki context given for the markdown document" );
+        }
+        return new JSPWikiLinkNodePostProcessor( context,
+                                                 document,
+                                                 MarkdownForJSPWikiExtension.IMAGE_INLINING.get( document ),
+                                                 MarkdownForJSPWikiExtension.INLINE_IMAGE_PATTERNS.get( document ) );
+    }
+
+    /**
+     * Copies the JSPWiki options given with the parsed text, through a {@link com.vladsch.flexmark.util.sequence.BasedOptionsSequence},
+     * into the document, unless the document already has them.
+     *
+     * @param document the parsed document.
+     */
+    static void options( final Document document ) {
+        if( MarkdownForJSPWikiExtension.CONTEXT.get( document ) == null ) {
+            final Context context = document.getChars().getOption( MarkdownForJSPWikiExtension.CONTEXT );
+            if( context != null ) {
+                document.set( MarkdownForJSPWikiExtension.CONTEXT, context );
+                document.set( MarkdownForJSPWikiExtension.IMAGE_INLINING,
+                              document.getChars().getOption( MarkdownForJSPWikiExtension.IMAGE_INLINING ) );
+                document.set( MarkdownForJSPWikiExtension.INLINE_IMAGE_PATTERNS,
+                              document.getChars().getOption( MarkdownForJSPWikiExtension.INLINE_IMAGE_PATTERNS ) );
+                document.set( MarkdownForJSPWikiExtension.ACCESS_RULES,
+                              document.getChars().getOption( MarkdownForJSPWikiExtension.ACCESS_RULES ) );
+            }
+        }
     }
 
 }
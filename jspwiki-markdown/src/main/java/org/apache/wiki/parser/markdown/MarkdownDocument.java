@@ -28,7 +28,6 @@ import com.vladsch.flexmark.parser.ParserEmulationProfile;
 import com.vladsch.flexmark.util.ast.Node;
 import com.vladsch.flexmark.util.data.MutableDataSet;
 import com.vladsch.flexmark.util.misc.Extension;
-import org.apache.oro.text.regex.Pattern;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.Page;
 import org.apache.wiki.markdown.MarkdownForJSPWikiExtension;
@@ -37,6 +36,7 @@ import org.apache.wiki.parser.WikiDocument;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.regex.Pattern;
 
 
 /**
@@ -64,12 +64,26 @@ public class MarkdownDocument extends WikiDocument {
      * @return configuration options for MarkdownRenderers.
      */
     public static MutableDataSet options( final Context context, final boolean isImageInlining, final List< Pattern > inlineImagePatterns ) {
+        return options( new MarkdownForJSPWikiExtension( context, isImageInlining, inlineImagePatterns ) );
+    }
+
+    /**
+     * Configuration options for the parser shared by all {@link MarkdownParser}s. They do not depend on any wiki context, as the
+     * JSPWiki extension reads the wiki context of each parse from the options of the parsed document.
+     *
+     * @return configuration options for the shared markdown parser.
+     */
+    static MutableDataSet parserOptions() {
+        return options( new MarkdownForJSPWikiExtension() );
+    }
+
+    private static MutableDataSet options( final Extension jspwikiExtension ) {
         final MutableDataSet options = new MutableDataSet();
         options.setFrom( ParserEmulationProfile.COMMONMARK );
         options.set( AttributesExtension.ASSIGN_TEXT_ATTRIBUTES, true );
         // align style of Markdown's footnotes extension with jspwiki footnotes refs
         options.set( FootnoteExtension.FOOTNOTE_LINK_REF_CLASS, JSPWikiMarkupParser.CLASS_FOOTNOTE_REF );
-        options.set( Parser.EXTENSIONS, Arrays.asList( new Extension[] { new MarkdownForJSPWikiExtension( context, isImageInlining, inlineImagePatterns ),
+        options.set( Parser.EXTENSIONS, Arrays.asList( new Extension[] { jspwikiExtension,
                                                                          AttributesExtension.create(),
                                                                          DefinitionExtension.create(),
                                                                          FootnoteExtension.create(),
@@ -20,12 +20,17 @@ package org.apache.wiki.parser.markdown;
 
 import com.vladsch.flexmark.parser.Parser;
 import com.vladsch.flexmark.util.ast.Node;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+import com.vladsch.flexmark.util.sequence.BasedOptionsSequence;
+import com.vladsch.flexmark.util.sequence.BasedSequence;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.auth.AuthorizationManager;
 import org.apache.wiki.auth.UserManager;
+import org.apache.wiki.markdown.MarkdownForJSPWikiExtension;
 import org.apache.wiki.parser.LinkParsingOperations;
 import org.apache.wiki.parser.MarkupParser;
 import org.apache.wiki.parser.WikiDocument;
+import org.apache.wiki.util.FileUtil;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -33,10 +38,13 @@ import java.io.Reader;
 
 /**
  * Class handling the markdown parsing.
+ * <p>
+ * Building a flexmark {@link Parser} sets up all the extensions, so a single, thread safe parser is shared by every instance. The wiki
+ * context each instance parses with is handed over to the JSPWiki extension as options of the parsed text.
  */
 public class MarkdownParser extends MarkupParser {
 
-    private final Parser parser;
+    private static final Parser PARSER = Parser.builder( MarkdownDocument.parserOptions() ).build();
 
     public MarkdownParser( final Context context, final Reader in ) {
         super( context, in, new LinkParsingOperations(context));
@@ -44,7 +52,6 @@ public class MarkdownParser extends MarkupParser {
             context.getEngine().getManager( AuthorizationManager.class ) == null ) {
             disableAccessRules();
         }
-        parser = Parser.builder( MarkdownDocument.options( context, isImageInlining(), getInlineImagePatterns() ) ).build();
     }
 
     /**
@@ -52,7 +59,12 @@ public class MarkdownParser extends MarkupParser {
      */
     @Override
     public WikiDocument parse() throws IOException {
-        final Node document = parser.parseReader( m_in );
+        final MutableDataSet options = new MutableDataSet();
+        options.set( MarkdownForJSPWikiExtension.CONTEXT, m_context );
+        options.set( MarkdownForJSPWikiExtension.IMAGE_INLINING, isImageInlining() );
+        options.set( MarkdownForJSPWikiExtension.INLINE_IMAGE_PATTERNS, getInlineImagePatterns() );
+        options.set( MarkdownForJSPWikiExtension.ACCESS_RULES, m_accessRules );
+        final Node document = PARSER.parse( BasedSequence.of( BasedOptionsSequence.of( FileUtil.readContents( m_in ), 0, options ) ) );
         final MarkdownDocument md = new MarkdownDocument( m_context.getPage(), document );
         md.setContext( m_context );
 
@@ -0,0 +1,123 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.parser.markdown;
+
+import com.vladsch.flexmark.parser.Parser;
+import org.apache.wiki.TestEngine;
+import org.apache.wiki.api.core.Context;
+import org.apache.wiki.api.core.Page;
+import org.apache.wiki.api.spi.Wiki;
+import org.apache.wiki.render.RenderingManager;
+import org.apache.wiki.render.markdown.MarkdownRenderer;
+import org.apache.wiki.stress.Benchmark;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.wiki.TestEngine.with;
+
+
+/**
+ * Measures markdown parse throughput over a corpus of pages, comparing the shared parser used by {@link MarkdownParser} with building
+ * a flexmark parser for every page, which was how pages used to be parsed. Uses the generated markdown wiki pages if they are available,
+ * a synthetic corpus otherwise. Not run by default, run with {@code mvn test -Dtest=StressTestMarkdownParser}.
+ */
+public class StressTestMarkdownParser {
+
+    private static final File CORPUS = new File( "../jspwiki-wikipages/en/src/main/resources/markdown" );
+    private static final int SYNTHETIC_PAGES = 200;
+    private static final int ROUNDS = 20;
+
+    TestEngine engine = TestEngine.build( with( RenderingManager.PROP_PARSER, MarkdownParser.class.getName() ),
+                                          with( RenderingManager.PROP_RENDERER, MarkdownRenderer.class.getName() ) );
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    public void testParseThroughput() throws Exception {
+        final List< String > corpus = corpus();
+        final Page page = Wiki.contents().page( engine, "Benchmark" );
+        final Context context = Wiki.context().create( engine, page );
+
+        measure( "per page parser", corpus, context, true );
+        measure( "shared parser", corpus, context, false );
+        final double perPage = measure( "per page parser", corpus, context, true );
+        final double shared = measure( "shared parser", corpus, context, false );
+        System.out.println( String.format( "shared parser is %.1fx faster", perPage / shared ) );
+    }
+
+    double measure( final String label, final List< String > corpus, final Context context, final boolean buildParser ) throws IOException {
+        final Benchmark sw = new Benchmark();
+        sw.start();
+        for( int round = 0; round < ROUNDS; round++ ) {
+            for( final String text : corpus ) {
+                final MarkdownParser mp = new MarkdownParser( context, new StringReader( text ) );
+                if( buildParser ) {
+                    Assertions.assertNotNull( Parser.builder( MarkdownDocument.options( context, mp.isImageInlining(), mp.getInlineImagePatterns() ) )
+                                                    .build()
+                                                    .parse( text ) );
+                } else {
+                    Assertions.assertNotNull( mp.parse() );
+                }
+            }
+        }
+        sw.stop();
+        final int pages = ROUNDS * corpus.size();
+        System.out.println( String.format( "%-16s: %s pages/second", label, sw.toString( pages ) ) );
+        return sw.getNanoTime() / ( double )pages;
+    }
+
+    List< String > corpus() throws IOException {
+        final List< String > corpus = new ArrayList<>();
+        final File[] files = CORPUS.listFiles( ( dir, name ) -> name.endsWith( ".txt" ) );
+        if( files != null && files.length > 0 ) {
+            for( final File file : files ) {
+                corpus.add( new String( Files.readAllBytes( file.toPath() ), StandardCharsets.UTF_8 ) );
+            }
+            System.out.println( "Parsing " + corpus.size() + " pages from " + CORPUS.getCanonicalPath() );
+            return corpus;
+        }
+
+        for( int i = 0; i < SYNTHETIC_PAGES; i++ ) {
+            final StringBuilder sb = new StringBuilder();
+            sb.append( "# Page " ).append( i ).append( "\n\n" );
+            for( int p = 0; p < 10; p++ ) {
+                sb.append( "Some *emphasized* and **strong** text linking to [Page" ).append( ( i + p ) % SYNTHETIC_PAGES )
+                  .append( "]() and to [an external site](https://jspwiki.apache.org) with a footnote[^" ).append( p ).append( "].\n\n" );
+                sb.append( "[^" ).append( p ).append( "]: Footnote " ).append( p ).append( "\n\n" );
+            }
+            sb.append( "* one\n* two\n  * nested\n\n| a | b |\n|---|---|\n| 1 | 2 |\n\nTerm\n: Definition\n\n```\ncode block\n```\n" );
+            corpus.add( sb.toString() );
+        }
+        System.out.println( "Parsing " + SYNTHETIC_PAGES + " synthetic pages" );
+        return corpus;
+    }
+
+}
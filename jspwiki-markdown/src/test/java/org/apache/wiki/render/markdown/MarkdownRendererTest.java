@@ -26,6 +26,7 @@ import org.apache.wiki.api.core.Page;
 import org.apache.wiki.api.exceptions.WikiException;
 import org.apache.wiki.api.spi.Wiki;
 import org.apache.wiki.attachment.AttachmentManager;
+import org.apache.wiki.auth.acl.AclManager;
 import org.apache.wiki.pages.PageManager;
 import org.apache.wiki.parser.markdown.MarkdownParser;
 import org.junit.jupiter.api.AfterEach;
@@ -149,6 +150,23 @@ public class MarkdownRendererTest {
                                  ( testEngine.getManager( PageManager.class ).getPage( PAGE_NAME ) ).getAcl().toString() );
     }
 
+    @Test
+    public void testMarkupExtensionACLIndexed() throws Exception {
+        newPage( "MarkupExtensionACLIndexed", "~[{ALLOW view PerryMason}]() is a rule in markdown,\n\n"
+                                               + "`[{ALLOW view Alice}]()` is code\n\n"
+                                               + "```\n[{ALLOW edit Bob}]()\n```\n\n"
+                                               + "{{{ [{ALLOW edit Charlie}]() }}} is not a JSPWiki code block\n" );
+        final Page page = testEngine.getManager( PageManager.class ).getPage( "MarkupExtensionACLIndexed" );
+        page.setAcl( null );
+
+        // the ACL comes from the ACL index, without rendering the page
+        final String acl = testEngine.getManager( AclManager.class ).getPermissions( page ).toString();
+        Assertions.assertTrue( acl.contains( "PerryMason" ), acl );
+        Assertions.assertTrue( acl.contains( "Charlie" ), acl );
+        Assertions.assertFalse( acl.contains( "Alice" ), acl );
+        Assertions.assertFalse( acl.contains( "Bob" ), acl );
+    }
+
     @Test
     public void testMarkupExtensionMetadata() throws Exception {
         final String src = "[{SET Perry='Mason'}]() Some text after setting metadata";
@@ -7,9 +7,9 @@ import java.io.Reader;
 import java.text.MessageFormat;
 import java.util.Iterator;
 import java.util.ResourceBundle;
+import java.util.regex.Matcher;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.oro.text.regex.MatchResult;
 import org.apache.wiki.api.core.Context;
 import org.apache.wiki.api.core.ContextEnum;
 import org.apache.wiki.api.core.Page;
@@ -202,9 +202,11 @@ public class JSPWikiMarkupParserMultiWiki extends JSPWikiMarkupParser {
 				// This is the heaviest part of parsing, and therefore we can do some optimization here.
 				// 1) Only when the length of the buffer is big enough, we try to do the match
 				if (m_camelCaseLinks && !m_isEscaping && buf.length() > 3) {
-					while (m_camelCaseMatcher.contains(buf, m_camelCasePattern)) {
-						final MatchResult result = m_camelCaseMatcher.getMatch();
-						final String firstPart = buf.substring(0, result.beginOffset(0));
+					// the region is moved past every match, so that ^ matches where the previous match ended
+					final Matcher result = m_camelCasePattern.matcher(buf);
+					int start = 0;
+					while (result.region(start, buf.length()).find()) {
+						final String firstPart = buf.substring(start, result.start());
 						String prefix = result.group(1);
 						if (prefix == null) {
 							prefix = "";
@@ -213,7 +215,7 @@ public class JSPWikiMarkupParserMultiWiki extends JSPWikiMarkupParser {
 						final String camelCase = result.group(2);
 						final String protocol = result.group(3);
 						String uri = protocol + result.group(4);
-						buf = buf.substring(result.endOffset(0));
+						start = result.end();
 
 						m_currentElement.addContent(firstPart);
 						//  Check if the user does not wish to do URL or WikiWord expansion
@@ -238,7 +240,7 @@ public class JSPWikiMarkupParserMultiWiki extends JSPWikiMarkupParser {
 							final char c = uri.charAt(uri.length() - 1);
 							if (c == '.' || c == ',') {
 								uri = uri.substring(0, uri.length() - 1);
-								buf = c + buf;
+								start--;
 							}
 							// System.out.println("URI match "+uri);
 							m_currentElement.addContent(prefix);
@@ -252,7 +254,7 @@ public class JSPWikiMarkupParserMultiWiki extends JSPWikiMarkupParser {
 							makeCamelCaseLink(camelCase, m_context.getPage(), m_context.getRealPage());
 						}
 					}
-					m_currentElement.addContent(buf);
+					m_currentElement.addContent(buf.substring(start));
 				}
 				else {
 					//  No camelcase asked for, just add the elements
@@ -155,6 +155,8 @@ public class FileSystemProviderMultiWiki extends FileSystemProvider implements M
 		final File fromPage = findPage(from.getName());
 		final File toPage = findPage(to);
 		fromPage.renameTo(toPage);
+		pageFileChanged(fromPage);
+		pageFileChanged(toPage);
 	}
 
 	/**
@@ -0,0 +1,126 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.util;
+
+import java.util.regex.Pattern;
+
+
+/**
+ *  Static helpers for {@link java.util.regex} patterns. Compiled patterns are immutable and may be shared between threads, so they
+ *  should be compiled once and kept, with a new {@link java.util.regex.Matcher} created for every match.
+ */
+public final class RegexUtil {
+
+    /** Glob characters which may be escaped with a backslash. */
+    private static final String GLOB_SPECIALS = "*?[]\\";
+
+    /** Private constructor prevents instantiation. */
+    private RegexUtil() {}
+
+    /**
+     *  Compiles a glob pattern, such as {@code *.png}. See {@link #globToRegex(String)} for the supported syntax.
+     *
+     *  @param glob the glob pattern.
+     *  @return the compiled pattern, which has to match the whole input.
+     */
+    public static Pattern compileGlob( final String glob ) {
+        return Pattern.compile( globToRegex( glob ) );
+    }
+
+    /**
+     *  Translates a glob pattern into a regular expression, following the syntax of the glob patterns JSPWiki used to compile with
+     *  Jakarta ORO:
+     *  <ul>
+     *    <li>{@code *} matches any number of characters, {@code ?} exactly one character.</li>
+     *    <li>{@code [...]} matches one of the enclosed characters or ranges, {@code [!...]} or {@code [^...]} any character which
+     *    is not enclosed. A {@code ]} right after the opening bracket is matched literally.</li>
+     *    <li>A backslash escapes a following {@code *}, {@code ?}, {@code [}, {@code ]} or backslash, and matches itself
+     *    otherwise.</li>
+     *  </ul>
+     *  Everything else matches itself.
+     *
+     *  @param glob the glob pattern.
+     *  @return the equivalent regular expression.
+     */
+    public static String globToRegex( final String glob ) {
+        final StringBuilder sb = new StringBuilder( glob.length() + 16 );
+        for( int i = 0; i < glob.length(); i++ ) {
+            final char c = glob.charAt( i );
+            switch( c ) {
+            case '*':
+                sb.append( ".*" );
+                break;
+            case '?':
+                sb.append( '.' );
+                break;
+            case '[':
+                i = appendCharacterClass( sb, glob, i );
+                break;
+            case '\\':
+                if( i + 1 < glob.length() && GLOB_SPECIALS.indexOf( glob.charAt( i + 1 ) ) >= 0 ) {
+                    i++;
+                }
+                appendLiteral( sb, glob.charAt( i ) );
+                break;
+            default:
+                appendLiteral( sb, c );
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     *  Appends the character class starting at {@code start}, or a literal bracket if the class is not closed.
+     *
+     *  @return the index of the last character consumed.
+     */
+    static int appendCharacterClass( final StringBuilder sb, final String glob, final int start ) {
+        int first = start + 1;
+        final boolean negated = first < glob.length() && ( glob.charAt( first ) == '!' || glob.charAt( first ) == '^' );
+        if( negated ) {
+            first++;
+        }
+        final int end = glob.indexOf( ']', first + 1 );
+        if( first >= glob.length() || end < 0 ) {
+            appendLiteral( sb, '[' );
+            return start;
+        }
+
+        sb.append( negated ? "[^" : "[" );
+        for( int i = first; i < end; i++ ) {
+            final char c = glob.charAt( i );
+            if( c == '-' && i > first && i < end - 1 ) {
+                sb.append( '-' );
+            } else {
+                appendLiteral( sb, c );
+            }
+        }
+        sb.append( ']' );
+        return end;
+    }
+
+    static void appendLiteral( final StringBuilder sb, final char c ) {
+        // escaping an ASCII character which is not a letter or a digit is always allowed, and takes away any special meaning
+        if( c < 128 && !Character.isLetterOrDigit( c ) ) {
+            sb.append( '\\' );
+        }
+        sb.append( c );
+    }
+
+}
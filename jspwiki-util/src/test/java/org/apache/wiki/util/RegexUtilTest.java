@@ -0,0 +1,67 @@
+/*
+    Licensed to the Apache Software Foundation (ASF) under one
+    or more contributor license agreements.  See the NOTICE file
+    distributed with this work for additional information
+    regarding copyright ownership.  The ASF licenses this file
+    to you under the Apache License, Version 2.0 (the
+    "License"); you may not use this file except in compliance
+    with the License.  You may obtain a copy of the License at
+
+       http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing,
+    software distributed under the License is distributed on an
+    "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+    KIND, either express or implied.  See the License for the
+    specific language governing permissions and limitations
+    under the License.
+ */
+package org.apache.wiki.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+
+public class RegexUtilTest {
+
+    boolean matches( final String glob, final String text ) {
+        return RegexUtil.compileGlob( glob ).matcher( text ).matches();
+    }
+
+    @Test
+    public void testWildcards() {
+        Assertions.assertTrue( matches( "*.png", "image.png" ) );
+        Assertions.assertTrue( matches( "*.png", ".png" ) );
+        Assertions.assertFalse( matches( "*.png", "image.png.txt" ) );
+        Assertions.assertFalse( matches( "*.png", "imagexpng" ), "dots are literal" );
+        Assertions.assertTrue( matches( "http://*.example.com/?.gif", "http://www.example.com/a.gif" ) );
+        Assertions.assertFalse( matches( "http://*.example.com/?.gif", "http://www.example.com/ab.gif" ) );
+    }
+
+    @Test
+    public void testCharacterClasses() {
+        Assertions.assertTrue( matches( "file[0-9].txt", "file7.txt" ) );
+        Assertions.assertFalse( matches( "file[0-9].txt", "filex.txt" ) );
+        Assertions.assertTrue( matches( "file[!0-9].txt", "filex.txt" ) );
+        Assertions.assertTrue( matches( "file[^0-9].txt", "filex.txt" ) );
+        Assertions.assertTrue( matches( "[]a]", "]" ) );
+        Assertions.assertTrue( matches( "[a-]", "-" ) );
+        Assertions.assertTrue( matches( "[*?]", "?" ) );
+        Assertions.assertFalse( matches( "[*?]", "x" ) );
+        Assertions.assertTrue( matches( "a[b", "a[b" ), "unclosed brackets are literal" );
+    }
+
+    @Test
+    public void testEscapes() {
+        Assertions.assertTrue( matches( "a\\*", "a*" ) );
+        Assertions.assertFalse( matches( "a\\*", "ab" ) );
+        Assertions.assertTrue( matches( "a\\b", "a\\b" ) );
+        Assertions.assertTrue( matches( "(a)|{b}+^$", "(a)|{b}+^$" ) );
+        Assertions.assertTrue( matches( "Zoltán*", "Zoltán.jpg" ) );
+        Assertions.assertEquals( "\\.\\*", RegexUtil.globToRegex( ".\\*" ) );
+        Assertions.assertEquals( Pattern.compile( ".*\\.png" ).pattern(), RegexUtil.globToRegex( "*.png" ) );
+    }
+
+}